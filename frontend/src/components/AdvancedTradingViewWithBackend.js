@@ -1,6 +1,7 @@
 import React, { useEffect, useRef, useState } from 'react';
 import styled from 'styled-components';
-import { marketAnalysisAPI } from '../services/api';
+import { marketAnalysisAPI, stockAPI } from '../services/api';
+import { columnsToCandles } from '../services/barCodec';
 
 // Generate sample candlestick data
 const generateSampleData = () => {
@@ -237,11 +238,11 @@ function AdvancedTradingViewWithBackend() {
             wickUpColor: '#10b981',
           });
 
-          // Load sample data
-          const sampleData = generateSampleData();
-          candlestickSeries.setData(sampleData);
-
-          chart.timeScale().fitContent();
+          // Load stored bars in the binary format; fall back to sample data for unknown symbols
+          stockAPI.getStockDataBinary(selectedSymbol)
+            .then((columns) => candlestickSeries.setData(columnsToCandles(columns)))
+            .catch(() => candlestickSeries.setData(generateSampleData()))
+            .finally(() => chart.timeScale().fitContent());
         }
       };
       document.head.appendChild(script);
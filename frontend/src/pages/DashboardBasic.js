@@ -1,7 +1,8 @@
-import React from 'react';
+import React, { useState, useEffect } from 'react';
 import styled from 'styled-components';
 import { TrendingUp, TrendingDown, BarChart3, Signal } from 'lucide-react';
 import SimpleTradingView from '../components/SimpleTradingView';
+import { stockAPI, marketAnalysisAPI } from '../services/api';
 
 const DashboardContainer = styled.div`
   max-width: 1200px;
@@ -79,7 +80,35 @@ const SectionTitle = styled.h2`
 
 
 function DashboardBasic() {
-  const symbols = ['AAPL', 'GOOGL', 'MSFT', 'TSLA', 'AMZN'];
+  const [symbols, setSymbols] = useState([]);
+  const [analyses, setAnalyses] = useState({});
+
+  useEffect(() => {
+    loadAnalyses();
+  }, []);
+
+  // One batch request for every symbol instead of one /market-analysis/{symbol} call each
+  const loadAnalyses = async () => {
+    try {
+      const symbolsResponse = await stockAPI.getSymbols();
+      const stored = symbolsResponse.data || [];
+      setSymbols(stored);
+      if (stored.length > 0) {
+        // The server caps a batch at market-analysis.max-batch-symbols (1000)
+        const response = await marketAnalysisAPI.getBatchAnalysis(stored.slice(0, 1000));
+        setAnalyses(response.data.results || {});
+      }
+    } catch (err) {
+      console.error('Error loading market analysis:', err);
+    }
+  };
+
+  const countSignals = (type) => Object.values(analyses)
+    .filter(analysis => analysis.predictionSignal && analysis.predictionSignal.signalType === type)
+    .length;
+  const activeSignals = Object.values(analyses)
+    .filter(analysis => analysis.predictionSignal && analysis.predictionSignal.signalType !== 'HOLD')
+    .length;
 
   return (
     <DashboardContainer>
@@ -98,7 +127,7 @@ function DashboardBasic() {
           <StatIcon color="#10b981">
             <TrendingUp />
           </StatIcon>
-          <StatValue>5</StatValue>
+          <StatValue>{countSignals('LONG')}</StatValue>
           <StatLabel>Tín hiệu MUA (LONG)</StatLabel>
         </StatCard>
 
@@ -106,7 +135,7 @@ function DashboardBasic() {
           <StatIcon color="#ef4444">
             <TrendingDown />
           </StatIcon>
-          <StatValue>3</StatValue>
+          <StatValue>{countSignals('SHORT')}</StatValue>
           <StatLabel>Tín hiệu BÁN (SHORT)</StatLabel>
         </StatCard>
 
@@ -114,7 +143,7 @@ function DashboardBasic() {
           <StatIcon color="#f59e0b">
             <Signal />
           </StatIcon>
-          <StatValue>8</StatValue>
+          <StatValue>{activeSignals}</StatValue>
           <StatLabel>Tín hiệu hoạt động</StatLabel>
         </StatCard>
       </StatsGrid>
@@ -125,7 +154,7 @@ function DashboardBasic() {
           Biểu đồ Giá cổ phiếu
         </SectionTitle>
 
-        <SimpleTradingView symbol="AAPL" />
+        <SimpleTradingView symbol={symbols[0] || 'VNM'} />
       </ChartSection>
     </DashboardContainer>
   );
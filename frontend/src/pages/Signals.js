@@ -1,7 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import styled from 'styled-components';
 import { TrendingUp, TrendingDown, AlertTriangle, Activity, Filter } from 'lucide-react';
-import { signalAPI, formatPrice, formatDateTime } from '../services/api';
+import { signalAPI, streamAPI, formatPrice, formatDateTime } from '../services/api';
 
 const SignalsContainer = styled.div`
   max-width: 1200px;
@@ -225,6 +225,13 @@ function Signals() {
 
   useEffect(() => {
     loadSignals();
+
+    // New signals are pushed by the server instead of re-downloading the list
+    const source = streamAPI.subscribe('*', {
+      onSignal: (signal) => setSignals(prev => [signal, ...prev]),
+      onDropped: () => loadSignals(),
+    });
+    return () => source.close();
   }, []);
 
   useEffect(() => {
@@ -1,4 +1,5 @@
 import axios from 'axios';
+import { BINARY_BARS, COLUMNAR_JSON, decodeBinaryBars } from './barCodec';
 
 const API_BASE_URL = 'http://localhost:8080/api';
 
@@ -14,15 +15,32 @@ export const stockAPI = {
   // Get all available symbols
   getSymbols: () => api.get('/stocks/symbols'),
   
-  // Get stock data for a symbol
-  getStockData: (symbol) => api.get(`/stocks/${symbol}`),
+  // Get stock data for a symbol; pass { since } or { afterId } to fetch only newer bars
+  getStockData: (symbol, params) => api.get(`/stocks/${symbol}`, { params }),
   
-  // Get stock data in TradingView format
-  getStockDataForTradingView: (symbol) => api.get(`/stocks/${symbol}/tradingview`),
+  // Get stock data in TradingView format; pass { since } or { afterId } to fetch only newer bars
+  getStockDataForTradingView: (symbol, params) => api.get(`/stocks/${symbol}/tradingview`, { params }),
+  
+  // Get chart bars as columnar JSON { t, o, h, l, c, v } (t in epoch seconds)
+  getStockDataColumnar: (symbol, params) =>
+    api.get(`/stocks/${symbol}/tradingview`, { params, headers: { Accept: COLUMNAR_JSON } }),
+  
+  // Get chart bars in the binary format, decoded to typed-array columns { t, o, h, l, c, v }
+  getStockDataBinary: async (symbol, params) => {
+    const response = await api.get(`/stocks/${symbol}/tradingview`, {
+      params,
+      headers: { Accept: BINARY_BARS },
+      responseType: 'arraybuffer',
+    });
+    return decodeBinaryBars(response.data);
+  },
   
   // Get latest stock data for a symbol
   getLatestStockData: (symbol) => api.get(`/stocks/${symbol}/latest`),
   
+  // Get bars over a range from the coarsest fitting rollup (params: from, to, resolution, maxBars)
+  getBars: (symbol, params) => api.get(`/stocks/${symbol}/bars`, { params }),
+  
   // Get stock data in date range
   getStockDataInRange: (symbol, startDate, endDate) => 
     api.get(`/stocks/${symbol}/range?startDate=${startDate}&endDate=${endDate}`),
@@ -46,11 +64,11 @@ export const stockAPI = {
 
 // Prediction Signal API
 export const signalAPI = {
-  // Get all signals for a symbol
-  getSignals: (symbol) => api.get(`/signals/${symbol}`),
+  // Get all signals for a symbol; pass { since } or { afterId } to fetch only newer signals
+  getSignals: (symbol, params) => api.get(`/signals/${symbol}`, { params }),
   
-  // Get signals in TradingView format
-  getSignalsForTradingView: (symbol) => api.get(`/signals/${symbol}/tradingview`),
+  // Get signals in TradingView format; pass { since } or { afterId } to fetch only newer signals
+  getSignalsForTradingView: (symbol, params) => api.get(`/signals/${symbol}/tradingview`, { params }),
   
   // Get latest signal for a symbol
   getLatestSignal: (symbol) => api.get(`/signals/${symbol}/latest`),
@@ -60,22 +78,25 @@ export const signalAPI = {
     api.get(`/signals/${symbol}/range?startDate=${startDate}&endDate=${endDate}`),
   
   // Get signals by type
-  getSignalsByType: (signalType) => api.get(`/signals/type/${signalType}`),
+  getSignalsByType: (signalType, page) => api.get(`/signals/type/${signalType}`, { params: page }),
   
   // Get signals by symbol and type
   getSignalsBySymbolAndType: (symbol, signalType) => 
     api.get(`/signals/${symbol}/type/${signalType}`),
   
   // Get high confidence signals
-  getHighConfidenceSignals: (threshold = 70.0) => 
-    api.get(`/signals/high-confidence?threshold=${threshold}`),
+  getHighConfidenceSignals: (threshold = 70.0, page) => 
+    api.get(`/signals/high-confidence`, { params: { threshold, ...page } }),
   
   // Get recent signals
-  getRecentSignals: (days = 7) => api.get(`/signals/recent?days=${days}`),
+  getRecentSignals: (days = 7, page) => api.get(`/signals/recent`, { params: { days, ...page } }),
   
   // Get signal statistics
   getSignalStats: (symbol) => api.get(`/signals/${symbol}/stats`),
   
+  // Get signal statistics across all symbols
+  getMarketSignalStats: () => api.get('/signals/stats'),
+  
   // Add new signal
   addSignal: (symbol, signal) => api.post(`/signals/${symbol}`, signal),
   
@@ -113,6 +134,9 @@ export const marketAnalysisAPI = {
   // Get comprehensive market analysis
   getMarketAnalysis: (symbol) => api.get(`/market-analysis/${symbol}`),
   
+  // Get analysis for many symbols in one request: { results: { [symbol]: analysis } }
+  getBatchAnalysis: (symbols) => api.post('/market-analysis/batch', symbols),
+  
   // Get technical analysis only
   getTechnicalAnalysis: (symbol) => api.get(`/market-analysis/${symbol}/technical`),
   
@@ -126,6 +150,32 @@ export const marketAnalysisAPI = {
   healthCheck: () => api.get('/market-analysis/health'),
 };
 
+// List endpoints are keyset paginated: pass { limit, cursor } as 'page' and read the next
+// cursor from the X-Next-Cursor response header (absent on the last page)
+export const nextCursor = (response) => response.headers['x-next-cursor'] || null;
+
+// Live Stream API (Server-Sent Events)
+export const streamAPI = {
+  // Subscribe to new bars and signals; symbols is an array or '*' for all symbols.
+  // Returns the EventSource, call close() on it to unsubscribe.
+  subscribe: (symbols, { onBar, onSignal, onDropped, onError } = {}) => {
+    const path = Array.isArray(symbols) ? symbols.map(encodeURIComponent).join(',') : symbols;
+    const source = new EventSource(`${API_BASE_URL}/stream/${path}`);
+    if (onBar) source.addEventListener('bar', (e) => onBar(JSON.parse(e.data)));
+    if (onSignal) source.addEventListener('signal', (e) => onSignal(JSON.parse(e.data)));
+    // Sent when this client fell behind and messages were dropped: refetch over REST
+    if (onDropped) source.addEventListener('dropped', (e) => onDropped(JSON.parse(e.data)));
+    if (onError) source.onerror = onError;
+    return source;
+  },
+
+  // Subscriber statistics
+  getStats: () => api.get('/stream/stats'),
+
+  // Health check
+  healthCheck: () => api.get('/stream/health'),
+};
+
 // Utility functions
 export const formatDate = (dateString) => {
   return new Date(dateString).toLocaleDateString('vi-VN');
@@ -0,0 +1,63 @@
+// Decoders for the compact chart formats served by /stocks/{symbol}/tradingview
+//   application/vnd.stockprediction.columnar+json -> { t: [...], o: [...], h, l, c, v }
+//   application/vnd.stockprediction.bars          -> little-endian binary columns (see BarColumns.java)
+
+export const COLUMNAR_JSON = 'application/vnd.stockprediction.columnar+json';
+export const BINARY_BARS = 'application/vnd.stockprediction.bars';
+
+const MAGIC = 0x53524142; // "BARS"
+const HEADER_BYTES = 16;
+
+// Decode the binary form into typed-array columns without copying the price data
+export const decodeBinaryBars = (arrayBuffer) => {
+  const view = new DataView(arrayBuffer);
+  if (view.getInt32(0, true) !== MAGIC) {
+    throw new Error('Not a BARS payload');
+  }
+  const version = view.getInt32(4, true);
+  if (version !== 1) {
+    throw new Error(`Unsupported BARS version ${version}`);
+  }
+  const count = view.getInt32(8, true);
+  const column = (index) => HEADER_BYTES + index * count * 8;
+  const t = new Float64Array(count);
+  const v = new Float64Array(count);
+  // int64 columns: values fit in 53 bits, read them through DataView
+  for (let i = 0; i < count; i++) {
+    t[i] = Number(view.getBigInt64(column(0) + i * 8, true));
+    v[i] = Number(view.getBigInt64(column(5) + i * 8, true));
+  }
+  // The platform is little-endian on every browser we target, so float columns are plain views
+  return {
+    t,
+    o: new Float64Array(arrayBuffer, column(1), count),
+    h: new Float64Array(arrayBuffer, column(2), count),
+    l: new Float64Array(arrayBuffer, column(3), count),
+    c: new Float64Array(arrayBuffer, column(4), count),
+    v,
+  };
+};
+
+// Columns (from either format) -> lightweight-charts candlestick data
+export const columnsToCandles = (columns) => {
+  const candles = new Array(columns.t.length);
+  for (let i = 0; i < columns.t.length; i++) {
+    candles[i] = {
+      time: columns.t[i],
+      open: columns.o[i],
+      high: columns.h[i],
+      low: columns.l[i],
+      close: columns.c[i],
+    };
+  }
+  return candles;
+};
+
+// Columns -> lightweight-charts histogram data for volume
+export const columnsToVolume = (columns) => {
+  const bars = new Array(columns.t.length);
+  for (let i = 0; i < columns.t.length; i++) {
+    bars[i] = { time: columns.t[i], value: columns.v[i] };
+  }
+  return bars;
+};
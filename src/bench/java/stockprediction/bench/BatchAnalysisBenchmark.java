@@ -0,0 +1,138 @@
+package stockprediction.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Compares N calls to GET /market-analysis/{symbol} with one POST /market-analysis/batch
+ * against a running server. Symbols BENCH0000.. are seeded with 200 daily bars each on first use.
+ *
+ * Usage: mvn -Pbench compile exec:java -Dexec.mainClass=stockprediction.bench.BatchAnalysisBenchmark [-Dexec.args="http://localhost:8080/api 20,100,500 5"]
+ *        (args: base URL, symbol counts, timed iterations)
+ */
+public class BatchAnalysisBenchmark {
+
+    private static final int BARS_PER_SYMBOL = 200;
+    private static final int BROWSER_CONNECTIONS = 6;
+
+    public static void main(String[] args) throws Exception {
+        String base = args.length > 0 ? args[0] : "http://localhost:8080/api";
+        int[] sizes = Arrays.stream((args.length > 1 ? args[1] : "20,100,500").split(","))
+            .mapToInt(Integer::parseInt).toArray();
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        int maxSize = Arrays.stream(sizes).max().orElse(0);
+        List<String> symbols = seed(client, base, maxSize);
+
+        ExecutorService browser = Executors.newFixedThreadPool(BROWSER_CONNECTIONS);
+        try {
+            for (int size : sizes) {
+                List<String> batch = symbols.subList(0, size);
+                // warm-up
+                sequential(client, base, batch);
+                batch(client, base, batch);
+
+                long seqBest = Long.MAX_VALUE;
+                long parBest = Long.MAX_VALUE;
+                long batchBest = Long.MAX_VALUE;
+                for (int i = 0; i < iterations; i++) {
+                    seqBest = Math.min(seqBest, sequential(client, base, batch));
+                    parBest = Math.min(parBest, concurrent(client, base, batch, browser));
+                    batchBest = Math.min(batchBest, batch(client, base, batch));
+                }
+                System.out.printf("%4d symbols: %4d sequential GETs %8.1f ms | %d-way concurrent GETs %8.1f ms | 1 batch POST %7.1f ms | speedup %5.1fx / %5.1fx%n",
+                    size, size, seqBest / 1e6, BROWSER_CONNECTIONS, parBest / 1e6, batchBest / 1e6,
+                    (double) seqBest / batchBest, (double) parBest / batchBest);
+            }
+        } finally {
+            browser.shutdownNow();
+        }
+    }
+
+    private static long sequential(HttpClient client, String base, List<String> symbols) throws Exception {
+        long start = System.nanoTime();
+        for (String symbol : symbols) {
+            send(client, HttpRequest.newBuilder(URI.create(base + "/market-analysis/" + symbol)).GET().build());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long concurrent(HttpClient client, String base, List<String> symbols, ExecutorService pool) throws Exception {
+        long start = System.nanoTime();
+        List<Future<?>> calls = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            calls.add(pool.submit(() -> send(client,
+                HttpRequest.newBuilder(URI.create(base + "/market-analysis/" + symbol)).GET().build())));
+        }
+        for (Future<?> call : calls) {
+            call.get();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long batch(HttpClient client, String base, List<String> symbols) throws Exception {
+        long start = System.nanoTime();
+        send(client, HttpRequest.newBuilder(URI.create(base + "/market-analysis/batch"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(toJsonArray(symbols)))
+            .build());
+        return System.nanoTime() - start;
+    }
+
+    private static List<String> seed(HttpClient client, String base, int count) throws Exception {
+        List<String> symbols = new ArrayList<>(count);
+        SplittableRandom random = new SplittableRandom(7L);
+        LocalDateTime first = LocalDateTime.of(2024, 1, 1, 0, 0);
+        int seeded = 0;
+        for (int s = 0; s < count; s++) {
+            String symbol = String.format("BENCH%04d", s);
+            symbols.add(symbol);
+            String existing = send(client, HttpRequest.newBuilder(URI.create(base + "/stocks/" + symbol + "/count")).GET().build());
+            if (existing.contains("\"exists\":true")) continue;
+
+            StringBuilder body = new StringBuilder("[");
+            double close = 20 + random.nextDouble() * 80;
+            for (int i = 0; i < BARS_PER_SYMBOL; i++) {
+                double open = close;
+                close = Math.max(1.0, open * (1 + (random.nextDouble() - 0.5) * 0.04));
+                double high = Math.max(open, close) * (1 + random.nextDouble() * 0.01);
+                double low = Math.min(open, close) * (1 - random.nextDouble() * 0.01);
+                if (i > 0) body.append(',');
+                body.append(String.format(Locale.ROOT,
+                    "{\"timestamp\":\"%s\",\"open\":%.4f,\"high\":%.4f,\"low\":%.4f,\"close\":%.4f,\"volume\":%d}",
+                    first.plusDays(i), open, high, low, close, 100_000 + random.nextInt(900_000)));
+            }
+            body.append(']');
+            send(client, HttpRequest.newBuilder(URI.create(base + "/stocks/" + symbol + "/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build());
+            seeded++;
+        }
+        System.out.printf("Seeded %d of %d symbols (%d bars each)%n", seeded, count, BARS_PER_SYMBOL);
+        return symbols;
+    }
+
+    private static String send(HttpClient client, HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(request.uri() + " -> HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static String toJsonArray(List<String> symbols) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < symbols.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(symbols.get(i)).append('"');
+        }
+        return json.append(']').toString();
+    }
+}
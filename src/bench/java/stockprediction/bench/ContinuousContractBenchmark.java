@@ -0,0 +1,91 @@
+package stockprediction.bench;
+
+import stockprediction.engine.ContinuousContractBuilder;
+import stockprediction.model.StockData;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Times a full continuous-contract rebuild over synthetic VN30F minute bars.
+ * Every monthly contract trades from two months before its expiry until expiry, 270 one-minute
+ * bars per session, which matches the front/next-month overlap seen on HNX.
+ *
+ * Usage: mvn -Pbench compile exec:java -Dexec.mainClass=stockprediction.bench.ContinuousContractBenchmark [-Dexec.args="10 5"]
+ *        (args: years, timed iterations)
+ */
+public class ContinuousContractBenchmark {
+
+    private static final int MINUTES_PER_SESSION = 270;
+
+    public static void main(String[] args) {
+        int years = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        long genStart = System.nanoTime();
+        Map<String, List<StockData>> contracts = generateContracts(years, 42L);
+        long totalBars = contracts.values().stream().mapToLong(List::size).sum();
+        System.out.printf("Generated %d contracts, %,d minute bars in %.0f ms%n",
+            contracts.size(), totalBars, (System.nanoTime() - genStart) / 1e6);
+
+        for (ContinuousContractBuilder.RollRule rule : ContinuousContractBuilder.RollRule.values()) {
+            for (ContinuousContractBuilder.Adjustment adjustment : ContinuousContractBuilder.Adjustment.values()) {
+                ContinuousContractBuilder builder = new ContinuousContractBuilder(rule, 3, adjustment);
+                builder.build(contracts); // warm-up
+
+                long best = Long.MAX_VALUE;
+                long sum = 0;
+                int outputBars = 0;
+                int rolls = 0;
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    ContinuousContractBuilder.ContinuousSeries series = builder.build(contracts);
+                    long elapsed = System.nanoTime() - start;
+                    best = Math.min(best, elapsed);
+                    sum += elapsed;
+                    outputBars = series.getBars().size();
+                    rolls = series.getRolls().size();
+                }
+                System.out.printf("%-18s %-6s rebuild: best %7.1f ms, mean %7.1f ms, %,d bars out, %d rolls, %,.0f input bars/s%n",
+                    rule, adjustment, best / 1e6, sum / 1e6 / iterations, outputBars, rolls, totalBars / (best / 1e9));
+            }
+        }
+    }
+
+    static Map<String, List<StockData>> generateContracts(int years, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Map<String, List<StockData>> contracts = new LinkedHashMap<>();
+        LocalDate firstExpiryMonth = LocalDate.now().withDayOfMonth(1).minusYears(years);
+        double indexLevel = 1000.0;
+
+        for (int m = 0; m < years * 12; m++) {
+            LocalDate month = firstExpiryMonth.plusMonths(m);
+            String symbol = String.format("VN30F%02d%02d", month.getYear() % 100, month.getMonthValue());
+            LocalDate expiry = ContinuousContractBuilder.vn30fExpiry(symbol);
+            LocalDate listed = expiry.minusMonths(2);
+
+            List<StockData> bars = new ArrayList<>();
+            double price = indexLevel * (1.0 + (random.nextDouble() - 0.5) * 0.01);
+            for (LocalDate day = listed; !day.isAfter(expiry); day = day.plusDays(1)) {
+                if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) continue;
+                // Volume migrates from the front contract to this one as expiry approaches
+                long baseVolume = day.isAfter(expiry.minusMonths(1)) ? 800 : 60;
+                LocalDateTime t = LocalDateTime.of(day, LocalTime.of(9, 0));
+                for (int i = 0; i < MINUTES_PER_SESSION; i++) {
+                    double open = price;
+                    price *= 1.0 + (random.nextDouble() - 0.5) * 0.002;
+                    double high = Math.max(open, price) * (1.0 + random.nextDouble() * 0.0005);
+                    double low = Math.min(open, price) * (1.0 - random.nextDouble() * 0.0005);
+                    bars.add(new StockData(t, open, high, low, price, baseVolume + random.nextInt(200)));
+                    t = t.plusMinutes(1);
+                }
+            }
+            contracts.put(symbol, bars);
+            indexLevel = price;
+        }
+        return contracts;
+    }
+}
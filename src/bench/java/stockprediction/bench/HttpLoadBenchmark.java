@@ -0,0 +1,274 @@
+package stockprediction.bench;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import stockprediction.StockPredictionApplication;
+import stockprediction.service.DataInitializationService;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end HTTP load test. Boots the application on a random port with generated data (or
+ * targets a running instance given by -Dloadtest.url), then drives a weighted mix of GET
+ * requests from a fixed number of closed-loop clients, each waiting for its response before
+ * sending the next request. Latencies go into one HdrHistogram per endpoint. Warm-up requests
+ * are discarded.
+ *
+ * Results are printed and written to target/loadtest/<time>/: summary.csv, plus one .hgrm
+ * percentile distribution per endpoint, which the HdrHistogram plotter can overlay. Pass an
+ * earlier summary.csv as the baseline to print throughput / p50 / p99 changes against it.
+ *
+ * Usage: mvn -Pbench compile exec:java -Dexec.mainClass=stockprediction.bench.HttpLoadBenchmark
+ *          [-Dexec.args="30 16 analysis:2,tradingview:5,signals:3 50 target/loadtest/<time>/summary.csv"]
+ *        (args: seconds, concurrent clients, endpoint:weight mix, bootstrap symbols, optional baseline;
+ *         -Dloadtest.warmup=5 warm-up seconds, -Dloadtest.bars=500 bars per symbol)
+ */
+public class HttpLoadBenchmark {
+
+    // Endpoints the mix can name; %s is the symbol
+    private static final Map<String, String> ENDPOINTS = new LinkedHashMap<>();
+    static {
+        ENDPOINTS.put("analysis", "/market-analysis/%s");
+        ENDPOINTS.put("tradingview", "/stocks/%s/tradingview");
+        ENDPOINTS.put("signals", "/signals/%s");
+        ENDPOINTS.put("bars", "/stocks/%s/bars");
+        ENDPOINTS.put("stock", "/stocks/%s");
+    }
+
+    private static final String SUMMARY_HEADER = "endpoint,requests,errors,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        String mixSpec = args.length > 2 ? args[2] : "analysis:2,tradingview:5,signals:3";
+        int symbolCount = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        Path baseline = args.length > 4 ? Paths.get(args[4]) : null;
+        int warmup = Integer.getInteger("loadtest.warmup", 5);
+        int bars = Integer.getInteger("loadtest.bars", 500);
+
+        List<Target> mix = parseMix(mixSpec);
+        ConfigurableApplicationContext context = null;
+        String baseUrl = System.getProperty("loadtest.url");
+        if (baseUrl == null) {
+            context = boot(symbolCount, bars);
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+            List<String> symbols = fetchSymbols(client, baseUrl);
+            System.out.printf("Load: %s, %d clients, %d s (+%d s warm-up), mix %s, %d symbols%n",
+                baseUrl, clients, seconds, warmup, mixSpec, symbols.size());
+
+            run(client, baseUrl, mix, symbols, clients, warmup, seconds);
+            report(mix, seconds, mixSpec, clients, baseline);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Start the application on a free port and wait until the bootstrap data is in
+     */
+    private static ConfigurableApplicationContext boot(int symbols, int bars) throws InterruptedException {
+        // Devtools would restart the context from another class loader under exec:java
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        long start = System.currentTimeMillis();
+        ConfigurableApplicationContext context = SpringApplication.run(StockPredictionApplication.class,
+            "--server.port=0",
+            "--bootstrap.symbols=" + symbols,
+            "--bootstrap.bars-per-symbol=" + bars,
+            "--retention.enabled=false",
+            "--spring.jpa.show-sql=false",
+            "--logging.level.root=WARN",
+            "--logging.level.org.hibernate.SQL=WARN",
+            "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+            "--logging.level.org.springframework.web=WARN");
+        DataInitializationService bootstrap = context.getBean(DataInitializationService.class);
+        while (!bootstrap.isReady()) {
+            Thread.sleep(100);
+        }
+        System.out.printf("Application ready with %d symbols x %d bars in %d ms%n",
+            symbols, bars, System.currentTimeMillis() - start);
+        return context;
+    }
+
+    private static List<String> fetchSymbols(HttpClient client, String baseUrl) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/stocks/symbols")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        List<String> symbols = new ArrayList<>();
+        // ["VNM","VCB",...]: no JSON library needed for a flat string array
+        for (String item : response.body().replaceAll("[\\[\\]\"\\s]", "").split(",")) {
+            if (!item.isEmpty()) symbols.add(item);
+        }
+        if (symbols.isEmpty()) {
+            throw new IllegalStateException("No symbols at " + baseUrl);
+        }
+        return symbols;
+    }
+
+    private static void run(HttpClient client, String baseUrl, List<Target> mix, List<String> symbols,
+                            int clients, int warmup, int seconds) throws InterruptedException {
+        int totalWeight = mix.stream().mapToInt(target -> target.weight).sum();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup);
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            SplittableRandom random = new SplittableRandom(c);
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    Target target = pick(mix, random.nextInt(totalWeight));
+                    String symbol = symbols.get(random.nextInt(symbols.size()));
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + String.format(target.path, symbol)))
+                        .timeout(Duration.ofSeconds(30))
+                        .build();
+                    long start = System.nanoTime();
+                    boolean ok;
+                    try {
+                        ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+                    } catch (IOException e) {
+                        ok = false;
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long end = System.nanoTime();
+                    if (start >= measureFrom && end <= deadline) {
+                        target.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(end - start));
+                        if (!ok) target.errors.incrementAndGet();
+                    }
+                }
+            }, "load-client-" + c);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static void report(List<Target> mix, int seconds, String mixSpec, int clients, Path baselineFile) throws IOException {
+        Path dir = Paths.get("target", "loadtest", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        Files.createDirectories(dir);
+
+        Map<String, String[]> baseline = baselineFile == null ? Collections.emptyMap() : readSummary(baselineFile);
+        List<String> rows = new ArrayList<>();
+        rows.add("# mix=" + mixSpec + " clients=" + clients + " seconds=" + seconds);
+        rows.add(SUMMARY_HEADER);
+        Histogram all = new Histogram(3);
+        long allErrors = 0;
+
+        System.out.printf("%n%-12s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+            "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Target target : mix) {
+            Histogram histogram = target.latency.getIntervalHistogram();
+            all.add(histogram);
+            allErrors += target.errors.get();
+            rows.add(summaryRow(target.name, histogram, target.errors.get(), seconds, baseline));
+            try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(target.name + ".hgrm")), false, "UTF-8")) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        rows.add(summaryRow("all", all, allErrors, seconds, baseline));
+        Files.write(dir.resolve("summary.csv"), rows, StandardCharsets.UTF_8);
+        System.out.println("Report: " + dir.resolve("summary.csv"));
+    }
+
+    // Prints one result line (with changes against the baseline) and returns its CSV row
+    private static String summaryRow(String name, Histogram histogram, long errors, int seconds, Map<String, String[]> baseline) {
+        double[] values = {
+            histogram.getTotalCount(), errors, histogram.getTotalCount() / (double) seconds,
+            millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+            histogram.getMaxValue() / 1000.0
+        };
+        System.out.printf("%-12s %9.0f %7.0f %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+            name, values[0], values[1], values[2], values[3], values[4], values[5], values[6], values[7]);
+        String[] before = baseline.get(name);
+        if (before != null) {
+            System.out.printf("%-12s %9s %7s %9s %9s %9s %9s%n", "  vs base", "", "",
+                change(values[2], before[3]), change(values[3], before[4]), "", change(values[5], before[6]));
+        }
+        StringBuilder row = new StringBuilder(name);
+        for (int i = 0; i < values.length; i++) {
+            row.append(',').append(i < 2 ? String.valueOf((long) values[i]) : String.format(Locale.ROOT, "%.3f", values[i]));
+        }
+        return row.toString();
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static String change(double now, String before) {
+        double base = Double.parseDouble(before);
+        return base == 0 ? "n/a" : String.format(Locale.ROOT, "%+.1f%%", (now - base) / base * 100);
+    }
+
+    private static Map<String, String[]> readSummary(Path file) throws IOException {
+        Map<String, String[]> rows = new HashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.startsWith("#") || line.startsWith("endpoint,")) continue;
+            String[] fields = line.split(",");
+            rows.put(fields[0], fields);
+        }
+        return rows;
+    }
+
+    private static List<Target> parseMix(String spec) {
+        List<Target> mix = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] entry = part.trim().split(":");
+            String path = ENDPOINTS.get(entry[0]);
+            if (path == null) {
+                throw new IllegalArgumentException("Unknown endpoint '" + entry[0] + "', expected one of " + ENDPOINTS.keySet());
+            }
+            mix.add(new Target(entry[0], path, entry.length > 1 ? Integer.parseInt(entry[1]) : 1));
+        }
+        return mix;
+    }
+
+    private static Target pick(List<Target> mix, int ticket) {
+        for (Target target : mix) {
+            ticket -= target.weight;
+            if (ticket < 0) return target;
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    private static final class Target {
+        final String name;
+        final String path;
+        final int weight;
+        // Microseconds, 3 significant digits
+        final Recorder latency = new Recorder(3);
+        final AtomicLong errors = new AtomicLong();
+
+        Target(String name, String path, int weight) {
+            this.name = name;
+            this.path = path;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package stockprediction.bench;
+
+import stockprediction.data.SyntheticMarketGenerator;
+import stockprediction.data.SyntheticMarketGenerator.Regime;
+import stockprediction.model.BarColumns;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the seeded synthetic market generator: bars/s into primitive columns across all
+ * cores, then CSV formatting, and a check that two runs with the same seed produce identical bars.
+ * With an output directory, one CSV file per symbol is written there as a load-test dataset.
+ *
+ * Usage: mvn -Pbench compile exec:java -Dexec.mainClass=stockprediction.bench.SyntheticMarketBenchmark [-Dexec.args="200 100000 42 /tmp/syn"]
+ *        (args: symbols, minute bars per symbol, seed, optional CSV output directory)
+ */
+public class SyntheticMarketBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int symbols = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int bars = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        Path outputDir = args.length > 3 ? Paths.get(args[3]) : null;
+
+        SyntheticMarketGenerator generator = new SyntheticMarketGenerator(seed, Duration.ofMinutes(1));
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 9, 0);
+        System.out.printf("%d symbols x %,d minute bars, seed %d, %d cores%n",
+            symbols, bars, seed, Runtime.getRuntime().availableProcessors());
+
+        long checksum = 0;
+        for (int run = 0; run < 3; run++) {
+            AtomicLong sum = new AtomicLong();
+            long begin = System.nanoTime();
+            long total = generator.generateAll(symbols, bars, start, Regime::cycle,
+                (index, symbol, columns) -> sum.addAndGet(checksum(columns)));
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            System.out.printf("columns run %d: %,d bars in %.2f s, %,.0f bars/s, checksum %016x%n",
+                run + 1, total, seconds, total / seconds, sum.get());
+            if (run > 0 && sum.get() != checksum) {
+                throw new IllegalStateException("Same seed produced different bars");
+            }
+            checksum = sum.get();
+        }
+
+        // CSV formatting on one core, into a discarding writer unless a directory was given
+        int csvSymbols = Math.min(symbols, 20);
+        long begin = System.nanoTime();
+        long csvBars = 0;
+        for (int index = 0; index < csvSymbols; index++) {
+            BarColumns columns = generator.generate(index, Regime.cycle(index), start, bars);
+            String symbol = SyntheticMarketGenerator.symbol(index);
+            try (Writer out = csvWriter(outputDir, symbol)) {
+                out.write(SyntheticMarketGenerator.CSV_HEADER);
+                SyntheticMarketGenerator.writeCsv(symbol, columns, out);
+            }
+            csvBars += columns.length();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("csv: %,d bars in %.2f s, %,.0f bars/s%s%n", csvBars, seconds, csvBars / seconds,
+            outputDir == null ? "" : " -> " + outputDir);
+    }
+
+    private static Writer csvWriter(Path outputDir, String symbol) throws IOException {
+        if (outputDir == null) {
+            return Writer.nullWriter();
+        }
+        Files.createDirectories(outputDir);
+        return new BufferedWriter(Files.newBufferedWriter(outputDir.resolve(symbol + ".csv"), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private static long checksum(BarColumns columns) {
+        long hash = 0;
+        for (int i = 0; i < columns.length(); i++) {
+            hash = hash * 31 + Double.doubleToLongBits(columns.getC()[i]) + columns.getV()[i];
+        }
+        return hash;
+    }
+}
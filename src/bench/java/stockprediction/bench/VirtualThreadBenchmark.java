@@ -0,0 +1,198 @@
+package stockprediction.bench;
+
+import com.sun.net.httpserver.HttpServer;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import stockprediction.StockPredictionApplication;
+import stockprediction.config.VirtualThreads;
+import stockprediction.service.DataInitializationService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Platform threads vs virtual threads (runtime.virtual-threads) with many concurrent connections.
+ * Two I/O-bound workloads:
+ *   fetch - GET /tradingview/data/{symbol}: JDBC reads of the last stored bar, an outbound call to a
+ *           local stub of the Yahoo chart API that answers after a fixed delay, then the duplicate
+ *           check of the returned bar (stored on a connection's first request only). Every connection
+ *           has its own symbol, since concurrent fetches of one symbol share a single call.
+ *   db    - GET /stocks/{symbol}/latest: a blocking JDBC read on the request thread
+ * Every connection runs one request after another (closed loop) for the measured period; each
+ * mode is started in turn on a fresh application context. The virtual mode needs JDK 21+
+ * (build with -Pjdk21) and is skipped on older JDKs.
+ *
+ * Usage: mvn -Pbench compile exec:java -Dexec.mainClass=stockprediction.bench.VirtualThreadBenchmark [-Dexec.args="10000 20 200 fetch,db"]
+ *        (args: concurrent connections, seconds per run, upstream delay ms, workloads;
+ *         10k connections need an open-file limit above 20k: client and server socket per connection)
+ */
+public class VirtualThreadBenchmark {
+
+    private static final String[] SYMBOLS = {"VNM", "VCB", "VIC", "HPG", "MSN", "VHM", "GAS", "BID", "CTG", "FPT"};
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int upstreamDelayMs = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        String[] workloads = (args.length > 3 ? args[3] : "fetch,db").split(",");
+
+        HttpServer upstream = startUpstream(upstreamDelayMs);
+        String upstreamUrl = "http://localhost:" + upstream.getAddress().getPort() + "/chart/";
+        System.out.printf("%,d connections, %d s per run, upstream delay %d ms, JDK %s%n",
+            connections, seconds, upstreamDelayMs, Runtime.version());
+
+        List<String> results = new ArrayList<>();
+        try {
+            for (boolean virtual : new boolean[]{false, true}) {
+                if (virtual && !VirtualThreads.isSupported()) {
+                    results.add(String.format("%-9s skipped: JDK %s has no virtual threads (run on JDK 21+ with -Pjdk21)",
+                        "virtual", Runtime.version()));
+                    continue;
+                }
+                ConfigurableApplicationContext context = boot(virtual, connections, upstreamUrl);
+                try {
+                    String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+                    for (String workload : workloads) {
+                        results.add(run(virtual ? "virtual" : "platform", workload.trim(), baseUrl, connections, seconds));
+                    }
+                } finally {
+                    context.close();
+                }
+            }
+        } finally {
+            upstream.stop(0);
+        }
+
+        System.out.printf("%n%-9s %-6s %10s %8s %10s %9s %9s %9s%n",
+            "mode", "work", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        results.forEach(System.out::println);
+    }
+
+    private static ConfigurableApplicationContext boot(boolean virtual, int connections, String upstreamUrl)
+            throws InterruptedException {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = SpringApplication.run(StockPredictionApplication.class,
+            "--server.port=0",
+            "--server.tomcat.max-connections=" + (connections + 1000),
+            "--server.tomcat.accept-count=" + connections,
+            "--runtime.virtual-threads=" + virtual,
+            // Same outbound concurrency limit in both modes: the bulkhead admits every connection,
+            // platform mode is then bounded by its I/O pool, virtual mode by nothing but the CPU
+            "--compute.bulkhead.realtime=" + connections,
+            "--compute.io-threads=200",
+            "--compute.queue-capacity=" + connections,
+            "--marketdata.rate-per-second=0",
+            "--tradingview.yahoo-url=" + upstreamUrl,
+            "--bootstrap.symbols=" + SYMBOLS.length,
+            "--retention.enabled=false",
+            "--spring.jpa.show-sql=false",
+            "--logging.level.root=WARN",
+            "--logging.level.org.hibernate.SQL=WARN",
+            "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+            "--logging.level.org.springframework.web=WARN");
+        DataInitializationService bootstrap = context.getBean(DataInitializationService.class);
+        while (!bootstrap.isReady()) {
+            Thread.sleep(100);
+        }
+        return context;
+    }
+
+    private static String run(String mode, String workload, String baseUrl, int connections, int seconds)
+            throws InterruptedException {
+        String path = "fetch".equals(workload) ? "/tradingview/data/%s" : "/stocks/%s/latest";
+        ExecutorService callbacks = Executors.newFixedThreadPool(4, daemon());
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .executor(callbacks)
+            .build();
+        Histogram latency = new Histogram(TimeUnit.MINUTES.toMicros(5), 3);
+        AtomicLong errors = new AtomicLong();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(connections);
+
+        System.out.printf("%s / %s: %,d connections...%n", mode, workload, connections);
+        for (int c = 0; c < connections; c++) {
+            String symbol = "fetch".equals(workload) ? String.format("VT%05d", c) : SYMBOLS[c % SYMBOLS.length];
+            URI uri = URI.create(baseUrl + String.format(path, symbol));
+            next(client, HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(120)).build(),
+                latency, errors, measureFrom, deadline, done);
+        }
+        done.await();
+        callbacks.shutdown();
+
+        long requests = latency.getTotalCount();
+        return String.format("%-9s %-6s %,10d %,8d %,10.0f %9.1f %9.1f %9.1f", mode, workload, requests, errors.get(),
+            requests / (double) seconds, latency.getValueAtPercentile(50) / 1000.0,
+            latency.getValueAtPercentile(99) / 1000.0, latency.getMaxValue() / 1000.0);
+    }
+
+    // One connection's loop: send, record completions after the warm-up, send again until the deadline
+    private static void next(HttpClient client, HttpRequest request, Histogram latency, AtomicLong errors,
+                             long measureFrom, long deadline, CountDownLatch done) {
+        long start = System.nanoTime();
+        if (start >= deadline) {
+            done.countDown();
+            return;
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            long end = System.nanoTime();
+            // Everything that completes inside the measured period counts, even if sent during the warm-up
+            if (end >= measureFrom && end <= deadline) {
+                synchronized (latency) {
+                    latency.recordValue(TimeUnit.NANOSECONDS.toMicros(end - start));
+                }
+                if (error != null || response.statusCode() >= 400) {
+                    errors.incrementAndGet();
+                }
+            }
+            next(client, request, latency, errors, measureFrom, deadline, done);
+        });
+    }
+
+    /**
+     * Stand-in for the Yahoo chart API: one daily bar, sent after 'delayMs' without holding a thread
+     */
+    private static HttpServer startUpstream(int delayMs) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 50_000);
+        ScheduledExecutorService timer = Executors.newScheduledThreadPool(2, daemon());
+        ExecutorService writers = Executors.newFixedThreadPool(4, daemon());
+        byte[] body = ("{\"chart\":{\"result\":[{\"meta\":{},\"timestamp\":[1700000000],\"indicators\":{\"quote\":[{"
+            + "\"open\":[100.0],\"high\":[101.0],\"low\":[99.0],\"close\":[100.5],\"volume\":[100000]}]}}]}}")
+            .getBytes(StandardCharsets.UTF_8);
+        server.createContext("/chart/", exchange -> timer.schedule(() -> writers.execute(() -> {
+            try (OutputStream out = exchange.getResponseBody()) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                out.write(body);
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }), delayMs, TimeUnit.MILLISECONDS));
+        server.setExecutor(writers);
+        server.start();
+        return server;
+    }
+
+    // exec:java waits for non-daemon threads before returning
+    private static ThreadFactory daemon() {
+        return runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
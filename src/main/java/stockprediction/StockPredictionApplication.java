@@ -3,6 +3,7 @@ package stockprediction;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -10,6 +11,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  * Main Spring Boot Application for Stock Prediction System
  */
 @SpringBootApplication
+@EnableScheduling
 public class StockPredictionApplication {
 
     public static void main(String[] args) {
@@ -35,6 +37,7 @@ public class StockPredictionApplication {
                         .allowedOrigins("http://localhost:3000", "http://localhost:3001")
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
+                        .exposedHeaders("ETag", "X-Next-Cursor", "Link", "X-Resolution")
                         .allowCredentials(true);
             }
         };
@@ -0,0 +1,42 @@
+package stockprediction.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+import stockprediction.data.CsvMarketDataProvider;
+import stockprediction.data.MarketDataProvider;
+import stockprediction.data.YahooFinanceProvider;
+
+import java.nio.file.Path;
+
+/**
+ * Picks the market data provider (marketdata.provider): the Yahoo Finance chart API, or CSV
+ * files under marketdata.csv-dir for working offline
+ */
+@Configuration
+public class MarketDataConfiguration {
+
+    @Bean
+    public MarketDataProvider marketDataProvider(
+            @Value("${marketdata.provider:yahoo}") String provider,
+            @Value("${marketdata.csv-dir:data/marketdata}") String csvDirectory,
+            @Value("${tradingview.yahoo-url:https://query1.finance.yahoo.com/v8/finance/chart/}") String yahooUrl,
+            @Value("${tradingview.connect-timeout-ms:3000}") int connectTimeoutMillis,
+            @Value("${tradingview.read-timeout-ms:8000}") int readTimeoutMillis) {
+        switch (provider.toLowerCase()) {
+            case "yahoo":
+                // Without timeouts a stalled upstream would hold an I/O thread (and its bulkhead permit) forever
+                SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+                requestFactory.setConnectTimeout(connectTimeoutMillis);
+                requestFactory.setReadTimeout(readTimeoutMillis);
+                return new YahooFinanceProvider(new RestTemplate(requestFactory), yahooUrl);
+            case "csv":
+                System.out.println("Market data: reading bars from " + Path.of(csvDirectory).toAbsolutePath());
+                return new CsvMarketDataProvider(Path.of(csvDirectory));
+            default:
+                throw new IllegalArgumentException("Unknown marketdata.provider '" + provider + "' (yahoo | csv)");
+        }
+    }
+}
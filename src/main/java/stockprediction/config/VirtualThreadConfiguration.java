@@ -0,0 +1,121 @@
+package stockprediction.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Virtual-thread mode (runtime.virtual-threads=true). Tomcat serves each request on its own
+ * virtual thread instead of the 200-thread worker pool, and ComputeService runs outbound fetches
+ * on virtual threads. JDBC access is capped by a fair semaphore (runtime.jdbc-permits). JDBC
+ * drivers hold monitors while they block, which pins a virtual thread to its carrier, and the
+ * connection pool would time out thousands of waiting virtual threads, so they queue on the
+ * semaphore instead. On a JDK without virtual threads only the JDBC cap applies.
+ */
+@Configuration
+@ConditionalOnProperty(name = "runtime.virtual-threads", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (VirtualThreads.isSupported()) {
+                protocolHandler.setExecutor(VirtualThreads.newPerTaskExecutor("http-virtual-"));
+                System.out.println("Virtual threads: serving requests on virtual threads");
+            } else {
+                System.err.println("Virtual threads: not available on JDK " + Runtime.version()
+                    + ", requests stay on platform threads");
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor boundedJdbcAccess(Environment environment) {
+        int permits = environment.getProperty("runtime.jdbc-permits", Integer.class, 10);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource && !(bean instanceof BoundedDataSource)
+                    ? new BoundedDataSource((DataSource) bean, permits) : bean;
+            }
+        };
+    }
+
+    /**
+     * Hands out at most 'permits' connections at a time; a permit is returned when the
+     * connection is closed (i.e. given back to the pool)
+     */
+    static final class BoundedDataSource extends DelegatingDataSource {
+        private final Semaphore permits;
+
+        BoundedDataSource(DataSource target, int permits) {
+            super(target);
+            this.permits = new Semaphore(Math.max(1, permits), true);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            acquire();
+            try {
+                return bounded(super.getConnection());
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            acquire();
+            try {
+                return bounded(super.getConnection(username, password));
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void acquire() throws SQLException {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for a JDBC permit", e);
+            }
+        }
+
+        private Connection bounded(Connection connection) {
+            AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package stockprediction.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Maps the failures of ComputeService futures to responses: shed work -> 429, timeout -> 503
+ * (both with Retry-After), anything else -> the endpoint's own error response, or rethrown
+ */
+final class AsyncResponses {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private AsyncResponses() {
+    }
+
+    static <T> CompletableFuture<ResponseEntity<T>> handle(CompletableFuture<ResponseEntity<T>> future) {
+        return handle(future, null);
+    }
+
+    static <T> CompletableFuture<ResponseEntity<T>> handle(CompletableFuture<ResponseEntity<T>> future,
+                                                           Function<Throwable, ResponseEntity<T>> onError) {
+        return future.exceptionally(error -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof RejectedExecutionException) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).build();
+            }
+            if (cause instanceof TimeoutException) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).build();
+            }
+            if (onError != null) {
+                return onError.apply(cause);
+            }
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(cause);
+        });
+    }
+}
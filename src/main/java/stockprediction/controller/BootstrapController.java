@@ -0,0 +1,53 @@
+package stockprediction.controller;
+
+import stockprediction.service.DataInitializationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for startup data bootstrap progress and readiness
+ */
+@RestController
+@RequestMapping("/bootstrap")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class BootstrapController {
+    
+    @Autowired
+    private DataInitializationService dataInitializationService;
+    
+    /**
+     * Readiness probe: 200 once the bootstrap has finished, 503 while it is still running
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        Map<String, Object> status = dataInitializationService.getStatus();
+        if (!dataInitializationService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(status);
+        }
+        return ResponseEntity.ok(status);
+    }
+    
+    /**
+     * Bootstrap progress (symbols done, bars and signals written, elapsed time)
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> status() {
+        return ResponseEntity.ok(dataInitializationService.getStatus());
+    }
+    
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        return ResponseEntity.ok(Map.of(
+            "status", "UP",
+            "service", "Bootstrap API",
+            "timestamp", java.time.LocalDateTime.now().toString()
+        ));
+    }
+}
@@ -0,0 +1,52 @@
+package stockprediction.controller;
+
+import stockprediction.service.ComputeService;
+import stockprediction.service.SymbolLanes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for the compute pools behind the async endpoints
+ */
+@RestController
+@RequestMapping("/compute")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class ComputeController {
+    
+    @Autowired
+    private ComputeService computeService;
+    
+    @Autowired
+    private SymbolLanes symbolLanes;
+    
+    /**
+     * Mode, pool usage, permits in use and shed / timed-out counts per bulkhead
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> status() {
+        return ResponseEntity.ok(computeService.getStatus());
+    }
+    
+    /**
+     * Symbol lanes: symbols, queue depth and load per lane, hot symbols and rebalancing moves
+     */
+    @GetMapping("/lanes")
+    public ResponseEntity<Map<String, Object>> lanes() {
+        return ResponseEntity.ok(symbolLanes.getStatus());
+    }
+    
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        return ResponseEntity.ok(Map.of(
+            "status", "UP",
+            "service", "Compute API",
+            "timestamp", java.time.LocalDateTime.now().toString()
+        ));
+    }
+}
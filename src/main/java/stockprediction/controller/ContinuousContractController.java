@@ -0,0 +1,114 @@
+package stockprediction.controller;
+
+import stockprediction.engine.ContinuousContractBuilder;
+import stockprediction.engine.PredictionEngine;
+import stockprediction.model.PredictionSignal;
+import stockprediction.model.StockData;
+import stockprediction.service.ContinuousContractService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for continuous (rolled) futures series
+ */
+@RestController
+@RequestMapping("/continuous")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class ContinuousContractController {
+
+    @Autowired
+    private ContinuousContractService continuousContractService;
+
+    private final PredictionEngine predictionEngine = new PredictionEngine();
+
+    /**
+     * Get the continuous series for a contract root (e.g. VN30F) in TradingView format
+     */
+    @GetMapping("/{root}")
+    public ResponseEntity<Map<String, Object>> getContinuousSeries(
+            @PathVariable String root,
+            @RequestParam(required = false) ContinuousContractBuilder.RollRule roll,
+            @RequestParam(required = false) Integer rollDays,
+            @RequestParam(required = false) ContinuousContractBuilder.Adjustment adjustment) {
+        ContinuousContractBuilder.ContinuousSeries series =
+            continuousContractService.getSeries(root, roll, rollDays, adjustment);
+        if (series.getBars().isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        List<Map<String, Object>> bars = new ArrayList<>(series.getBars().size());
+        for (int i = 0; i < series.getBars().size(); i++) {
+            StockData bar = series.getBars().get(i);
+            Map<String, Object> item = new HashMap<>();
+            item.put("time", bar.getTimestamp().toString());
+            item.put("open", bar.getOpen());
+            item.put("high", bar.getHigh());
+            item.put("low", bar.getLow());
+            item.put("close", bar.getClose());
+            item.put("volume", bar.getVolume());
+            item.put("contract", series.getSourceContracts().get(i));
+            bars.add(item);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("root", root);
+        response.put("activeContract", series.getActiveContract());
+        response.put("rolls", series.getRolls());
+        response.put("count", bars.size());
+        response.put("buildMillis", continuousContractService.getLastBuildMillis(root, roll, rollDays, adjustment));
+        response.put("data", bars);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get only the roll points of the continuous series
+     */
+    @GetMapping("/{root}/rolls")
+    public ResponseEntity<List<ContinuousContractBuilder.RollEvent>> getRolls(
+            @PathVariable String root,
+            @RequestParam(required = false) ContinuousContractBuilder.RollRule roll,
+            @RequestParam(required = false) Integer rollDays,
+            @RequestParam(required = false) ContinuousContractBuilder.Adjustment adjustment) {
+        return ResponseEntity.ok(continuousContractService.getSeries(root, roll, rollDays, adjustment).getRolls());
+    }
+
+    /**
+     * Get the dated contracts stored for a root
+     */
+    @GetMapping("/{root}/contracts")
+    public ResponseEntity<List<String>> getContracts(@PathVariable String root) {
+        return ResponseEntity.ok(continuousContractService.getContracts(root));
+    }
+
+    /**
+     * Run the prediction engine over the uninterrupted continuous series
+     */
+    @GetMapping("/{root}/signals")
+    public ResponseEntity<List<PredictionSignal>> getSignals(
+            @PathVariable String root,
+            @RequestParam(required = false) ContinuousContractBuilder.RollRule roll,
+            @RequestParam(required = false) Integer rollDays,
+            @RequestParam(required = false) ContinuousContractBuilder.Adjustment adjustment) {
+        List<StockData> bars = continuousContractService.getSeries(root, roll, rollDays, adjustment).getBars();
+        return ResponseEntity.ok(predictionEngine.analyzeTrend(bars));
+    }
+
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "UP");
+        response.put("service", "Continuous Contract API");
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,106 @@
+package stockprediction.controller;
+
+import stockprediction.model.CorrelationMatrix;
+import stockprediction.service.CorrelationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for cross-symbol correlation analytics
+ */
+@RestController
+@RequestMapping("/correlation")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class CorrelationController {
+
+    private static final int MAX_PAIRS = 1000;
+
+    @Autowired
+    private CorrelationService correlationService;
+
+    /**
+     * Get the rolling correlation (and optionally covariance) matrix
+     */
+    @GetMapping("/matrix")
+    public ResponseEntity<Map<String, Object>> getMatrix(
+            @RequestParam(required = false) List<String> symbols,
+            @RequestParam(required = false) Integer window,
+            @RequestParam(defaultValue = "false") boolean includeCovariance) {
+        if (window != null && window < 2) {
+            return ResponseEntity.badRequest().body(Map.of("error", "window must be at least 2"));
+        }
+        long start = System.currentTimeMillis();
+        CorrelationMatrix matrix = correlationService.getMatrix(symbols, window);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("symbols", matrix.getSymbols());
+        response.put("asOf", matrix.getAsOf());
+        response.put("window", matrix.getWindow());
+        response.put("excluded", matrix.getExcluded());
+        response.put("correlation", matrix.toRows(true));
+        if (includeCovariance) {
+            response.put("covariance", matrix.toRows(false));
+        }
+        response.put("tookMillis", System.currentTimeMillis() - start);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get the most correlated pairs across the universe (or a symbol subset)
+     */
+    @GetMapping("/top-pairs")
+    public ResponseEntity<List<CorrelationService.CorrelatedPair>> getTopPairs(
+            @RequestParam(required = false) List<String> symbols,
+            @RequestParam(required = false) Integer window,
+            @RequestParam(defaultValue = "20") Integer limit,
+            @RequestParam(defaultValue = "POSITIVE") CorrelationService.PairOrder order) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_PAIRS));
+        return ResponseEntity.ok(correlationService.getTopPairs(symbols, window, boundedLimit, order));
+    }
+
+    /**
+     * Get the most correlated peers of one symbol
+     */
+    @GetMapping("/{symbol}/peers")
+    public ResponseEntity<List<CorrelationService.CorrelatedPair>> getPeers(
+            @PathVariable String symbol,
+            @RequestParam(required = false) Integer window,
+            @RequestParam(defaultValue = "10") Integer limit,
+            @RequestParam(defaultValue = "POSITIVE") CorrelationService.PairOrder order) {
+        List<CorrelationService.CorrelatedPair> peers =
+            correlationService.getPeers(symbol, window, Math.max(1, Math.min(limit, MAX_PAIRS)), order);
+        if (peers.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(peers);
+    }
+
+    /**
+     * Force a rebuild of the cached universe state
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, String>> rebuild() {
+        correlationService.rebuildUniverse();
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Correlation state rebuilt");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "UP");
+        response.put("service", "Correlation API");
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+}
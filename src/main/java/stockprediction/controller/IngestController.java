@@ -0,0 +1,60 @@
+package stockprediction.controller;
+
+import stockprediction.model.StockData;
+import stockprediction.service.IngestionPipeline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * REST Controller for the bar ingestion pipeline
+ */
+@RestController
+@RequestMapping("/ingest")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class IngestController {
+    
+    @Autowired
+    private IngestionPipeline ingestionPipeline;
+    
+    /**
+     * Accept bars of a symbol: 202 once they are durable (fsynced to the write-ahead log, or stored
+     * when it is off), before they are stored, indexed and evaluated; 429 when the pipeline stays full
+     */
+    @PostMapping("/{symbol}")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> accept(
+            @PathVariable String symbol,
+            @RequestBody List<StockData> bars) {
+        return AsyncResponses.handle(ingestionPipeline.accept(symbol, bars)
+            .thenApply(result -> ResponseEntity.accepted().body(Map.<String, Object>of(
+                "symbol", symbol,
+                "accepted", result.getAccepted(),
+                "rejected", result.getRejected(),
+                "duplicates", result.getDuplicates(),
+                "logged", ingestionPipeline.isWriteAheadLogEnabled()))));
+    }
+    
+    /**
+     * Submitted / rejected batches and, per stage, queue depth, lag and throughput
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> status() {
+        return ResponseEntity.ok(ingestionPipeline.getStatus());
+    }
+    
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        return ResponseEntity.ok(Map.of(
+            "status", "UP",
+            "service", "Ingest API",
+            "timestamp", java.time.LocalDateTime.now().toString()
+        ));
+    }
+}
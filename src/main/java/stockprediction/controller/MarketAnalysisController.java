@@ -1,14 +1,20 @@
 package stockprediction.controller;
 
+import stockprediction.service.ComputeService;
+import stockprediction.service.ComputeService.Bulkhead;
 import stockprediction.service.MarketAnalysisService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * REST Controller for Market Analysis
+ * REST Controller for Market Analysis. Analysis runs on the compute pool (ComputeService),
+ * behind the ANALYSIS bulkhead.
  */
 @RestController
 @RequestMapping("/market-analysis")
@@ -18,67 +24,79 @@ public class MarketAnalysisController {
     @Autowired
     private MarketAnalysisService marketAnalysisService;
     
+    @Autowired
+    private ComputeService computeService;
+    
+    @Value("${market-analysis.max-batch-symbols:1000}")
+    private int maxBatchSymbols;
+    
     /**
      * Get comprehensive market analysis for a symbol
      */
     @GetMapping("/{symbol}")
-    public ResponseEntity<Map<String, Object>> getMarketAnalysis(@PathVariable String symbol) {
-        try {
-            Map<String, Object> analysis = marketAnalysisService.getMarketAnalysis(symbol);
-            return ResponseEntity.ok(analysis);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(
-                Map.of("error", "Failed to analyze market for " + symbol, "message", e.getMessage())
-            );
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getMarketAnalysis(@PathVariable String symbol) {
+        return analyze(symbol, null, "Failed to analyze market for ");
+    }
+    
+    /**
+     * Get market analysis for several symbols in one call ({"results": {symbol: analysis}})
+     */
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getBatchAnalysis(@RequestBody List<String> symbols) {
+        if (symbols == null || symbols.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "No symbols given")));
+        }
+        if (symbols.size() > maxBatchSymbols) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(
+                Map.of("error", "Too many symbols", "message", "At most " + maxBatchSymbols + " symbols per batch")
+            ));
         }
+        return AsyncResponses.handle(
+            computeService.submit(Bulkhead.ANALYSIS, () -> ResponseEntity.ok(marketAnalysisService.getBatchAnalysis(symbols))),
+            e -> ResponseEntity.badRequest().body(
+                Map.of("error", "Failed to analyze batch", "message", String.valueOf(e.getMessage()))
+            )
+        );
     }
     
     /**
      * Get technical analysis only
      */
     @GetMapping("/{symbol}/technical")
-    public ResponseEntity<Map<String, Object>> getTechnicalAnalysis(@PathVariable String symbol) {
-        try {
-            Map<String, Object> fullAnalysis = marketAnalysisService.getMarketAnalysis(symbol);
-            Map<String, Object> technicalAnalysis = (Map<String, Object>) fullAnalysis.get("technicalAnalysis");
-            return ResponseEntity.ok(technicalAnalysis);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(
-                Map.of("error", "Failed to get technical analysis for " + symbol, "message", e.getMessage())
-            );
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getTechnicalAnalysis(@PathVariable String symbol) {
+        return analyze(symbol, "technicalAnalysis", "Failed to get technical analysis for ");
     }
     
     /**
      * Get prediction signal only
      */
     @GetMapping("/{symbol}/signal")
-    public ResponseEntity<Map<String, Object>> getPredictionSignal(@PathVariable String symbol) {
-        try {
-            Map<String, Object> fullAnalysis = marketAnalysisService.getMarketAnalysis(symbol);
-            Map<String, Object> predictionSignal = (Map<String, Object>) fullAnalysis.get("predictionSignal");
-            return ResponseEntity.ok(predictionSignal);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(
-                Map.of("error", "Failed to get prediction signal for " + symbol, "message", e.getMessage())
-            );
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getPredictionSignal(@PathVariable String symbol) {
+        return analyze(symbol, "predictionSignal", "Failed to get prediction signal for ");
     }
     
     /**
      * Get market sentiment only
      */
     @GetMapping("/{symbol}/sentiment")
-    public ResponseEntity<Map<String, Object>> getMarketSentiment(@PathVariable String symbol) {
-        try {
-            Map<String, Object> fullAnalysis = marketAnalysisService.getMarketAnalysis(symbol);
-            Map<String, Object> marketSentiment = (Map<String, Object>) fullAnalysis.get("marketSentiment");
-            return ResponseEntity.ok(marketSentiment);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(
-                Map.of("error", "Failed to get market sentiment for " + symbol, "message", e.getMessage())
-            );
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getMarketSentiment(@PathVariable String symbol) {
+        return analyze(symbol, "marketSentiment", "Failed to get market sentiment for ");
+    }
+    
+    /**
+     * The full analysis, or one section of it, computed on the compute pool
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<ResponseEntity<Map<String, Object>>> analyze(String symbol, String section, String failure) {
+        return AsyncResponses.handle(
+            computeService.submit(Bulkhead.ANALYSIS, () -> {
+                Map<String, Object> analysis = marketAnalysisService.getMarketAnalysis(symbol);
+                return ResponseEntity.ok(section == null ? analysis : (Map<String, Object>) analysis.get(section));
+            }),
+            e -> ResponseEntity.badRequest().body(
+                Map.of("error", failure + symbol, "message", String.valueOf(e.getMessage()))
+            )
+        );
     }
     
     /**
@@ -0,0 +1,29 @@
+package stockprediction.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import stockprediction.model.KeysetPage;
+
+import java.util.List;
+
+/**
+ * Responses for keyset-paginated list endpoints: the page's items, plus X-Next-Cursor and a
+ * Link rel="next" to the same request with the next cursor when there are more
+ */
+final class PagedResponses {
+
+    private PagedResponses() {
+    }
+
+    static <T> ResponseEntity<List<T>> paged(ResponseEntity.BodyBuilder builder, KeysetPage<T> page) {
+        if (page.hasNext()) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", page.getNextCursor())
+                .toUriString();
+            builder.header("X-Next-Cursor", page.getNextCursor())
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return builder.body(page.getItems());
+    }
+}
@@ -2,16 +2,23 @@ package stockprediction.controller;
 
 import stockprediction.entity.PredictionSignalEntity;
 import stockprediction.model.PredictionSignal;
+import stockprediction.model.SeriesVersion;
+import stockprediction.service.ComputeService;
+import stockprediction.service.ComputeService.Bulkhead;
 import stockprediction.service.PredictionSignalService;
+import stockprediction.service.SignalStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST Controller for Prediction Signal API
@@ -24,13 +31,30 @@ public class PredictionSignalController {
     @Autowired
     private PredictionSignalService predictionSignalService;
     
+    @Autowired
+    private SignalStatsService signalStatsService;
+    
+    @Autowired
+    private ComputeService computeService;
+    
     /**
-     * Get all prediction signals for a symbol
+     * Get all prediction signals for a symbol; 'since' / 'afterId' return only newer signals,
+     * If-None-Match with the current ETag returns 304 Not Modified
      */
     @GetMapping("/{symbol}")
-    public ResponseEntity<List<PredictionSignalEntity>> getSignalsBySymbol(@PathVariable String symbol) {
-        List<PredictionSignalEntity> signals = predictionSignalService.getBySymbol(symbol);
-        return ResponseEntity.ok(signals);
+    public CompletableFuture<ResponseEntity<List<PredictionSignalEntity>>> getSignalsBySymbol(
+            @PathVariable String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) Long afterId,
+            WebRequest request) {
+        String etag = eTag(symbol);
+        if (request.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        }
+        return AsyncResponses.handle(computeService.submit(Bulkhead.SIGNALS, () -> {
+            List<PredictionSignalEntity> signals = predictionSignalService.getBySymbolSince(symbol, since, afterId);
+            return ResponseEntity.ok().eTag(etag).body(signals);
+        }));
     }
     
     /**
@@ -59,13 +83,18 @@ public class PredictionSignalController {
     }
     
     /**
-     * Get prediction signals by signal type
+     * Get prediction signals by signal type, newest first, one keyset page at a time
      */
     @GetMapping("/type/{signalType}")
     public ResponseEntity<List<PredictionSignalEntity>> getSignalsByType(
-            @PathVariable PredictionSignalEntity.SignalType signalType) {
-        List<PredictionSignalEntity> signals = predictionSignalService.getBySignalType(signalType);
-        return ResponseEntity.ok(signals);
+            @PathVariable PredictionSignalEntity.SignalType signalType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return PagedResponses.paged(ResponseEntity.ok(), predictionSignalService.getPageBySignalType(signalType, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     /**
@@ -80,40 +109,50 @@ public class PredictionSignalController {
     }
     
     /**
-     * Get high confidence signals
+     * Get high confidence signals, newest first, one keyset page at a time
      */
     @GetMapping("/high-confidence")
     public ResponseEntity<List<PredictionSignalEntity>> getHighConfidenceSignals(
-            @RequestParam(defaultValue = "70.0") Double threshold) {
-        List<PredictionSignalEntity> signals = predictionSignalService.getHighConfidenceSignals(threshold);
-        return ResponseEntity.ok(signals);
+            @RequestParam(defaultValue = "70.0") Double threshold,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            return PagedResponses.paged(ResponseEntity.ok(), predictionSignalService.getPageHighConfidence(threshold, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     /**
-     * Get recent signals
+     * Get recent signals, newest first, one keyset page at a time
      */
     @GetMapping("/recent")
     public ResponseEntity<List<PredictionSignalEntity>> getRecentSignals(
-            @RequestParam(defaultValue = "7") Integer days) {
+            @RequestParam(defaultValue = "7") Integer days,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         LocalDateTime since = LocalDateTime.now().minusDays(days);
-        List<PredictionSignalEntity> signals = predictionSignalService.getRecentSignals(since);
-        return ResponseEntity.ok(signals);
+        try {
+            return PagedResponses.paged(ResponseEntity.ok(), predictionSignalService.getPageRecent(since, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     /**
-     * Get signal statistics for a symbol
+     * Get signal statistics for a symbol: counts per type, average confidence and last signal time
      */
     @GetMapping("/{symbol}/stats")
     public ResponseEntity<Map<String, Object>> getSignalStats(@PathVariable String symbol) {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("symbol", symbol);
-        stats.put("total", predictionSignalService.getBySymbol(symbol).size());
-        stats.put("long", predictionSignalService.countBySymbolAndSignalType(symbol, PredictionSignalEntity.SignalType.LONG));
-        stats.put("short", predictionSignalService.countBySymbolAndSignalType(symbol, PredictionSignalEntity.SignalType.SHORT));
-        stats.put("reversal", predictionSignalService.countBySymbolAndSignalType(symbol, PredictionSignalEntity.SignalType.REVERSAL));
-        stats.put("hold", predictionSignalService.countBySymbolAndSignalType(symbol, PredictionSignalEntity.SignalType.HOLD));
-        
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok(signalStatsService.getStats(symbol));
+    }
+    
+    /**
+     * Get signal statistics across all symbols, with per-symbol totals
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getMarketSignalStats() {
+        return ResponseEntity.ok(signalStatsService.getMarketStats());
     }
     
     /**
@@ -155,22 +194,37 @@ public class PredictionSignalController {
      * Get signals for TradingView annotations
      */
     @GetMapping("/{symbol}/tradingview")
-    public ResponseEntity<List<Map<String, Object>>> getSignalsForTradingView(@PathVariable String symbol) {
-        List<PredictionSignalEntity> signals = predictionSignalService.getBySymbol(symbol);
-        
-        List<Map<String, Object>> tradingViewSignals = signals.stream()
-            .map(signal -> {
-                Map<String, Object> item = new HashMap<>();
-                item.put("time", signal.getTimestamp().toLocalDate().toString());
-                item.put("type", signal.getSignalType().toString().toLowerCase());
-                item.put("confidence", signal.getConfidence());
-                item.put("reason", signal.getReason());
-                item.put("price", signal.getPrice());
-                return item;
-            })
-            .collect(java.util.stream.Collectors.toList());
-        
-        return ResponseEntity.ok(tradingViewSignals);
+    public CompletableFuture<ResponseEntity<List<Map<String, Object>>>> getSignalsForTradingView(
+            @PathVariable String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) Long afterId,
+            WebRequest request) {
+        String etag = eTag(symbol);
+        if (request.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        }
+        return AsyncResponses.handle(computeService.submit(Bulkhead.SIGNALS, () -> {
+            List<PredictionSignalEntity> signals = predictionSignalService.getBySymbolSince(symbol, since, afterId);
+            
+            List<Map<String, Object>> tradingViewSignals = signals.stream()
+                .map(signal -> {
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("time", signal.getTimestamp().toLocalDate().toString());
+                    item.put("type", signal.getSignalType().toString().toLowerCase());
+                    item.put("confidence", signal.getConfidence());
+                    item.put("reason", signal.getReason());
+                    item.put("price", signal.getPrice());
+                    return item;
+                })
+                .collect(java.util.stream.Collectors.toList());
+            
+            return ResponseEntity.ok().eTag(etag).body(tradingViewSignals);
+        }));
+    }
+    
+    private String eTag(String symbol) {
+        SeriesVersion version = predictionSignalService.getVersion(symbol);
+        return version.toETag(symbol);
     }
     
     /**
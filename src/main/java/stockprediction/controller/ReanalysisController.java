@@ -0,0 +1,59 @@
+package stockprediction.controller;
+
+import stockprediction.service.ReanalysisService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for the periodic signal re-analysis
+ */
+@RestController
+@RequestMapping("/reanalysis")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class ReanalysisController {
+
+    @Autowired
+    private ReanalysisService reanalysisService;
+
+    /**
+     * Settings, symbols waiting for the next run and the outcome of the last run
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return ResponseEntity.ok(reanalysisService.getStatus());
+    }
+
+    /**
+     * Re-analyze the changed symbols now (409 while a run is in progress)
+     */
+    @PostMapping("/run")
+    public ResponseEntity<Map<String, Object>> run() {
+        try {
+            Map<String, Object> result = reanalysisService.run();
+            if (result == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Re-analysis is already running"));
+            }
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(
+                Map.of("error", "Re-analysis failed", "message", String.valueOf(e.getMessage()))
+            );
+        }
+    }
+
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        return ResponseEntity.ok(Map.of(
+            "status", "UP",
+            "service", "Reanalysis API",
+            "timestamp", java.time.LocalDateTime.now().toString()
+        ));
+    }
+}
@@ -0,0 +1,59 @@
+package stockprediction.controller;
+
+import stockprediction.service.RetentionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for the bar / signal retention job
+ */
+@RestController
+@RequestMapping("/retention")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class RetentionController {
+    
+    @Autowired
+    private RetentionService retentionService;
+    
+    /**
+     * Retention settings and the outcome of the last pass
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        return ResponseEntity.ok(retentionService.getStatus());
+    }
+    
+    /**
+     * Run a retention pass now (409 while one is already running)
+     */
+    @PostMapping("/run")
+    public ResponseEntity<Map<String, Object>> run() {
+        try {
+            Map<String, Object> result = retentionService.run();
+            if (result == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Retention is already running"));
+            }
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(
+                Map.of("error", "Retention failed", "message", String.valueOf(e.getMessage()))
+            );
+        }
+    }
+    
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        return ResponseEntity.ok(Map.of(
+            "status", "UP",
+            "service", "Retention API",
+            "timestamp", java.time.LocalDateTime.now().toString()
+        ));
+    }
+}
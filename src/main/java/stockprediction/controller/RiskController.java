@@ -0,0 +1,74 @@
+package stockprediction.controller;
+
+import stockprediction.model.RiskRequest;
+import stockprediction.service.RiskService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * REST Controller for derivatives risk (VaR / margin)
+ */
+@RestController
+@RequestMapping("/risk")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class RiskController {
+
+    @Autowired
+    private RiskService riskService;
+
+    /**
+     * Monte Carlo VaR / CVaR for a set of positions
+     */
+    @PostMapping("/var")
+    public ResponseEntity<Map<String, Object>> getValueAtRisk(@RequestBody RiskRequest request) {
+        try {
+            return ResponseEntity.ok(riskService.calculateValueAtRisk(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                Map.of("error", "Failed to calculate VaR", "message", e.getMessage())
+            );
+        }
+    }
+
+    /**
+     * Initial / maintenance margin for VN30F futures positions
+     */
+    @PostMapping("/margin")
+    public ResponseEntity<Map<String, Object>> getMargin(@RequestBody RiskRequest request) {
+        try {
+            return ResponseEntity.ok(riskService.calculateMargin(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                Map.of("error", "Failed to calculate margin", "message", e.getMessage())
+            );
+        }
+    }
+
+    /**
+     * Estimated daily volatility for a symbol
+     */
+    @GetMapping("/{symbol}/volatility")
+    public ResponseEntity<Map<String, Object>> getVolatility(@PathVariable String symbol) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("symbol", symbol);
+        response.put("dailyVolatility", riskService.estimateDailyVolatility(symbol));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "UP");
+        response.put("service", "Risk API");
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,142 @@
+package stockprediction.controller;
+
+import stockprediction.indicators.IndicatorSnapshot;
+import stockprediction.service.ScreenerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * REST Controller for the market-wide screener
+ */
+@RestController
+@RequestMapping("/screener")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class ScreenerController {
+
+    private static final Pattern CONDITION = Pattern.compile("^\\s*(\\w+)\\s*(<=|>=|<|>|=)\\s*(-?[0-9]+(?:\\.[0-9]+)?)\\s*$");
+
+    private static final int MAX_LIMIT = 5000;
+
+    @Autowired
+    private ScreenerService screenerService;
+
+    /**
+     * Screen all indexed symbols.
+     * Example: /screener?where=rsi14<30&where=volumeRatio>=1.5&cross=EMA_BULLISH
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> screen(
+            @RequestParam(required = false) List<String> where,
+            @RequestParam(required = false) List<ScreenerService.Crossover> cross,
+            @RequestParam(defaultValue = "100") Integer limit) {
+        try {
+            List<ScreenerService.RangePredicate> predicates = new ArrayList<>();
+            if (where != null) {
+                for (String condition : where) {
+                    predicates.add(parseCondition(condition));
+                }
+            }
+            Set<ScreenerService.Crossover> crossovers = cross == null
+                ? EnumSet.noneOf(ScreenerService.Crossover.class)
+                : EnumSet.copyOf(cross);
+
+            long start = System.nanoTime();
+            List<IndicatorSnapshot> matches = screenerService.screen(
+                predicates, crossovers, Math.max(1, Math.min(limit, MAX_LIMIT)));
+            long tookMicros = (System.nanoTime() - start) / 1000;
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (IndicatorSnapshot snapshot : matches) {
+                results.add(toResponse(snapshot));
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("count", results.size());
+            response.put("universe", screenerService.size());
+            response.put("tookMicros", tookMicros);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                Map.of("error", "Invalid screener query", "message", e.getMessage())
+            );
+        }
+    }
+
+    /**
+     * Get the indexed snapshot for one symbol
+     */
+    @GetMapping("/snapshot/{symbol}")
+    public ResponseEntity<Map<String, Object>> getSnapshot(@PathVariable String symbol) {
+        IndicatorSnapshot snapshot = screenerService.getSnapshot(symbol);
+        if (snapshot == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(toResponse(snapshot));
+    }
+
+    /**
+     * Rebuild the index from the database
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuild() {
+        long start = System.currentTimeMillis();
+        int symbols = screenerService.rebuildAll();
+        Map<String, Object> response = new HashMap<>();
+        response.put("symbols", symbols);
+        response.put("tookMillis", System.currentTimeMillis() - start);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "UP");
+        response.put("service", "Screener API");
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+
+    private ScreenerService.RangePredicate parseCondition(String condition) {
+        Matcher matcher = CONDITION.matcher(condition);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Cannot parse condition '" + condition + "', expected e.g. rsi14<30");
+        }
+        ScreenerService.Field field = ScreenerService.Field.fromKey(matcher.group(1));
+        double value = Double.parseDouble(matcher.group(3));
+        switch (matcher.group(2)) {
+            case "<":
+                return new ScreenerService.RangePredicate(field, null, false, value, false);
+            case "<=":
+                return new ScreenerService.RangePredicate(field, null, false, value, true);
+            case ">":
+                return new ScreenerService.RangePredicate(field, value, false, null, false);
+            case ">=":
+                return new ScreenerService.RangePredicate(field, value, true, null, false);
+            default:
+                return new ScreenerService.RangePredicate(field, value, true, value, true);
+        }
+    }
+
+    private Map<String, Object> toResponse(IndicatorSnapshot snapshot) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("symbol", snapshot.getSymbol());
+        item.put("timestamp", snapshot.getTimestamp());
+        for (ScreenerService.Field field : ScreenerService.Field.values()) {
+            double value = field.valueOf(snapshot);
+            item.put(field.getKey(), Double.isNaN(value) ? null : value);
+        }
+        item.put("emaCrossover", snapshot.getEmaCrossover());
+        item.put("macdCrossover", snapshot.getMacdCrossover());
+        return item;
+    }
+}
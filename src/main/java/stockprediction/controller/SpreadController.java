@@ -0,0 +1,130 @@
+package stockprediction.controller;
+
+import stockprediction.engine.PredictionEngine;
+import stockprediction.engine.SpreadEngine;
+import stockprediction.model.PredictionSignal;
+import stockprediction.service.SpreadAnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for futures basis and spread analytics.
+ * Spread symbols (SPREAD:A:B, BASIS:F:I) also work on /stocks/{symbol}/tradingview and /market-analysis/{symbol}.
+ */
+@RestController
+@RequestMapping("/spreads")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class SpreadController {
+
+    @Autowired
+    private SpreadAnalyticsService spreadAnalyticsService;
+
+    private final PredictionEngine predictionEngine = new PredictionEngine();
+
+    /**
+     * Get the spread series with rolling z-scores in TradingView format
+     */
+    @GetMapping("/{symbol}")
+    public ResponseEntity<Map<String, Object>> getSpreadSeries(@PathVariable String symbol) {
+        try {
+            SpreadEngine.SpreadSeries series = spreadAnalyticsService.getSeries(symbol);
+            List<Map<String, Object>> bars = new ArrayList<>(series.getBars().size());
+            for (int i = 0; i < series.getBars().size(); i++) {
+                SpreadEngine.SpreadBar bar = series.getBars().get(i);
+                Map<String, Object> item = new HashMap<>();
+                item.put("time", bar.getTimestamp().toString());
+                item.put("open", bar.getOpen());
+                item.put("high", bar.getHigh());
+                item.put("low", bar.getLow());
+                item.put("close", bar.getClose());
+                item.put("volume", bar.getVolume());
+                item.put("zScore", series.getZScores().get(i));
+                item.put("legCloses", bar.getLegCloses());
+                bars.add(item);
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("symbol", symbol);
+            response.put("count", bars.size());
+            response.put("unmatched", series.getDropped());
+            response.put("data", bars);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the live value, rolling mean / std and z-score of a spread (starts following it)
+     */
+    @GetMapping("/{symbol}/zscore")
+    public ResponseEntity<Map<String, Object>> getZScore(@PathVariable String symbol) {
+        try {
+            return ResponseEntity.ok(spreadAnalyticsService.getSnapshot(symbol));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Run the prediction engine over the spread series
+     */
+    @GetMapping("/{symbol}/signals")
+    public ResponseEntity<List<PredictionSignal>> getSignals(@PathVariable String symbol) {
+        try {
+            return ResponseEntity.ok(predictionEngine.analyzeTrend(spreadAnalyticsService.getBars(symbol)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * List the spreads followed live
+     */
+    @GetMapping("/open")
+    public ResponseEntity<List<Map<String, Object>>> getOpenSpreads() {
+        return ResponseEntity.ok(spreadAnalyticsService.getOpenSnapshots());
+    }
+
+    /**
+     * Start following a spread live
+     */
+    @PostMapping("/open")
+    public ResponseEntity<Map<String, Object>> openSpread(@RequestParam String symbol) {
+        try {
+            return ResponseEntity.ok(spreadAnalyticsService.open(symbol));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Stop following a spread
+     */
+    @DeleteMapping("/open/{symbol}")
+    public ResponseEntity<Map<String, Object>> closeSpread(@PathVariable String symbol) {
+        if (!spreadAnalyticsService.close(symbol)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("message", "Stopped following " + symbol));
+    }
+
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "UP");
+        response.put("service", "Spread Analytics API");
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+}
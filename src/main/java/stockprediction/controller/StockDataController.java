@@ -1,17 +1,35 @@
 package stockprediction.controller;
 
 import stockprediction.entity.StockDataEntity;
+import stockprediction.model.BarColumns;
+import stockprediction.model.BarResolution;
+import stockprediction.model.KeysetCursor;
+import stockprediction.model.KeysetPage;
+import stockprediction.model.SeriesVersion;
 import stockprediction.model.StockData;
+import stockprediction.service.ComputeService;
+import stockprediction.service.ComputeService.Bulkhead;
+import stockprediction.service.IngestionPipeline;
 import stockprediction.service.StockDataService;
+import stockprediction.service.StockExportService;
+import stockprediction.service.StockRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST Controller for Stock Data API
@@ -24,6 +42,18 @@ public class StockDataController {
     @Autowired
     private StockDataService stockDataService;
     
+    @Autowired
+    private StockExportService stockExportService;
+    
+    @Autowired
+    private StockRollupService stockRollupService;
+    
+    @Autowired
+    private ComputeService computeService;
+    
+    @Autowired
+    private IngestionPipeline ingestionPipeline;
+    
     /**
      * Get all available stock symbols
      */
@@ -34,15 +64,32 @@ public class StockDataController {
     }
     
     /**
-     * Get stock data for a specific symbol
+     * Get stock data for a specific symbol, oldest first, one keyset page at a time
+     * (follow X-Next-Cursor / Link rel="next"); 'since' / 'afterId' return only newer bars,
+     * If-None-Match with the current ETag returns 304 Not Modified
      */
     @GetMapping("/{symbol}")
-    public ResponseEntity<List<StockDataEntity>> getStockData(@PathVariable String symbol) {
-        List<StockDataEntity> data = stockDataService.getBySymbol(symbol);
-        if (data.isEmpty()) {
+    public ResponseEntity<List<StockDataEntity>> getStockData(
+            @PathVariable String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        String etag = eTag(symbol);
+        if (etag != null && request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        KeysetPage<StockDataEntity> page;
+        try {
+            page = stockDataService.getPageBySymbol(symbol, since, afterId, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (page.getItems().isEmpty() && since == null && afterId == null && cursor == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(data);
+        return PagedResponses.paged(withETag(etag), page);
     }
     
     /**
@@ -71,12 +118,100 @@ public class StockDataController {
     }
     
     /**
-     * Get stock data for multiple symbols
+     * Get chart bars over a range at the coarsest resolution that is no wider than 'resolution'
+     * (e.g. 15m or 1h -> stored bars, 1D, 1W, 1M -> rollups) and yields at most 'maxBars' bars;
+     * without 'resolution' the finest level that fits is used. The level served is returned in
+     * the body and the X-Resolution header.
+     */
+    @GetMapping("/{symbol}/bars")
+    public ResponseEntity<Map<String, Object>> getBars(
+            @PathVariable String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String resolution,
+            @RequestParam(required = false) Integer maxBars) {
+        BarResolution finest;
+        try {
+            finest = resolution == null ? BarResolution.RAW : BarResolution.atMost(BarResolution.parseWidth(resolution));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        LocalDateTime start = from == null ? KeysetCursor.MIN_TIMESTAMP : from;
+        LocalDateTime end = to == null ? KeysetCursor.MAX_TIMESTAMP : to;
+        if (end.isBefore(start)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "'to' is before 'from'"));
+        }
+        
+        BarResolution level = stockRollupService.chooseResolution(symbol, start, end, finest, maxBars);
+        List<Map<String, Object>> bars = stockRollupService.getBars(symbol, level, start, end).stream()
+            .map(entity -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("time", entity.getTimestamp().toString());
+                item.put("open", entity.getOpen());
+                item.put("high", entity.getHigh());
+                item.put("low", entity.getLow());
+                item.put("close", entity.getClose());
+                item.put("volume", entity.getVolume());
+                return item;
+            })
+            .collect(java.util.stream.Collectors.toList());
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("symbol", symbol);
+        response.put("resolution", level);
+        response.put("count", bars.size());
+        response.put("bars", bars);
+        return ResponseEntity.ok().header("X-Resolution", level.name()).body(response);
+    }
+    
+    /**
+     * Recompute the daily / weekly / monthly rollups of a symbol from its stored bars
+     */
+    @PostMapping("/{symbol}/rollups/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRollups(@PathVariable String symbol) {
+        int written = stockRollupService.rebuild(symbol);
+        return ResponseEntity.ok(Map.of("symbol", symbol, "rollups", written));
+    }
+    
+    /**
+     * Export the full history of a symbol, streamed from a database cursor
+     * (format = json | ndjson | csv; 'since' / 'afterId' export only newer bars)
+     */
+    @GetMapping("/{symbol}/export")
+    public ResponseEntity<StreamingResponseBody> exportStockData(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "json") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) Long afterId) {
+        StockExportService.Format exportFormat;
+        try {
+            exportFormat = StockExportService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String filename = symbol.replaceAll("[^A-Za-z0-9_.-]", "_") + "." + exportFormat.getExtension();
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+            .body(stockExportService.export(List.of(symbol), exportFormat, since, afterId));
+    }
+    
+    /**
+     * Get stock data for multiple symbols, streamed from a database cursor (format = json | ndjson | csv)
      */
     @PostMapping("/multiple")
-    public ResponseEntity<List<StockDataEntity>> getMultipleStockData(@RequestBody List<String> symbols) {
-        List<StockDataEntity> data = stockDataService.getBySymbols(symbols);
-        return ResponseEntity.ok(data);
+    public ResponseEntity<StreamingResponseBody> getMultipleStockData(
+            @RequestBody List<String> symbols,
+            @RequestParam(defaultValue = "json") String format) {
+        StockExportService.Format exportFormat;
+        try {
+            exportFormat = StockExportService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+            .body(stockExportService.export(symbols, exportFormat, null, null));
     }
     
     /**
@@ -105,15 +240,19 @@ public class StockDataController {
     }
     
     /**
-     * Add multiple stock data for a symbol
+     * Add multiple stock data for a symbol through the ingestion pipeline; returns the bars stored,
+     * with the invalid and duplicate counts in X-Ingest-Rejected / X-Ingest-Duplicates, or 429
+     * when the pipeline stays full
      */
     @PostMapping("/{symbol}/batch")
-    public ResponseEntity<List<StockDataEntity>> addMultipleStockData(
+    public CompletableFuture<ResponseEntity<List<StockDataEntity>>> addMultipleStockData(
             @PathVariable String symbol,
             @RequestBody List<StockData> stockDataList) {
-        
-        List<StockDataEntity> entities = stockDataService.saveFromStockDataList(stockDataList, symbol);
-        return ResponseEntity.ok(entities);
+        return AsyncResponses.handle(ingestionPipeline.submit(symbol, stockDataList)
+            .thenApply(result -> ResponseEntity.ok()
+                .header("X-Ingest-Rejected", String.valueOf(result.getRejected()))
+                .header("X-Ingest-Duplicates", String.valueOf(result.getDuplicates()))
+                .body(result.getBars())));
     }
     
     /**
@@ -128,26 +267,95 @@ public class StockDataController {
     }
     
     /**
-     * Get stock data in TradingView format
+     * Get stock data in TradingView format (one object per bar).
+     * Accept: application/vnd.stockprediction.columnar+json or application/vnd.stockprediction.bars
+     * selects the compact columnar variants below.
      */
-    @GetMapping("/{symbol}/tradingview")
-    public ResponseEntity<List<Map<String, Object>>> getStockDataForTradingView(@PathVariable String symbol) {
-        List<StockDataEntity> data = stockDataService.getBySymbol(symbol);
-        
-        List<Map<String, Object>> tradingViewData = data.stream()
-            .map(entity -> {
-                Map<String, Object> item = new HashMap<>();
-                item.put("time", entity.getTimestamp().toLocalDate().toString());
-                item.put("open", entity.getOpen());
-                item.put("high", entity.getHigh());
-                item.put("low", entity.getLow());
-                item.put("close", entity.getClose());
-                item.put("volume", entity.getVolume());
-                return item;
-            })
-            .collect(java.util.stream.Collectors.toList());
-        
-        return ResponseEntity.ok(tradingViewData);
+    @GetMapping(value = "/{symbol}/tradingview", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<List<Map<String, Object>>>> getStockDataForTradingView(
+            @PathVariable String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) Long afterId,
+            WebRequest request) {
+        String etag = eTag(symbol);
+        if (etag != null && request.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        }
+        return AsyncResponses.handle(computeService.submit(Bulkhead.CHART, () -> {
+            List<StockDataEntity> data = stockDataService.getBySymbolSince(symbol, since, afterId);
+            
+            List<Map<String, Object>> tradingViewData = data.stream()
+                .map(entity -> {
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("time", entity.getTimestamp().toLocalDate().toString());
+                    item.put("open", entity.getOpen());
+                    item.put("high", entity.getHigh());
+                    item.put("low", entity.getLow());
+                    item.put("close", entity.getClose());
+                    item.put("volume", entity.getVolume());
+                    return item;
+                })
+                .collect(java.util.stream.Collectors.toList());
+            
+            return withETag(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(tradingViewData);
+        }));
+    }
+    
+    /**
+     * Get chart bars as columnar JSON: {"t":[epochSeconds..],"o":[..],"h":[..],"l":[..],"c":[..],"v":[..]}
+     */
+    @GetMapping(value = "/{symbol}/tradingview", produces = BarColumns.COLUMNAR_JSON)
+    public CompletableFuture<ResponseEntity<BarColumns>> getStockDataColumnar(
+            @PathVariable String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) Long afterId,
+            WebRequest request) {
+        String etag = variant(eTag(symbol), "col");
+        if (etag != null && request.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        }
+        return AsyncResponses.handle(computeService.submit(Bulkhead.CHART, () -> {
+            BarColumns columns = BarColumns.fromEntities(stockDataService.getBySymbolSince(symbol, since, afterId));
+            return withETag(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(columns);
+        }));
+    }
+    
+    /**
+     * Get chart bars as little-endian binary columns (layout documented on BarColumns)
+     */
+    @GetMapping(value = "/{symbol}/tradingview", produces = BarColumns.BINARY)
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getStockDataBinary(
+            @PathVariable String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) Long afterId,
+            WebRequest request) {
+        String etag = variant(eTag(symbol), "bin");
+        if (etag != null && request.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        }
+        return AsyncResponses.handle(computeService.submit(Bulkhead.CHART, () -> {
+            BarColumns columns = BarColumns.fromEntities(stockDataService.getBySymbolSince(symbol, since, afterId));
+            // checkNotModified already wrote the ETag header; streaming bodies would repeat it
+            return ResponseEntity.ok()
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .contentType(MediaType.parseMediaType(BarColumns.BINARY))
+                .contentLength(columns.binaryLength())
+                .body((StreamingResponseBody) columns::writeBinary);
+        }));
+    }
+    
+    // Each representation of the same URL needs its own entity tag
+    private String variant(String etag, String suffix) {
+        return etag == null ? null : etag.substring(0, etag.length() - 1) + "-" + suffix + "\"";
+    }
+    
+    private String eTag(String symbol) {
+        SeriesVersion version = stockDataService.getVersion(symbol);
+        return version == null ? null : version.toETag(symbol);
+    }
+    
+    private ResponseEntity.BodyBuilder withETag(String etag) {
+        return etag == null ? ResponseEntity.ok() : ResponseEntity.ok().eTag(etag);
     }
     
     /**
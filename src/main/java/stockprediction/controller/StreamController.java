@@ -0,0 +1,71 @@
+package stockprediction.controller;
+
+import stockprediction.service.StreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * REST Controller for live bar and signal streams (Server-Sent Events)
+ */
+@RestController
+@RequestMapping("/stream")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class StreamController {
+
+    @Autowired
+    private StreamService streamService;
+
+    /**
+     * Subscribe to new bars and signals for comma separated symbols, or * for all symbols.
+     * Events: subscribed, bar, signal, dropped (the client fell behind and should resync).
+     */
+    @GetMapping(value = "/{symbols}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@PathVariable String symbols) {
+        List<String> symbolList = Arrays.stream(symbols.split(","))
+            .map(String::trim)
+            .filter(symbol -> !symbol.isEmpty())
+            .collect(Collectors.toList());
+        if (symbolList.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        SseEmitter emitter = streamService.subscribe(symbolList);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok()
+            .header("Cache-Control", "no-cache")
+            .header("X-Accel-Buffering", "no")
+            .body(emitter);
+    }
+
+    /**
+     * Subscriber and delivery statistics
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(streamService.getStats());
+    }
+
+    /**
+     * Health check endpoint
+     */
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, String>> healthCheck() {
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "UP");
+        response.put("service", "Stream API");
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+}
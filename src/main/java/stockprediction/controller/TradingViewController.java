@@ -1,5 +1,9 @@
 package stockprediction.controller;
 
+import stockprediction.service.ComputeService;
+import stockprediction.service.ComputeService.Bulkhead;
+import stockprediction.service.MarketDataFetchService;
+import stockprediction.service.StockDataService;
 import stockprediction.service.TradingViewDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -7,6 +11,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST Controller for TradingView integration
@@ -19,6 +24,15 @@ public class TradingViewController {
     @Autowired
     private TradingViewDataService tradingViewDataService;
     
+    @Autowired
+    private MarketDataFetchService marketDataFetchService;
+    
+    @Autowired
+    private StockDataService stockDataService;
+    
+    @Autowired
+    private ComputeService computeService;
+    
     /**
      * Get available Vietnamese stock symbols
      */
@@ -29,28 +43,46 @@ public class TradingViewController {
     }
     
     /**
-     * Fetch real-time data for a symbol
+     * Fetch the bars of a symbol newer than its last stored one (outbound call, on the I/O pool
+     * behind the REALTIME bulkhead); 'data' holds the bars stored by this call
      */
     @GetMapping("/data/{symbol}")
-    public ResponseEntity<Map<String, Object>> getRealTimeData(@PathVariable String symbol) {
-        try {
-            List<stockprediction.entity.StockDataEntity> data = 
-                tradingViewDataService.fetchRealTimeData(symbol);
-            
-            Map<String, Object> response = Map.of(
-                "symbol", symbol,
-                "data", data,
-                "count", data.size(),
-                "source", "real-time"
-            );
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(
-                Map.of("error", "Failed to fetch data for " + symbol, "message", e.getMessage())
-            );
-        }
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getRealTimeData(@PathVariable String symbol) {
+        return AsyncResponses.handle(
+            computeService.submit(Bulkhead.REALTIME, () -> {
+                List<stockprediction.entity.StockDataEntity> data = 
+                    tradingViewDataService.fetchRealTimeData(symbol);
+                
+                Map<String, Object> response = Map.of(
+                    "symbol", symbol,
+                    "data", data,
+                    "count", data.size(),
+                    "source", "real-time"
+                );
+                
+                return ResponseEntity.ok(response);
+            }),
+            e -> ResponseEntity.badRequest().body(
+                Map.of("error", "Failed to fetch data for " + symbol, "message", String.valueOf(e.getMessage()))
+            )
+        );
+    }
+    
+    /**
+     * Fetch new bars for many symbols at once under the provider rate limit (default: every stored symbol)
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, Object>> refresh(@RequestParam(required = false) List<String> symbols) {
+        List<String> targets = symbols == null || symbols.isEmpty() ? stockDataService.getAllSymbols() : symbols;
+        return ResponseEntity.ok(marketDataFetchService.fetchAll(targets));
+    }
+    
+    /**
+     * Market data fetcher status: provider, rate limit, calls, retries, bars stored
+     */
+    @GetMapping("/refresh/status")
+    public ResponseEntity<Map<String, Object>> refreshStatus() {
+        return ResponseEntity.ok(marketDataFetchService.getStatus());
     }
     
     /**
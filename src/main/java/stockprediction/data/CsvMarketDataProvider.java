@@ -0,0 +1,40 @@
+package stockprediction.data;
+
+import stockprediction.model.StockData;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Offline provider: bars of a symbol come from '<directory>/<SYMBOL>.csv' (the Yahoo Finance
+ * CSV layout read by RealDataLoader). A symbol without a file has no bars. Files are read on
+ * every call, so appending rows to them simulates new bars arriving.
+ */
+public class CsvMarketDataProvider implements MarketDataProvider {
+
+    private final Path directory;
+
+    public CsvMarketDataProvider(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String getName() {
+        return "csv";
+    }
+
+    @Override
+    public List<StockData> fetchBars(String symbol, LocalDateTime since) throws IOException {
+        List<StockData> bars = RealDataLoader.loadFromCsv(directory.resolve(symbol + ".csv"), ZoneId.systemDefault());
+        if (since == null) {
+            return bars;
+        }
+        return bars.stream()
+            .filter(bar -> bar.getTimestamp().isAfter(since))
+            .collect(Collectors.toList());
+    }
+}
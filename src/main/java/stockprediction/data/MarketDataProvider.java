@@ -0,0 +1,26 @@
+package stockprediction.data;
+
+import stockprediction.model.StockData;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Source of daily OHLCV bars for the market data fetcher (MarketDataFetchService).
+ * IOException means the call may succeed when retried (network error, throttling, 5xx); any
+ * other exception fails the symbol at once.
+ */
+public interface MarketDataProvider {
+
+    /**
+     * Short name for logs and status ("yahoo", "csv")
+     */
+    String getName();
+
+    /**
+     * Bars of 'symbol' after 'since' (all available history when null), oldest first. Bars at or
+     * before 'since' may be returned too; the fetcher drops them.
+     */
+    List<StockData> fetchBars(String symbol, LocalDateTime since) throws IOException;
+}
@@ -0,0 +1,281 @@
+package stockprediction.data;
+
+import stockprediction.model.BarColumns;
+import stockprediction.model.StockData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic, high-volume market data for load tests. Every symbol gets its own
+ * SplittableRandom derived from (seed, symbol index), so a dataset is reproducible whatever
+ * the thread count and symbols can be generated in parallel without sharing a Random.
+ * Bars are written straight into primitive columns (BarColumns); CSV and StockData views
+ * are built from those.
+ *
+ * Regimes follow StockDataGenerator's patterns. Each one plays out over the whole series the
+ * way it does over 200 daily bars there, and volatility scales with the square root of the bar
+ * interval, so minute bars over a year look like a zoomed-in version of the daily series.
+ */
+public class SyntheticMarketGenerator {
+
+    /**
+     * Price behaviour of one generated series
+     */
+    public enum Regime {
+        RANDOM, BULLISH, BEARISH, SIDEWAYS, VOLATILE, CRASH, BUBBLE, FLASH_CRASH;
+
+        /**
+         * Parse a StockDataGenerator pattern name ("bullish", "flash_crash", ...); unknown names are RANDOM
+         */
+        public static Regime fromPattern(String pattern) {
+            try {
+                return valueOf(pattern.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return RANDOM;
+            }
+        }
+
+        /** Regimes assigned round-robin by symbol index */
+        public static Regime cycle(int symbolIndex) {
+            Regime[] regimes = values();
+            return regimes[Math.floorMod(symbolIndex, regimes.length)];
+        }
+    }
+
+    /**
+     * Receives each generated series; called concurrently from generateAll
+     */
+    public interface BarSink {
+        void accept(int symbolIndex, String symbol, BarColumns bars) throws IOException;
+    }
+
+    public static final String CSV_HEADER = "symbol,timestamp,open,high,low,close,volume\n";
+
+    // Length of the StockDataGenerator series the regime parameters were tuned for
+    private static final double EPISODE_BARS = 200.0;
+    private static final double SECONDS_PER_DAY = 86_400.0;
+    private static final double MIN_PRICE = 0.1;
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final long seed;
+    private final Duration interval;
+
+    public SyntheticMarketGenerator(long seed, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Bar interval must be positive: " + interval);
+        }
+        this.seed = seed;
+        this.interval = interval;
+    }
+
+    /**
+     * Symbol name of a generated series
+     */
+    public static String symbol(int symbolIndex) {
+        return String.format(Locale.ROOT, "SYN%05d", symbolIndex);
+    }
+
+    /**
+     * One series with a start price drawn from the symbol's own stream (10-200)
+     */
+    public BarColumns generate(int symbolIndex, Regime regime, LocalDateTime start, int bars) {
+        return generate(symbolIndex, regime, start, bars, Double.NaN);
+    }
+
+    /**
+     * One series of 'bars' bars starting at 'start'; the same arguments always give the same bars
+     */
+    public BarColumns generate(int symbolIndex, Regime regime, LocalDateTime start, int bars, double startPrice) {
+        Noise noise = new Noise(new SplittableRandom(seed + symbolIndex * SEED_GAMMA).nextLong());
+        long[] t = new long[bars];
+        double[] o = new double[bars];
+        double[] h = new double[bars];
+        double[] l = new double[bars];
+        double[] c = new double[bars];
+        long[] v = new long[bars];
+
+        long time = start.toEpochSecond(ZoneOffset.UTC);
+        long step = interval.getSeconds();
+        double dayFraction = step / SECONDS_PER_DAY;
+        double volScale = Math.sqrt(dayFraction);
+        double episode = EPISODE_BARS / Math.max(1, bars);
+        double base = Double.isNaN(startPrice) ? 10 + noise.uniform() * 190 : startPrice;
+        double price = base;
+
+        for (int i = 0; i < bars; i++) {
+            double open = price;
+            double close;
+            double wick;          // max wick beyond the body, as a fraction of the price
+            double volumeBase;
+            double volumeRange;
+            double volumeMultiplier = 1;
+            switch (regime) {
+                case BULLISH:
+                case BEARISH:
+                    double trend = regime == Regime.BULLISH ? 0.1 : -0.1;
+                    close = open + trend * price / bars + noise.gaussian() * 0.015 * volScale * price;
+                    wick = 0.008;
+                    volumeBase = 150_000;
+                    volumeRange = 800_000;
+                    break;
+                case SIDEWAYS:
+                    // Oscillates around the start price instead of drifting
+                    open = base + Math.sin(i * 0.1 * episode) * 0.02 * base;
+                    close = open + noise.gaussian() * 0.01 * volScale * base;
+                    wick = 0.005;
+                    volumeBase = 120_000;
+                    volumeRange = 600_000;
+                    break;
+                case VOLATILE:
+                    close = open + noise.gaussian() * 0.04 * volScale * price;
+                    wick = 0.02;
+                    volumeBase = 200_000;
+                    volumeRange = 1_000_000;
+                    break;
+                case CRASH:
+                    close = open - 0.05 * episode * price + noise.gaussian() * 0.04 * volScale * price;
+                    wick = 0.01;
+                    volumeBase = 150_000;
+                    volumeRange = 800_000;
+                    volumeMultiplier = 3;
+                    break;
+                case BUBBLE:
+                    double strength = Math.min(2.0, 1.0 + (double) i / bars);
+                    close = open + 0.03 * episode * price * strength + noise.gaussian() * 0.03 * volScale * price;
+                    wick = 0.01;
+                    volumeBase = 150_000;
+                    volumeRange = 800_000;
+                    volumeMultiplier = 2;
+                    break;
+                case FLASH_CRASH:
+                    if (i == bars / 2) {
+                        close = open - 0.2 * price;
+                        volumeMultiplier = 5;
+                    } else {
+                        close = open + noise.gaussian() * 0.01 * volScale * price;
+                    }
+                    wick = 0.01;
+                    volumeBase = 150_000;
+                    volumeRange = 800_000;
+                    break;
+                default:
+                    close = open + noise.gaussian() * 0.02 * volScale * price;
+                    wick = 0.01;
+                    volumeBase = 100_000;
+                    volumeRange = 900_000;
+            }
+            close = Math.max(MIN_PRICE, close);
+            double wickSize = wick * volScale * price;
+
+            t[i] = time;
+            o[i] = open;
+            c[i] = close;
+            h[i] = Math.max(open, close) + noise.uniform() * wickSize;
+            l[i] = Math.max(MIN_PRICE, Math.min(open, close) - noise.uniform() * wickSize);
+            v[i] = Math.max(1L, (long) ((volumeBase + noise.uniform() * volumeRange) * volumeMultiplier * dayFraction));
+
+            price = close;
+            time += step;
+        }
+        return new BarColumns(t, o, h, l, c, v);
+    }
+
+    /**
+     * Generate 'symbols' series in parallel (common fork-join pool), handing each to the sink;
+     * returns the total number of bars
+     */
+    public long generateAll(int symbols, int barsPerSymbol, LocalDateTime start,
+                            IntFunction<Regime> regimes, BarSink sink) {
+        return IntStream.range(0, symbols).parallel()
+            .mapToLong(index -> {
+                BarColumns bars = generate(index, regimes.apply(index), start, barsPerSymbol);
+                try {
+                    sink.accept(index, symbol(index), bars);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return bars.length();
+            })
+            .sum();
+    }
+
+    /**
+     * Append a series as CSV rows (see CSV_HEADER)
+     */
+    public static void writeCsv(String symbol, BarColumns bars, Writer out) throws IOException {
+        long[] t = bars.getT();
+        StringBuilder line = new StringBuilder(128);
+        for (int i = 0; i < t.length; i++) {
+            line.setLength(0);
+            line.append(symbol).append(',')
+                .append(ISO.format(LocalDateTime.ofEpochSecond(t[i], 0, ZoneOffset.UTC))).append(',')
+                .append(bars.getO()[i]).append(',')
+                .append(bars.getH()[i]).append(',')
+                .append(bars.getL()[i]).append(',')
+                .append(bars.getC()[i]).append(',')
+                .append(bars.getV()[i]).append('\n');
+            out.append(line);
+        }
+    }
+
+    /**
+     * The series as StockData objects, e.g. for IngestionPipeline.ingest
+     */
+    public static List<StockData> toStockData(BarColumns bars) {
+        List<StockData> data = new ArrayList<>(bars.length());
+        for (int i = 0; i < bars.length(); i++) {
+            data.add(new StockData(LocalDateTime.ofEpochSecond(bars.getT()[i], 0, ZoneOffset.UTC),
+                bars.getO()[i], bars.getH()[i], bars.getL()[i], bars.getC()[i], bars.getV()[i]));
+        }
+        return data;
+    }
+
+    /**
+     * Uniform and normal draws from one symbol's stream (polar Box-Muller, keeping the spare)
+     */
+    private static final class Noise {
+        private final SplittableRandom random;
+        private double spare;
+        private boolean hasSpare;
+
+        Noise(long seed) {
+            this.random = new SplittableRandom(seed);
+        }
+
+        double uniform() {
+            return random.nextDouble();
+        }
+
+        double gaussian() {
+            if (hasSpare) {
+                hasSpare = false;
+                return spare;
+            }
+            double u;
+            double v;
+            double s;
+            do {
+                u = random.nextDouble() * 2 - 1;
+                v = random.nextDouble() * 2 - 1;
+                s = u * u + v * v;
+            } while (s >= 1 || s == 0);
+            double scale = Math.sqrt(-2 * Math.log(s) / s);
+            spare = v * scale;
+            hasSpare = true;
+            return u * scale;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package stockprediction.data;
+
+import stockprediction.model.StockData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of bar batches, in memory-mapped segment files named after the
+ * log sequence number (LSN) of their first record. A record is
+ *   int length | int crc32 | long lsn | short symbol length | symbol (UTF-8) | int bar count |
+ *   per bar: long epoch second | int nano | double open, high, low, close | long volume
+ * where length and crc cover everything after the crc. append() only copies into the mapping;
+ * sync() forces it to disk, so one sync commits every record appended before it (group commit).
+ * checkpoint(lsn) records that everything up to 'lsn' is in the database and deletes the segments
+ * it covers. Opening the log scans the segments and keeps the records after the checkpoint for
+ * replay, stopping at the first torn or corrupt record, then starts a fresh segment.
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * One logged batch
+     */
+    public static final class Entry {
+
+        private final long lsn;
+        private final String symbol;
+        private final List<StockData> bars;
+
+        Entry(long lsn, String symbol, List<StockData> bars) {
+            this.lsn = lsn;
+            this.symbol = symbol;
+            this.bars = bars;
+        }
+
+        public long getLsn() { return lsn; }
+        public String getSymbol() { return symbol; }
+        public List<StockData> getBars() { return bars; }
+    }
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_BYTES = 8;                        // length + crc
+    private static final int BAR_BYTES = 8 + 4 + 4 * 8 + 8;
+
+    private final Path directory;
+    private final int segmentBytes;
+    // First LSN -> segment file, oldest first
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final List<Entry> recovered;
+    private final CRC32 crc = new CRC32();
+
+    private MappedByteBuffer current;
+    private long nextLsn;
+    private long checkpointLsn;
+    private long syncedLsn;
+    private long appends;
+    private long syncs;
+
+    public WriteAheadLog(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        checkpointLsn = Files.exists(checkpoint) ? ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong() : 0L;
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(WriteAheadLog::isSegment).forEach(file -> segments.put(firstLsn(file), file));
+        }
+        recovered = recover();
+        syncedLsn = nextLsn - 1;
+        roll(0);
+        deleteCoveredSegments();
+    }
+
+    /**
+     * Records after the checkpoint found when the log was opened, oldest first
+     */
+    public List<Entry> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Copy a batch into the log and return its LSN; durable once sync() returns
+     */
+    public synchronized long append(String symbol, List<StockData> bars) throws IOException {
+        byte[] name = symbol.getBytes(StandardCharsets.UTF_8);
+        int length = 8 + 2 + name.length + 4 + bars.size() * BAR_BYTES;
+        if (current.remaining() < HEADER_BYTES + length) {
+            roll(HEADER_BYTES + length);
+        }
+        long lsn = nextLsn++;
+        ByteBuffer body = ByteBuffer.allocate(length);
+        body.putLong(lsn).putShort((short) name.length).put(name).putInt(bars.size());
+        for (StockData bar : bars) {
+            LocalDateTime time = bar.getTimestamp();
+            body.putLong(time.toEpochSecond(ZoneOffset.UTC)).putInt(time.getNano())
+                .putDouble(bar.getOpen()).putDouble(bar.getHigh()).putDouble(bar.getLow()).putDouble(bar.getClose())
+                .putLong(bar.getVolume());
+        }
+        crc.reset();
+        crc.update(body.array(), 0, length);
+        current.putInt(length).putInt((int) crc.getValue()).put(body.array());
+        appends++;
+        return lsn;
+    }
+
+    /**
+     * Force everything appended so far to disk
+     */
+    public synchronized void sync() {
+        if (syncedLsn == nextLsn - 1) {
+            return;
+        }
+        current.force();
+        syncedLsn = nextLsn - 1;
+        syncs++;
+    }
+
+    /**
+     * Everything up to 'lsn' is stored elsewhere: persist the checkpoint, drop covered segments
+     */
+    public synchronized void checkpoint(long lsn) throws IOException {
+        if (lsn <= checkpointLsn) {
+            return;
+        }
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, lsn));
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        checkpointLsn = lsn;
+        deleteCoveredSegments();
+    }
+
+    /**
+     * Segment count, LSNs and sync counts
+     */
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("directory", directory.toAbsolutePath().toString());
+        status.put("segments", segments.size());
+        status.put("lastLsn", nextLsn - 1);
+        status.put("syncedLsn", syncedLsn);
+        status.put("checkpointLsn", checkpointLsn);
+        status.put("appends", appends);
+        status.put("syncs", syncs);
+        return status;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (current != null) {
+            current.force();
+            current = null;
+        }
+    }
+
+    private List<Entry> recover() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long last = checkpointLsn;
+        Path tornFile = null;
+        int tornAt = 0;
+        for (Path file : segments.values()) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (segment.remaining() >= HEADER_BYTES) {
+                    int position = segment.position();
+                    int length = segment.getInt();
+                    int checksum = segment.getInt();
+                    if (length == 0 && checksum == 0) {
+                        break;                          // unused, zero-filled tail
+                    }
+                    Entry entry = length > 0 && length <= segment.remaining() && matches(segment, length, checksum)
+                        ? read(segment) : null;
+                    if (entry == null || (entry.lsn <= last && entry.lsn > checkpointLsn)) {
+                        // Torn or out of order: nothing from here on was acknowledged
+                        tornFile = file;
+                        tornAt = position;
+                        break;
+                    }
+                    if (entry.lsn > checkpointLsn) {
+                        entries.add(entry);
+                    }
+                    last = Math.max(last, entry.lsn);
+                }
+            }
+            if (tornFile != null) {
+                break;
+            }
+        }
+        if (tornFile != null) {
+            discardFrom(tornFile, tornAt);
+        }
+        // Past every LSN on disk, so the next segment name is unused
+        nextLsn = Math.max(last, segments.isEmpty() ? checkpointLsn : segments.lastKey()) + 1;
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Zero the torn segment from 'position' on and set the segments after it aside (*.corrupt)
+     */
+    private void discardFrom(Path file, int position) throws IOException {
+        System.err.println("Write-ahead log: discarding unacknowledged records from " + file.getFileName()
+            + " at byte " + position);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            segment.position(position);
+            byte[] zeros = new byte[8192];
+            while (segment.hasRemaining()) {
+                segment.put(zeros, 0, Math.min(zeros.length, segment.remaining()));
+            }
+            segment.force();
+        }
+        for (Long start : new ArrayList<>(segments.tailMap(firstLsn(file), false).keySet())) {
+            Path later = segments.remove(start);
+            Files.move(later, later.resolveSibling(later.getFileName() + ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private boolean matches(ByteBuffer segment, int length, int checksum) {
+        byte[] body = new byte[length];
+        segment.duplicate().get(body);
+        crc.reset();
+        crc.update(body, 0, length);
+        return (int) crc.getValue() == checksum;
+    }
+
+    private static Entry read(ByteBuffer segment) {
+        long lsn = segment.getLong();
+        byte[] name = new byte[segment.getShort()];
+        segment.get(name);
+        int count = segment.getInt();
+        List<StockData> bars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDateTime time = LocalDateTime.ofEpochSecond(segment.getLong(), segment.getInt(), ZoneOffset.UTC);
+            bars.add(new StockData(time, segment.getDouble(), segment.getDouble(), segment.getDouble(),
+                segment.getDouble(), segment.getLong()));
+        }
+        return new Entry(lsn, new String(name, StandardCharsets.UTF_8), bars);
+    }
+
+    /**
+     * Force the current segment and continue in a new one, at least 'needed' bytes long
+     */
+    private void roll(int needed) throws IOException {
+        if (current != null) {
+            current.force();
+        }
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextLsn, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            current = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, needed));
+        }
+        segments.put(nextLsn, file);
+    }
+
+    /**
+     * Delete the segments whose records are all at or before the checkpoint (never the current one)
+     */
+    private void deleteCoveredSegments() {
+        List<Long> starts = new ArrayList<>(segments.keySet());
+        for (int i = 0; i + 1 < starts.size(); i++) {
+            if (starts.get(i + 1) - 1 > checkpointLsn) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segments.remove(starts.get(i)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long firstLsn(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,100 @@
+package stockprediction.data;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import stockprediction.model.StockData;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily bars from the Yahoo Finance chart API (Vietnamese symbols get the .VN suffix). The
+ * first fetch of a symbol asks for one year; later ones only for the time since the last bar.
+ */
+public class YahooFinanceProvider implements MarketDataProvider {
+
+    // Vietnam timezone, used for the bar timestamps
+    private static final ZoneOffset MARKET_OFFSET = ZoneOffset.ofHours(7);
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+
+    public YahooFinanceProvider(RestTemplate restTemplate, String baseUrl) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public String getName() {
+        return "yahoo";
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<StockData> fetchBars(String symbol, LocalDateTime since) throws IOException {
+        String url = baseUrl + symbol + ".VN?interval=1d&" + (since == null
+            ? "range=1y"
+            : "period1=" + (since.toEpochSecond(MARKET_OFFSET) + 1) + "&period2=" + (System.currentTimeMillis() / 1000));
+        Map<String, Object> response;
+        try {
+            response = restTemplate.getForObject(url, Map.class);
+        } catch (ResourceAccessException e) {
+            throw new IOException("Yahoo Finance unreachable: " + e.getMessage(), e);
+        } catch (HttpStatusCodeException e) {
+            if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS || e.getStatusCode().is5xxServerError()) {
+                throw new IOException("Yahoo Finance answered " + e.getRawStatusCode(), e);
+            }
+            throw new IllegalArgumentException("Yahoo Finance answered " + e.getRawStatusCode() + " for " + symbol, e);
+        }
+
+        if (response == null || !response.containsKey("chart")) {
+            return Collections.emptyList();
+        }
+        Map<String, Object> chart = (Map<String, Object>) response.get("chart");
+        List<Map<String, Object>> result = (List<Map<String, Object>>) chart.get("result");
+        if (result == null || result.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return parse(result.get(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<StockData> parse(Map<String, Object> data) {
+        List<StockData> bars = new ArrayList<>();
+        // Jackson reads small numbers as Integer and whole prices without a fraction, so go through Number
+        List<Number> timestamps = (List<Number>) data.get("timestamp");
+        Map<String, Object> indicators = (Map<String, Object>) data.get("indicators");
+        if (timestamps == null || indicators == null || !indicators.containsKey("quote")) {
+            return bars;
+        }
+        Map<String, Object> quote = ((List<Map<String, Object>>) indicators.get("quote")).get(0);
+        List<Number> opens = (List<Number>) quote.get("open");
+        List<Number> highs = (List<Number>) quote.get("high");
+        List<Number> lows = (List<Number>) quote.get("low");
+        List<Number> closes = (List<Number>) quote.get("close");
+        List<Number> volumes = (List<Number>) quote.get("volume");
+
+        for (int i = 0; i < timestamps.size(); i++) {
+            // Yahoo leaves every field null for days without trading
+            if (opens.get(i) == null || highs.get(i) == null || lows.get(i) == null || closes.get(i) == null) {
+                continue;
+            }
+            bars.add(new StockData(
+                LocalDateTime.ofEpochSecond(timestamps.get(i).longValue(), 0, MARKET_OFFSET),
+                opens.get(i).doubleValue(),
+                highs.get(i).doubleValue(),
+                lows.get(i).doubleValue(),
+                closes.get(i).doubleValue(),
+                volumes.get(i) != null ? volumes.get(i).longValue() : 0L
+            ));
+        }
+        return bars;
+    }
+}
@@ -0,0 +1,581 @@
+package stockprediction.engine;
+
+import stockprediction.model.StockData;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stitches per-contract futures bars (e.g. VN30F2401, VN30F2402, ...) into one continuous series
+ * so indicators with long warm-ups (EMA 50) do not restart every expiry.
+ *
+ * Roll rules:
+ * - VOLUME_CROSSOVER: roll on the first day the next contract trades more volume than the active one
+ *   (forced at the active contract's expiry at the latest)
+ * - DAYS_BEFORE_EXPIRY: roll N business days before the active contract's expiry
+ *
+ * Adjustments remove the price gap at each roll from all earlier bars, so the latest segment keeps
+ * real prices: BACK shifts by the difference, RATIO scales by the price ratio.
+ */
+public class ContinuousContractBuilder {
+
+    private static final Pattern CONTRACT_SUFFIX = Pattern.compile("^(.*?)(\\d{2})(\\d{2})$");
+
+    public enum RollRule {
+        VOLUME_CROSSOVER, DAYS_BEFORE_EXPIRY
+    }
+
+    public enum Adjustment {
+        NONE, BACK, RATIO
+    }
+
+    /**
+     * A roll from one contract to the next
+     */
+    public static class RollEvent {
+        private final LocalDateTime timestamp;
+        private final String fromContract;
+        private final String toContract;
+        private final double fromPrice;
+        private final double toPrice;
+
+        public RollEvent(LocalDateTime timestamp, String fromContract, String toContract, double fromPrice, double toPrice) {
+            this.timestamp = timestamp;
+            this.fromContract = fromContract;
+            this.toContract = toContract;
+            this.fromPrice = fromPrice;
+            this.toPrice = toPrice;
+        }
+
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public String getFromContract() { return fromContract; }
+        public String getToContract() { return toContract; }
+        public double getFromPrice() { return fromPrice; }
+        public double getToPrice() { return toPrice; }
+        public double getGap() { return toPrice - fromPrice; }
+    }
+
+    /**
+     * Stitched series plus the contract each bar came from
+     */
+    public static class ContinuousSeries {
+        private final AppendOnlyList<StockData> bars;
+        private final AppendOnlyList<String> sourceContracts;
+        private final List<RollEvent> rolls;
+        private final String activeContract;
+
+        public ContinuousSeries(List<StockData> bars, List<String> sourceContracts, List<RollEvent> rolls, String activeContract) {
+            this.bars = AppendOnlyList.of(bars);
+            this.sourceContracts = AppendOnlyList.of(sourceContracts);
+            this.rolls = rolls;
+            this.activeContract = activeContract;
+        }
+
+        /**
+         * Read-only view of the series as it is now, without copying; appends made afterwards do
+         * not show in it and do not disturb readers iterating it
+         */
+        public ContinuousSeries view() {
+            return new ContinuousSeries(bars.prefix(), sourceContracts.prefix(), Collections.unmodifiableList(rolls),
+                activeContract);
+        }
+
+        public List<StockData> getBars() { return bars; }
+        public List<String> getSourceContracts() { return sourceContracts; }
+        public List<RollEvent> getRolls() { return rolls; }
+        public String getActiveContract() { return activeContract; }
+
+        public LocalDateTime getLastTimestamp() {
+            return bars.isEmpty() ? null : bars.get(bars.size() - 1).getTimestamp();
+        }
+
+        /**
+         * Append bars of the active contract (the unadjusted segment) without rebuilding
+         */
+        public void appendActive(List<StockData> newBars) {
+            for (StockData bar : newBars) {
+                LocalDateTime last = getLastTimestamp();
+                if (last == null || bar.getTimestamp().isAfter(last)) {
+                    bars.add(bar);
+                    sourceContracts.add(activeContract);
+                }
+            }
+        }
+    }
+
+    private final RollRule rollRule;
+    private final int rollDaysBeforeExpiry;
+    private final Adjustment adjustment;
+    private final Function<String, LocalDate> expiryResolver;
+
+    public ContinuousContractBuilder(RollRule rollRule, int rollDaysBeforeExpiry, Adjustment adjustment) {
+        this(rollRule, rollDaysBeforeExpiry, adjustment, ContinuousContractBuilder::vn30fExpiry);
+    }
+
+    public ContinuousContractBuilder(RollRule rollRule, int rollDaysBeforeExpiry, Adjustment adjustment,
+                                     Function<String, LocalDate> expiryResolver) {
+        this.rollRule = rollRule;
+        this.rollDaysBeforeExpiry = rollDaysBeforeExpiry;
+        this.adjustment = adjustment;
+        this.expiryResolver = expiryResolver;
+    }
+
+    /**
+     * VN30F index futures expire on the third Thursday of the contract month (symbol suffix YYMM)
+     */
+    public static LocalDate vn30fExpiry(String contract) {
+        Matcher matcher = CONTRACT_SUFFIX.matcher(contract);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a dated contract symbol: " + contract);
+        }
+        int year = 2000 + Integer.parseInt(matcher.group(2));
+        int month = Integer.parseInt(matcher.group(3));
+        return LocalDate.of(year, month, 1).with(TemporalAdjusters.dayOfWeekInMonth(3, DayOfWeek.THURSDAY));
+    }
+
+    /**
+     * True when the symbol is a dated contract of the given root, e.g. VN30F2401 for VN30F
+     */
+    public static boolean isContractOf(String symbol, String root) {
+        if (!symbol.startsWith(root) || symbol.length() != root.length() + 4) return false;
+        for (int i = root.length(); i < symbol.length(); i++) {
+            if (!Character.isDigit(symbol.charAt(i))) return false;
+        }
+        int month = Integer.parseInt(symbol.substring(root.length() + 2));
+        return month >= 1 && month <= 12;
+    }
+
+    /**
+     * Whether a fixed-calendar roll is due for the active contract on the given day.
+     * Lets callers decide between an incremental append and a rebuild.
+     */
+    public boolean rollDue(String activeContract, LocalDate day) {
+        return rollRule == RollRule.DAYS_BEFORE_EXPIRY
+            && !day.isBefore(minusBusinessDays(expiryResolver.apply(activeContract), rollDaysBeforeExpiry));
+    }
+
+    /**
+     * Build the continuous series from ascending per-contract bar lists
+     */
+    public ContinuousSeries build(Map<String, List<StockData>> contracts) {
+        List<String> ordered = new ArrayList<>();
+        for (Map.Entry<String, List<StockData>> entry : contracts.entrySet()) {
+            if (!entry.getValue().isEmpty()) ordered.add(entry.getKey());
+        }
+        ordered.sort(Comparator.comparing(expiryResolver));
+        if (ordered.isEmpty()) {
+            return new ContinuousSeries(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), null);
+        }
+
+        // Roll timestamps: contract k is active on [rollAt[k-1], rollAt[k])
+        List<LocalDateTime> rollAt = new ArrayList<>();
+        List<String> active = new ArrayList<>();
+        active.add(ordered.get(0));
+        LocalDateTime segmentStart = contracts.get(ordered.get(0)).get(0).getTimestamp();
+        for (int k = 0; k + 1 < ordered.size(); k++) {
+            String current = ordered.get(k);
+            String next = ordered.get(k + 1);
+            LocalDateTime roll = findRoll(contracts.get(current), contracts.get(next), expiryResolver.apply(current), segmentStart);
+            if (roll == null) {
+                break; // next contract has no bars after the current segment started
+            }
+            rollAt.add(roll);
+            active.add(next);
+            segmentStart = roll;
+        }
+
+        // Walk segments newest to oldest so the cumulative adjustment is known when each one is copied
+        int segments = active.size();
+        List<List<StockData>> adjustedSegments = new ArrayList<>(Collections.nCopies(segments, null));
+        List<RollEvent> rolls = new ArrayList<>(Collections.nCopies(segments - 1, null));
+        double offset = 0.0;
+        double factor = 1.0;
+        for (int s = segments - 1; s >= 0; s--) {
+            List<StockData> source = contracts.get(active.get(s));
+            LocalDateTime from = s == 0 ? null : rollAt.get(s - 1);
+            LocalDateTime to = s == segments - 1 ? null : rollAt.get(s);
+            adjustedSegments.set(s, slice(source, from, to, offset, factor));
+
+            if (s > 0) {
+                String previous = active.get(s - 1);
+                LocalDateTime roll = rollAt.get(s - 1);
+                double oldPrice = lastCloseBefore(contracts.get(previous), roll);
+                double newPrice = lastCloseBefore(source, roll);
+                if (Double.isNaN(newPrice)) newPrice = firstOpenAtOrAfter(source, roll);
+                if (Double.isNaN(oldPrice)) oldPrice = newPrice;
+                rolls.set(s - 1, new RollEvent(roll, previous, active.get(s), oldPrice, newPrice));
+                if (adjustment == Adjustment.BACK) {
+                    offset += newPrice - oldPrice;
+                } else if (adjustment == Adjustment.RATIO && oldPrice > 0) {
+                    factor *= newPrice / oldPrice;
+                }
+            }
+        }
+
+        int total = 0;
+        for (List<StockData> segment : adjustedSegments) total += segment.size();
+        List<StockData> bars = new ArrayList<>(total);
+        List<String> sources = new ArrayList<>(total);
+        for (int s = 0; s < segments; s++) {
+            bars.addAll(adjustedSegments.get(s));
+            sources.addAll(Collections.nCopies(adjustedSegments.get(s).size(), active.get(s)));
+        }
+        return new ContinuousSeries(bars, sources, rolls, active.get(segments - 1));
+    }
+
+    private LocalDateTime findRoll(List<StockData> current, List<StockData> next, LocalDate expiry, LocalDateTime segmentStart) {
+        LocalDate rollDay;
+        if (rollRule == RollRule.DAYS_BEFORE_EXPIRY) {
+            rollDay = minusBusinessDays(expiry, rollDaysBeforeExpiry);
+        } else {
+            rollDay = volumeCrossoverDay(current, next, expiry, segmentStart.toLocalDate());
+        }
+        if (rollDay.isBefore(segmentStart.toLocalDate())) {
+            rollDay = segmentStart.toLocalDate();
+        }
+        // Roll at the next contract's first bar on or after the roll day (and after the segment start)
+        LocalDateTime earliest = rollDay.atStartOfDay();
+        if (!earliest.isAfter(segmentStart)) earliest = segmentStart.plusNanos(1);
+        int index = firstIndexAtOrAfter(next, earliest);
+        return index < next.size() ? next.get(index).getTimestamp() : null;
+    }
+
+    private static LocalDate volumeCrossoverDay(List<StockData> current, List<StockData> next, LocalDate expiry, LocalDate notBefore) {
+        Map<LocalDate, Long> currentVolume = dailyVolume(current);
+        Map<LocalDate, Long> nextVolume = dailyVolume(next);
+        for (Map.Entry<LocalDate, Long> day : new TreeMap<>(nextVolume).entrySet()) {
+            if (day.getKey().isBefore(notBefore)) continue;
+            if (!day.getKey().isBefore(expiry)) return expiry;
+            if (day.getValue() > currentVolume.getOrDefault(day.getKey(), 0L)) {
+                return day.getKey();
+            }
+        }
+        return expiry;
+    }
+
+    private static Map<LocalDate, Long> dailyVolume(List<StockData> bars) {
+        Map<LocalDate, Long> volume = new HashMap<>();
+        for (StockData bar : bars) {
+            volume.merge(bar.getTimestamp().toLocalDate(), bar.getVolume(), Long::sum);
+        }
+        return volume;
+    }
+
+    private static LocalDate minusBusinessDays(LocalDate date, int days) {
+        LocalDate result = date;
+        int remaining = days;
+        while (remaining > 0) {
+            result = result.minusDays(1);
+            if (result.getDayOfWeek() != DayOfWeek.SATURDAY && result.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                remaining--;
+            }
+        }
+        return result;
+    }
+
+    private List<StockData> slice(List<StockData> source, LocalDateTime from, LocalDateTime to, double offset, double factor) {
+        int start = from == null ? 0 : firstIndexAtOrAfter(source, from);
+        int end = to == null ? source.size() : firstIndexAtOrAfter(source, to);
+        List<StockData> out = new ArrayList<>(Math.max(0, end - start));
+        boolean unchanged = offset == 0.0 && factor == 1.0;
+        for (int i = start; i < end; i++) {
+            StockData bar = source.get(i);
+            if (unchanged) {
+                out.add(bar);
+            } else {
+                out.add(new StockData(bar.getTimestamp(),
+                    adjust(bar.getOpen(), offset, factor), adjust(bar.getHigh(), offset, factor),
+                    adjust(bar.getLow(), offset, factor), adjust(bar.getClose(), offset, factor), bar.getVolume()));
+            }
+        }
+        return out;
+    }
+
+    private double adjust(double price, double offset, double factor) {
+        return adjustment == Adjustment.RATIO ? price * factor : price + offset;
+    }
+
+    private static int firstIndexAtOrAfter(List<StockData> bars, LocalDateTime timestamp) {
+        int lo = 0;
+        int hi = bars.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bars.get(mid).getTimestamp().isBefore(timestamp)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static double lastCloseBefore(List<StockData> bars, LocalDateTime timestamp) {
+        int index = firstIndexAtOrAfter(bars, timestamp) - 1;
+        return index >= 0 ? bars.get(index).getClose() : Double.NaN;
+    }
+
+    private static double firstOpenAtOrAfter(List<StockData> bars, LocalDateTime timestamp) {
+        int index = firstIndexAtOrAfter(bars, timestamp);
+        return index < bars.size() ? bars.get(index).getOpen() : Double.NaN;
+    }
+
+    /**
+     * A continuous series kept current as bars arrive. Everything before the last confirmed roll
+     * (one on a day that has ended, i.e. a later day has bars) is frozen; only the contracts from
+     * that roll on are kept, raw, and re-stitched, and only when new bars can move a roll: a
+     * volume crossover between the active and the next contract, a due calendar roll, late bars of
+     * a contract rolled out of since the confirmed roll, or bars out of order. Bars of the active
+     * contract are appended in place. Not thread-safe; callers hold their own lock.
+     */
+    public static final class LiveSeries {
+
+        private final ContinuousContractBuilder builder;
+        private final Comparator<String> byExpiry;
+        // Bars before the confirmed roll, adjusted to the contract it rolled to
+        private List<StockData> frozenBars = new ArrayList<>();
+        private final List<String> frozenSources = new ArrayList<>();
+        private final List<RollEvent> frozenRolls = new ArrayList<>();
+        // Raw bars of the contracts from the confirmed roll on (whole days), by expiry
+        private final NavigableMap<String, List<StockData>> tail;
+        private final Map<String, Map<LocalDate, Long>> tailVolume = new HashMap<>();
+        private LocalDateTime confirmedRoll;
+        private ContinuousSeries series;
+        private boolean stale;
+
+        public LiveSeries(ContinuousContractBuilder builder, Map<String, List<StockData>> contracts) {
+            this.builder = builder;
+            this.byExpiry = Comparator.comparing(builder.expiryResolver).thenComparing(Comparator.naturalOrder());
+            this.tail = new TreeMap<>(byExpiry);
+            contracts.forEach((contract, bars) -> {
+                if (!bars.isEmpty()) {
+                    tail.put(contract, new ArrayList<>(bars));
+                    tailVolume.put(contract, dailyVolume(bars));
+                }
+            });
+            restitch();
+        }
+
+        /**
+         * The current series (see ContinuousSeries.view), re-stitching the tail first if needed
+         */
+        public ContinuousSeries view() {
+            if (stale) {
+                restitch();
+            }
+            return series.view();
+        }
+
+        /**
+         * Fold in newly saved bars of one contract. Returns false when they reach back to the
+         * confirmed roll or before it, which takes a full build.
+         */
+        public boolean add(String contract, List<StockData> bars) {
+            if (bars.isEmpty()) {
+                return true;
+            }
+            List<StockData> ordered = new ArrayList<>(bars);
+            ordered.sort(Comparator.comparing(StockData::getTimestamp));
+            LocalDate firstDay = ordered.get(0).getTimestamp().toLocalDate();
+            if (confirmedRoll != null) {
+                if (byExpiry.compare(contract, tail.firstKey()) < 0) {
+                    // Rolled out of by the confirmed roll: only its bars up to that day count
+                    return firstDay.isAfter(confirmedRoll.toLocalDate());
+                }
+                if (firstDay.isBefore(confirmedRoll.toLocalDate())
+                        || (contract.equals(tail.firstKey()) && ordered.get(0).getTimestamp().isBefore(confirmedRoll))) {
+                    return false;
+                }
+            }
+
+            List<StockData> raw = tail.computeIfAbsent(contract, c -> new ArrayList<>());
+            boolean inOrder = raw.isEmpty() || ordered.get(0).getTimestamp().isAfter(raw.get(raw.size() - 1).getTimestamp());
+            raw.addAll(ordered);
+            if (!inOrder) {
+                raw.sort(Comparator.comparing(StockData::getTimestamp));
+            }
+            Map<LocalDate, Long> volume = tailVolume.computeIfAbsent(contract, c -> new HashMap<>());
+            for (StockData bar : ordered) {
+                volume.merge(bar.getTimestamp().toLocalDate(), bar.getVolume(), Long::sum);
+            }
+            if (stale) {
+                return true;
+            }
+
+            String active = series.getActiveContract();
+            LocalDate lastDay = ordered.get(ordered.size() - 1).getTimestamp().toLocalDate();
+            if (!inOrder || active == null) {
+                stale = true;
+            } else if (byExpiry.compare(contract, active) < 0) {
+                // Rolled out of since the confirmed roll: its volume up to the last roll's day can undo a crossover
+                List<RollEvent> rolls = series.getRolls();
+                stale = builder.rollRule == RollRule.VOLUME_CROSSOVER && !rolls.isEmpty()
+                    && !firstDay.isAfter(rolls.get(rolls.size() - 1).getTimestamp().toLocalDate());
+            } else if (contract.equals(active)) {
+                LocalDateTime last = series.getLastTimestamp();
+                if (builder.rollDue(active, lastDay) || (last != null && !ordered.get(0).getTimestamp().isAfter(last))) {
+                    stale = true;
+                } else {
+                    series.appendActive(ordered);
+                }
+            } else if (contract.equals(tail.higherKey(active))) {
+                stale = builder.rollRule == RollRule.DAYS_BEFORE_EXPIRY
+                    ? builder.rollDue(active, lastDay)
+                    : crossesOver(active, contract, ordered);
+            }
+            // Contracts beyond the next one only matter once the next one is active
+            return true;
+        }
+
+        private boolean crossesOver(String active, String next, List<StockData> bars) {
+            LocalDate expiry = builder.expiryResolver.apply(active);
+            Map<LocalDate, Long> activeVolume = tailVolume.getOrDefault(active, Collections.emptyMap());
+            Map<LocalDate, Long> nextVolume = tailVolume.get(next);
+            for (StockData bar : bars) {
+                LocalDate day = bar.getTimestamp().toLocalDate();
+                if (!day.isBefore(expiry) || nextVolume.get(day) > activeVolume.getOrDefault(day, 0L)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void restitch() {
+            ContinuousSeries latest = builder.build(tail);
+            double[] adjustment = cumulative(latest.getRolls(), 0, latest.getRolls().size());
+            List<StockData> bars = new ArrayList<>(frozenBars.size() + latest.getBars().size());
+            bars.addAll(builder.slice(frozenBars, null, null, adjustment[0], adjustment[1]));
+            bars.addAll(latest.getBars());
+            List<String> sources = new ArrayList<>(bars.size());
+            sources.addAll(frozenSources);
+            sources.addAll(latest.getSourceContracts());
+            List<RollEvent> rolls = new ArrayList<>(frozenRolls);
+            rolls.addAll(latest.getRolls());
+            series = new ContinuousSeries(bars, sources, rolls, latest.getActiveContract());
+            stale = false;
+            confirm(latest.getRolls());
+        }
+
+        /**
+         * Freeze the segments up to the last roll on a day that has ended, and drop the raw bars
+         * no later roll can depend on
+         */
+        private void confirm(List<RollEvent> rolls) {
+            LocalDate lastDay = tail.values().stream()
+                .map(bars -> bars.get(bars.size() - 1).getTimestamp().toLocalDate())
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+            int k = rolls.size() - 1;
+            while (k >= 0 && !rolls.get(k).getTimestamp().toLocalDate().isBefore(lastDay)) {
+                k--;
+            }
+            if (k < 0) {
+                return;
+            }
+
+            // Each newly frozen segment is adjusted by the rolls from its end to the confirmed one
+            double[] confirmedAdjustment = cumulative(rolls, 0, k + 1);
+            List<StockData> frozen = new ArrayList<>(builder.slice(frozenBars, null, null,
+                confirmedAdjustment[0], confirmedAdjustment[1]));
+            for (int segment = 0; segment <= k; segment++) {
+                RollEvent roll = rolls.get(segment);
+                double[] adjustment = cumulative(rolls, segment, k + 1);
+                List<StockData> slice = builder.slice(tail.get(roll.getFromContract()),
+                    segment == 0 ? null : rolls.get(segment - 1).getTimestamp(), roll.getTimestamp(),
+                    adjustment[0], adjustment[1]);
+                frozen.addAll(slice);
+                frozenSources.addAll(Collections.nCopies(slice.size(), roll.getFromContract()));
+            }
+            frozenBars = frozen;
+            frozenRolls.addAll(rolls.subList(0, k + 1));
+
+            RollEvent confirmed = rolls.get(k);
+            confirmedRoll = confirmed.getTimestamp();
+            tail.headMap(confirmed.getToContract(), false).clear();
+            LocalDateTime dayStart = confirmedRoll.toLocalDate().atStartOfDay();
+            for (Map.Entry<String, List<StockData>> entry : tail.entrySet()) {
+                LocalDateTime from = entry.getKey().equals(confirmed.getToContract()) ? confirmedRoll : dayStart;
+                List<StockData> bars = entry.getValue();
+                bars.subList(0, firstIndexAtOrAfter(bars, from)).clear();
+            }
+            tail.values().removeIf(List::isEmpty);
+            tailVolume.keySet().retainAll(tail.keySet());
+            tail.forEach((contract, bars) -> tailVolume.put(contract, dailyVolume(bars)));
+        }
+
+        /**
+         * Offset and factor of rolls [from, to) taken together, as build applies them
+         */
+        private double[] cumulative(List<RollEvent> rolls, int from, int to) {
+            double offset = 0.0;
+            double factor = 1.0;
+            for (int i = from; i < to; i++) {
+                RollEvent roll = rolls.get(i);
+                if (builder.adjustment == Adjustment.BACK) {
+                    offset += roll.getToPrice() - roll.getFromPrice();
+                } else if (builder.adjustment == Adjustment.RATIO && roll.getFromPrice() > 0) {
+                    factor *= roll.getToPrice() / roll.getFromPrice();
+                }
+            }
+            return new double[]{offset, factor};
+        }
+    }
+
+    /**
+     * List that only grows at the end. A prefix() shares the elements and stays valid, unchanged,
+     * while more are appended: slots below a published size are never written again, and growing
+     * moves the list to a new array.
+     */
+    static final class AppendOnlyList<T> extends AbstractList<T> implements RandomAccess {
+        private Object[] elements;
+        private int size;
+        private final boolean readOnly;
+
+        private AppendOnlyList(Object[] elements, int size, boolean readOnly) {
+            this.elements = elements;
+            this.size = size;
+            this.readOnly = readOnly;
+        }
+
+        /** The list itself when it already is one, else a copy */
+        static <T> AppendOnlyList<T> of(List<T> list) {
+            if (list instanceof AppendOnlyList) {
+                return (AppendOnlyList<T>) list;
+            }
+            return new AppendOnlyList<>(list.toArray(new Object[Math.max(16, list.size())]), list.size(), false);
+        }
+
+        AppendOnlyList<T> prefix() {
+            return new AppendOnlyList<>(elements, size, true);
+        }
+
+        @Override
+        public boolean add(T element) {
+            if (readOnly) {
+                throw new UnsupportedOperationException("Read-only view");
+            }
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = element;
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            Objects.checkIndex(index, size);
+            return (T) elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
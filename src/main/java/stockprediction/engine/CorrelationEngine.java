@@ -0,0 +1,350 @@
+package stockprediction.engine;
+
+import stockprediction.model.CorrelationMatrix;
+import stockprediction.model.StockData;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Cross-symbol return statistics: aligns bar series by trading day and computes rolling
+ * covariance / correlation matrices. Full computations run as blocked tiles of the upper
+ * triangle spread over the common fork-join pool; {@link RollingState} keeps running sums
+ * so a new day is folded in with one O(n^2) pass instead of a full recompute.
+ */
+public class CorrelationEngine {
+
+    // 64 rows x window doubles per tile keeps both operand blocks in L2 for typical windows
+    private static final int BLOCK_SIZE = 64;
+
+    /**
+     * Daily log returns for a set of symbols on their common trading days
+     */
+    public static class AlignedReturns {
+        private final List<String> symbols;
+        private final List<LocalDate> dates;
+        private final double[][] returns;
+        private final double[] lastCloses;
+        private final List<String> excluded;
+
+        AlignedReturns(List<String> symbols, List<LocalDate> dates, double[][] returns, double[] lastCloses,
+                       List<String> excluded) {
+            this.symbols = symbols;
+            this.dates = dates;
+            this.returns = returns;
+            this.lastCloses = lastCloses;
+            this.excluded = excluded;
+        }
+
+        public List<String> getSymbols() { return symbols; }
+        public List<String> getExcluded() { return excluded; }
+        public List<LocalDate> getDates() { return dates; }
+        public double[][] getReturns() { return returns; }
+        public double[] getLastCloses() { return lastCloses; }
+        public int length() { return dates.size(); }
+
+        public LocalDate getLastDate() {
+            return dates.isEmpty() ? null : dates.get(dates.size() - 1);
+        }
+    }
+
+    /**
+     * Align ascending bar series on a common trading calendar, using the last close of each day.
+     * The calendar is the last window + 1 days that at least half of the symbols traded. Symbols
+     * missing any of those days (newly listed, expired, halted) are left out and reported as
+     * excluded, so one short series does not shrink the window for all the others (as are
+     * symbols with no bars at all).
+     */
+    public static AlignedReturns alignDailyReturns(Map<String, List<StockData>> series, int window) {
+        Map<String, NavigableMap<LocalDate, Double>> closesBySymbol = new TreeMap<>();
+        Map<LocalDate, Integer> traded = new HashMap<>();
+        int withBars = 0;
+        for (Map.Entry<String, List<StockData>> entry : series.entrySet()) {
+            NavigableMap<LocalDate, Double> closes = new TreeMap<>();
+            for (StockData bar : entry.getValue()) {
+                closes.put(bar.getTimestamp().toLocalDate(), bar.getClose());
+            }
+            closesBySymbol.put(entry.getKey(), closes);
+            closes.keySet().forEach(day -> traded.merge(day, 1, Integer::sum));
+            if (!closes.isEmpty()) withBars++;
+        }
+
+        int quorum = (withBars + 1) / 2;
+        List<LocalDate> calendar = traded.entrySet().stream()
+            .filter(entry -> entry.getValue() >= quorum)
+            .map(Map.Entry::getKey)
+            .sorted()
+            .collect(Collectors.toList());
+        int keep = (int) Math.min(calendar.size(), (long) Math.max(1, window) + 1);
+        NavigableSet<LocalDate> common = new TreeSet<>(calendar.subList(calendar.size() - keep, calendar.size()));
+
+        List<String> symbols = new ArrayList<>();
+        List<String> excluded = new ArrayList<>();
+        List<NavigableMap<LocalDate, Double>> included = new ArrayList<>();
+        for (Map.Entry<String, NavigableMap<LocalDate, Double>> entry : closesBySymbol.entrySet()) {
+            if (!entry.getValue().isEmpty() && entry.getValue().keySet().containsAll(common)) {
+                symbols.add(entry.getKey());
+                included.add(entry.getValue());
+            } else {
+                excluded.add(entry.getKey());
+            }
+        }
+
+        if (common.size() < 2) {
+            return new AlignedReturns(symbols, Collections.emptyList(), new double[symbols.size()][0],
+                    lastCloses(included, common), excluded);
+        }
+
+        List<LocalDate> days = new ArrayList<>(common);
+        int length = days.size() - 1;
+        double[][] returns = new double[symbols.size()][length];
+        for (int i = 0; i < symbols.size(); i++) {
+            NavigableMap<LocalDate, Double> closes = included.get(i);
+            double previous = closes.get(days.get(0));
+            for (int t = 0; t < length; t++) {
+                double close = closes.get(days.get(t + 1));
+                returns[i][t] = logReturn(previous, close);
+                previous = close;
+            }
+        }
+
+        return new AlignedReturns(symbols, days.subList(1, days.size()), returns, lastCloses(included, common), excluded);
+    }
+
+    private static double[] lastCloses(List<NavigableMap<LocalDate, Double>> closesBySymbol, NavigableSet<LocalDate> common) {
+        double[] last = new double[closesBySymbol.size()];
+        Arrays.fill(last, Double.NaN);
+        if (common.isEmpty()) return last;
+        LocalDate lastDay = common.last();
+        for (int i = 0; i < last.length; i++) {
+            last[i] = closesBySymbol.get(i).get(lastDay);
+        }
+        return last;
+    }
+
+    public static double logReturn(double previousClose, double close) {
+        return previousClose > 0 && close > 0 ? Math.log(close / previousClose) : 0.0;
+    }
+
+    /**
+     * Full covariance/correlation over the last 'window' returns of each row
+     */
+    public static CorrelationMatrix compute(AlignedReturns aligned, int window) {
+        int n = aligned.getSymbols().size();
+        int w = Math.min(window, aligned.length());
+        if (w < 2) {
+            return new CorrelationMatrix(aligned.getSymbols(), aligned.getLastDate(), w, new double[n * n], identity(n),
+                    aligned.getExcluded());
+        }
+
+        // Center the tail of each row once so every tile is a plain dot product over contiguous memory
+        int offset = aligned.length() - w;
+        double[][] centered = new double[n][];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            double[] row = Arrays.copyOfRange(aligned.getReturns()[i], offset, offset + w);
+            double mean = 0.0;
+            for (double v : row) mean += v;
+            mean /= w;
+            for (int t = 0; t < w; t++) row[t] -= mean;
+            centered[i] = row;
+        });
+
+        double[] covariance = new double[n * n];
+        int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int[][] tiles = upperTriangleTiles(blocks);
+        double scale = 1.0 / (w - 1);
+
+        IntStream.range(0, tiles.length).parallel().forEach(k -> {
+            int rowStart = tiles[k][0] * BLOCK_SIZE;
+            int colStart = tiles[k][1] * BLOCK_SIZE;
+            int rowEnd = Math.min(n, rowStart + BLOCK_SIZE);
+            int colEnd = Math.min(n, colStart + BLOCK_SIZE);
+            for (int i = rowStart; i < rowEnd; i++) {
+                double[] a = centered[i];
+                for (int j = Math.max(i, colStart); j < colEnd; j++) {
+                    double[] b = centered[j];
+                    double dot = 0.0;
+                    for (int t = 0; t < w; t++) {
+                        dot += a[t] * b[t];
+                    }
+                    double cov = dot * scale;
+                    covariance[i * n + j] = cov;
+                    covariance[j * n + i] = cov;
+                }
+            }
+        });
+
+        return new CorrelationMatrix(aligned.getSymbols(), aligned.getLastDate(), w, covariance, toCorrelation(covariance, n),
+                aligned.getExcluded());
+    }
+
+    private static int[][] upperTriangleTiles(int blocks) {
+        int[][] tiles = new int[blocks * (blocks + 1) / 2][];
+        int k = 0;
+        for (int bi = 0; bi < blocks; bi++) {
+            for (int bj = bi; bj < blocks; bj++) {
+                tiles[k++] = new int[]{bi, bj};
+            }
+        }
+        return tiles;
+    }
+
+    private static double[] toCorrelation(double[] covariance, int n) {
+        double[] stdDev = new double[n];
+        for (int i = 0; i < n; i++) {
+            stdDev[i] = Math.sqrt(Math.max(0.0, covariance[i * n + i]));
+        }
+        double[] correlation = new double[n * n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            for (int j = 0; j < n; j++) {
+                double denominator = stdDev[i] * stdDev[j];
+                correlation[i * n + j] = i == j ? 1.0
+                        : denominator > 0 ? Math.max(-1.0, Math.min(1.0, covariance[i * n + j] / denominator)) : 0.0;
+            }
+        });
+        return correlation;
+    }
+
+    private static double[] identity(int n) {
+        double[] m = new double[n * n];
+        for (int i = 0; i < n; i++) m[i * n + i] = 1.0;
+        return m;
+    }
+
+    /**
+     * Running sums over the last 'window' return rows. Pushing a day adds the new row's
+     * products and subtracts the evicted row's; sums are recomputed exactly every 'window'
+     * pushes to stop floating-point drift.
+     */
+    public static class RollingState {
+        private final List<String> symbols;
+        private final int n;
+        private final int window;
+        private final double[][] ring;     // [slot][symbol], one contiguous row per day
+        private final double[] sums;
+        private final double[] crossSums;  // flat n*n, upper triangle maintained
+        private final double[] lastCloses;
+        private final List<String> excluded;
+        private int count;
+        private int head;
+        private int pushesSinceResync;
+        private LocalDate lastDate;
+
+        private RollingState(List<String> symbols, int window, double[] lastCloses, LocalDate lastDate,
+                             List<String> excluded) {
+            this.symbols = symbols;
+            this.excluded = excluded;
+            this.n = symbols.size();
+            this.window = window;
+            this.ring = new double[window][n];
+            this.sums = new double[n];
+            this.crossSums = new double[n * n];
+            this.lastCloses = lastCloses.clone();
+            this.lastDate = lastDate;
+        }
+
+        /**
+         * Seed from aligned history (only the last 'window' days are kept)
+         */
+        public static RollingState seed(AlignedReturns aligned, int window) {
+            RollingState state = new RollingState(aligned.getSymbols(), window, aligned.getLastCloses(), aligned.getLastDate(),
+                aligned.getExcluded());
+            int start = Math.max(0, aligned.length() - window);
+            double[] row = new double[state.n];
+            for (int t = start; t < aligned.length(); t++) {
+                for (int i = 0; i < state.n; i++) {
+                    row[i] = aligned.getReturns()[i][t];
+                }
+                state.store(row);
+            }
+            state.resync();
+            return state;
+        }
+
+        /**
+         * Fold in the closes of the next common trading day
+         */
+        public void push(LocalDate date, double[] closes) {
+            double[] row = new double[n];
+            for (int i = 0; i < n; i++) {
+                row[i] = logReturn(lastCloses[i], closes[i]);
+            }
+            double[] evicted = count == window ? ring[head].clone() : null;
+            store(row);
+            System.arraycopy(closes, 0, lastCloses, 0, n);
+            lastDate = date;
+
+            if (++pushesSinceResync >= window) {
+                resync();
+                return;
+            }
+
+            IntStream.range(0, n).parallel().forEach(i -> {
+                double ri = row[i];
+                double ei = evicted == null ? 0.0 : evicted[i];
+                int base = i * n;
+                for (int j = i; j < n; j++) {
+                    crossSums[base + j] += ri * row[j] - (evicted == null ? 0.0 : ei * evicted[j]);
+                }
+            });
+            for (int i = 0; i < n; i++) {
+                sums[i] += row[i] - (evicted == null ? 0.0 : evicted[i]);
+            }
+        }
+
+        private void store(double[] row) {
+            int slot = count < window ? count : head;
+            System.arraycopy(row, 0, ring[slot], 0, n);
+            if (count < window) {
+                count++;
+            } else {
+                head = (head + 1) % window;
+            }
+        }
+
+        private void resync() {
+            Arrays.fill(sums, 0.0);
+            for (int t = 0; t < count; t++) {
+                for (int i = 0; i < n; i++) sums[i] += ring[t][i];
+            }
+            IntStream.range(0, n).parallel().forEach(i -> {
+                int base = i * n;
+                for (int j = i; j < n; j++) {
+                    double acc = 0.0;
+                    for (int t = 0; t < count; t++) {
+                        acc += ring[t][i] * ring[t][j];
+                    }
+                    crossSums[base + j] = acc;
+                }
+            });
+            pushesSinceResync = 0;
+        }
+
+        /**
+         * Materialize the current covariance / correlation matrices
+         */
+        public CorrelationMatrix snapshot() {
+            if (count < 2) {
+                return new CorrelationMatrix(symbols, lastDate, count, new double[n * n], identity(n), excluded);
+            }
+            double[] covariance = new double[n * n];
+            double invCount = 1.0 / count;
+            double scale = 1.0 / (count - 1);
+            IntStream.range(0, n).parallel().forEach(i -> {
+                for (int j = i; j < n; j++) {
+                    double cov = (crossSums[i * n + j] - sums[i] * sums[j] * invCount) * scale;
+                    covariance[i * n + j] = cov;
+                    covariance[j * n + i] = cov;
+                }
+            });
+            return new CorrelationMatrix(symbols, lastDate, count, covariance, toCorrelation(covariance, n), excluded);
+        }
+
+        public List<String> getSymbols() { return symbols; }
+        public List<String> getExcluded() { return excluded; }
+        public int getWindow() { return window; }
+        public LocalDate getLastDate() { return lastDate; }
+    }
+}
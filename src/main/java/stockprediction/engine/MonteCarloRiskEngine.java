@@ -0,0 +1,332 @@
+package stockprediction.engine;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel Monte Carlo engine for portfolio P&L at a horizon (VaR / CVaR).
+ * Prices follow geometric Brownian motion per instrument, optionally correlated through a
+ * Cholesky factor. Every worker owns a {@link SplittableRandom} split from the root seed and
+ * writes into its own slice of a primitive P&L array, so there is no shared mutable state.
+ */
+public class MonteCarloRiskEngine {
+
+    // Paths per leaf task; large enough to amortize fork overhead, small enough to balance cores
+    private static final int PATHS_PER_TASK = 1 << 16;
+
+    private final ForkJoinPool pool;
+
+    public MonteCarloRiskEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public MonteCarloRiskEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Simulation input. All arrays are indexed by instrument.
+     */
+    public static class Scenario {
+        private final double[] spot;
+        private final double[] exposure;        // quantity * contract multiplier (signed)
+        private final double[] dailyVolatility;
+        private final double[] dailyDrift;
+        private final double[] correlation;     // flat n*n, null = independent
+        private final int horizonDays;
+        private final int steps;
+
+        public Scenario(double[] spot, double[] exposure, double[] dailyVolatility, double[] dailyDrift,
+                        double[] correlation, int horizonDays, int steps) {
+            this.spot = spot;
+            this.exposure = exposure;
+            this.dailyVolatility = dailyVolatility;
+            this.dailyDrift = dailyDrift;
+            this.correlation = correlation;
+            this.horizonDays = horizonDays;
+            this.steps = Math.max(1, steps);
+        }
+
+        public int size() { return spot.length; }
+    }
+
+    /**
+     * Simulation output: losses are positive numbers (loss = -P&L)
+     */
+    public static class Result {
+        private final long paths;
+        private final double[] confidenceLevels;
+        private final double[] valueAtRisk;
+        private final double[] conditionalValueAtRisk;
+        private final double expectedPnl;
+        private final double pnlStdDev;
+        private final long elapsedNanos;
+
+        Result(long paths, double[] confidenceLevels, double[] valueAtRisk, double[] conditionalValueAtRisk,
+               double expectedPnl, double pnlStdDev, long elapsedNanos) {
+            this.paths = paths;
+            this.confidenceLevels = confidenceLevels;
+            this.valueAtRisk = valueAtRisk;
+            this.conditionalValueAtRisk = conditionalValueAtRisk;
+            this.expectedPnl = expectedPnl;
+            this.pnlStdDev = pnlStdDev;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getPaths() { return paths; }
+        public double[] getConfidenceLevels() { return confidenceLevels; }
+        public double[] getValueAtRisk() { return valueAtRisk; }
+        public double[] getConditionalValueAtRisk() { return conditionalValueAtRisk; }
+        public double getExpectedPnl() { return expectedPnl; }
+        public double getPnlStdDev() { return pnlStdDev; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getPathsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : paths * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * VaR at the given confidence level (must be one of the simulated levels)
+         */
+        public double valueAtRisk(double confidence) {
+            for (int i = 0; i < confidenceLevels.length; i++) {
+                if (confidenceLevels[i] == confidence) return valueAtRisk[i];
+            }
+            throw new IllegalArgumentException("Confidence level not simulated: " + confidence);
+        }
+    }
+
+    /**
+     * Simulate 'paths' horizon P&Ls and compute VaR/CVaR for each confidence level
+     */
+    public Result simulate(Scenario scenario, int paths, double[] confidenceLevels, long seed) {
+        long start = System.nanoTime();
+        double[] losses = new double[paths];
+        double[] cholesky = scenario.correlation == null ? null : cholesky(scenario.correlation, scenario.size());
+
+        pool.invoke(new PathTask(scenario, cholesky, losses, 0, paths, new SplittableRandom(seed)));
+
+        double sum = 0.0;
+        double sumSquares = 0.0;
+        for (double loss : losses) {
+            sum += loss;
+            sumSquares += loss * loss;
+        }
+        double meanLoss = sum / paths;
+        double variance = Math.max(0.0, sumSquares / paths - meanLoss * meanLoss);
+
+        double[] levels = confidenceLevels.clone();
+        Arrays.sort(levels);
+        double[] var = new double[levels.length];
+        double[] cvar = new double[levels.length];
+        // Ascending levels select ascending ranks, so each selection only has to partition the upper part
+        int from = 0;
+        for (int i = 0; i < levels.length; i++) {
+            int rank = Math.min(paths - 1, Math.max(0, (int) Math.ceil(levels[i] * paths) - 1));
+            select(losses, from, paths - 1, rank);
+            var[i] = losses[rank];
+            double tail = 0.0;
+            for (int p = rank; p < paths; p++) {
+                tail += losses[p];
+            }
+            cvar[i] = tail / (paths - rank);
+            from = rank;
+        }
+
+        return new Result(paths, levels, var, cvar, -meanLoss, Math.sqrt(variance), System.nanoTime() - start);
+    }
+
+    /**
+     * Fork-join task: split the path range and the random stream together until leaves are small
+     */
+    private static final class PathTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Scenario scenario;
+        private final double[] cholesky;
+        private final double[] losses;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        PathTask(Scenario scenario, double[] cholesky, double[] losses, int from, int to, SplittableRandom random) {
+            this.scenario = scenario;
+            this.cholesky = cholesky;
+            this.losses = losses;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PATHS_PER_TASK) {
+                simulateRange();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            PathTask right = new PathTask(scenario, cholesky, losses, mid, to, random.split());
+            PathTask left = new PathTask(scenario, cholesky, losses, from, mid, random);
+            invokeAll(left, right);
+        }
+
+        private void simulateRange() {
+            int n = scenario.size();
+            double stepDays = (double) scenario.horizonDays / scenario.steps;
+            double sqrtStep = Math.sqrt(stepDays);
+            double[] drift = new double[n];
+            double[] diffusion = new double[n];
+            for (int k = 0; k < n; k++) {
+                double sigma = scenario.dailyVolatility[k];
+                drift[k] = (scenario.dailyDrift[k] - 0.5 * sigma * sigma) * stepDays;
+                diffusion[k] = sigma * sqrtStep;
+            }
+
+            Gaussian gaussian = new Gaussian(random);
+            double[] z = new double[n];
+            double[] logReturn = new double[n];
+
+            if (scenario.steps == 1 && cholesky == null) {
+                // Common intraday case: one shock per instrument, no per-path scratch arrays
+                for (int p = from; p < to; p++) {
+                    double pnl = 0.0;
+                    for (int k = 0; k < n; k++) {
+                        double growth = Math.exp(drift[k] + diffusion[k] * gaussian.next()) - 1.0;
+                        pnl += scenario.exposure[k] * scenario.spot[k] * growth;
+                    }
+                    losses[p] = -pnl;
+                }
+                return;
+            }
+
+            for (int p = from; p < to; p++) {
+                Arrays.fill(logReturn, 0.0);
+                for (int s = 0; s < scenario.steps; s++) {
+                    for (int k = 0; k < n; k++) {
+                        z[k] = gaussian.next();
+                    }
+                    for (int k = 0; k < n; k++) {
+                        double shock = cholesky == null ? z[k] : correlate(z, k, n);
+                        logReturn[k] += drift[k] + diffusion[k] * shock;
+                    }
+                }
+                double pnl = 0.0;
+                for (int k = 0; k < n; k++) {
+                    pnl += scenario.exposure[k] * scenario.spot[k] * (Math.exp(logReturn[k]) - 1.0);
+                }
+                losses[p] = -pnl;
+            }
+        }
+
+        private double correlate(double[] z, int k, int n) {
+            double acc = 0.0;
+            int row = k * n;
+            for (int j = 0; j <= k; j++) {
+                acc += cholesky[row + j] * z[j];
+            }
+            return acc;
+        }
+    }
+
+    /**
+     * Standard normals via the Marsaglia polar method, which yields values in pairs
+     */
+    private static final class Gaussian {
+        private final SplittableRandom random;
+        private double spare;
+        private boolean hasSpare;
+
+        Gaussian(SplittableRandom random) {
+            this.random = random;
+        }
+
+        double next() {
+            if (hasSpare) {
+                hasSpare = false;
+                return spare;
+            }
+            double u;
+            double v;
+            double s;
+            do {
+                u = random.nextDouble() * 2.0 - 1.0;
+                v = random.nextDouble() * 2.0 - 1.0;
+                s = u * u + v * v;
+            } while (s >= 1.0 || s == 0.0);
+            double factor = Math.sqrt(-2.0 * Math.log(s) / s);
+            spare = v * factor;
+            hasSpare = true;
+            return u * factor;
+        }
+    }
+
+    /**
+     * Lower-triangular Cholesky factor of a flat n*n correlation matrix.
+     * A tiny ridge is added when the matrix is not numerically positive definite.
+     */
+    static double[] cholesky(double[] matrix, int n) {
+        double ridge = 0.0;
+        for (int attempt = 0; attempt < 6; attempt++) {
+            double[] l = new double[n * n];
+            boolean ok = true;
+            for (int i = 0; i < n && ok; i++) {
+                for (int j = 0; j <= i; j++) {
+                    double sum = matrix[i * n + j] + (i == j ? ridge : 0.0);
+                    for (int k = 0; k < j; k++) {
+                        sum -= l[i * n + k] * l[j * n + k];
+                    }
+                    if (i == j) {
+                        if (sum <= 0.0) {
+                            ok = false;
+                            break;
+                        }
+                        l[i * n + i] = Math.sqrt(sum);
+                    } else {
+                        l[i * n + j] = sum / l[j * n + j];
+                    }
+                }
+            }
+            if (ok) {
+                return l;
+            }
+            ridge = ridge == 0.0 ? 1e-8 : ridge * 100;
+        }
+        throw new IllegalArgumentException("Correlation matrix is not positive definite");
+    }
+
+    /**
+     * Hoare-style quickselect: afterwards a[k] holds the k-th smallest value of a[lo..hi],
+     * everything left of k is <= a[k] and everything right of k is >= a[k]
+     */
+    static void select(double[] a, int lo, int hi, int k) {
+        while (hi > lo) {
+            double pivot = medianOfThree(a[lo], a[(lo + hi) >>> 1], a[hi]);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) {
+                    double tmp = a[i];
+                    a[i] = a[j];
+                    a[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+}
@@ -18,14 +18,19 @@ public class PredictionEngine {
     private static final int MACD_SLOW = 26;
     private static final int MACD_SIGNAL = 9;
 
+    /**
+     * Fewest bars analyzeTrend needs to produce any signal
+     */
+    public static final int MIN_BARS = EMA_50_PERIOD + 1;
+
     /**
      * Analyze stock data and generate prediction signals
      */
     public List<PredictionSignal> analyzeTrend(List<StockData> stockData) {
         List<PredictionSignal> signals = new ArrayList<>();
 
-        if (stockData.size() < EMA_50_PERIOD + 1) {
-            System.out.println(" Không đủ dữ liệu để phân tích. Cần ít nhất " + (EMA_50_PERIOD + 1) + " điểm dữ liệu.");
+        if (stockData.size() < MIN_BARS) {
+            System.out.println(" Không đủ dữ liệu để phân tích. Cần ít nhất " + MIN_BARS + " điểm dữ liệu.");
             return signals;
         }
 
@@ -0,0 +1,373 @@
+package stockprediction.engine;
+
+import stockprediction.model.SpreadDefinition;
+import stockprediction.model.StockData;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Streaming alignment of several bar streams into one weighted spread series.
+ * Legs are resampled into time buckets and inner-joined bucket by bucket; an {@link Aligner}
+ * holds at most one partially matched window per leg, and {@link RollingZScore} keeps a fixed
+ * ring of recent values, so an open spread uses constant memory however long it runs.
+ */
+public class SpreadEngine {
+
+    /**
+     * One aligned spread bar plus the leg closes it was computed from
+     */
+    public static class SpreadBar {
+        private final LocalDateTime timestamp;
+        private final double open;
+        private final double high;
+        private final double low;
+        private final double close;
+        private final long volume;
+        private final double[] legCloses;
+
+        SpreadBar(LocalDateTime timestamp, double open, double high, double low, double close,
+                  long volume, double[] legCloses) {
+            this.timestamp = timestamp;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            this.volume = volume;
+            this.legCloses = legCloses;
+        }
+
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public double getOpen() { return open; }
+        public double getHigh() { return high; }
+        public double getLow() { return low; }
+        public double getClose() { return close; }
+        public long getVolume() { return volume; }
+        public double[] getLegCloses() { return legCloses.clone(); }
+
+        public StockData toStockData() {
+            return new StockData(timestamp, open, high, low, close, volume);
+        }
+    }
+
+    /**
+     * Receives aligned bars; 'revision' is true when the bar replaces the previously emitted one
+     * (a leg delivered another bar into the newest bucket)
+     */
+    public interface Listener {
+        void onBar(SpreadBar bar, boolean revision);
+    }
+
+    /**
+     * OHLCV aggregate of one leg inside one bucket
+     */
+    private static final class Bucket {
+        final LocalDateTime key;
+        double open;
+        double high;
+        double low;
+        double close;
+        long volume;
+
+        Bucket(LocalDateTime key, StockData bar) {
+            this.key = key;
+            this.open = bar.getOpen();
+            this.high = bar.getHigh();
+            this.low = bar.getLow();
+            this.close = bar.getClose();
+            this.volume = bar.getVolume();
+        }
+
+        void add(StockData bar) {
+            high = Math.max(high, bar.getHigh());
+            low = Math.min(low, bar.getLow());
+            close = bar.getClose();
+            volume += bar.getVolume();
+        }
+    }
+
+    /**
+     * Incremental inner join of N ascending leg streams on bucketed timestamps.
+     * Unmatched buckets wait in a per-leg queue capped at maxPending; older ones are dropped.
+     */
+    public static class Aligner {
+        private final double[] weights;
+        private final ChronoUnit unit;
+        private final int maxPending;
+        private final List<ArrayDeque<Bucket>> pending;
+        private final Bucket[] emitted;
+        private LocalDateTime lastKey;
+        private long dropped;
+
+        public Aligner(double[] weights, ChronoUnit unit, int maxPending) {
+            this.weights = weights.clone();
+            this.unit = unit;
+            this.maxPending = Math.max(1, maxPending);
+            this.pending = new ArrayList<>(weights.length);
+            this.emitted = new Bucket[weights.length];
+            for (int i = 0; i < weights.length; i++) {
+                pending.add(new ArrayDeque<>());
+            }
+        }
+
+        /**
+         * Feed one bar of a leg; bars of a leg must arrive in ascending time order
+         */
+        public void offer(int leg, StockData bar, Listener listener) {
+            LocalDateTime key = bar.getTimestamp().truncatedTo(unit);
+            if (lastKey != null && key.isBefore(lastKey)) {
+                dropped++;
+                return;
+            }
+            if (lastKey != null && key.equals(lastKey)) {
+                // The newest aligned bucket is still open: fold the bar in and revise the emitted bar
+                if (emitted[leg] != null && emitted[leg].key.equals(key)) {
+                    emitted[leg].add(bar);
+                    listener.onBar(combine(emitted, key), true);
+                } else {
+                    dropped++;
+                }
+                return;
+            }
+
+            ArrayDeque<Bucket> queue = pending.get(leg);
+            Bucket tail = queue.peekLast();
+            if (tail != null && tail.key.equals(key)) {
+                tail.add(bar);
+            } else if (tail != null && key.isBefore(tail.key)) {
+                dropped++;
+                return;
+            } else {
+                queue.addLast(new Bucket(key, bar));
+                if (queue.size() > maxPending) {
+                    queue.pollFirst();
+                    dropped++;
+                }
+            }
+            drain(listener);
+        }
+
+        private void drain(Listener listener) {
+            while (true) {
+                LocalDateTime maxHead = null;
+                for (ArrayDeque<Bucket> queue : pending) {
+                    Bucket head = queue.peekFirst();
+                    if (head == null) return;
+                    if (maxHead == null || head.key.isAfter(maxHead)) maxHead = head.key;
+                }
+                boolean aligned = true;
+                for (ArrayDeque<Bucket> queue : pending) {
+                    // Buckets older than the newest head can never be matched any more
+                    while (!queue.isEmpty() && queue.peekFirst().key.isBefore(maxHead)) {
+                        queue.pollFirst();
+                        dropped++;
+                    }
+                    if (queue.isEmpty()) return;
+                    if (!queue.peekFirst().key.equals(maxHead)) aligned = false;
+                }
+                if (!aligned) continue;
+                for (int i = 0; i < pending.size(); i++) {
+                    emitted[i] = pending.get(i).pollFirst();
+                }
+                lastKey = maxHead;
+                listener.onBar(combine(emitted, maxHead), false);
+            }
+        }
+
+        private SpreadBar combine(Bucket[] buckets, LocalDateTime key) {
+            double open = 0.0;
+            double high = 0.0;
+            double low = 0.0;
+            double close = 0.0;
+            long volume = Long.MAX_VALUE;
+            double[] closes = new double[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                Bucket b = buckets[i];
+                double w = weights[i];
+                open += w * b.open;
+                close += w * b.close;
+                // Bound of the combination: long legs at their extreme, short legs at the opposite one
+                high += w >= 0 ? w * b.high : w * b.low;
+                low += w >= 0 ? w * b.low : w * b.high;
+                volume = Math.min(volume, b.volume);
+                closes[i] = b.close;
+            }
+            return new SpreadBar(key, open, high, low, close, volume, closes);
+        }
+
+        public LocalDateTime getLastKey() { return lastKey; }
+        public long getDropped() { return dropped; }
+    }
+
+    /**
+     * Rolling mean / standard deviation / z-score over the last 'window' values.
+     * Running sums are recomputed from the ring once per window to stop rounding drift.
+     */
+    public static class RollingZScore {
+        private final double[] ring;
+        private int head;
+        private int count;
+        private double sum;
+        private double sumSquares;
+        private int sinceResync;
+
+        public RollingZScore(int window) {
+            this.ring = new double[Math.max(2, window)];
+        }
+
+        public double push(double value) {
+            if (count == ring.length) {
+                double old = ring[head];
+                sum -= old;
+                sumSquares -= old * old;
+            } else {
+                count++;
+            }
+            ring[head] = value;
+            head = (head + 1) % ring.length;
+            sum += value;
+            sumSquares += value * value;
+            if (++sinceResync >= ring.length) {
+                resync();
+            }
+            return zScore(value);
+        }
+
+        /**
+         * Replace the most recent value (used when the newest bar is revised)
+         */
+        public double replaceLast(double value) {
+            if (count == 0) return push(value);
+            int last = (head - 1 + ring.length) % ring.length;
+            double old = ring[last];
+            ring[last] = value;
+            sum += value - old;
+            sumSquares += value * value - old * old;
+            return zScore(value);
+        }
+
+        public double zScore(double value) {
+            double std = getStdDev();
+            return std == 0.0 ? 0.0 : (value - getMean()) / std;
+        }
+
+        public double getMean() { return count == 0 ? 0.0 : sum / count; }
+
+        public double getStdDev() {
+            if (count < 2) return 0.0;
+            double mean = sum / count;
+            return Math.sqrt(Math.max(0.0, sumSquares / count - mean * mean));
+        }
+
+        public int getCount() { return count; }
+        public int getWindow() { return ring.length; }
+
+        private void resync() {
+            sinceResync = 0;
+            double s = 0.0;
+            double sq = 0.0;
+            for (int i = 0; i < count; i++) {
+                double v = ring[i];
+                s += v;
+                sq += v * v;
+            }
+            sum = s;
+            sumSquares = sq;
+        }
+    }
+
+    /**
+     * Full series of a spread with the rolling z-score of every close
+     */
+    public static class SpreadSeries {
+        private final List<SpreadBar> bars;
+        private final List<Double> zScores;
+        private final long dropped;
+
+        SpreadSeries(List<SpreadBar> bars, List<Double> zScores, long dropped) {
+            this.bars = bars;
+            this.zScores = zScores;
+            this.dropped = dropped;
+        }
+
+        public List<SpreadBar> getBars() { return bars; }
+        public List<Double> getZScores() { return zScores; }
+        public long getDropped() { return dropped; }
+
+        public List<StockData> toStockData() {
+            List<StockData> result = new ArrayList<>(bars.size());
+            for (SpreadBar bar : bars) {
+                result.add(bar.toStockData());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Receives leg bars from {@link #merge}
+     */
+    public interface LegSink {
+        void accept(int leg, StockData bar);
+    }
+
+    /**
+     * k-way merge of ascending leg iterators in global timestamp order.
+     * Feeding an aligner in time order keeps every pending queue at one or two buckets.
+     */
+    public static void merge(List<Iterator<StockData>> legs, LegSink sink) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>();
+        for (int i = 0; i < legs.size(); i++) {
+            Iterator<StockData> it = legs.get(i);
+            if (it.hasNext()) heads.add(new Cursor(i, it, it.next()));
+        }
+        while (!heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            sink.accept(cursor.leg, cursor.current);
+            if (cursor.iterator.hasNext()) {
+                cursor.current = cursor.iterator.next();
+                heads.add(cursor);
+            }
+        }
+    }
+
+    /**
+     * Build the whole spread series from ascending leg histories
+     */
+    public static SpreadSeries build(SpreadDefinition definition, List<Iterator<StockData>> legs,
+                                     ChronoUnit unit, int zScoreWindow) {
+        List<SpreadBar> bars = new ArrayList<>();
+        List<Double> zScores = new ArrayList<>();
+        RollingZScore rolling = new RollingZScore(zScoreWindow);
+        Aligner aligner = new Aligner(definition.getWeights(), unit, 2);
+        Listener collector = (bar, revision) -> {
+            if (revision) {
+                bars.set(bars.size() - 1, bar);
+                zScores.set(zScores.size() - 1, rolling.replaceLast(bar.getClose()));
+            } else {
+                bars.add(bar);
+                zScores.add(rolling.push(bar.getClose()));
+            }
+        };
+        merge(legs, (leg, bar) -> aligner.offer(leg, bar, collector));
+        return new SpreadSeries(bars, zScores, aligner.getDropped());
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+        private final int leg;
+        private final Iterator<StockData> iterator;
+        private StockData current;
+
+        Cursor(int leg, Iterator<StockData> iterator, StockData current) {
+            this.leg = leg;
+            this.iterator = iterator;
+            this.current = current;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int cmp = current.getTimestamp().compareTo(other.current.getTimestamp());
+            return cmp != 0 ? cmp : Integer.compare(leg, other.leg);
+        }
+    }
+}
@@ -7,7 +7,12 @@ import java.time.LocalDateTime;
  * Entity class for PredictionSignal stored in database
  */
 @Entity
-@Table(name = "prediction_signals")
+@Table(name = "prediction_signals", indexes = {
+    @Index(name = "idx_signals_symbol_timestamp", columnList = "symbol, timestamp"),
+    @Index(name = "idx_signals_symbol_id", columnList = "symbol, id"),
+    @Index(name = "idx_signals_timestamp_id", columnList = "timestamp, id"),
+    @Index(name = "idx_signals_type_timestamp_id", columnList = "signal_type, timestamp, id")
+})
 public class PredictionSignalEntity {
     
     @Id
@@ -7,7 +7,10 @@ import java.time.LocalDateTime;
  * Entity class for StockData stored in database
  */
 @Entity
-@Table(name = "stock_data")
+@Table(name = "stock_data", indexes = {
+    @Index(name = "idx_stock_data_symbol_timestamp", columnList = "symbol, timestamp, id"),
+    @Index(name = "idx_stock_data_symbol_id", columnList = "symbol, id")
+})
 public class StockDataEntity {
     
     @Id
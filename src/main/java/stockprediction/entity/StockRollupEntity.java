@@ -0,0 +1,127 @@
+package stockprediction.entity;
+
+import stockprediction.model.BarResolution;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One daily, weekly or monthly OHLCV bar of a symbol, maintained from the stored bars
+ */
+@Entity
+@Table(name = "stock_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stock_rollups_symbol_resolution_period", columnNames = {"symbol", "resolution", "period_start"})
+})
+public class StockRollupEntity {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "symbol", nullable = false)
+    private String symbol;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resolution", nullable = false, length = 8)
+    private BarResolution resolution;
+    
+    @Column(name = "period_start", nullable = false)
+    private LocalDateTime periodStart;
+    
+    @Column(name = "open_price", nullable = false)
+    private Double open;
+    
+    @Column(name = "high_price", nullable = false)
+    private Double high;
+    
+    @Column(name = "low_price", nullable = false)
+    private Double low;
+    
+    @Column(name = "close_price", nullable = false)
+    private Double close;
+    
+    @Column(name = "volume", nullable = false)
+    private Long volume;
+    
+    @Column(name = "bar_count", nullable = false)
+    private Integer barCount;
+    
+    // Timestamps of the bars that supplied open and close, so late or out-of-order bars merge correctly
+    @Column(name = "first_bar_at", nullable = false)
+    private LocalDateTime firstBarAt;
+    
+    @Column(name = "last_bar_at", nullable = false)
+    private LocalDateTime lastBarAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public StockRollupEntity() {
+    }
+    
+    public StockRollupEntity(String symbol, BarResolution resolution, LocalDateTime periodStart) {
+        this.symbol = symbol;
+        this.resolution = resolution;
+        this.periodStart = periodStart;
+        this.volume = 0L;
+        this.barCount = 0;
+    }
+    
+    /**
+     * Merge one stored bar of this period into the rollup
+     */
+    public void add(StockDataEntity bar) {
+        LocalDateTime time = bar.getTimestamp();
+        if (barCount == 0) {
+            open = bar.getOpen();
+            high = bar.getHigh();
+            low = bar.getLow();
+            close = bar.getClose();
+            firstBarAt = time;
+            lastBarAt = time;
+        } else {
+            high = Math.max(high, bar.getHigh());
+            low = Math.min(low, bar.getLow());
+            if (time.isBefore(firstBarAt)) {
+                open = bar.getOpen();
+                firstBarAt = time;
+            }
+            if (!time.isBefore(lastBarAt)) {
+                close = bar.getClose();
+                lastBarAt = time;
+            }
+        }
+        volume += bar.getVolume();
+        barCount++;
+        updatedAt = LocalDateTime.now();
+    }
+    
+    /**
+     * The rollup as a bar stamped at the start of its period
+     */
+    public StockDataEntity toBar() {
+        return new StockDataEntity(symbol, periodStart, open, high, low, close, volume);
+    }
+    
+    // Getters
+    public Long getId() { return id; }
+    public String getSymbol() { return symbol; }
+    public BarResolution getResolution() { return resolution; }
+    public LocalDateTime getPeriodStart() { return periodStart; }
+    public Double getOpen() { return open; }
+    public Double getHigh() { return high; }
+    public Double getLow() { return low; }
+    public Double getClose() { return close; }
+    public Long getVolume() { return volume; }
+    public Integer getBarCount() { return barCount; }
+    public LocalDateTime getFirstBarAt() { return firstBarAt; }
+    public LocalDateTime getLastBarAt() { return lastBarAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    
+    @Override
+    public String toString() {
+        return String.format("StockRollupEntity{symbol='%s', resolution=%s, periodStart=%s, bars=%d}",
+                symbol, resolution, periodStart, barCount);
+    }
+}
@@ -0,0 +1,20 @@
+package stockprediction.event;
+
+/**
+ * Published after some or all prediction signals of a symbol have been removed from the repository
+ */
+public class PredictionSignalDeletedEvent {
+
+    private final String symbol;
+
+    public PredictionSignalDeletedEvent(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() { return symbol; }
+
+    @Override
+    public String toString() {
+        return String.format("PredictionSignalDeletedEvent{symbol='%s'}", symbol);
+    }
+}
@@ -0,0 +1,29 @@
+package stockprediction.event;
+
+import stockprediction.entity.PredictionSignalEntity;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Published after new prediction signals for a symbol have been written to the repository
+ */
+public class PredictionSignalSavedEvent {
+
+    private final String symbol;
+    private final List<PredictionSignalEntity> signals;
+
+    public PredictionSignalSavedEvent(String symbol, List<PredictionSignalEntity> signals) {
+        this.symbol = symbol;
+        this.signals = Collections.unmodifiableList(signals);
+    }
+
+    public String getSymbol() { return symbol; }
+
+    public List<PredictionSignalEntity> getSignals() { return signals; }
+
+    @Override
+    public String toString() {
+        return String.format("PredictionSignalSavedEvent{symbol='%s', signals=%d}", symbol, signals.size());
+    }
+}
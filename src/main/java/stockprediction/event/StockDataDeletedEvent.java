@@ -0,0 +1,38 @@
+package stockprediction.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published after bars of a symbol have been removed from the repository: all of them, or (with
+ * a 'before' time) the bars before that time, which retention may have replaced by daily rollups
+ */
+public class StockDataDeletedEvent {
+
+    private final String symbol;
+    private final LocalDateTime before;
+
+    public StockDataDeletedEvent(String symbol) {
+        this(symbol, null);
+    }
+
+    public StockDataDeletedEvent(String symbol, LocalDateTime before) {
+        this.symbol = symbol;
+        this.before = before;
+    }
+
+    public String getSymbol() { return symbol; }
+
+    /**
+     * End (exclusive) of the bars that were removed or replaced; null when every bar was removed
+     */
+    public LocalDateTime getBefore() { return before; }
+
+    public boolean isAllBars() { return before == null; }
+
+    @Override
+    public String toString() {
+        return before == null
+            ? String.format("StockDataDeletedEvent{symbol='%s'}", symbol)
+            : String.format("StockDataDeletedEvent{symbol='%s', before=%s}", symbol, before);
+    }
+}
@@ -0,0 +1,42 @@
+package stockprediction.event;
+
+import stockprediction.entity.StockDataEntity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Published after new bars for a symbol have been written to the repository
+ */
+public class StockDataSavedEvent {
+
+    private final String symbol;
+    private final List<StockDataEntity> bars;
+    private final CompletionStage<?> signalsStored;
+
+    public StockDataSavedEvent(String symbol, List<StockDataEntity> bars) {
+        this(symbol, bars, null);
+    }
+
+    public StockDataSavedEvent(String symbol, List<StockDataEntity> bars, CompletionStage<?> signalsStored) {
+        this.symbol = symbol;
+        this.bars = Collections.unmodifiableList(bars);
+        this.signalsStored = signalsStored;
+    }
+
+    public String getSymbol() { return symbol; }
+
+    public List<StockDataEntity> getBars() { return bars; }
+
+    /**
+     * Completes once the publisher has evaluated the bars and stored their signals (exceptionally
+     * when it could not); null when the publisher leaves that to re-analysis
+     */
+    public CompletionStage<?> getSignalsStored() { return signalsStored; }
+
+    @Override
+    public String toString() {
+        return String.format("StockDataSavedEvent{symbol='%s', bars=%d}", symbol, bars.size());
+    }
+}
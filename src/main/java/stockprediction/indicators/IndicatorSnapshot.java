@@ -0,0 +1,252 @@
+package stockprediction.indicators;
+
+import stockprediction.model.StockData;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Latest indicator values for one symbol, maintained incrementally bar by bar.
+ * The recurrences mirror {@link TechnicalIndicators} (SMA-seeded EMA, Wilder RSI, MACD 12/26/9)
+ * so a snapshot replayed over a full history matches the batch calculation on the last bar.
+ * Not thread-safe: a snapshot that others can read is updated through a copy.
+ */
+public class IndicatorSnapshot {
+
+    private static final int EMA_20_PERIOD = 20;
+    private static final int EMA_50_PERIOD = 50;
+    private static final int RSI_PERIOD = 14;
+    private static final int MACD_FAST = 12;
+    private static final int MACD_SLOW = 26;
+    private static final int MACD_SIGNAL = 9;
+    private static final int VOLUME_WINDOW = 20;
+
+    private final String symbol;
+
+    private final Ema ema20;
+    private final Ema ema50;
+    private final Ema macdFast;
+    private final Ema macdSlow;
+    private final Ema macdSignalEma;
+
+    private final long[] volumeWindow;
+    private long volumeWindowSum;
+
+    private long barCount;
+    private LocalDateTime timestamp;
+    private double close = Double.NaN;
+    private double prevClose = Double.NaN;
+    private long volume;
+
+    private double rsiGainSum;
+    private double rsiLossSum;
+    private double rsi = Double.NaN;
+
+    private double prevEma20 = Double.NaN;
+    private double prevEma50 = Double.NaN;
+    private double macd = Double.NaN;
+    private double macdSignal = Double.NaN;
+    private double prevMacd = Double.NaN;
+    private double prevMacdSignal = Double.NaN;
+
+    public IndicatorSnapshot(String symbol) {
+        this.symbol = symbol;
+        this.ema20 = new Ema(EMA_20_PERIOD);
+        this.ema50 = new Ema(EMA_50_PERIOD);
+        this.macdFast = new Ema(MACD_FAST);
+        this.macdSlow = new Ema(MACD_SLOW);
+        this.macdSignalEma = new Ema(MACD_SIGNAL);
+        this.volumeWindow = new long[VOLUME_WINDOW];
+    }
+
+    private IndicatorSnapshot(IndicatorSnapshot other) {
+        this.symbol = other.symbol;
+        this.ema20 = new Ema(other.ema20);
+        this.ema50 = new Ema(other.ema50);
+        this.macdFast = new Ema(other.macdFast);
+        this.macdSlow = new Ema(other.macdSlow);
+        this.macdSignalEma = new Ema(other.macdSignalEma);
+        this.volumeWindow = other.volumeWindow.clone();
+        this.volumeWindowSum = other.volumeWindowSum;
+        this.barCount = other.barCount;
+        this.timestamp = other.timestamp;
+        this.close = other.close;
+        this.prevClose = other.prevClose;
+        this.volume = other.volume;
+        this.rsiGainSum = other.rsiGainSum;
+        this.rsiLossSum = other.rsiLossSum;
+        this.rsi = other.rsi;
+        this.prevEma20 = other.prevEma20;
+        this.prevEma50 = other.prevEma50;
+        this.macd = other.macd;
+        this.macdSignal = other.macdSignal;
+        this.prevMacd = other.prevMacd;
+        this.prevMacdSignal = other.prevMacdSignal;
+    }
+
+    /**
+     * An independent copy of the running state; updating one does not change the other
+     */
+    public IndicatorSnapshot copy() {
+        return new IndicatorSnapshot(this);
+    }
+
+    /**
+     * Build a snapshot by replaying a full ascending history
+     */
+    public static IndicatorSnapshot fromHistory(String symbol, List<StockData> history) {
+        IndicatorSnapshot snapshot = new IndicatorSnapshot(symbol);
+        for (StockData bar : history) {
+            snapshot.update(bar);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Fold the next bar (must be newer than the current one) into the running state
+     */
+    public void update(StockData bar) {
+        prevEma20 = ema20.value;
+        prevEma50 = ema50.value;
+        prevMacd = macd;
+        prevMacdSignal = macdSignal;
+        prevClose = close;
+
+        double price = bar.getClose();
+        ema20.add(price);
+        ema50.add(price);
+        macdFast.add(price);
+        macdSlow.add(price);
+        updateRsi(price);
+
+        if (!Double.isNaN(macdFast.value) && !Double.isNaN(macdSlow.value)) {
+            macd = macdFast.value - macdSlow.value;
+            macdSignalEma.add(macd);
+            macdSignal = macdSignalEma.value;
+        }
+
+        int slot = (int) (barCount % VOLUME_WINDOW);
+        volumeWindowSum += bar.getVolume() - volumeWindow[slot];
+        volumeWindow[slot] = bar.getVolume();
+
+        timestamp = bar.getTimestamp();
+        close = price;
+        volume = bar.getVolume();
+        barCount++;
+    }
+
+    private void updateRsi(double price) {
+        if (barCount == 0) {
+            return;
+        }
+
+        double change = price - close;
+        double gain = Math.max(0.0, change);
+        double loss = Math.max(0.0, -change);
+
+        if (barCount < RSI_PERIOD) {
+            rsiGainSum += gain;
+            rsiLossSum += loss;
+            if (barCount == RSI_PERIOD - 1) {
+                rsiGainSum /= RSI_PERIOD;
+                rsiLossSum /= RSI_PERIOD;
+                rsi = rsiValue(rsiGainSum, rsiLossSum);
+            }
+            return;
+        }
+
+        // Wilder's smoothing
+        rsiGainSum = (rsiGainSum * (RSI_PERIOD - 1) + gain) / RSI_PERIOD;
+        rsiLossSum = (rsiLossSum * (RSI_PERIOD - 1) + loss) / RSI_PERIOD;
+        rsi = rsiValue(rsiGainSum, rsiLossSum);
+    }
+
+    private static double rsiValue(double avgGain, double avgLoss) {
+        return avgLoss == 0 ? 100.0 : 100 - (100 / (1 + avgGain / avgLoss));
+    }
+
+    /**
+     * +1 when EMA 20 crossed above EMA 50 on the latest bar, -1 when it crossed below, 0 otherwise
+     */
+    public int getEmaCrossover() {
+        return crossover(prevEma20, prevEma50, ema20.value, ema50.value);
+    }
+
+    /**
+     * +1 when the MACD line crossed above its signal line on the latest bar, -1 when below, 0 otherwise
+     */
+    public int getMacdCrossover() {
+        return crossover(prevMacd, prevMacdSignal, macd, macdSignal);
+    }
+
+    private static int crossover(double prevFast, double prevSlow, double fast, double slow) {
+        if (Double.isNaN(prevFast) || Double.isNaN(prevSlow) || Double.isNaN(fast) || Double.isNaN(slow)) {
+            return 0;
+        }
+        if (prevFast <= prevSlow && fast > slow) return 1;
+        if (prevFast >= prevSlow && fast < slow) return -1;
+        return 0;
+    }
+
+    // Getters (NaN means "not enough bars yet")
+    public String getSymbol() { return symbol; }
+    public long getBarCount() { return barCount; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public double getClose() { return close; }
+    public long getVolume() { return volume; }
+    public double getRsi14() { return rsi; }
+    public double getEma20() { return ema20.value; }
+    public double getEma50() { return ema50.value; }
+    public double getMacd() { return macd; }
+    public double getMacdSignal() { return macdSignal; }
+
+    public double getMacdHistogram() {
+        return Double.isNaN(macd) || Double.isNaN(macdSignal) ? Double.NaN : macd - macdSignal;
+    }
+
+    public double getChangePercent() {
+        return Double.isNaN(prevClose) || prevClose == 0 ? Double.NaN : (close - prevClose) / prevClose * 100;
+    }
+
+    public double getVolumeRatio() {
+        long window = Math.min(barCount, VOLUME_WINDOW);
+        if (window == 0 || volumeWindowSum == 0) return Double.NaN;
+        return volume / ((double) volumeWindowSum / window);
+    }
+
+    /**
+     * EMA seeded with the SMA of its first 'period' values, same as TechnicalIndicators.calculateEMA
+     */
+    private static final class Ema {
+        private final int period;
+        private final double multiplier;
+        private int count;
+        private double seedSum;
+        private double value = Double.NaN;
+
+        Ema(int period) {
+            this.period = period;
+            this.multiplier = 2.0 / (period + 1);
+        }
+
+        Ema(Ema other) {
+            this.period = other.period;
+            this.multiplier = other.multiplier;
+            this.count = other.count;
+            this.seedSum = other.seedSum;
+            this.value = other.value;
+        }
+
+        void add(double v) {
+            count++;
+            if (count < period) {
+                seedSum += v;
+            } else if (count == period) {
+                seedSum += v;
+                value = seedSum / period;
+            } else {
+                value = (v - value) * multiplier + value;
+            }
+        }
+    }
+}
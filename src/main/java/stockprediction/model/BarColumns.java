@@ -0,0 +1,118 @@
+package stockprediction.model;
+
+import stockprediction.entity.StockDataEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Chart bars held as primitive columns instead of one object per bar.
+ * Serialized either as columnar JSON ({"t":[..],"o":[..],...}) or as a little-endian binary
+ * block whose columns can be viewed directly as Float64Array / BigInt64Array in the browser.
+ *
+ * Binary layout (all little-endian):
+ *   int32 magic 'BARS', int32 version, int32 count, int32 reserved,
+ *   int64 t[count] (epoch seconds, UTC), float64 o[count], h[count], l[count], c[count], int64 v[count]
+ */
+public class BarColumns {
+
+    public static final String COLUMNAR_JSON = "application/vnd.stockprediction.columnar+json";
+    public static final String BINARY = "application/vnd.stockprediction.bars";
+
+    private static final int MAGIC = 0x53524142; // "BARS" read as little-endian int32
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int BYTES_PER_BAR = 6 * 8;
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    private final long[] t;
+    private final double[] o;
+    private final double[] h;
+    private final double[] l;
+    private final double[] c;
+    private final long[] v;
+
+    public BarColumns(long[] t, double[] o, double[] h, double[] l, double[] c, long[] v) {
+        this.t = t;
+        this.o = o;
+        this.h = h;
+        this.l = l;
+        this.c = c;
+        this.v = v;
+    }
+
+    /**
+     * Copy ascending entities into columns
+     */
+    public static BarColumns fromEntities(List<StockDataEntity> bars) {
+        int n = bars.size();
+        long[] t = new long[n];
+        double[] o = new double[n];
+        double[] h = new double[n];
+        double[] l = new double[n];
+        double[] c = new double[n];
+        long[] v = new long[n];
+        for (int i = 0; i < n; i++) {
+            StockDataEntity bar = bars.get(i);
+            t[i] = bar.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+            o[i] = bar.getOpen();
+            h[i] = bar.getHigh();
+            l[i] = bar.getLow();
+            c[i] = bar.getClose();
+            v[i] = bar.getVolume();
+        }
+        return new BarColumns(t, o, h, l, c, v);
+    }
+
+    public long[] getT() { return t; }
+    public double[] getO() { return o; }
+    public double[] getH() { return h; }
+    public double[] getL() { return l; }
+    public double[] getC() { return c; }
+    public long[] getV() { return v; }
+
+    public int length() { return t.length; }
+
+    public long binaryLength() {
+        return HEADER_BYTES + (long) t.length * BYTES_PER_BAR;
+    }
+
+    /**
+     * Write the binary form through a fixed 64 KB buffer, column after column
+     */
+    public void writeBinary(OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(t.length).putInt(0);
+        writeColumn(out, buffer, t);
+        writeColumn(out, buffer, o);
+        writeColumn(out, buffer, h);
+        writeColumn(out, buffer, l);
+        writeColumn(out, buffer, c);
+        writeColumn(out, buffer, v);
+        flush(out, buffer);
+        out.flush();
+    }
+
+    private static void writeColumn(OutputStream out, ByteBuffer buffer, long[] column) throws IOException {
+        for (long value : column) {
+            if (buffer.remaining() < 8) flush(out, buffer);
+            buffer.putLong(value);
+        }
+    }
+
+    private static void writeColumn(OutputStream out, ByteBuffer buffer, double[] column) throws IOException {
+        for (double value : column) {
+            if (buffer.remaining() < 8) flush(out, buffer);
+            buffer.putDouble(value);
+        }
+    }
+
+    private static void flush(OutputStream out, ByteBuffer buffer) throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
@@ -0,0 +1,103 @@
+package stockprediction.model;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bar sizes served by /stocks/{symbol}/bars: the stored bars themselves (RAW) and the
+ * daily / weekly / monthly rollups kept next to them. Ordered finest first.
+ */
+public enum BarResolution {
+    RAW(Duration.ZERO),
+    DAY(Duration.ofDays(1)),
+    WEEK(Duration.ofDays(7)),
+    MONTH(Duration.ofDays(31));   // widest month, so "1M" selects it and "4W" does not
+
+    /** Levels that are stored as rollups */
+    public static final List<BarResolution> ROLLUPS = List.of(DAY, WEEK, MONTH);
+
+    private static final Pattern WIDTH = Pattern.compile("(\\d*)\\s*([a-zA-Z]+)");
+
+    private final Duration width;
+
+    BarResolution(Duration width) {
+        this.width = width;
+    }
+
+    /** Longest span one bar of this level can cover */
+    public Duration getWidth() { return width; }
+
+    public boolean isRollup() { return this != RAW; }
+
+    /**
+     * Start of the period a timestamp falls into (weeks start on Monday)
+     */
+    public LocalDateTime periodStart(LocalDateTime timestamp) {
+        switch (this) {
+            case DAY:
+                return timestamp.toLocalDate().atStartOfDay();
+            case WEEK:
+                return timestamp.toLocalDate().with(DayOfWeek.MONDAY).atStartOfDay();
+            case MONTH:
+                return timestamp.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            default:
+                return timestamp;
+        }
+    }
+
+    /**
+     * Coarsest level whose bars are no wider than the given bar width
+     */
+    public static BarResolution atMost(Duration width) {
+        BarResolution chosen = RAW;
+        for (BarResolution level : values()) {
+            if (level.width.compareTo(width) <= 0) chosen = level;
+        }
+        return chosen;
+    }
+
+    /**
+     * Parse a requested bar width: "raw", "day", "week", "month" or a TradingView-style
+     * interval such as "1", "15m", "4h", "1D", "2W", "1M" (lower-case m is minutes, upper-case M months)
+     */
+    public static Duration parseWidth(String value) {
+        String text = value.trim();
+        for (BarResolution level : values()) {
+            if (level.name().equalsIgnoreCase(text)) return level.width;
+        }
+        if (text.matches("\\d+")) {
+            return Duration.ofMinutes(Long.parseLong(text));
+        }
+        Matcher matcher = WIDTH.matcher(text);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Unknown resolution: " + value);
+        }
+        long count = matcher.group(1).isEmpty() ? 1 : Long.parseLong(matcher.group(1));
+        String unit = matcher.group(2);
+        switch (unit) {
+            case "s": case "S":
+                return Duration.ofSeconds(count);
+            case "m": case "min":
+                return Duration.ofMinutes(count);
+            case "M": case "mo":
+                return MONTH.width.multipliedBy(count);
+            default:
+                break;
+        }
+        switch (unit.toLowerCase(Locale.ROOT)) {
+            case "h":
+                return Duration.ofHours(count);
+            case "d":
+                return Duration.ofDays(count);
+            case "w":
+                return Duration.ofDays(7 * count);
+            default:
+                throw new IllegalArgumentException("Unknown resolution: " + value);
+        }
+    }
+}
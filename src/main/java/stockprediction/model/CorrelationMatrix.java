@@ -0,0 +1,61 @@
+package stockprediction.model;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rolling return covariance / correlation across a universe of symbols.
+ * Matrices are stored flat in row-major order (index = i * size + j).
+ */
+public class CorrelationMatrix {
+    private final List<String> symbols;
+    private final LocalDate asOf;
+    private final int window;
+    private final double[] covariance;
+    private final double[] correlation;
+    private final List<String> excluded;
+
+    public CorrelationMatrix(List<String> symbols, LocalDate asOf, int window, double[] covariance, double[] correlation) {
+        this(symbols, asOf, window, covariance, correlation, Collections.emptyList());
+    }
+
+    public CorrelationMatrix(List<String> symbols, LocalDate asOf, int window, double[] covariance, double[] correlation,
+                             List<String> excluded) {
+        this.symbols = symbols;
+        this.asOf = asOf;
+        this.window = window;
+        this.covariance = covariance;
+        this.correlation = correlation;
+        this.excluded = excluded;
+    }
+
+    public List<String> getSymbols() { return symbols; }
+    public LocalDate getAsOf() { return asOf; }
+    public int getWindow() { return window; }
+    /** Symbols left out for lacking some of the window's trading days */
+    public List<String> getExcluded() { return excluded; }
+    public int size() { return symbols.size(); }
+
+    public double getCovariance(int i, int j) { return covariance[i * symbols.size() + j]; }
+    public double getCorrelation(int i, int j) { return correlation[i * symbols.size() + j]; }
+
+    /**
+     * Copy one matrix into nested rows for JSON output
+     */
+    public double[][] toRows(boolean correlationMatrix) {
+        int n = symbols.size();
+        double[] flat = correlationMatrix ? correlation : covariance;
+        double[][] rows = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(flat, i * n, rows[i], 0, n);
+        }
+        return rows;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CorrelationMatrix{symbols=%d, asOf=%s, window=%d, excluded=%d}",
+            symbols.size(), asOf, window, excluded.size());
+    }
+}
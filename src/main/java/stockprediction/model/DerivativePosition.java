@@ -0,0 +1,44 @@
+package stockprediction.model;
+
+/**
+ * An open position used for risk and margin calculations.
+ * Quantity is signed (positive = long, negative = short) and counted in contracts for futures.
+ * Price, multiplier and volatility are optional overrides; missing values are looked up.
+ */
+public class DerivativePosition {
+    private String symbol;
+    private long quantity;
+    private Double price;
+    private Double multiplier;
+    private Double volatility;
+
+    public DerivativePosition() {
+    }
+
+    public DerivativePosition(String symbol, long quantity, Double price) {
+        this.symbol = symbol;
+        this.quantity = quantity;
+        this.price = price;
+    }
+
+    // Getters and setters
+    public String getSymbol() { return symbol; }
+    public void setSymbol(String symbol) { this.symbol = symbol; }
+
+    public long getQuantity() { return quantity; }
+    public void setQuantity(long quantity) { this.quantity = quantity; }
+
+    public Double getPrice() { return price; }
+    public void setPrice(Double price) { this.price = price; }
+
+    public Double getMultiplier() { return multiplier; }
+    public void setMultiplier(Double multiplier) { this.multiplier = multiplier; }
+
+    public Double getVolatility() { return volatility; }
+    public void setVolatility(Double volatility) { this.volatility = volatility; }
+
+    @Override
+    public String toString() {
+        return String.format("DerivativePosition{symbol='%s', quantity=%d, price=%s}", symbol, quantity, price);
+    }
+}
@@ -0,0 +1,59 @@
+package stockprediction.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque seek position (timestamp, id) of the last row of a page, passed back as ?cursor=
+ */
+public class KeysetCursor {
+
+    // Bounds used when no cursor is given; timestamps in the data never reach them
+    public static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1900, 1, 1, 0, 0);
+    public static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 23, 59);
+
+    private final LocalDateTime timestamp;
+    private final long id;
+
+    public KeysetCursor(LocalDateTime timestamp, long id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public long getId() { return id; }
+
+    /**
+     * Start position for ascending pages
+     */
+    public static KeysetCursor first() {
+        return new KeysetCursor(MIN_TIMESTAMP, Long.MIN_VALUE);
+    }
+
+    /**
+     * Start position for descending pages
+     */
+    public static KeysetCursor last() {
+        return new KeysetCursor(MAX_TIMESTAMP, Long.MAX_VALUE);
+    }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encode()}; throws IllegalArgumentException when it is malformed
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int bar = raw.lastIndexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, bar)), Long.parseLong(raw.substring(bar + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package stockprediction.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request body for Monte Carlo VaR and margin calculations
+ */
+public class RiskRequest {
+    private List<DerivativePosition> positions = new ArrayList<>();
+    private int horizonDays = 1;
+    private Integer paths;
+    private List<Double> confidenceLevels;
+    private Long seed;
+    private boolean correlated = true;
+
+    // Getters and setters
+    public List<DerivativePosition> getPositions() { return positions; }
+    public void setPositions(List<DerivativePosition> positions) { this.positions = positions; }
+
+    public int getHorizonDays() { return horizonDays; }
+    public void setHorizonDays(int horizonDays) { this.horizonDays = horizonDays; }
+
+    public Integer getPaths() { return paths; }
+    public void setPaths(Integer paths) { this.paths = paths; }
+
+    public List<Double> getConfidenceLevels() { return confidenceLevels; }
+    public void setConfidenceLevels(List<Double> confidenceLevels) { this.confidenceLevels = confidenceLevels; }
+
+    public Long getSeed() { return seed; }
+    public void setSeed(Long seed) { this.seed = seed; }
+
+    public boolean isCorrelated() { return correlated; }
+    public void setCorrelated(boolean correlated) { this.correlated = correlated; }
+}
@@ -0,0 +1,34 @@
+package stockprediction.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Cheap fingerprint of a symbol's stored series (row count, highest id, latest timestamp),
+ * read from the (symbol, ...) indexes and used as the HTTP ETag of list responses
+ */
+public class SeriesVersion {
+
+    private final long count;
+    private final Long maxId;
+    private final LocalDateTime maxTimestamp;
+
+    public SeriesVersion(Long count, Long maxId, LocalDateTime maxTimestamp) {
+        this.count = count == null ? 0 : count;
+        this.maxId = maxId;
+        this.maxTimestamp = maxTimestamp;
+    }
+
+    public long getCount() { return count; }
+    public Long getMaxId() { return maxId; }
+    public LocalDateTime getMaxTimestamp() { return maxTimestamp; }
+
+    /**
+     * Weak entity tag; changes whenever a row is added (max id), removed (count) or the newest bar moves.
+     * Weak so Tomcat still gzips the response (it never compresses bodies carrying a strong ETag).
+     */
+    public String toETag(String symbol) {
+        long epochSecond = maxTimestamp == null ? 0 : maxTimestamp.toEpochSecond(ZoneOffset.UTC);
+        return "W/\"" + symbol + "-" + count + "-" + (maxId == null ? 0 : maxId) + "-" + epochSecond + "\"";
+    }
+}
@@ -0,0 +1,37 @@
+package stockprediction.model;
+
+import stockprediction.entity.PredictionSignalEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the signal statistics GROUP BY (symbol, signal type): count, confidence sum,
+ * latest signal time and highest id. Sums rather than averages so rows can be merged and
+ * updated incrementally.
+ */
+public class SignalGroupStats {
+
+    private final String symbol;
+    private final PredictionSignalEntity.SignalType signalType;
+    private final long count;
+    private final double confidenceSum;
+    private final LocalDateTime lastTimestamp;
+    private final long maxId;
+
+    public SignalGroupStats(String symbol, PredictionSignalEntity.SignalType signalType, Long count,
+                            Double confidenceSum, LocalDateTime lastTimestamp, Long maxId) {
+        this.symbol = symbol;
+        this.signalType = signalType;
+        this.count = count == null ? 0 : count;
+        this.confidenceSum = confidenceSum == null ? 0.0 : confidenceSum;
+        this.lastTimestamp = lastTimestamp;
+        this.maxId = maxId == null ? 0 : maxId;
+    }
+
+    public String getSymbol() { return symbol; }
+    public PredictionSignalEntity.SignalType getSignalType() { return signalType; }
+    public long getCount() { return count; }
+    public double getConfidenceSum() { return confidenceSum; }
+    public LocalDateTime getLastTimestamp() { return lastTimestamp; }
+    public long getMaxId() { return maxId; }
+}
@@ -0,0 +1,101 @@
+package stockprediction.model;
+
+import stockprediction.entity.PredictionSignalEntity;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Mergeable signal statistics: per signal type count, confidence sum and latest signal time.
+ * Built from {@link SignalGroupStats} rows and updated one signal at a time; not thread-safe.
+ */
+public class SignalStats {
+
+    private final EnumMap<PredictionSignalEntity.SignalType, long[]> counts =
+        new EnumMap<>(PredictionSignalEntity.SignalType.class);
+    private final EnumMap<PredictionSignalEntity.SignalType, double[]> confidenceSums =
+        new EnumMap<>(PredictionSignalEntity.SignalType.class);
+    private final EnumMap<PredictionSignalEntity.SignalType, LocalDateTime> lastTimestamps =
+        new EnumMap<>(PredictionSignalEntity.SignalType.class);
+
+    public void add(SignalGroupStats row) {
+        add(row.getSignalType(), row.getCount(), row.getConfidenceSum(), row.getLastTimestamp());
+    }
+
+    public void add(PredictionSignalEntity signal) {
+        add(signal.getSignalType(), 1, signal.getConfidence() == null ? 0.0 : signal.getConfidence(), signal.getTimestamp());
+    }
+
+    public void add(SignalStats other) {
+        for (PredictionSignalEntity.SignalType type : other.counts.keySet()) {
+            add(type, other.counts.get(type)[0], other.confidenceSums.get(type)[0], other.lastTimestamps.get(type));
+        }
+    }
+
+    private void add(PredictionSignalEntity.SignalType type, long count, double confidenceSum, LocalDateTime last) {
+        counts.computeIfAbsent(type, t -> new long[1])[0] += count;
+        confidenceSums.computeIfAbsent(type, t -> new double[1])[0] += confidenceSum;
+        if (last != null) {
+            lastTimestamps.merge(type, last, (a, b) -> a.isAfter(b) ? a : b);
+        }
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (long[] count : counts.values()) total += count[0];
+        return total;
+    }
+
+    public long getCount(PredictionSignalEntity.SignalType type) {
+        long[] count = counts.get(type);
+        return count == null ? 0 : count[0];
+    }
+
+    public LocalDateTime getLastSignalAt() {
+        LocalDateTime last = null;
+        for (LocalDateTime t : lastTimestamps.values()) {
+            if (last == null || t.isAfter(last)) last = t;
+        }
+        return last;
+    }
+
+    public Double getAverageConfidence() {
+        long total = getTotal();
+        if (total == 0) return null;
+        double sum = 0.0;
+        for (double[] s : confidenceSums.values()) sum += s[0];
+        return sum / total;
+    }
+
+    public SignalStats copy() {
+        SignalStats copy = new SignalStats();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * JSON shape of /signals/{symbol}/stats: total, the per-type counts as top-level keys
+     * (long, short, reversal, hold), average confidence, last signal time and a per-type breakdown
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("total", getTotal());
+        Map<String, Object> byType = new LinkedHashMap<>();
+        for (PredictionSignalEntity.SignalType type : PredictionSignalEntity.SignalType.values()) {
+            long count = getCount(type);
+            map.put(type.name().toLowerCase(Locale.ROOT), count);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("count", count);
+            entry.put("avgConfidence", count == 0 ? null : confidenceSums.get(type)[0] / count);
+            entry.put("lastSignalAt", lastTimestamps.get(type));
+            byType.put(type.name(), entry);
+        }
+        map.put("avgConfidence", getAverageConfidence());
+        map.put("lastSignalAt", getLastSignalAt());
+        map.put("byType", byType);
+        return map;
+    }
+}
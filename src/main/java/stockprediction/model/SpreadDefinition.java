@@ -0,0 +1,117 @@
+package stockprediction.model;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parsed virtual symbol for a weighted combination of legs.
+ *
+ * Syntax: {@code KIND:LEG:LEG[:LEG...][@UNIT]}
+ *   SPREAD:VN30F2401:VN30F2402      calendar spread, front - next
+ *   BASIS:VN30F2401:VN30            futures basis, future - index
+ *   SPREAD:1*A:-2*B:1*C@DAYS        butterfly with explicit weights, aligned per day
+ * Legs without a weight get +1 for the first leg and -1 for the others.
+ */
+public class SpreadDefinition {
+
+    public enum Kind { SPREAD, BASIS }
+
+    private final String symbol;
+    private final Kind kind;
+    private final List<String> legs;
+    private final double[] weights;
+    private final ChronoUnit alignUnit;
+
+    private SpreadDefinition(String symbol, Kind kind, List<String> legs, double[] weights, ChronoUnit alignUnit) {
+        this.symbol = symbol;
+        this.kind = kind;
+        this.legs = Collections.unmodifiableList(legs);
+        this.weights = weights;
+        this.alignUnit = alignUnit;
+    }
+
+    /**
+     * True if the symbol uses the virtual spread syntax
+     */
+    public static boolean isVirtual(String symbol) {
+        if (symbol == null) return false;
+        for (Kind kind : Kind.values()) {
+            if (symbol.startsWith(kind.name() + ":")) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parse a virtual symbol; throws IllegalArgumentException when it is malformed
+     */
+    public static SpreadDefinition parse(String symbol) {
+        if (!isVirtual(symbol)) {
+            throw new IllegalArgumentException("Not a spread symbol: " + symbol);
+        }
+        String body = symbol;
+        ChronoUnit unit = null;
+        int at = body.indexOf('@');
+        if (at >= 0) {
+            try {
+                unit = ChronoUnit.valueOf(body.substring(at + 1).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown alignment unit in " + symbol);
+            }
+            if (unit.isDateBased() && unit != ChronoUnit.DAYS) {
+                throw new IllegalArgumentException("Alignment unit must be DAYS or finer: " + symbol);
+            }
+            body = body.substring(0, at);
+        }
+
+        String[] parts = body.split(":");
+        Kind kind = Kind.valueOf(parts[0]);
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("A spread needs at least two legs: " + symbol);
+        }
+        if (kind == Kind.BASIS && parts.length != 3) {
+            throw new IllegalArgumentException("Basis is defined as FUTURE:INDEX: " + symbol);
+        }
+
+        List<String> legs = new ArrayList<>();
+        double[] weights = new double[parts.length - 1];
+        for (int i = 1; i < parts.length; i++) {
+            String leg = parts[i];
+            int star = leg.indexOf('*');
+            if (star >= 0) {
+                try {
+                    weights[i - 1] = Double.parseDouble(leg.substring(0, star));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid leg weight in " + symbol);
+                }
+                leg = leg.substring(star + 1);
+            } else {
+                weights[i - 1] = i == 1 ? 1.0 : -1.0;
+            }
+            if (leg.isEmpty() || isVirtual(leg)) {
+                throw new IllegalArgumentException("Invalid leg '" + leg + "' in " + symbol);
+            }
+            legs.add(leg);
+        }
+        return new SpreadDefinition(symbol, kind, legs, weights, unit);
+    }
+
+    public String getSymbol() { return symbol; }
+    public Kind getKind() { return kind; }
+    public List<String> getLegs() { return legs; }
+    public double[] getWeights() { return weights.clone(); }
+    public double getWeight(int leg) { return weights[leg]; }
+    public int size() { return legs.size(); }
+
+    /**
+     * Alignment bucket from the symbol, or null to use the configured default
+     */
+    public ChronoUnit getAlignUnit() { return alignUnit; }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
+}
@@ -1,7 +1,11 @@
 package stockprediction.repository;
 
 import stockprediction.entity.PredictionSignalEntity;
+import stockprediction.model.SeriesVersion;
+import stockprediction.model.SignalGroupStats;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -68,4 +72,117 @@ public interface PredictionSignalRepository extends JpaRepository<PredictionSign
      * Count signals by type for a symbol
      */
     long countBySymbolAndSignalType(String symbol, PredictionSignalEntity.SignalType signalType);
+    
+    /**
+     * Find signals of a symbol newer than a timestamp (index range on symbol, timestamp)
+     */
+    @Query("SELECT p FROM PredictionSignalEntity p WHERE p.symbol = :symbol " +
+           "AND p.timestamp > :since ORDER BY p.timestamp DESC")
+    List<PredictionSignalEntity> findBySymbolAndTimestampAfter(
+            @Param("symbol") String symbol,
+            @Param("since") LocalDateTime since);
+    
+    /**
+     * Find signals of a symbol stored after a given id (index range on symbol, id)
+     */
+    @Query("SELECT p FROM PredictionSignalEntity p WHERE p.symbol = :symbol " +
+           "AND p.id > :afterId ORDER BY p.timestamp DESC")
+    List<PredictionSignalEntity> findBySymbolAndIdAfter(
+            @Param("symbol") String symbol,
+            @Param("afterId") Long afterId);
+    
+    /**
+     * Count, highest id and latest timestamp of a symbol's signals in one index-only query
+     */
+    @Query("SELECT new stockprediction.model.SeriesVersion(COUNT(p), MAX(p.id), MAX(p.timestamp)) " +
+           "FROM PredictionSignalEntity p WHERE p.symbol = :symbol")
+    SeriesVersion findVersionBySymbol(@Param("symbol") String symbol);
+    
+    /**
+     * Keyset page of signals of one type before the seek position (timestamp, id), newest first
+     */
+    @Query("SELECT p FROM PredictionSignalEntity p WHERE p.signalType = :signalType " +
+           "AND (p.timestamp < :timestamp OR (p.timestamp = :timestamp AND p.id < :id)) " +
+           "ORDER BY p.timestamp DESC, p.id DESC")
+    List<PredictionSignalEntity> findPageBySignalType(
+            @Param("signalType") PredictionSignalEntity.SignalType signalType,
+            @Param("timestamp") LocalDateTime timestamp,
+            @Param("id") Long id,
+            Pageable pageable);
+    
+    /**
+     * Keyset page of high confidence signals before the seek position (timestamp, id), newest first
+     */
+    @Query("SELECT p FROM PredictionSignalEntity p WHERE p.confidence > :threshold " +
+           "AND (p.timestamp < :timestamp OR (p.timestamp = :timestamp AND p.id < :id)) " +
+           "ORDER BY p.timestamp DESC, p.id DESC")
+    List<PredictionSignalEntity> findPageHighConfidence(
+            @Param("threshold") Double threshold,
+            @Param("timestamp") LocalDateTime timestamp,
+            @Param("id") Long id,
+            Pageable pageable);
+    
+    /**
+     * Keyset page of signals since a time, before the seek position (timestamp, id), newest first
+     */
+    @Query("SELECT p FROM PredictionSignalEntity p WHERE p.timestamp >= :since " +
+           "AND (p.timestamp < :timestamp OR (p.timestamp = :timestamp AND p.id < :id)) " +
+           "ORDER BY p.timestamp DESC, p.id DESC")
+    List<PredictionSignalEntity> findPageRecent(
+            @Param("since") LocalDateTime since,
+            @Param("timestamp") LocalDateTime timestamp,
+            @Param("id") Long id,
+            Pageable pageable);
+    
+    /**
+     * Count, confidence sum, latest time and highest id per signal type of one symbol, in one aggregate query
+     */
+    @Query("SELECT new stockprediction.model.SignalGroupStats(p.symbol, p.signalType, COUNT(p), " +
+           "SUM(p.confidence), MAX(p.timestamp), MAX(p.id)) " +
+           "FROM PredictionSignalEntity p WHERE p.symbol = :symbol GROUP BY p.symbol, p.signalType")
+    List<SignalGroupStats> findStatsBySymbol(@Param("symbol") String symbol);
+    
+    /**
+     * The same aggregate for every symbol, one row per (symbol, signal type)
+     */
+    @Query("SELECT new stockprediction.model.SignalGroupStats(p.symbol, p.signalType, COUNT(p), " +
+           "SUM(p.confidence), MAX(p.timestamp), MAX(p.id)) " +
+           "FROM PredictionSignalEntity p GROUP BY p.symbol, p.signalType")
+    List<SignalGroupStats> findStatsBySymbolAndType();
+    
+    /**
+     * Ids above a bound, ascending
+     */
+    @Query("SELECT p.id FROM PredictionSignalEntity p WHERE p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsAfter(@Param("afterId") long afterId);
+    
+    /**
+     * Set-based delete of every signal of a symbol (no entities are loaded)
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM PredictionSignalEntity p WHERE p.symbol = :symbol")
+    int deleteAllBySymbol(@Param("symbol") String symbol);
+    
+    /**
+     * Set-based delete of the given signals
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM PredictionSignalEntity p WHERE p.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
+    
+    /**
+     * Find all symbols that have signals
+     */
+    @Query("SELECT DISTINCT p.symbol FROM PredictionSignalEntity p ORDER BY p.symbol")
+    List<String> findAllSymbols();
+    
+    /**
+     * Ids of a symbol's signals older than a cutoff, oldest first; the page size bounds one retention chunk
+     */
+    @Query("SELECT p.id FROM PredictionSignalEntity p WHERE p.symbol = :symbol AND p.timestamp < :before " +
+           "ORDER BY p.timestamp ASC, p.id ASC")
+    List<Long> findIdsBySymbolOlderThan(
+            @Param("symbol") String symbol,
+            @Param("before") LocalDateTime before,
+            Pageable pageable);
 }
@@ -1,13 +1,22 @@
 package stockprediction.repository;
 
 import stockprediction.entity.StockDataEntity;
+import stockprediction.model.SeriesVersion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * Repository interface for StockDataEntity
@@ -38,12 +47,28 @@ public interface StockDataRepository extends JpaRepository<StockDataEntity, Long
            "ORDER BY s.timestamp DESC")
     List<StockDataEntity> findLatestBySymbol(@Param("symbol") String symbol);
     
+    /**
+     * Timestamps of the bars stored for a symbol within a range (both ends inclusive)
+     */
+    @Query("SELECT s.timestamp FROM StockDataEntity s WHERE s.symbol = :symbol " +
+           "AND s.timestamp >= :startDate AND s.timestamp <= :endDate")
+    List<LocalDateTime> findTimestampsBetween(
+            @Param("symbol") String symbol,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+    
     /**
      * Find all unique symbols
      */
     @Query("SELECT DISTINCT s.symbol FROM StockDataEntity s ORDER BY s.symbol")
     List<String> findAllSymbols();
     
+    /**
+     * Latest bar timestamp of every symbol, as [symbol, timestamp] rows
+     */
+    @Query("SELECT s.symbol, MAX(s.timestamp) FROM StockDataEntity s GROUP BY s.symbol")
+    List<Object[]> findLatestTimestamps();
+    
     /**
      * Find stock data for multiple symbols
      */
@@ -51,11 +76,25 @@ public interface StockDataRepository extends JpaRepository<StockDataEntity, Long
            "ORDER BY s.symbol, s.timestamp ASC")
     List<StockDataEntity> findBySymbolIn(@Param("symbols") List<String> symbols);
     
+    /**
+     * Find stock data for multiple symbols from a timestamp on
+     */
+    @Query("SELECT s FROM StockDataEntity s WHERE s.symbol IN :symbols AND s.timestamp >= :since " +
+           "ORDER BY s.symbol, s.timestamp ASC")
+    List<StockDataEntity> findBySymbolInSince(
+            @Param("symbols") List<String> symbols,
+            @Param("since") LocalDateTime since);
+    
     /**
      * Count records for a symbol
      */
     long countBySymbol(String symbol);
     
+    /**
+     * Count records for a symbol within a date range (both ends inclusive)
+     */
+    long countBySymbolAndTimestampBetween(String symbol, LocalDateTime startDate, LocalDateTime endDate);
+    
     /**
      * Find stock data with limit
      */
@@ -63,4 +102,122 @@ public interface StockDataRepository extends JpaRepository<StockDataEntity, Long
            "ORDER BY s.timestamp DESC")
     List<StockDataEntity> findTopNBySymbolOrderByTimestampDesc(
             @Param("symbol") String symbol);
+    
+    /**
+     * Find bars of a symbol newer than a timestamp (index range on symbol, timestamp)
+     */
+    @Query("SELECT s FROM StockDataEntity s WHERE s.symbol = :symbol " +
+           "AND s.timestamp > :since ORDER BY s.timestamp ASC")
+    List<StockDataEntity> findBySymbolAndTimestampAfter(
+            @Param("symbol") String symbol,
+            @Param("since") LocalDateTime since);
+    
+    /**
+     * Find bars of a symbol stored after a given id (index range on symbol, id)
+     */
+    @Query("SELECT s FROM StockDataEntity s WHERE s.symbol = :symbol " +
+           "AND s.id > :afterId ORDER BY s.timestamp ASC")
+    List<StockDataEntity> findBySymbolAndIdAfter(
+            @Param("symbol") String symbol,
+            @Param("afterId") Long afterId);
+    
+    /**
+     * Count, highest id and latest timestamp of a symbol in one index-only query
+     */
+    @Query("SELECT new stockprediction.model.SeriesVersion(COUNT(s), MAX(s.id), MAX(s.timestamp)) " +
+           "FROM StockDataEntity s WHERE s.symbol = :symbol")
+    SeriesVersion findVersionBySymbol(@Param("symbol") String symbol);
+    
+    /**
+     * Keyset page of a symbol's bars after the seek position (timestamp, id), ascending.
+     * Only rows stored after afterId are included; pass 0 for all rows.
+     */
+    @Query("SELECT s FROM StockDataEntity s WHERE s.symbol = :symbol AND s.id > :afterId " +
+           "AND (s.timestamp > :timestamp OR (s.timestamp = :timestamp AND s.id > :id)) " +
+           "ORDER BY s.timestamp ASC, s.id ASC")
+    List<StockDataEntity> findPageBySymbol(
+            @Param("symbol") String symbol,
+            @Param("afterId") Long afterId,
+            @Param("timestamp") LocalDateTime timestamp,
+            @Param("id") Long id,
+            Pageable pageable);
+    
+    /**
+     * Cursor over a symbol's bars in (timestamp, id) order for exports; rows are fetched from the
+     * driver in chunks instead of materialized. Must be consumed (and closed) inside a transaction.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("SELECT s FROM StockDataEntity s WHERE s.symbol = :symbol AND s.id > :afterId " +
+           "AND s.timestamp > :since ORDER BY s.timestamp ASC, s.id ASC")
+    Stream<StockDataEntity> streamBySymbol(
+            @Param("symbol") String symbol,
+            @Param("afterId") Long afterId,
+            @Param("since") LocalDateTime since);
+    
+    /**
+     * The newest bars of a symbol, newest first; the page size bounds the index range scan
+     */
+    @Query("SELECT s FROM StockDataEntity s WHERE s.symbol = :symbol " +
+           "ORDER BY s.timestamp DESC, s.id DESC")
+    List<StockDataEntity> findLatestBySymbol(
+            @Param("symbol") String symbol,
+            Pageable pageable);
+    
+    /**
+     * The newest bars of a symbol up to a timestamp, newest first
+     */
+    @Query("SELECT s FROM StockDataEntity s WHERE s.symbol = :symbol AND s.timestamp <= :until " +
+           "ORDER BY s.timestamp DESC, s.id DESC")
+    List<StockDataEntity> findLatestBySymbolUntil(
+            @Param("symbol") String symbol,
+            @Param("until") LocalDateTime until,
+            Pageable pageable);
+    
+    /**
+     * Timestamps of a symbol's bars before a bound, newest first; pages walk a symbol's history backwards
+     */
+    @Query("SELECT s.timestamp FROM StockDataEntity s WHERE s.symbol = :symbol AND s.timestamp < :before " +
+           "ORDER BY s.timestamp DESC")
+    List<LocalDateTime> findTimestampsBefore(
+            @Param("symbol") String symbol,
+            @Param("before") LocalDateTime before,
+            Pageable pageable);
+    
+    /**
+     * Set-based delete of every bar of a symbol (no entities are loaded)
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM StockDataEntity s WHERE s.symbol = :symbol")
+    int deleteAllBySymbol(@Param("symbol") String symbol);
+    
+    /**
+     * Set-based delete of the given bars
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM StockDataEntity s WHERE s.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") List<Long> ids);
+    
+    /**
+     * Ids of a symbol's bars older than a cutoff, oldest first; the page size bounds one retention chunk
+     */
+    @Query("SELECT s.id FROM StockDataEntity s WHERE s.symbol = :symbol AND s.timestamp < :before " +
+           "ORDER BY s.timestamp ASC, s.id ASC")
+    List<Long> findIdsBySymbolOlderThan(
+            @Param("symbol") String symbol,
+            @Param("before") LocalDateTime before,
+            Pageable pageable);
+    
+    /**
+     * Bars of a symbol in [from, before), ascending; the page size bounds one compaction chunk
+     */
+    @Query("SELECT s FROM StockDataEntity s WHERE s.symbol = :symbol " +
+           "AND s.timestamp >= :from AND s.timestamp < :before ORDER BY s.timestamp ASC, s.id ASC")
+    List<StockDataEntity> findChunkBySymbol(
+            @Param("symbol") String symbol,
+            @Param("from") LocalDateTime from,
+            @Param("before") LocalDateTime before,
+            Pageable pageable);
 }
@@ -0,0 +1,60 @@
+package stockprediction.repository;
+
+import stockprediction.entity.StockRollupEntity;
+import stockprediction.model.BarResolution;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for StockRollupEntity
+ */
+@Repository
+public interface StockRollupRepository extends JpaRepository<StockRollupEntity, Long> {
+    
+    /**
+     * Rollups of one level for the given period starts (the periods touched by a batch of new bars)
+     */
+    @Query("SELECT r FROM StockRollupEntity r WHERE r.symbol = :symbol " +
+           "AND r.resolution = :resolution AND r.periodStart IN :periodStarts")
+    List<StockRollupEntity> findByPeriodStarts(
+            @Param("symbol") String symbol,
+            @Param("resolution") BarResolution resolution,
+            @Param("periodStarts") Collection<LocalDateTime> periodStarts);
+    
+    /**
+     * Rollups of one level whose period starts within a range (both ends inclusive), oldest first
+     */
+    @Query("SELECT r FROM StockRollupEntity r WHERE r.symbol = :symbol AND r.resolution = :resolution " +
+           "AND r.periodStart >= :startDate AND r.periodStart <= :endDate " +
+           "ORDER BY r.periodStart ASC")
+    List<StockRollupEntity> findRange(
+            @Param("symbol") String symbol,
+            @Param("resolution") BarResolution resolution,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * Number of rollups findRange would return
+     */
+    @Query("SELECT COUNT(r) FROM StockRollupEntity r WHERE r.symbol = :symbol AND r.resolution = :resolution " +
+           "AND r.periodStart >= :startDate AND r.periodStart <= :endDate")
+    long countRange(
+            @Param("symbol") String symbol,
+            @Param("resolution") BarResolution resolution,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * Set-based delete of all rollups of a symbol
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM StockRollupEntity r WHERE r.symbol = :symbol")
+    int deleteAllBySymbol(@Param("symbol") String symbol);
+}
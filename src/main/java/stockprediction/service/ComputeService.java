@@ -0,0 +1,210 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import stockprediction.config.VirtualThreads;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs request work off the Tomcat threads. CPU-heavy work (indicators, analysis, chart
+ * serialization) goes to a bounded compute pool, and outbound fetches go to a separate I/O pool.
+ * Each endpoint group has a bulkhead, a fixed number of permits, so one slow group cannot take
+ * over the pools. When a bulkhead or pool queue is full the work is shed at once with
+ * RejectedExecutionException (429); when the answer takes too long the future fails with
+ * TimeoutException (503).
+ *
+ * In SYNC mode the work runs on the calling thread instead, still behind its bulkhead. With
+ * runtime.virtual-threads on a JDK that has them, outbound fetches each get a virtual thread and
+ * only their bulkhead bounds them.
+ */
+@Service
+public class ComputeService {
+
+    /**
+     * Where controller methods run
+     */
+    public enum Mode {
+        ASYNC,  // on the compute / I/O pools; request threads return at once
+        SYNC    // on the request thread
+    }
+
+    /**
+     * Endpoint groups, each with its own concurrency limit
+     */
+    public enum Bulkhead {
+        ANALYSIS(false),   // /market-analysis
+        CHART(false),      // /stocks/{symbol}/tradingview
+        SIGNALS(false),    // /signals/{symbol}, /signals/{symbol}/tradingview
+        REALTIME(true);    // /tradingview/data/{symbol}: outbound fetch
+
+        private final boolean io;
+
+        Bulkhead(boolean io) {
+            this.io = io;
+        }
+    }
+
+    @Value("${compute.mode:ASYNC}")
+    private Mode mode;
+
+    @Value("${compute.threads:0}")
+    private int threads;
+
+    @Value("${compute.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${compute.io-threads:8}")
+    private int ioThreads;
+
+    @Value("${runtime.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${compute.timeout-ms:10000}")
+    private long timeoutMillis;
+
+    @Value("${compute.bulkhead.analysis:16}")
+    private int analysisPermits;
+
+    @Value("${compute.bulkhead.chart:32}")
+    private int chartPermits;
+
+    @Value("${compute.bulkhead.signals:32}")
+    private int signalsPermits;
+
+    @Value("${compute.bulkhead.realtime:8}")
+    private int realtimePermits;
+
+    private final Map<Bulkhead, Semaphore> bulkheads = new EnumMap<>(Bulkhead.class);
+    private final Map<Bulkhead, Integer> permits = new EnumMap<>(Bulkhead.class);
+    private final Map<Bulkhead, AtomicLong> shed = new EnumMap<>(Bulkhead.class);
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    private ThreadPoolExecutor computePool;
+    private ExecutorService ioPool;
+
+    @PostConstruct
+    void start() {
+        permits.put(Bulkhead.ANALYSIS, analysisPermits);
+        permits.put(Bulkhead.CHART, chartPermits);
+        permits.put(Bulkhead.SIGNALS, signalsPermits);
+        permits.put(Bulkhead.REALTIME, realtimePermits);
+        for (Bulkhead bulkhead : Bulkhead.values()) {
+            bulkheads.put(bulkhead, new Semaphore(Math.max(1, permits.get(bulkhead))));
+            shed.put(bulkhead, new AtomicLong());
+        }
+        int computeThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        computePool = pool("compute-", computeThreads, queueCapacity);
+        ioPool = virtualThreads && VirtualThreads.isSupported()
+            ? VirtualThreads.newPerTaskExecutor("compute-io-")
+            : pool("compute-io-", Math.max(1, ioThreads), queueCapacity);
+    }
+
+    @PreDestroy
+    void stop() {
+        computePool.shutdownNow();
+        ioPool.shutdownNow();
+    }
+
+    /**
+     * Run 'task' behind the bulkhead. The future fails with RejectedExecutionException when the
+     * work was shed and with TimeoutException when it ran past compute.timeout-ms.
+     */
+    public <T> CompletableFuture<T> submit(Bulkhead bulkhead, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Semaphore permit = bulkheads.get(bulkhead);
+        if (!permit.tryAcquire()) {
+            shed.get(bulkhead).incrementAndGet();
+            result.completeExceptionally(new RejectedExecutionException(bulkhead + " bulkhead is full"));
+            return result;
+        }
+        Runnable work = () -> {
+            try {
+                // A task that timed out while queued is not worth starting
+                if (!result.isDone()) {
+                    result.complete(task.call());
+                    completed.incrementAndGet();
+                }
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                permit.release();
+            }
+        };
+        if (mode == Mode.SYNC) {
+            work.run();
+            return result;
+        }
+        try {
+            (bulkhead.io ? ioPool : computePool).execute(work);
+        } catch (RejectedExecutionException e) {
+            permit.release();
+            shed.get(bulkhead).incrementAndGet();
+            result.completeExceptionally(e);
+            return result;
+        }
+        // The response gives up after the timeout; work already running finishes and keeps its permit until then
+        return result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((value, error) -> {
+            if (error instanceof TimeoutException) {
+                timedOut.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Mode, pool usage and per-bulkhead permits in use / shed counts
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("mode", mode);
+        status.put("timeoutMs", timeoutMillis);
+        status.put("computePool", poolStatus(computePool));
+        status.put("ioPool", poolStatus(ioPool));
+        Map<String, Object> groups = new LinkedHashMap<>();
+        for (Bulkhead bulkhead : Bulkhead.values()) {
+            int limit = Math.max(1, permits.get(bulkhead));
+            Map<String, Object> group = new LinkedHashMap<>();
+            group.put("permits", limit);
+            group.put("inUse", limit - bulkheads.get(bulkhead).availablePermits());
+            group.put("shed", shed.get(bulkhead).get());
+            groups.put(bulkhead.name().toLowerCase(), group);
+        }
+        status.put("bulkheads", groups);
+        status.put("completed", completed.get());
+        status.put("timedOut", timedOut.get());
+        return status;
+    }
+
+    private Map<String, Object> poolStatus(ExecutorService executor) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (!(executor instanceof ThreadPoolExecutor)) {
+            status.put("virtual", true);
+            return status;
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        status.put("threads", pool.getMaximumPoolSize());
+        status.put("active", pool.getActiveCount());
+        status.put("queued", pool.getQueue().size());
+        status.put("queueCapacity", queueCapacity);
+        return status;
+    }
+
+    private static ThreadPoolExecutor pool(String prefix, int size, int queueCapacity) {
+        AtomicInteger threadId = new AtomicInteger();
+        // AbortPolicy: a full queue rejects instead of running the task on the request thread
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                Thread thread = new Thread(runnable, prefix + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
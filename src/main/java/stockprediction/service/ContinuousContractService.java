@@ -0,0 +1,165 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import stockprediction.engine.ContinuousContractBuilder;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.event.StockDataDeletedEvent;
+import stockprediction.event.StockDataSavedEvent;
+import stockprediction.model.StockData;
+import stockprediction.repository.StockDataRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service that stitches dated futures contracts (VN30F2401, VN30F2402, ...) into continuous series.
+ * Built series are cached per (root, roll rule, adjustment) as a {@link ContinuousContractBuilder.LiveSeries}:
+ * new bars of the active contract are appended in place, bars that can move the roll from the active
+ * to the next contract re-stitch the contracts since the last confirmed roll in memory, and only bars
+ * reaching back before that roll mark the entry for a rebuild from the repository.
+ */
+@Service
+public class ContinuousContractService {
+
+    @Autowired
+    private StockDataRepository stockDataRepository;
+
+    @Value("${continuous.roll-rule:VOLUME_CROSSOVER}")
+    private ContinuousContractBuilder.RollRule defaultRollRule;
+
+    @Value("${continuous.roll-days-before-expiry:3}")
+    private int defaultRollDays;
+
+    @Value("${continuous.adjustment:BACK}")
+    private ContinuousContractBuilder.Adjustment defaultAdjustment;
+
+    private final Map<String, CachedSeries> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Get the continuous series for a root using the configured defaults
+     */
+    public ContinuousContractBuilder.ContinuousSeries getSeries(String root) {
+        return getSeries(root, null, null, null);
+    }
+
+    /**
+     * Get (building if needed) the continuous series for a root; null arguments use the defaults
+     */
+    public ContinuousContractBuilder.ContinuousSeries getSeries(String root,
+                                                                ContinuousContractBuilder.RollRule rollRule,
+                                                                Integer rollDays,
+                                                                ContinuousContractBuilder.Adjustment adjustment) {
+        ContinuousContractBuilder.RollRule rule = rollRule == null ? defaultRollRule : rollRule;
+        int days = rollDays == null ? defaultRollDays : rollDays;
+        ContinuousContractBuilder.Adjustment adj = adjustment == null ? defaultAdjustment : adjustment;
+
+        CachedSeries entry = cache.computeIfAbsent(root + "|" + rule + "|" + days + "|" + adj,
+            key -> new CachedSeries(root, new ContinuousContractBuilder(rule, days, adj)));
+        synchronized (entry) {
+            if (entry.series == null || entry.dirty) {
+                long start = System.currentTimeMillis();
+                entry.series = new ContinuousContractBuilder.LiveSeries(entry.builder, loadContracts(root));
+                entry.dirty = false;
+                entry.lastBuildMillis = System.currentTimeMillis() - start;
+            }
+            // A read-only prefix view: later appends never race with the reader's iteration
+            return entry.series.view();
+        }
+    }
+
+    /**
+     * Milliseconds the last full build of this configuration took (0 if it was never built)
+     */
+    public long getLastBuildMillis(String root, ContinuousContractBuilder.RollRule rollRule, Integer rollDays,
+                                   ContinuousContractBuilder.Adjustment adjustment) {
+        String key = root + "|" + (rollRule == null ? defaultRollRule : rollRule) + "|"
+            + (rollDays == null ? defaultRollDays : rollDays) + "|" + (adjustment == null ? defaultAdjustment : adjustment);
+        CachedSeries entry = cache.get(key);
+        return entry == null ? 0 : entry.lastBuildMillis;
+    }
+
+    /**
+     * Dated contracts stored for a root, e.g. VN30F -> [VN30F2401, VN30F2402]
+     */
+    public List<String> getContracts(String root) {
+        return stockDataRepository.findAllSymbols().stream()
+            .filter(symbol -> ContinuousContractBuilder.isContractOf(symbol, root))
+            .sorted(Comparator.comparing(ContinuousContractBuilder::vn30fExpiry))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Extend or invalidate cached series when contract bars are saved
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockDataSaved(StockDataSavedEvent event) {
+        String symbol = event.getSymbol();
+        for (CachedSeries entry : cache.values()) {
+            if (!ContinuousContractBuilder.isContractOf(symbol, entry.root)) {
+                continue;
+            }
+            synchronized (entry) {
+                if (entry.series == null || entry.dirty) {
+                    continue;
+                }
+                List<StockData> bars = event.getBars().stream()
+                    .map(this::toStockData)
+                    .collect(Collectors.toList());
+                if (!entry.series.add(symbol, bars)) {
+                    entry.dirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuild cached series from the repository once bars of one of their contracts were removed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockDataDeleted(StockDataDeletedEvent event) {
+        for (CachedSeries entry : cache.values()) {
+            if (ContinuousContractBuilder.isContractOf(event.getSymbol(), entry.root)) {
+                synchronized (entry) {
+                    entry.dirty = true;
+                }
+            }
+        }
+    }
+
+    private Map<String, List<StockData>> loadContracts(String root) {
+        List<String> contracts = getContracts(root);
+        if (contracts.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<StockData>> bySymbol = new LinkedHashMap<>();
+        for (StockDataEntity entity : stockDataRepository.findBySymbolIn(contracts)) {
+            bySymbol.computeIfAbsent(entity.getSymbol(), s -> new ArrayList<>()).add(toStockData(entity));
+        }
+        return bySymbol;
+    }
+
+    private StockData toStockData(StockDataEntity entity) {
+        return new StockData(entity.getTimestamp(), entity.getOpen(), entity.getHigh(),
+            entity.getLow(), entity.getClose(), entity.getVolume());
+    }
+
+    /**
+     * One cached configuration; guarded by its own monitor
+     */
+    private static final class CachedSeries {
+        private final String root;
+        private final ContinuousContractBuilder builder;
+        private ContinuousContractBuilder.LiveSeries series;
+        private boolean dirty;
+        private long lastBuildMillis;
+
+        CachedSeries(String root, ContinuousContractBuilder builder) {
+            this.root = root;
+            this.builder = builder;
+        }
+    }
+}
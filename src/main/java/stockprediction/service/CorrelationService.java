@@ -0,0 +1,285 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import stockprediction.engine.CorrelationEngine;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.event.StockDataDeletedEvent;
+import stockprediction.event.StockDataSavedEvent;
+import stockprediction.model.CorrelationMatrix;
+import stockprediction.model.StockData;
+import stockprediction.repository.StockDataRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Service for cross-symbol return correlation and covariance.
+ * The whole-universe matrix for the default window is kept as a {@link CorrelationEngine.RollingState}
+ * and advanced incrementally as each new trading day completes for every symbol; other windows
+ * or symbol subsets are computed on demand. Symbols without the window's trading days (newly
+ * listed, expired) are excluded from a matrix rather than shortening it, and only the last
+ * window + 1 trading days of each symbol are loaded.
+ */
+@Service
+public class CorrelationService {
+
+    // Days buffered while waiting for every symbol to report before the universe is rebuilt instead
+    private static final int MAX_PENDING_DAYS = 5;
+    // Calendar days first loaded per trading day of the window, for weekends and holidays
+    private static final double CALENDAR_DAYS_PER_TRADING_DAY = 1.5;
+
+    @Autowired
+    private StockDataRepository stockDataRepository;
+
+    @Value("${correlation.default-window:60}")
+    private int defaultWindow;
+
+    private CorrelationEngine.RollingState universeState;
+    private Map<String, Integer> universeIndex = Collections.emptyMap();
+    private Set<String> universeExcluded = Collections.emptySet();
+    // An excluded symbol is still trading: it may have enough days to join after the next day completes
+    private boolean excludedTrading;
+    private final NavigableMap<LocalDate, double[]> pendingCloses = new TreeMap<>();
+    private boolean stale = true;
+
+    /**
+     * Pair of symbols with their correlation
+     */
+    public static class CorrelatedPair {
+        private final String first;
+        private final String second;
+        private final double correlation;
+        private final double covariance;
+
+        public CorrelatedPair(String first, String second, double correlation, double covariance) {
+            this.first = first;
+            this.second = second;
+            this.correlation = correlation;
+            this.covariance = covariance;
+        }
+
+        public String getFirst() { return first; }
+        public String getSecond() { return second; }
+        public double getCorrelation() { return correlation; }
+        public double getCovariance() { return covariance; }
+    }
+
+    /**
+     * Ranking used for pair queries
+     */
+    public enum PairOrder {
+        POSITIVE, NEGATIVE, ABSOLUTE
+    }
+
+    /**
+     * Get the matrix for a window and optional symbol subset (null/empty = every stored symbol)
+     */
+    public CorrelationMatrix getMatrix(List<String> symbols, Integer window) {
+        int effectiveWindow = window == null ? defaultWindow : window;
+        if ((symbols == null || symbols.isEmpty()) && effectiveWindow == defaultWindow) {
+            return getUniverseMatrix();
+        }
+
+        List<String> universe = symbols == null || symbols.isEmpty() ? stockDataRepository.findAllSymbols() : symbols;
+        return CorrelationEngine.compute(align(universe, effectiveWindow), effectiveWindow);
+    }
+
+    /**
+     * Most correlated pairs (by the requested ordering) within a matrix
+     */
+    public List<CorrelatedPair> getTopPairs(List<String> symbols, Integer window, int limit, PairOrder order) {
+        CorrelationMatrix matrix = getMatrix(symbols, window);
+        int n = matrix.size();
+        Comparator<CorrelatedPair> byScore = Comparator.comparingDouble(p -> score(p.getCorrelation(), order));
+        PriorityQueue<CorrelatedPair> best = new PriorityQueue<>(byScore);
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double correlation = matrix.getCorrelation(i, j);
+                if (best.size() < limit) {
+                    best.add(pair(matrix, i, j));
+                } else if (score(correlation, order) > score(best.peek().getCorrelation(), order)) {
+                    best.poll();
+                    best.add(pair(matrix, i, j));
+                }
+            }
+        }
+
+        List<CorrelatedPair> result = new ArrayList<>(best);
+        result.sort(byScore.reversed());
+        return result;
+    }
+
+    /**
+     * Most correlated peers of a single symbol
+     */
+    public List<CorrelatedPair> getPeers(String symbol, Integer window, int limit, PairOrder order) {
+        CorrelationMatrix matrix = getMatrix(null, window);
+        int i = matrix.getSymbols().indexOf(symbol);
+        if (i < 0) {
+            return Collections.emptyList();
+        }
+        List<CorrelatedPair> peers = new ArrayList<>();
+        for (int j = 0; j < matrix.size(); j++) {
+            if (j != i) peers.add(pair(matrix, i, j));
+        }
+        peers.sort(Comparator.comparingDouble((CorrelatedPair p) -> score(p.getCorrelation(), order)).reversed());
+        return peers.subList(0, Math.min(limit, peers.size()));
+    }
+
+    /**
+     * Advance the universe state when a new trading day has landed for every symbol
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStockDataSaved(StockDataSavedEvent event) {
+        if (universeState == null || stale) {
+            return; // rebuilt lazily on the next query
+        }
+        Integer index = universeIndex.get(event.getSymbol());
+        if (index == null) {
+            if (universeExcluded.contains(event.getSymbol())) {
+                excludedTrading = true;
+            } else {
+                stale = true;
+            }
+            return;
+        }
+
+        List<StockDataEntity> bars = new ArrayList<>(event.getBars());
+        bars.sort(Comparator.comparing(StockDataEntity::getTimestamp));
+        for (StockDataEntity bar : bars) {
+            LocalDate day = bar.getTimestamp().toLocalDate();
+            if (universeState.getLastDate() == null || !day.isAfter(universeState.getLastDate())) {
+                stale = true; // backfill or revision of an already folded day
+                return;
+            }
+            pendingCloses.computeIfAbsent(day, d -> {
+                double[] closes = new double[universeIndex.size()];
+                Arrays.fill(closes, Double.NaN);
+                return closes;
+            })[index] = bar.getClose();
+        }
+
+        drainCompleteDays();
+        if (pendingCloses.size() > MAX_PENDING_DAYS) {
+            stale = true;
+        }
+    }
+
+    /**
+     * Removed bars of a symbol in the universe (or excluded from it) invalidate the universe state
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStockDataDeleted(StockDataDeletedEvent event) {
+        if (universeIndex.containsKey(event.getSymbol()) || universeExcluded.contains(event.getSymbol())) {
+            stale = true;
+        }
+    }
+
+    private void drainCompleteDays() {
+        LocalDate complete = null;
+        for (Map.Entry<LocalDate, double[]> entry : pendingCloses.entrySet()) {
+            if (Arrays.stream(entry.getValue()).noneMatch(Double::isNaN)) {
+                complete = entry.getKey();
+            }
+        }
+        if (complete != null && excludedTrading) {
+            stale = true; // rebuilt on the next query, with the excluded symbols reconsidered
+            return;
+        }
+        while (complete != null && !pendingCloses.isEmpty() && !pendingCloses.firstKey().isAfter(complete)) {
+            Map.Entry<LocalDate, double[]> first = pendingCloses.pollFirstEntry();
+            // Days some symbol skipped are dropped; a full rebuild would exclude that symbol instead
+            if (Arrays.stream(first.getValue()).noneMatch(Double::isNaN)) {
+                universeState.push(first.getKey(), first.getValue());
+            }
+        }
+    }
+
+    private synchronized CorrelationMatrix getUniverseMatrix() {
+        if (universeState == null || stale || universeState.getWindow() != defaultWindow) {
+            rebuildUniverse();
+        }
+        return universeState.snapshot();
+    }
+
+    /**
+     * Reload every symbol and reseed the rolling state
+     */
+    public synchronized void rebuildUniverse() {
+        long start = System.currentTimeMillis();
+        CorrelationEngine.AlignedReturns aligned = align(stockDataRepository.findAllSymbols(), defaultWindow);
+        universeState = CorrelationEngine.RollingState.seed(aligned, defaultWindow);
+
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < aligned.getSymbols().size(); i++) {
+            index.put(aligned.getSymbols().get(i), i);
+        }
+        universeIndex = index;
+        universeExcluded = new HashSet<>(aligned.getExcluded());
+        excludedTrading = false;
+        pendingCloses.clear();
+        stale = false;
+        System.out.println("Correlation state rebuilt for " + index.size() + " symbols (" + universeExcluded.size()
+                + " excluded), " + aligned.length() + " aligned days in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Align the symbols' last window + 1 trading days. Loads a calendar span that normally covers
+     * them and doubles it while the aligned window is short and older bars exist.
+     */
+    private CorrelationEngine.AlignedReturns align(List<String> symbols, int window) {
+        Set<String> requested = new HashSet<>(symbols);
+        LocalDateTime latest = stockDataRepository.findLatestTimestamps().stream()
+            .filter(row -> requested.contains((String) row[0]))
+            .map(row -> (LocalDateTime) row[1])
+            .max(Comparator.naturalOrder())
+            .orElse(null);
+        if (latest == null) {
+            return CorrelationEngine.alignDailyReturns(toSeries(symbols, Collections.emptyList()), window);
+        }
+        long calendarDays = (long) Math.ceil((window + 1) * CALENDAR_DAYS_PER_TRADING_DAY);
+        int loaded = -1;
+        while (true) {
+            List<StockDataEntity> bars = stockDataRepository.findBySymbolInSince(
+                symbols, latest.toLocalDate().minusDays(calendarDays).atStartOfDay());
+            CorrelationEngine.AlignedReturns aligned = CorrelationEngine.alignDailyReturns(toSeries(symbols, bars), window);
+            if (aligned.length() >= window || bars.size() == loaded) {
+                return aligned;
+            }
+            loaded = bars.size();
+            calendarDays *= 2;
+        }
+    }
+
+    private static Map<String, List<StockData>> toSeries(List<String> symbols, List<StockDataEntity> bars) {
+        Map<String, List<StockData>> series = bars.stream()
+            .collect(Collectors.groupingBy(StockDataEntity::getSymbol, LinkedHashMap::new,
+                Collectors.mapping(entity -> new StockData(entity.getTimestamp(), entity.getOpen(), entity.getHigh(),
+                    entity.getLow(), entity.getClose(), entity.getVolume()), Collectors.toList())));
+        // Symbols with no bars in the span are reported as excluded
+        symbols.forEach(symbol -> series.putIfAbsent(symbol, Collections.emptyList()));
+        return series;
+    }
+
+    private static CorrelatedPair pair(CorrelationMatrix matrix, int i, int j) {
+        return new CorrelatedPair(matrix.getSymbols().get(i), matrix.getSymbols().get(j),
+            matrix.getCorrelation(i, j), matrix.getCovariance(i, j));
+    }
+
+    private static double score(double correlation, PairOrder order) {
+        switch (order) {
+            case NEGATIVE:
+                return -correlation;
+            case ABSOLUTE:
+                return Math.abs(correlation);
+            default:
+                return correlation;
+        }
+    }
+}
@@ -1,18 +1,30 @@
 package stockprediction.service;
 
 import stockprediction.data.StockDataGenerator;
+import stockprediction.data.SyntheticMarketGenerator;
+import stockprediction.data.SyntheticMarketGenerator.Regime;
 import stockprediction.entity.StockDataEntity;
 import stockprediction.model.StockData;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.List;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 /**
- * Service to initialize sample data when application starts
+ * Service to initialize sample data when application starts. Symbols are generated (or, with
+ * persistent storage, backfilled since the last run) on a small thread pool and handed to the
+ * ingestion pipeline, in the background: the HTTP port opens right away and /bootstrap/ready flips once done.
  */
 @Service
 public class DataInitializationService implements CommandLineRunner {
@@ -21,68 +33,184 @@ public class DataInitializationService implements CommandLineRunner {
     private StockDataService stockDataService;
     
     @Autowired
-    private PredictionSignalService predictionSignalService;
+    private IngestionPipeline ingestionPipeline;
+    
+    @Value("${bootstrap.symbols:10}")
+    private int symbolCount;
+    
+    @Value("${bootstrap.bars-per-symbol:200}")
+    private int barsPerSymbol;
+    
+    @Value("${bootstrap.threads:0}")
+    private int threads;
+    
+    @Value("${bootstrap.seed:42}")
+    private long seed;
     
     // Sample stock symbols
     private static final List<String> SAMPLE_SYMBOLS = Arrays.asList(
         "VNM", "VCB", "VIC", "HPG", "MSN", "VHM", "GAS", "BID", "CTG", "FPT"
     );
     
+    private volatile boolean ready;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile int total;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger generated = new AtomicInteger();
+    private final AtomicInteger backfilled = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong barsWritten = new AtomicLong();
+    private final AtomicLong signalsWritten = new AtomicLong();
+    
     @Override
     public void run(String... args) throws Exception {
-        System.out.println("=== INITIALIZING SAMPLE STOCK DATA ===");
+        startedAt = System.currentTimeMillis();
+        List<String> symbols = bootstrapSymbols();
+        total = symbols.size();
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        System.out.println("=== INITIALIZING SAMPLE STOCK DATA: " + total + " symbols on " + poolSize + " threads ===");
         
-        // Generate sample data for each symbol
-        for (String symbol : SAMPLE_SYMBOLS) {
-            generateSampleDataForSymbol(symbol);
-        }
+        // One grouped query tells which symbols are missing or stale
+        Map<String, LocalDateTime> latest = stockDataService.getLatestTimestamps();
+        LocalDateTime now = LocalDateTime.now();
         
-        System.out.println("=== SAMPLE DATA INITIALIZATION COMPLETED ===");
+        // Per-symbol seeded streams: the same seed gives the same dataset whatever the pool size
+        SyntheticMarketGenerator generator = new SyntheticMarketGenerator(seed, Duration.ofDays(1));
+        
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize, task -> {
+            Thread thread = new Thread(task, "bootstrap-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<?>[] tasks = IntStream.range(0, total)
+            .mapToObj(index -> CompletableFuture.runAsync(
+                () -> initializeSymbol(generator, index, symbols.get(index), latest.get(symbols.get(index)), now), pool))
+            .toArray(CompletableFuture[]::new);
+        // Not joined: the application finishes starting while the pool works
+        CompletableFuture.allOf(tasks).whenComplete((ignored, error) -> {
+            pool.shutdown();
+            finishedAt = System.currentTimeMillis();
+            ready = true;
+            System.out.println("=== SAMPLE DATA INITIALIZATION COMPLETED in " + (finishedAt - startedAt) + " ms ("
+                + generated.get() + " generated, " + backfilled.get() + " backfilled, "
+                + (total - generated.get() - backfilled.get() - failed.get()) + " up to date, " + failed.get() + " failed; "
+                + barsWritten.get() + " bars, " + signalsWritten.get() + " signals written) ===");
+        });
+    }
+    
+    /**
+     * True once every bootstrap symbol has been generated, backfilled or found current
+     */
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Progress of the bootstrap
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ready", ready);
+        status.put("symbols", total);
+        status.put("completed", completed.get());
+        status.put("generated", generated.get());
+        status.put("backfilled", backfilled.get());
+        status.put("failed", failed.get());
+        status.put("bars", barsWritten.get());
+        status.put("signals", signalsWritten.get());
+        status.put("elapsedMs", startedAt == 0 ? 0 : (ready ? finishedAt : System.currentTimeMillis()) - startedAt);
+        return status;
+    }
+    
+    /**
+     * The sample symbols, then further generated names (STOCKn) up to bootstrap.symbols
+     */
+    private List<String> bootstrapSymbols() {
+        Set<String> symbols = new LinkedHashSet<>(SAMPLE_SYMBOLS.subList(0, Math.min(symbolCount, SAMPLE_SYMBOLS.size())));
+        for (int i = 0; symbols.size() < symbolCount; i++) {
+            symbols.add(StockDataGenerator.getStockSymbol(i));
+        }
+        return new ArrayList<>(symbols);
     }
     
-    private void generateSampleDataForSymbol(String symbol) {
+    private void initializeSymbol(SyntheticMarketGenerator generator, int index, String symbol,
+                                  LocalDateTime last, LocalDateTime now) {
         try {
-            // Check if data already exists
-            if (stockDataService.symbolExists(symbol)) {
-                System.out.println("Data for " + symbol + " already exists, skipping...");
-                return;
+            if (last == null) {
+                generateSampleDataForSymbol(generator, index, symbol, now);
+                generated.incrementAndGet();
+            } else if (backfillSymbol(index, symbol, last, now)) {
+                backfilled.incrementAndGet();
             }
-            
-            // Generate different patterns for different symbols
-            List<StockData> stockDataList;
-            String pattern = getPatternForSymbol(symbol);
-            
-            switch (pattern) {
-                case "bullish":
-                    stockDataList = StockDataGenerator.generatePatternData(200, 100.0, "bullish");
-                    break;
-                case "bearish":
-                    stockDataList = StockDataGenerator.generatePatternData(200, 150.0, "bearish");
-                    break;
-                case "sideways":
-                    stockDataList = StockDataGenerator.generatePatternData(200, 120.0, "sideways");
-                    break;
-                case "volatile":
-                    stockDataList = StockDataGenerator.generatePatternData(200, 80.0, "volatile");
-                    break;
-                default:
-                    stockDataList = StockDataGenerator.generateSampleData(200, 100.0);
-            }
-            
-            // Save to database
-            List<StockDataEntity> entities = stockDataService.saveFromStockDataList(stockDataList, symbol);
-            
-            System.out.println("Generated " + entities.size() + " data points for " + symbol + 
-                             " (pattern: " + pattern + ")");
-            
-            // Generate prediction signals
-            generatePredictionSignals(symbol, stockDataList);
-            
         } catch (Exception e) {
-            System.err.println("Error generating data for " + symbol + ": " + e.getMessage());
+            failed.incrementAndGet();
+            System.err.println("Error initializing data for " + symbol + ": " + e.getMessage());
+        }
+        int done = completed.incrementAndGet();
+        int step = Math.max(1, total / 10);
+        if (done % step == 0 && done < total) {
+            System.out.println("Bootstrap: " + done + "/" + total + " symbols, " + barsWritten.get() + " bars, "
+                + signalsWritten.get() + " signals, " + (System.currentTimeMillis() - startedAt) + " ms");
         }
     }
     
+    /**
+     * Append daily bars from the symbol's last stored bar up to yesterday, continuing from its
+     * last close, plus the signals for them; returns false when the series was already current
+     */
+    private boolean backfillSymbol(int index, String symbol, LocalDateTime last, LocalDateTime now) {
+        // Series end the day before they were generated, like the initial ones; counted in calendar
+        // days, since the bars keep the time of day of the run that generated them
+        int missingDays = (int) ChronoUnit.DAYS.between(last.toLocalDate(), now.toLocalDate()) - 1;
+        if (missingDays < 1) {
+            return false;
+        }
+        StockDataEntity lastBar = stockDataService.getLatestBySymbol(symbol);
+        // A random walk seeded per symbol like the initial series; the gap's start day is mixed into
+        // the seed so the gap does not replay the series' opening bars, and a regime would play out
+        // its whole episode within the gap
+        LocalDateTime start = last.plusDays(1);
+        SyntheticMarketGenerator generator = new SyntheticMarketGenerator(
+            seed + start.toLocalDate().toEpochDay(), Duration.ofDays(1));
+        List<StockData> gap = SyntheticMarketGenerator.toStockData(generator.generate(
+            index, Regime.RANDOM, start, missingDays, lastBar.getClose()));
+        // The pipeline also computes the signals of the new bars
+        record(ingestionPipeline.ingest(symbol, gap));
+        return true;
+    }
+    
+    private void generateSampleDataForSymbol(SyntheticMarketGenerator generator, int index, String symbol,
+                                             LocalDateTime now) {
+        // Generate different patterns for different symbols
+        String pattern = getPatternForSymbol(symbol);
+        double startPrice;
+        switch (pattern) {
+            case "bearish":
+                startPrice = 150.0;
+                break;
+            case "sideways":
+                startPrice = 120.0;
+                break;
+            case "volatile":
+                startPrice = 80.0;
+                break;
+            default:
+                startPrice = 100.0;
+        }
+        List<StockData> stockDataList = SyntheticMarketGenerator.toStockData(generator.generate(
+            index, Regime.fromPattern(pattern), now.minusDays(barsPerSymbol), barsPerSymbol, startPrice));
+        
+        // Bars and the prediction signals computed from them, through the ingestion pipeline
+        record(ingestionPipeline.ingest(symbol, stockDataList));
+    }
+    
+    private void record(IngestionPipeline.Result result) {
+        barsWritten.addAndGet(result.getBars().size());
+        signalsWritten.addAndGet(result.getSignals());
+    }
+    
     private String getPatternForSymbol(String symbol) {
         // Assign different patterns to different symbols for variety
         switch (symbol) {
@@ -104,25 +232,4 @@ public class DataInitializationService implements CommandLineRunner {
                 return "random";
         }
     }
-    
-    private void generatePredictionSignals(String symbol, List<StockData> stockDataList) {
-        try {
-            // Use existing prediction engine to generate signals
-            stockprediction.engine.PredictionEngine engine = 
-                new stockprediction.engine.PredictionEngine();
-            
-            List<stockprediction.model.PredictionSignal> signals = 
-                engine.analyzeTrend(stockDataList);
-            
-            // Convert and save signals
-            for (stockprediction.model.PredictionSignal signal : signals) {
-                predictionSignalService.saveFromPredictionSignal(signal, symbol);
-            }
-            
-            System.out.println("Generated " + signals.size() + " prediction signals for " + symbol);
-            
-        } catch (Exception e) {
-            System.err.println("Error generating prediction signals for " + symbol + ": " + e.getMessage());
-        }
-    }
 }
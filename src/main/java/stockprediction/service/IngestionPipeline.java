@@ -0,0 +1,765 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import stockprediction.data.WriteAheadLog;
+import stockprediction.engine.PredictionEngine;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.model.PredictionSignal;
+import stockprediction.model.StockData;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Staged ingestion of bars. Every producer (POST /stocks/{symbol}/batch, the market data fetcher,
+ * the startup bootstrap) submits batches here instead of writing to the repository itself:
+ *   validate  drop bars with missing or inconsistent prices or a negative volume
+ *   dedupe    one bar per (symbol, timestamp): within the batch, against stored bars and against
+ *             bars still on their way to the database
+ *   log       with ingest.wal.enabled: append to the write-ahead log, one fsync for every batch
+ *             waiting (group commit), then acknowledge the producers of accept()
+ *   persist   bulk insert, several producer batches per round trip (up to ingest.persist-batch bars,
+ *             lingering for more with the log on), then checkpoint the log
+ *   index     StockDataSavedEvent: screener indicator state, rollups, correlations, spreads,
+ *             continuous contracts, stream subscribers
+ *   evaluate  prediction engine over the symbol's recent bars, signals for the new ones; the batches
+ *             taken together are evaluated in parallel on their symbols' lanes (SymbolLanes)
+ *   publish   store the signals not stored yet (PredictionSignalSavedEvent) on their symbols' lanes,
+ *             where re-analysis stores its signals too, and complete the producer's future
+ * Each stage runs on one thread and reads a bounded lock-free queue, bounded by bars rather than
+ * batches. A producer that finds the first queue full waits for room and gives up after its
+ * timeout with RejectedExecutionException; a stage whose successor is full waits the same way.
+ * A burst (ATO/ATC auctions) therefore holds at most the sum of the queue capacities in memory.
+ *
+ * Batches logged but not yet checkpointed are replayed through dedupe and persist when the
+ * application starts, before the bootstrap runs, so a crash loses nothing that was acknowledged.
+ * A logged batch whose persist fails is retried from the log the same way while running.
+ */
+@Service
+public class IngestionPipeline {
+
+    /**
+     * Pipeline stages, in order
+     */
+    public enum Stage {
+        VALIDATE, DEDUPE, LOG, PERSIST, INDEX, EVALUATE, PUBLISH
+    }
+
+    // Throughput is reported over this many seconds
+    private static final int RATE_WINDOW_SECONDS = 10;
+    private static final long LINGER_POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Autowired
+    private StockDataService stockDataService;
+
+    @Autowired
+    private PredictionSignalService predictionSignalService;
+
+    @Autowired
+    private SymbolLanes symbolLanes;
+
+    @Value("${ingest.queue-capacity:50000}")
+    private long queueCapacity;
+
+    @Value("${ingest.persist-batch:1000}")
+    private int persistBatch;
+
+    @Value("${ingest.offer-timeout-ms:1000}")
+    private long offerTimeoutMillis;
+
+    @Value("${ingest.evaluate-signals:true}")
+    private boolean evaluateSignals;
+
+    @Value("${ingest.signal-lookback-bars:100}")
+    private int signalLookbackBars;
+
+    @Value("${ingest.wal.enabled:false}")
+    private boolean walEnabled;
+
+    @Value("${ingest.wal.dir:${storage.path:./data}/wal}")
+    private String walDirectory;
+
+    @Value("${ingest.wal.segment-mb:64}")
+    private int walSegmentMegabytes;
+
+    @Value("${ingest.wal.group-bars:5000}")
+    private int walGroupBars;
+
+    @Value("${ingest.wal.persist-linger-ms:50}")
+    private long persistLingerMillis;
+
+    @Value("${ingest.wal.retry-ms:1000}")
+    private long walRetryMillis;
+
+    // Timestamps that passed dedupe but are not written yet, per symbol
+    private final ConcurrentMap<String, Set<LocalDateTime>> pending = new ConcurrentHashMap<>();
+    // Batches per symbol whose bars are stored but whose signals are not published yet
+    private final ConcurrentMap<String, Integer> unpublished = new ConcurrentHashMap<>();
+    private final Map<Stage, Worker> workers = new EnumMap<>(Stage.class);
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private volatile boolean running;
+
+    private WriteAheadLog wal;
+    // LSNs of logged batches whose persist failed; the checkpoint stays below the first one until
+    // a retry of that batch from the log stores it (or finds its bars stored already)
+    private final ConcurrentSkipListSet<Long> unstored = new ConcurrentSkipListSet<>();
+
+    @PostConstruct
+    void start() throws IOException {
+        workers.put(Stage.VALIDATE, new Worker(Stage.VALIDATE, 0, 0, this::validate));
+        workers.put(Stage.DEDUPE, new Worker(Stage.DEDUPE, 0, 0, this::dedupe));
+        if (walEnabled) {
+            wal = new WriteAheadLog(Path.of(walDirectory), walSegmentMegabytes << 20);
+            workers.put(Stage.LOG, new Worker(Stage.LOG, Math.max(1, walGroupBars), 0, this::log));
+        }
+        // Logged bars are safe while they wait, so persist can wait for fuller batches
+        workers.put(Stage.PERSIST, new Worker(Stage.PERSIST, Math.max(1, persistBatch),
+            walEnabled ? persistLingerMillis : 0, this::persist));
+        workers.put(Stage.INDEX, new Worker(Stage.INDEX, 0, 0, this::index));
+        workers.put(Stage.EVALUATE, new Worker(Stage.EVALUATE, Math.max(1, persistBatch), 0, this::evaluate));
+        workers.put(Stage.PUBLISH, new Worker(Stage.PUBLISH, 0, 0, this::publish));
+        Worker previous = null;
+        for (Worker worker : workers.values()) {
+            if (previous != null) {
+                previous.next = worker;
+            }
+            previous = worker;
+        }
+        running = true;
+        workers.values().forEach(worker -> worker.thread.start());
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        workers.values().forEach(worker -> worker.thread.interrupt());
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    /**
+     * Replay the batches the write-ahead log holds beyond its checkpoint; runs before the
+     * command-line runners (the bootstrap) and waits until they are stored
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void replayLog() {
+        if (wal == null || wal.getRecovered().isEmpty()) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        List<CompletableFuture<Result>> replays = new ArrayList<>();
+        long bars = 0;
+        for (WriteAheadLog.Entry entry : wal.getRecovered()) {
+            Batch batch = new Batch(entry.getSymbol(), entry.getBars());
+            batch.lsn = entry.getLsn();
+            try {
+                // Already validated and logged: straight to dedupe
+                workers.get(Stage.DEDUPE).queue.offer(batch, Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            replays.add(batch.future);
+            bars += entry.getBars().size();
+        }
+        int stored = 0;
+        for (CompletableFuture<Result> replay : replays) {
+            stored += replay.join().getBars().size();
+        }
+        replayed.addAndGet(replays.size());
+        System.out.println("Ingest: replayed " + replays.size() + " batches (" + bars + " bars, " + stored
+            + " not yet stored) from the write-ahead log in " + (System.currentTimeMillis() - startedAt) + " ms");
+    }
+
+    /**
+     * Queue bars of a symbol, waiting up to ingest.offer-timeout-ms for room. The future fails with
+     * RejectedExecutionException when the pipeline stays full, and completes once the bars are
+     * stored, indexed and evaluated.
+     */
+    public CompletableFuture<Result> submit(String symbol, List<StockData> bars) {
+        return enqueue(symbol, bars, TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis)).future;
+    }
+
+    /**
+     * Like submit, but the future completes as soon as the bars are durable: fsynced to the
+     * write-ahead log, or stored when the log is off. The result has no stored bars yet.
+     */
+    public CompletableFuture<Result> accept(String symbol, List<StockData> bars) {
+        return enqueue(symbol, bars, TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis)).durable;
+    }
+
+    /**
+     * Whether stored bars of the symbol still wait for their signals: a re-analysis now would
+     * repeat the evaluation the pipeline is about to publish
+     */
+    public boolean hasUnpublished(String symbol) {
+        return unpublished.containsKey(symbol);
+    }
+
+    public boolean isWriteAheadLogEnabled() {
+        return wal != null;
+    }
+
+    /**
+     * Queue bars of a symbol, waiting as long as it takes for room, and wait for the result
+     */
+    public Result ingest(String symbol, List<StockData> bars) {
+        return enqueue(symbol, bars, Long.MAX_VALUE).future.join();
+    }
+
+    private Batch enqueue(String symbol, List<StockData> bars, long timeoutNanos) {
+        Batch batch = new Batch(symbol, bars);
+        if (!running) {
+            batch.fail(new RejectedExecutionException("Ingestion pipeline is stopped"));
+            return batch;
+        }
+        try {
+            if (!workers.get(Stage.VALIDATE).queue.offer(batch, timeoutNanos)) {
+                rejected.incrementAndGet();
+                batch.fail(new RejectedExecutionException("Ingestion pipeline is full"));
+                return batch;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.fail(new RejectedExecutionException("Interrupted while waiting for the pipeline"));
+            return batch;
+        }
+        submitted.incrementAndGet();
+        return batch;
+    }
+
+    /**
+     * Per-stage queue depth, lag (age of the oldest waiting batch) and throughput
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running);
+        status.put("submitted", submitted.get());
+        status.put("rejected", rejected.get());
+        status.put("replayed", replayed.get());
+        status.put("queueCapacity", queueCapacity);
+        Map<String, Object> stages = new LinkedHashMap<>();
+        long now = System.nanoTime();
+        for (Worker worker : workers.values()) {
+            Map<String, Object> stage = new LinkedHashMap<>();
+            Batch oldest = worker.queue.peek();
+            stage.put("queuedBatches", worker.queue.size());
+            stage.put("queuedBars", worker.queue.weight());
+            stage.put("lagMs", oldest == null ? 0 : TimeUnit.NANOSECONDS.toMillis(now - oldest.enqueuedAt));
+            stage.put("batches", worker.batches.get());
+            stage.put("bars", worker.bars.get());
+            stage.put("barsPerSecond", Math.round(worker.rate.perSecond()));
+            stage.put("busyMs", TimeUnit.NANOSECONDS.toMillis(worker.busyNanos.get()));
+            stage.put("failures", worker.failures.get());
+            stages.put(worker.stage.name().toLowerCase(), stage);
+        }
+        status.put("stages", stages);
+        if (wal != null) {
+            Map<String, Object> walStatus = new LinkedHashMap<>(wal.getStatus());
+            walStatus.put("retried", retried.get());
+            walStatus.put("unstoredBatches", unstored.size());
+            status.put("wal", walStatus);
+        }
+        return status;
+    }
+
+    private List<Batch> validate(List<Batch> batches) {
+        for (Batch batch : batches) {
+            List<StockData> valid = batch.bars.stream().filter(IngestionPipeline::isValid).collect(Collectors.toList());
+            batch.rejected = batch.bars.size() - valid.size();
+            batch.bars = valid;
+        }
+        return passOn(batches);
+    }
+
+    private List<Batch> dedupe(List<Batch> batches) {
+        for (Batch batch : batches) {
+            // Sorted by time, first bar of each timestamp wins
+            TreeMap<LocalDateTime, StockData> byTime = new TreeMap<>();
+            batch.bars.forEach(bar -> byTime.putIfAbsent(bar.getTimestamp(), bar));
+            if (byTime.isEmpty()) {
+                continue;
+            }
+            Set<LocalDateTime> stored = stockDataService.getStoredTimestamps(batch.symbol, byTime.firstKey(), byTime.lastKey());
+            Set<LocalDateTime> inFlight = pending.computeIfAbsent(batch.symbol, symbol -> ConcurrentHashMap.newKeySet());
+            List<StockData> fresh = new ArrayList<>();
+            for (StockData bar : byTime.values()) {
+                if (!stored.contains(bar.getTimestamp()) && inFlight.add(bar.getTimestamp())) {
+                    fresh.add(bar);
+                }
+            }
+            batch.duplicates = batch.bars.size() - fresh.size();
+            batch.bars = fresh;
+        }
+        return passOn(batches);
+    }
+
+    private List<Batch> log(List<Batch> batches) {
+        try {
+            for (Batch batch : batches) {
+                // Replayed batches are in the log already
+                if (batch.lsn == 0) {
+                    batch.lsn = wal.append(batch.symbol, batch.bars);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        wal.sync();
+        batches.forEach(Batch::acknowledge);
+        return batches;
+    }
+
+    private List<Batch> persist(List<Batch> batches) {
+        List<StockDataEntity> entities = new ArrayList<>();
+        for (Batch batch : batches) {
+            batch.stored = stockDataService.toEntities(batch.bars, batch.symbol);
+            entities.addAll(batch.stored);
+        }
+        try {
+            stockDataService.writeAll(entities);
+        } catch (RuntimeException e) {
+            batches.stream().filter(batch -> batch.lsn > 0).forEach(this::scheduleRetry);
+            throw e;
+        } finally {
+            // Written (now visible to the stored-timestamp check) or failed: either way no longer pending
+            batches.forEach(this::release);
+        }
+        batches.forEach(this::trackUnpublished);
+        if (wal == null) {
+            batches.forEach(Batch::acknowledge);
+        } else {
+            batches.forEach(batch -> unstored.remove(batch.lsn));
+            checkpoint(batches.stream().mapToLong(batch -> batch.lsn).max().orElse(0));
+        }
+        return batches;
+    }
+
+    /**
+     * A logged batch failed to persist: its bars are still in the log, so hold the checkpoint
+     * below it and send it through dedupe and persist again after ingest.wal.retry-ms, the way
+     * replayLog does after a restart. Its caller has seen the failure already.
+     */
+    private void scheduleRetry(Batch failed) {
+        unstored.add(failed.lsn);
+        System.err.println("Ingest: persist of " + failed.symbol + " (LSN " + failed.lsn + ") failed, retrying from the "
+            + "write-ahead log in " + walRetryMillis + " ms; checkpoint held below it");
+        Batch retry = new Batch(failed.symbol, failed.bars);
+        retry.lsn = failed.lsn;
+        // Dedupe completes a batch whose bars are all stored by now without passing it to persist
+        retry.future.thenRun(() -> unstored.remove(retry.lsn));
+        CompletableFuture.runAsync(() -> {
+            try {
+                if (running) {
+                    retried.incrementAndGet();
+                    workers.get(Stage.DEDUPE).queue.offer(retry, Long.MAX_VALUE);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, CompletableFuture.delayedExecutor(walRetryMillis, TimeUnit.MILLISECONDS));
+    }
+
+    private void checkpoint(long lsn) {
+        Long firstUnstored = unstored.ceiling(0L);
+        try {
+            wal.checkpoint(firstUnstored == null ? lsn : Math.min(lsn, firstUnstored - 1));
+        } catch (IOException e) {
+            // The bars are stored; at worst they are replayed (and dropped as duplicates) after a restart
+            System.err.println("Ingest: write-ahead log checkpoint failed: " + e.getMessage());
+        }
+    }
+
+    private void trackUnpublished(Batch batch) {
+        unpublished.merge(batch.symbol, 1, Integer::sum);
+        batch.future.whenComplete((result, error) ->
+            unpublished.computeIfPresent(batch.symbol, (symbol, count) -> count == 1 ? null : count - 1));
+    }
+
+    /**
+     * The batch's bars are stored or failed: they no longer block their timestamps in dedupe
+     */
+    private void release(Batch batch) {
+        Set<LocalDateTime> inFlight = pending.get(batch.symbol);
+        if (inFlight != null) {
+            batch.bars.forEach(bar -> inFlight.remove(bar.getTimestamp()));
+        }
+    }
+
+    private List<Batch> index(List<Batch> batches) {
+        // With evaluate on, the batch completes once its signals are stored, so re-analysis can skip it
+        batches.forEach(batch -> stockDataService.publishSaved(batch.stored, evaluateSignals ? batch.future : null));
+        return batches;
+    }
+
+    private List<Batch> evaluate(List<Batch> batches) {
+        if (!evaluateSignals) {
+            return batches;
+        }
+        Map<Batch, CompletableFuture<List<PredictionSignal>>> evaluations = new LinkedHashMap<>();
+        for (Batch batch : batches) {
+            evaluations.put(batch, symbolLanes.submit(batch.symbol, () -> signalsFor(batch)));
+        }
+        List<Batch> evaluated = new ArrayList<>(batches.size());
+        evaluations.forEach((batch, evaluation) -> {
+            try {
+                batch.signals = evaluation.join();
+                evaluated.add(batch);
+            } catch (CompletionException e) {
+                // Only this batch fails; the others taken with it go on
+                System.err.println("Ingest EVALUATE failed for " + batch.symbol + ": " + e.getCause().getMessage());
+                batch.fail(e.getCause());
+            }
+        });
+        return evaluated;
+    }
+
+    private List<PredictionSignal> signalsFor(Batch batch) {
+        LocalDateTime first = batch.stored.get(0).getTimestamp();
+        LocalDateTime last = batch.stored.get(batch.stored.size() - 1).getTimestamp();
+        // The new bars plus enough history before them; later batches may already be stored
+        List<StockData> history = stockDataService.convertToStockDataList(
+            stockDataService.getLatestBars(batch.symbol, last, batch.stored.size() + Math.max(0, signalLookbackBars)));
+        if (history.size() < PredictionEngine.MIN_BARS) {
+            return Collections.emptyList();
+        }
+        return new PredictionEngine().analyzeTrend(history).stream()
+            .filter(signal -> !signal.getTimestamp().isBefore(first))
+            .collect(Collectors.toList());
+    }
+
+    private List<Batch> publish(List<Batch> batches) {
+        // A re-analysis may have stored some of the signals since evaluate; on the lane the check
+        // and the insert cannot interleave with one
+        Map<Batch, CompletableFuture<Integer>> inserts = new LinkedHashMap<>();
+        for (Batch batch : batches) {
+            inserts.put(batch, batch.signals.isEmpty() ? CompletableFuture.completedFuture(0)
+                : symbolLanes.submit(batch.symbol,
+                    () -> predictionSignalService.insertNewFromPredictionSignalList(batch.signals, batch.symbol).size()));
+        }
+        inserts.forEach((batch, insert) -> {
+            try {
+                batch.signalsStored = insert.join();
+                batch.complete();
+            } catch (CompletionException e) {
+                System.err.println("Ingest PUBLISH failed for " + batch.symbol + ": " + e.getCause().getMessage());
+                batch.fail(e.getCause());
+            }
+        });
+        return Collections.emptyList();
+    }
+
+    /**
+     * Batches with bars left go on; the others are done here
+     */
+    private static List<Batch> passOn(List<Batch> batches) {
+        List<Batch> next = new ArrayList<>(batches.size());
+        for (Batch batch : batches) {
+            if (batch.bars.isEmpty()) {
+                batch.complete();
+            } else {
+                next.add(batch);
+            }
+        }
+        return next;
+    }
+
+    private static boolean isValid(StockData bar) {
+        if (bar == null || bar.getTimestamp() == null || bar.getVolume() < 0) {
+            return false;
+        }
+        double open = bar.getOpen(), high = bar.getHigh(), low = bar.getLow(), close = bar.getClose();
+        if (!(open > 0 && high > 0 && low > 0 && close > 0) || !Double.isFinite(high)) {
+            return false;
+        }
+        return high >= Math.max(open, close) && low <= Math.min(open, close);
+    }
+
+    /**
+     * What became of one submitted batch
+     */
+    public static class Result {
+
+        private final String symbol;
+        private final int accepted;
+        private final List<StockDataEntity> bars;
+        private final int rejected;
+        private final int duplicates;
+        private final int signals;
+
+        Result(String symbol, int accepted, List<StockDataEntity> bars, int rejected, int duplicates, int signals) {
+            this.symbol = symbol;
+            this.accepted = accepted;
+            this.bars = bars;
+            this.rejected = rejected;
+            this.duplicates = duplicates;
+            this.signals = signals;
+        }
+
+        public String getSymbol() { return symbol; }
+        public int getAccepted() { return accepted; }
+        public List<StockDataEntity> getBars() { return bars; }
+        public int getRejected() { return rejected; }
+        public int getDuplicates() { return duplicates; }
+        public int getSignals() { return signals; }
+    }
+
+    /**
+     * A producer's batch on its way through the stages
+     */
+    private static final class Batch {
+
+        final String symbol;
+        final CompletableFuture<Result> future = new CompletableFuture<>();
+        final CompletableFuture<Result> durable = new CompletableFuture<>();
+        List<StockData> bars;
+        List<StockDataEntity> stored = Collections.emptyList();
+        List<PredictionSignal> signals = Collections.emptyList();
+        int signalsStored;
+        int rejected;
+        int duplicates;
+        long lsn;
+        // Set when the batch enters a queue, read for the lag and the queue weight
+        volatile long enqueuedAt;
+        volatile long weight;
+
+        Batch(String symbol, List<StockData> bars) {
+            this.symbol = symbol;
+            this.bars = bars;
+        }
+
+        void acknowledge() {
+            durable.complete(new Result(symbol, bars.size(), Collections.emptyList(), rejected, duplicates, 0));
+        }
+
+        void complete() {
+            acknowledge();
+            future.complete(new Result(symbol, stored.size(), stored, rejected, duplicates, signalsStored));
+        }
+
+        void fail(Throwable error) {
+            durable.completeExceptionally(error);
+            future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * One stage: a thread taking batches from its queue, handing the ones that go on to the next stage
+     */
+    private final class Worker implements Runnable {
+
+        final Stage stage;
+        final BoundedQueue queue = new BoundedQueue(queueCapacity);
+        final int drainBars;
+        final long lingerNanos;
+        final Function<List<Batch>, List<Batch>> handler;
+        final Thread thread;
+        final AtomicLong batches = new AtomicLong();
+        final AtomicLong bars = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong busyNanos = new AtomicLong();
+        final RateWindow rate = new RateWindow();
+        volatile Worker next;
+
+        // drainBars > 0: take several batches at once, up to that many bars, waiting up to lingerMillis for them
+        Worker(Stage stage, int drainBars, long lingerMillis, Function<List<Batch>, List<Batch>> handler) {
+            this.stage = stage;
+            this.drainBars = drainBars;
+            this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+            this.handler = handler;
+            this.thread = new Thread(this, "ingest-" + stage.name().toLowerCase());
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                List<Batch> work;
+                try {
+                    work = take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long startedAt = System.nanoTime();
+                long size = work.stream().mapToLong(batch -> batch.weight).sum();
+                List<Batch> done;
+                try {
+                    done = handler.apply(work);
+                } catch (RuntimeException e) {
+                    failures.addAndGet(work.size());
+                    System.err.println("Ingest " + stage + " failed for " + work.size() + " batch(es): " + e.getMessage());
+                    if (stage.compareTo(Stage.PERSIST) <= 0) {
+                        work.forEach(IngestionPipeline.this::release);
+                    }
+                    work.forEach(batch -> batch.fail(e));
+                    continue;
+                } finally {
+                    busyNanos.addAndGet(System.nanoTime() - startedAt);
+                    batches.addAndGet(work.size());
+                    bars.addAndGet(size);
+                    rate.add(size);
+                }
+                for (Batch batch : done) {
+                    try {
+                        // Backpressure between stages: wait for room downstream
+                        next.queue.offer(batch, Long.MAX_VALUE);
+                    } catch (InterruptedException e) {
+                        batch.fail(new RejectedExecutionException("Ingestion pipeline stopped"));
+                        return;
+                    }
+                }
+            }
+        }
+
+        private List<Batch> take() throws InterruptedException {
+            List<Batch> work = new ArrayList<>();
+            work.add(queue.take());
+            long size = work.get(0).weight;
+            long deadline = System.nanoTime() + lingerNanos;
+            while (size < drainBars) {
+                Batch more = queue.poll();
+                if (more != null) {
+                    work.add(more);
+                    size += more.weight;
+                } else if (lingerNanos > 0 && System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(LINGER_POLL_NANOS);
+                } else {
+                    break;
+                }
+            }
+            return work;
+        }
+    }
+
+    /**
+     * Lock-free queue of batches bounded by their total bar count. Producers reserve room with a
+     * CAS on the weight and park briefly while it is full; the single consumer parks while it is
+     * empty and is unparked by the next offer. A batch larger than the capacity still goes in once
+     * the queue is empty.
+     */
+    private static final class BoundedQueue {
+
+        private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+        private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+        private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+        private final ConcurrentLinkedQueue<Batch> items = new ConcurrentLinkedQueue<>();
+        private final AtomicLong weight = new AtomicLong();
+        private final long capacity;
+        private volatile Thread consumer;
+
+        BoundedQueue(long capacity) {
+            this.capacity = Math.max(1, capacity);
+        }
+
+        boolean offer(Batch batch, long timeoutNanos) throws InterruptedException {
+            long size = Math.max(1, batch.bars.size());
+            long deadline = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeoutNanos;
+            long park = MIN_PARK_NANOS;
+            while (true) {
+                long current = weight.get();
+                if (current == 0 || current + size <= capacity) {
+                    if (weight.compareAndSet(current, current + size)) {
+                        batch.weight = size;
+                        batch.enqueuedAt = System.nanoTime();
+                        items.offer(batch);
+                        LockSupport.unpark(consumer);
+                        return true;
+                    }
+                    continue;
+                }
+                long left = deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.parkNanos(this, Math.min(park, left));
+                park = Math.min(park * 2, MAX_PARK_NANOS);
+            }
+        }
+
+        Batch poll() {
+            Batch batch = items.poll();
+            if (batch != null) {
+                weight.addAndGet(-batch.weight);
+            }
+            return batch;
+        }
+
+        Batch take() throws InterruptedException {
+            consumer = Thread.currentThread();
+            while (true) {
+                Batch batch = poll();
+                if (batch != null) {
+                    return batch;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+
+        Batch peek() {
+            return items.peek();
+        }
+
+        int size() {
+            return items.size();
+        }
+
+        long weight() {
+            return weight.get();
+        }
+    }
+
+    /**
+     * Bars per second over the last RATE_WINDOW_SECONDS, in one-second buckets
+     */
+    private static final class RateWindow {
+
+        private final long[] counts = new long[RATE_WINDOW_SECONDS];
+        private final long[] seconds = new long[RATE_WINDOW_SECONDS];
+
+        synchronized void add(long count) {
+            long now = System.currentTimeMillis() / 1000;
+            int slot = (int) (now % RATE_WINDOW_SECONDS);
+            if (seconds[slot] != now) {
+                seconds[slot] = now;
+                counts[slot] = 0;
+            }
+            counts[slot] += count;
+        }
+
+        synchronized double perSecond() {
+            long now = System.currentTimeMillis() / 1000;
+            long total = 0;
+            for (int slot = 0; slot < RATE_WINDOW_SECONDS; slot++) {
+                if (now - seconds[slot] < RATE_WINDOW_SECONDS) {
+                    total += counts[slot];
+                }
+            }
+            return total / (double) RATE_WINDOW_SECONDS;
+        }
+    }
+}
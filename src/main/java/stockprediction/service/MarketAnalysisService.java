@@ -1,6 +1,8 @@
 package stockprediction.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import stockprediction.entity.StockDataEntity;
 import stockprediction.entity.PredictionSignalEntity;
@@ -25,52 +27,133 @@ public class MarketAnalysisService {
     @Autowired
     private PredictionSignalRepository predictionSignalRepository;
     
+    @Autowired
+    private SpreadAnalyticsService spreadAnalyticsService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
     private final TechnicalIndicators technicalIndicators = new TechnicalIndicators();
     
     private final PredictionEngine predictionEngine = new PredictionEngine();
     
+    // Bars per symbol the analysis looks at
+    private static final int ANALYSIS_BARS = 100;
+    
+    // The symbol IN list is filled in per call; rows come back newest first within each symbol
+    private static final String LATEST_BARS_SQL =
+        "SELECT symbol, id, timestamp, open_price, high_price, low_price, close_price, volume FROM (" +
+        "SELECT symbol, id, timestamp, open_price, high_price, low_price, close_price, volume, " +
+        "ROW_NUMBER() OVER (PARTITION BY symbol ORDER BY timestamp DESC, id DESC) AS rn " +
+        "FROM stock_data WHERE symbol IN (%s)) ranked WHERE rn <= ? ORDER BY symbol, timestamp DESC, id DESC";
+    
     /**
      * Get comprehensive market analysis for TradingView
      */
     public Map<String, Object> getMarketAnalysis(String symbol) {
         try {
-            // Get recent stock data
-            List<StockDataEntity> recentData = stockDataRepository
-                .findLatestBySymbol(symbol)
-                .stream()
-                .limit(100)
-                .collect(Collectors.toList());
-            
-            if (recentData.isEmpty()) {
-                return generateMockAnalysis(symbol);
-            }
-            
-            // Calculate technical indicators
-            Map<String, Object> analysis = calculateTechnicalAnalysis(recentData);
-            
-            // Generate prediction signal
-            Map<String, Object> signal = generatePredictionSignal(recentData, analysis);
-            
-            // Market sentiment analysis
-            Map<String, Object> sentiment = analyzeMarketSentiment(recentData);
-            
-            // Combine all analysis
-            Map<String, Object> result = new HashMap<>();
-            result.put("symbol", symbol);
-            result.put("timestamp", LocalDateTime.now());
-            result.put("technicalAnalysis", analysis);
-            result.put("predictionSignal", signal);
-            result.put("marketSentiment", sentiment);
-            result.put("dataQuality", "real");
-            
-            return result;
-            
+            return analyze(symbol, findLatestBars(symbol));
         } catch (Exception e) {
             System.err.println("Error in market analysis for " + symbol + ": " + e.getMessage());
             return generateMockAnalysis(symbol);
         }
     }
     
+    /**
+     * Market analysis of several symbols in one call. The latest bars of every stored symbol are
+     * read with one query, then the symbols are analyzed one after another on the calling thread
+     * (the ANALYSIS bulkhead's); each entry is what getMarketAnalysis(symbol) would return.
+     * Results keep the request order.
+     */
+    public Map<String, Object> getBatchAnalysis(List<String> symbols) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(symbols));
+        List<String> stored = distinct.stream()
+            .filter(symbol -> !spreadAnalyticsService.isVirtual(symbol))
+            .collect(Collectors.toList());
+        
+        Map<String, List<StockDataEntity>> barsBySymbol = stored.isEmpty()
+            ? Collections.emptyMap()
+            : findLatestBars(stored);
+        
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (String symbol : distinct) {
+            try {
+                List<StockDataEntity> recentData = spreadAnalyticsService.isVirtual(symbol)
+                    ? findLatestBars(symbol)
+                    : barsBySymbol.getOrDefault(symbol, Collections.emptyList());
+                results.put(symbol, analyze(symbol, recentData));
+            } catch (Exception e) {
+                System.err.println("Error in market analysis for " + symbol + ": " + e.getMessage());
+                results.put(symbol, generateMockAnalysis(symbol));
+            }
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("count", results.size());
+        response.put("results", results);
+        return response;
+    }
+    
+    private Map<String, Object> analyze(String symbol, List<StockDataEntity> recentData) {
+        if (recentData.isEmpty()) {
+            return generateMockAnalysis(symbol);
+        }
+        
+        // Calculate technical indicators
+        Map<String, Object> analysis = calculateTechnicalAnalysis(recentData);
+        
+        // Generate prediction signal
+        Map<String, Object> signal = generatePredictionSignal(recentData, analysis);
+        
+        // Market sentiment analysis
+        Map<String, Object> sentiment = analyzeMarketSentiment(recentData);
+        
+        // Combine all analysis
+        Map<String, Object> result = new HashMap<>();
+        result.put("symbol", symbol);
+        result.put("timestamp", LocalDateTime.now());
+        result.put("technicalAnalysis", analysis);
+        result.put("predictionSignal", signal);
+        result.put("marketSentiment", sentiment);
+        result.put("dataQuality", "real");
+        
+        return result;
+    }
+    
+    /**
+     * The latest ANALYSIS_BARS bars, newest first; spread symbols are computed instead of read from the repository
+     */
+    private List<StockDataEntity> findLatestBars(String symbol) {
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            List<StockDataEntity> bars = new ArrayList<>(spreadAnalyticsService.getEntities(symbol));
+            Collections.reverse(bars);
+            return bars.size() > ANALYSIS_BARS ? bars.subList(0, ANALYSIS_BARS) : bars;
+        }
+        return stockDataRepository.findLatestBySymbol(symbol, PageRequest.of(0, ANALYSIS_BARS));
+    }
+    
+    /**
+     * The latest ANALYSIS_BARS bars of each stored symbol, newest first, in one windowed query
+     */
+    private Map<String, List<StockDataEntity>> findLatestBars(List<String> symbols) {
+        String sql = String.format(LATEST_BARS_SQL, String.join(", ", Collections.nCopies(symbols.size(), "?")));
+        Object[] args = new Object[symbols.size() + 1];
+        for (int i = 0; i < symbols.size(); i++) {
+            args[i] = symbols.get(i);
+        }
+        args[symbols.size()] = ANALYSIS_BARS;
+        Map<String, List<StockDataEntity>> bars = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            String symbol = rs.getString("symbol");
+            StockDataEntity bar = new StockDataEntity(symbol, rs.getTimestamp("timestamp").toLocalDateTime(),
+                rs.getDouble("open_price"), rs.getDouble("high_price"), rs.getDouble("low_price"),
+                rs.getDouble("close_price"), rs.getLong("volume"));
+            bar.setId(rs.getLong("id"));
+            bars.computeIfAbsent(symbol, key -> new ArrayList<>(ANALYSIS_BARS)).add(bar);
+        }, args);
+        return bars;
+    }
+    
     /**
      * Calculate technical analysis indicators
      */
@@ -389,7 +472,10 @@ public class MarketAnalysisService {
         return "NEUTRAL";
     }
     
-    private double calculateVolatility(double[] prices) {
+    /**
+     * Relative dispersion of prices (std dev / mean); also used by RiskService as a volatility fallback
+     */
+    static double calculateVolatility(double[] prices) {
         if (prices.length < 2) return 0.0;
         
         double mean = Arrays.stream(prices).average().orElse(0.0);
@@ -0,0 +1,297 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import stockprediction.data.MarketDataProvider;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.model.StockData;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Pulls bars from the configured MarketDataProvider into storage. Many symbols are fetched at
+ * once on a small pool, while a token bucket keeps provider calls under marketdata.rate-per-second.
+ * Each symbol asks only for bars newer than its last stored one. Failed calls are retried with
+ * exponential backoff and jitter. New bars go through the ingestion pipeline, which drops
+ * duplicates on (symbol, timestamp). A symbol is never fetched twice at the same time: a second
+ * caller waits for the fetch in progress.
+ */
+@Service
+public class MarketDataFetchService {
+
+    @Autowired
+    private MarketDataProvider provider;
+
+    @Autowired
+    private StockDataService stockDataService;
+
+    @Autowired
+    private IngestionPipeline ingestionPipeline;
+
+    @Value("${marketdata.threads:4}")
+    private int threads;
+
+    @Value("${marketdata.rate-per-second:5}")
+    private double ratePerSecond;
+
+    @Value("${marketdata.burst:10}")
+    private int burst;
+
+    @Value("${marketdata.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${marketdata.backoff-ms:500}")
+    private long backoffMillis;
+
+    @Value("${marketdata.max-backoff-ms:8000}")
+    private long maxBackoffMillis;
+
+    private final ConcurrentMap<String, CompletableFuture<FetchResult>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong barsStored = new AtomicLong();
+    private final AtomicLong barsDropped = new AtomicLong();
+
+    private ExecutorService pool;
+    private TokenBucket rateLimit;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadId = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "marketdata-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        rateLimit = ratePerSecond > 0 ? new TokenBucket(ratePerSecond, Math.max(1, burst)) : null;
+    }
+
+    @PreDestroy
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Fetch and store the new bars of one symbol on the calling thread
+     */
+    public FetchResult fetch(String symbol) {
+        StockDataEntity latest = stockDataService.getLatestBySymbol(symbol);
+        return fetch(symbol, latest == null ? null : latest.getTimestamp());
+    }
+
+    /**
+     * Fetch and store the new bars of many symbols concurrently; returns totals and one entry per symbol
+     */
+    public Map<String, Object> fetchAll(Collection<String> symbols) {
+        long startedAt = System.currentTimeMillis();
+        // One grouped query for every symbol's last stored bar
+        Map<String, LocalDateTime> latest = stockDataService.getLatestTimestamps();
+        List<CompletableFuture<FetchResult>> tasks = new LinkedHashSet<>(symbols).stream()
+            .map(symbol -> CompletableFuture.supplyAsync(() -> fetch(symbol, latest.get(symbol)), pool))
+            .collect(Collectors.toList());
+        List<FetchResult> results = tasks.stream().map(CompletableFuture::join).collect(Collectors.toList());
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("provider", provider.getName());
+        summary.put("symbols", results.size());
+        summary.put("stored", results.stream().mapToInt(result -> result.getBars().size()).sum());
+        summary.put("dropped", results.stream().mapToInt(FetchResult::getDropped).sum());
+        summary.put("failed", results.stream().filter(result -> !result.isSuccess()).count());
+        summary.put("elapsedMs", System.currentTimeMillis() - startedAt);
+        summary.put("results", results.stream().map(FetchResult::toMap).collect(Collectors.toList()));
+        return summary;
+    }
+
+    /**
+     * Provider, limits and counters since startup
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("provider", provider.getName());
+        status.put("ratePerSecond", ratePerSecond > 0 ? ratePerSecond : "unlimited");
+        status.put("burst", burst);
+        status.put("maxAttempts", maxAttempts);
+        status.put("inFlight", inFlight.keySet());
+        status.put("calls", calls.get());
+        status.put("retries", retries.get());
+        status.put("failures", failures.get());
+        status.put("barsStored", barsStored.get());
+        status.put("barsDropped", barsDropped.get());
+        status.put("throttledMs", rateLimit == null ? 0 : TimeUnit.NANOSECONDS.toMillis(rateLimit.waitedNanos.get()));
+        return status;
+    }
+
+    private FetchResult fetch(String symbol, LocalDateTime since) {
+        CompletableFuture<FetchResult> mine = new CompletableFuture<>();
+        CompletableFuture<FetchResult> running = inFlight.putIfAbsent(symbol, mine);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            FetchResult result = fetchAndStore(symbol, since);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(symbol, mine);
+        }
+    }
+
+    private FetchResult fetchAndStore(String symbol, LocalDateTime since) {
+        List<StockData> bars = null;
+        String error = null;
+        int attempt = 0;
+        try {
+            while (bars == null && error == null) {
+                attempt++;
+                if (rateLimit != null) {
+                    rateLimit.acquire();
+                }
+                calls.incrementAndGet();
+                try {
+                    bars = provider.fetchBars(symbol, since);
+                } catch (IOException e) {
+                    if (attempt >= maxAttempts) {
+                        error = e.getMessage();
+                    } else {
+                        retries.incrementAndGet();
+                        TimeUnit.MILLISECONDS.sleep(backoff(attempt));
+                    }
+                } catch (RuntimeException e) {
+                    error = e.getMessage();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "interrupted";
+        }
+        if (bars == null) {
+            failures.incrementAndGet();
+            System.err.println("Market data: " + provider.getName() + " fetch of " + symbol + " failed after "
+                + attempt + " attempt(s): " + error);
+            return new FetchResult(symbol, since, attempt, Collections.emptyList(), 0, error);
+        }
+
+        // Validated, deduplicated and stored by the ingestion pipeline; waits while it is full
+        List<StockData> fresh = since == null ? bars : bars.stream()
+            .filter(bar -> bar.getTimestamp() != null && bar.getTimestamp().isAfter(since))
+            .collect(Collectors.toList());
+        IngestionPipeline.Result result;
+        try {
+            result = ingestionPipeline.ingest(symbol, fresh);
+        } catch (CompletionException e) {
+            failures.incrementAndGet();
+            error = "ingestion failed: " + e.getCause().getMessage();
+            System.err.println("Market data: " + symbol + " " + error);
+            return new FetchResult(symbol, since, attempt, Collections.emptyList(), 0, error);
+        }
+        int dropped = bars.size() - result.getBars().size();
+        barsDropped.addAndGet(dropped);
+        barsStored.addAndGet(result.getBars().size());
+        return new FetchResult(symbol, since, attempt, result.getBars(), dropped, null);
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the delay is fixed, half random
+     */
+    private long backoff(int attempt) {
+        long delay = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Outcome of one symbol's fetch
+     */
+    public static class FetchResult {
+
+        private final String symbol;
+        private final LocalDateTime since;
+        private final int attempts;
+        private final List<StockDataEntity> bars;
+        private final int dropped;
+        private final String error;
+
+        FetchResult(String symbol, LocalDateTime since, int attempts, List<StockDataEntity> bars,
+                    int dropped, String error) {
+            this.symbol = symbol;
+            this.since = since;
+            this.attempts = attempts;
+            this.bars = bars;
+            this.dropped = dropped;
+            this.error = error;
+        }
+
+        public String getSymbol() { return symbol; }
+        public LocalDateTime getSince() { return since; }
+        public int getAttempts() { return attempts; }
+        public List<StockDataEntity> getBars() { return bars; }
+        public int getDropped() { return dropped; }
+        public String getError() { return error; }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("symbol", symbol);
+            map.put("since", since);
+            map.put("attempts", attempts);
+            map.put("stored", bars.size());
+            map.put("dropped", dropped);
+            if (error != null) {
+                map.put("error", error);
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Refills at 'ratePerSecond' up to 'capacity' tokens; each provider call takes one
+     */
+    private static final class TokenBucket {
+
+        private final double tokensPerNano;
+        private final double capacity;
+        private final AtomicLong waitedNanos = new AtomicLong();
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        TokenBucket(double ratePerSecond, int capacity) {
+            this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        void acquire() throws InterruptedException {
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    long now = System.nanoTime();
+                    tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+                    refilledAt = now;
+                    if (tokens >= 1) {
+                        tokens -= 1;
+                        return;
+                    }
+                    waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+                }
+                // Sleep outside the lock; another caller may take the token first, then wait again
+                waitedNanos.addAndGet(waitNanos);
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
@@ -1,14 +1,31 @@
 package stockprediction.service;
 
 import stockprediction.entity.PredictionSignalEntity;
+import stockprediction.event.PredictionSignalDeletedEvent;
+import stockprediction.event.PredictionSignalSavedEvent;
 import stockprediction.model.PredictionSignal;
+import stockprediction.model.KeysetCursor;
+import stockprediction.model.KeysetPage;
+import stockprediction.model.SeriesVersion;
 import stockprediction.repository.PredictionSignalRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -18,21 +35,87 @@ import java.util.stream.Collectors;
 @Transactional
 public class PredictionSignalService {
     
+    private static final String INSERT_SIGNAL_SQL =
+        "INSERT INTO prediction_signals (symbol, timestamp, signal_type, confidence, reason, price, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    
     @Autowired
     private PredictionSignalRepository predictionSignalRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${pagination.default-limit:500}")
+    private int defaultPageLimit;
+    
+    @Value("${pagination.max-limit:5000}")
+    private int maxPageLimit;
+    
+    @Value("${storage.batch-size:1000}")
+    private int batchSize;
+    
     /**
      * Save a single prediction signal entity
      */
     public PredictionSignalEntity save(PredictionSignalEntity signal) {
-        return predictionSignalRepository.save(signal);
+        PredictionSignalEntity saved = predictionSignalRepository.save(signal);
+        publishSaved(Collections.singletonList(saved));
+        return saved;
     }
     
     /**
      * Save multiple prediction signal entities
      */
     public List<PredictionSignalEntity> saveAll(List<PredictionSignalEntity> signals) {
-        return predictionSignalRepository.saveAll(signals);
+        List<PredictionSignalEntity> saved = predictionSignalRepository.saveAll(signals);
+        publishSaved(saved);
+        return saved;
+    }
+    
+    /**
+     * Bulk insert in JDBC batches instead of one persist per row; ids are read back from the
+     * generated keys and the same events as saveAll are published
+     */
+    public List<PredictionSignalEntity> insertAll(List<PredictionSignalEntity> signals) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SIGNAL_SQL, new String[] {"id"})) {
+                for (int from = 0; from < signals.size(); from += batchSize) {
+                    List<PredictionSignalEntity> batch = signals.subList(from, Math.min(signals.size(), from + batchSize));
+                    for (PredictionSignalEntity signal : batch) {
+                        insert.setString(1, signal.getSymbol());
+                        insert.setObject(2, signal.getTimestamp());
+                        insert.setString(3, signal.getSignalType().name());
+                        insert.setDouble(4, signal.getConfidence());
+                        insert.setString(5, signal.getReason());
+                        insert.setDouble(6, signal.getPrice());
+                        insert.setObject(7, signal.getCreatedAt());
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                    try (ResultSet keys = insert.getGeneratedKeys()) {
+                        for (PredictionSignalEntity signal : batch) {
+                            if (!keys.next()) break;
+                            signal.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+        publishSaved(signals);
+        return signals;
+    }
+    
+    /**
+     * Notify listeners (live streams) about newly written signals, one event per symbol
+     */
+    private void publishSaved(List<PredictionSignalEntity> saved) {
+        Map<String, List<PredictionSignalEntity>> bySymbol = saved.stream()
+            .collect(Collectors.groupingBy(PredictionSignalEntity::getSymbol, LinkedHashMap::new, Collectors.toList()));
+        bySymbol.forEach((symbol, signals) -> eventPublisher.publishEvent(new PredictionSignalSavedEvent(symbol, signals)));
     }
     
     /**
@@ -54,7 +137,36 @@ public class PredictionSignalService {
      * Convert and save multiple PredictionSignal objects
      */
     public List<PredictionSignalEntity> saveFromPredictionSignalList(List<PredictionSignal> signals, String symbol) {
-        List<PredictionSignalEntity> entities = signals.stream()
+        return saveAll(toEntities(signals, symbol));
+    }
+    
+    /**
+     * Convert and bulk insert multiple PredictionSignal objects (see insertAll)
+     */
+    public List<PredictionSignalEntity> insertFromPredictionSignalList(List<PredictionSignal> signals, String symbol) {
+        return insertAll(toEntities(signals, symbol));
+    }
+    
+    /**
+     * Bulk insert the signals not stored yet: same symbol, timestamp and signal type
+     */
+    public List<PredictionSignalEntity> insertNewFromPredictionSignalList(List<PredictionSignal> signals, String symbol) {
+        if (signals.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LocalDateTime from = signals.stream().map(PredictionSignal::getTimestamp).min(Comparator.naturalOrder()).get();
+        LocalDateTime to = signals.stream().map(PredictionSignal::getTimestamp).max(Comparator.naturalOrder()).get();
+        Set<String> stored = predictionSignalRepository.findBySymbolAndTimestampBetween(symbol, from, to).stream()
+            .map(signal -> signal.getTimestamp() + "|" + signal.getSignalType().name())
+            .collect(Collectors.toSet());
+        List<PredictionSignal> fresh = signals.stream()
+            .filter(signal -> !stored.contains(signal.getTimestamp() + "|" + signal.getSignalType().name()))
+            .collect(Collectors.toList());
+        return fresh.isEmpty() ? Collections.emptyList() : insertFromPredictionSignalList(fresh, symbol);
+    }
+    
+    private List<PredictionSignalEntity> toEntities(List<PredictionSignal> signals, String symbol) {
+        return signals.stream()
             .map(signal -> new PredictionSignalEntity(
                 symbol,
                 signal.getTimestamp(),
@@ -64,7 +176,6 @@ public class PredictionSignalService {
                 signal.getPrice()
             ))
             .collect(Collectors.toList());
-        return saveAll(entities);
     }
     
     /**
@@ -75,6 +186,34 @@ public class PredictionSignalService {
         return predictionSignalRepository.findBySymbolOrderByTimestampDesc(symbol);
     }
     
+    /**
+     * Get signals of a symbol newer than 'since' and/or stored after 'afterId' (either may be null)
+     */
+    @Transactional(readOnly = true)
+    public List<PredictionSignalEntity> getBySymbolSince(String symbol, LocalDateTime since, Long afterId) {
+        if (since == null && afterId == null) {
+            return getBySymbol(symbol);
+        }
+        if (afterId == null) {
+            return predictionSignalRepository.findBySymbolAndTimestampAfter(symbol, since);
+        }
+        List<PredictionSignalEntity> signals = predictionSignalRepository.findBySymbolAndIdAfter(symbol, afterId);
+        if (since != null) {
+            signals = signals.stream()
+                .filter(signal -> signal.getTimestamp().isAfter(since))
+                .collect(Collectors.toList());
+        }
+        return signals;
+    }
+    
+    /**
+     * Fingerprint of a symbol's stored signals for ETags
+     */
+    @Transactional(readOnly = true)
+    public SeriesVersion getVersion(String symbol) {
+        return predictionSignalRepository.findVersionBySymbol(symbol);
+    }
+    
     /**
      * Get prediction signals for a symbol within date range
      */
@@ -102,6 +241,18 @@ public class PredictionSignalService {
         return predictionSignalRepository.findBySignalTypeOrderByTimestampDesc(signalType);
     }
     
+    /**
+     * One keyset page of signals of a type, newest first
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<PredictionSignalEntity> getPageBySignalType(PredictionSignalEntity.SignalType signalType,
+                                                                 String cursor, Integer limit) {
+        int size = pageSize(limit);
+        KeysetCursor seek = seek(cursor);
+        return toPage(predictionSignalRepository.findPageBySignalType(signalType, seek.getTimestamp(), seek.getId(),
+            PageRequest.of(0, size + 1)), size);
+    }
+    
     /**
      * Get prediction signals for a symbol by signal type
      */
@@ -119,6 +270,17 @@ public class PredictionSignalService {
         return predictionSignalRepository.findHighConfidenceSignals(threshold);
     }
     
+    /**
+     * One keyset page of high confidence signals, newest first
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<PredictionSignalEntity> getPageHighConfidence(Double threshold, String cursor, Integer limit) {
+        int size = pageSize(limit);
+        KeysetCursor seek = seek(cursor);
+        return toPage(predictionSignalRepository.findPageHighConfidence(threshold, seek.getTimestamp(), seek.getId(),
+            PageRequest.of(0, size + 1)), size);
+    }
+    
     /**
      * Get recent signals
      */
@@ -127,6 +289,36 @@ public class PredictionSignalService {
         return predictionSignalRepository.findRecentSignals(since);
     }
     
+    /**
+     * One keyset page of signals since a time, newest first
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<PredictionSignalEntity> getPageRecent(LocalDateTime since, String cursor, Integer limit) {
+        int size = pageSize(limit);
+        KeysetCursor seek = seek(cursor);
+        return toPage(predictionSignalRepository.findPageRecent(since, seek.getTimestamp(), seek.getId(),
+            PageRequest.of(0, size + 1)), size);
+    }
+    
+    private KeysetCursor seek(String cursor) {
+        return cursor == null ? KeysetCursor.last() : KeysetCursor.decode(cursor);
+    }
+    
+    private int pageSize(Integer limit) {
+        int size = limit == null ? defaultPageLimit : limit;
+        return Math.max(1, Math.min(size, maxPageLimit));
+    }
+    
+    // Pages are fetched with one extra row to learn whether another page follows
+    private KeysetPage<PredictionSignalEntity> toPage(List<PredictionSignalEntity> rows, int size) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<PredictionSignalEntity> items = rows.subList(0, size);
+        PredictionSignalEntity last = items.get(size - 1);
+        return new KeysetPage<>(items, new KeysetCursor(last.getTimestamp(), last.getId()).encode());
+    }
+    
     /**
      * Count signals by type for a symbol
      */
@@ -193,7 +385,7 @@ public class PredictionSignalService {
      * Delete all signals for a symbol
      */
     public void deleteBySymbol(String symbol) {
-        List<PredictionSignalEntity> entities = getBySymbol(symbol);
-        predictionSignalRepository.deleteAll(entities);
+        predictionSignalRepository.deleteAllBySymbol(symbol);
+        eventPublisher.publishEvent(new PredictionSignalDeletedEvent(symbol));
     }
 }
@@ -0,0 +1,243 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import stockprediction.engine.PredictionEngine;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.event.StockDataSavedEvent;
+import stockprediction.model.PredictionSignal;
+import stockprediction.model.StockData;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Periodic re-analysis of the symbols whose bars changed since the last run. Bars whose signals the
+ * ingestion pipeline evaluates and stores itself are skipped unless that fails. Saved bars only mark
+ * their symbol (earliest changed timestamp, traded volume), so any number of updates within one
+ * reanalysis.interval-ms collapse into a single engine run. A run takes the symbols with the most
+ * traded volume first, at most reanalysis.max-symbols-per-run of them (the rest wait for the next
+ * run), and runs them on their lanes (SymbolLanes) with at most reanalysis.max-parallel at a time,
+ * so CPU use stays bounded however many symbols changed. Only signals not stored yet are inserted.
+ * Symbols with stored bars still on their way through the ingestion pipeline's evaluate and publish
+ * wait for the next run, since the pipeline is about to store the same signals.
+ */
+@Service
+public class ReanalysisService {
+
+    @Autowired
+    private StockDataService stockDataService;
+
+    @Autowired
+    private PredictionSignalService predictionSignalService;
+
+    @Autowired
+    private SymbolLanes symbolLanes;
+
+    @Autowired
+    private IngestionPipeline ingestionPipeline;
+
+    @Value("${reanalysis.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reanalysis.max-symbols-per-run:500}")
+    private int maxSymbolsPerRun;
+
+    @Value("${reanalysis.max-parallel:1}")
+    private int maxParallel;
+
+    @Value("${reanalysis.lookback-bars:100}")
+    private int lookbackBars;
+
+    @Value("${reanalysis.max-bars:2000}")
+    private int maxBars;
+
+    // Symbol -> what changed since it was last analyzed
+    private final ConcurrentMap<String, Change> changes = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong updatesCoalesced = new AtomicLong();
+    private final AtomicLong signalsInserted = new AtomicLong();
+
+    private volatile Map<String, Object> lastRun;
+
+    /**
+     * Mark the symbol of newly committed bars for the next run, unless their publisher stores
+     * their signals itself
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockDataSaved(StockDataSavedEvent event) {
+        if (!enabled || event.getBars().isEmpty()) {
+            return;
+        }
+        if (event.getSignalsStored() != null) {
+            event.getSignalsStored().whenComplete((result, error) -> {
+                if (error != null) {
+                    markChanged(event);
+                }
+            });
+            return;
+        }
+        markChanged(event);
+    }
+
+    private void markChanged(StockDataSavedEvent event) {
+        LocalDateTime from = event.getBars().stream().map(StockDataEntity::getTimestamp).min(Comparator.naturalOrder()).get();
+        long volume = event.getBars().stream().mapToLong(bar -> bar.getVolume() == null ? 0 : bar.getVolume()).sum();
+        changes.merge(event.getSymbol(), new Change(from, volume, 1), Change::merge);
+    }
+
+    @Scheduled(initialDelayString = "${reanalysis.initial-delay-ms:30000}",
+               fixedDelayString = "${reanalysis.interval-ms:30000}")
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    /**
+     * Re-analyze the changed symbols now; returns null when a run is already in progress
+     */
+    public Map<String, Object> run() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            List<String> due = changes.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Change> entry) -> entry.getValue().volume).reversed())
+                .limit(Math.max(1, maxSymbolsPerRun))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+            Semaphore permits = new Semaphore(Math.max(1, maxParallel));
+            List<CompletableFuture<Integer>> analyses = new ArrayList<>();
+            int updates = 0;
+            int deferred = 0;
+            for (String symbol : due) {
+                if (ingestionPipeline.hasUnpublished(symbol)) {
+                    deferred++;
+                    continue;
+                }
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                // Updates arriving from here on mark the symbol again for the next run
+                Change change = changes.remove(symbol);
+                if (change == null) {
+                    permits.release();
+                    continue;
+                }
+                updates += change.updates;
+                CompletableFuture<Integer> analysis = symbolLanes.submit(symbol, () -> reanalyze(symbol, change.from));
+                analysis.whenComplete((inserted, error) -> {
+                    permits.release();
+                    if (error != null) {
+                        System.err.println("Re-analysis of " + symbol + " failed: " + error.getMessage());
+                        changes.merge(symbol, change, Change::merge);
+                    }
+                });
+                analyses.add(analysis);
+            }
+
+            int signals = 0;
+            int failed = 0;
+            for (CompletableFuture<Integer> analysis : analyses) {
+                try {
+                    signals += analysis.join();
+                } catch (CompletionException e) {
+                    failed++;
+                }
+            }
+            runs.incrementAndGet();
+            updatesCoalesced.addAndGet(updates - analyses.size());
+            signalsInserted.addAndGet(signals);
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("symbols", analyses.size());
+            result.put("updates", updates);
+            result.put("signalsInserted", signals);
+            result.put("failed", failed);
+            result.put("deferred", deferred);
+            result.put("remaining", changes.size());
+            result.put("elapsedMs", System.currentTimeMillis() - start);
+            result.put("finishedAt", LocalDateTime.now().toString());
+            lastRun = result;
+            if (!analyses.isEmpty()) {
+                System.out.println("Re-analysis: " + analyses.size() + " symbols (" + updates + " updates), "
+                    + signals + " new signals in " + result.get("elapsedMs") + " ms");
+            }
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Settings, pending symbols, totals and the outcome of the last run
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("maxSymbolsPerRun", maxSymbolsPerRun);
+        status.put("maxParallel", maxParallel);
+        status.put("pending", changes.size());
+        status.put("running", running.get());
+        status.put("runs", runs.get());
+        status.put("updatesCoalesced", updatesCoalesced.get());
+        status.put("signalsInserted", signalsInserted.get());
+        status.put("lastRun", lastRun);
+        return status;
+    }
+
+    /**
+     * Run the engine over the bars from 'from' on plus lookback-bars before them; store the new signals
+     */
+    private int reanalyze(String symbol, LocalDateTime from) {
+        StockDataEntity latest = stockDataService.getLatestBySymbol(symbol);
+        if (latest == null || latest.getTimestamp().isBefore(from)) {
+            return 0;
+        }
+        LocalDateTime until = latest.getTimestamp();
+        int changed = stockDataService.getStoredTimestamps(symbol, from, until).size();
+        List<StockData> history = stockDataService.convertToStockDataList(
+            stockDataService.getLatestBars(symbol, until, Math.min(Math.max(1, maxBars), changed + Math.max(0, lookbackBars))));
+        if (history.size() < PredictionEngine.MIN_BARS) {
+            return 0;
+        }
+        List<PredictionSignal> signals = new PredictionEngine().analyzeTrend(history).stream()
+            .filter(signal -> !signal.getTimestamp().isBefore(from))
+            .collect(Collectors.toList());
+        return predictionSignalService.insertNewFromPredictionSignalList(signals, symbol).size();
+    }
+
+    /**
+     * Changes to one symbol since its last run, merged
+     */
+    private static final class Change {
+
+        final LocalDateTime from;
+        final long volume;
+        final int updates;
+
+        Change(LocalDateTime from, long volume, int updates) {
+            this.from = from;
+            this.volume = volume;
+            this.updates = updates;
+        }
+
+        static Change merge(Change a, Change b) {
+            return new Change(a.from.isBefore(b.from) ? a.from : b.from, a.volume + b.volume, a.updates + b.updates);
+        }
+    }
+}
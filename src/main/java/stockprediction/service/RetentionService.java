@@ -0,0 +1,282 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.event.PredictionSignalDeletedEvent;
+import stockprediction.event.StockDataDeletedEvent;
+import stockprediction.model.KeysetCursor;
+import stockprediction.repository.PredictionSignalRepository;
+import stockprediction.repository.StockDataRepository;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Background retention of old bars and signals. Intraday bars older than the configured age are
+ * either folded into one daily bar per day (DOWNSAMPLE) or removed (DELETE); old signals can be
+ * removed as well. Work is done one symbol and one bounded chunk at a time, each chunk in its own
+ * short transaction with a pause in between, so ingestion never waits behind a long delete. After
+ * each chunk commits a {@link StockDataDeletedEvent} for the bars before the chunk's end tells the
+ * in-memory views of the symbol to reload.
+ */
+@Service
+public class RetentionService {
+
+    /**
+     * What happens to bars past the retention age
+     */
+    public enum Mode {
+        DOWNSAMPLE,  // replace the bars of each old day with one daily OHLCV bar
+        DELETE       // remove old bars
+    }
+
+    @Autowired
+    private StockDataRepository stockDataRepository;
+
+    @Autowired
+    private PredictionSignalRepository predictionSignalRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${retention.mode:DOWNSAMPLE}")
+    private Mode mode;
+
+    @Value("${retention.bar-max-age-days:180}")
+    private int barMaxAgeDays;
+
+    @Value("${retention.signal-max-age-days:0}")
+    private int signalMaxAgeDays;
+
+    @Value("${retention.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${retention.pause-ms:20}")
+    private long pauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Days before this point are already compacted, so later runs skip them (rescanned after a restart)
+    private final Map<String, LocalDateTime> compactedUntil = new ConcurrentHashMap<>();
+
+    private volatile Map<String, Object> lastRun;
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${retention.initial-delay-ms:60000}",
+               fixedDelayString = "${retention.interval-ms:3600000}")
+    public void scheduledRun() {
+        if (enabled) {
+            run();
+        }
+    }
+
+    /**
+     * Run one retention pass now; returns null when a pass is already running
+     */
+    public Map<String, Object> run() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            LocalDate today = LocalDate.now();
+            Totals totals = new Totals();
+
+            if (barMaxAgeDays > 0) {
+                LocalDateTime cutoff = today.minusDays(barMaxAgeDays).atStartOfDay();
+                for (String symbol : stockDataRepository.findAllSymbols()) {
+                    if (mode == Mode.DELETE) {
+                        totals.barsRemoved += deleteOldBars(symbol, cutoff, totals);
+                    } else {
+                        compactBars(symbol, cutoff, totals);
+                    }
+                    if (Thread.currentThread().isInterrupted()) break;
+                }
+            }
+            if (signalMaxAgeDays > 0) {
+                LocalDateTime cutoff = today.minusDays(signalMaxAgeDays).atStartOfDay();
+                for (String symbol : predictionSignalRepository.findAllSymbols()) {
+                    long removed = deleteOldSignals(symbol, cutoff, totals);
+                    if (removed > 0) {
+                        totals.signalsRemoved += removed;
+                        eventPublisher.publishEvent(new PredictionSignalDeletedEvent(symbol));
+                    }
+                    if (Thread.currentThread().isInterrupted()) break;
+                }
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("finishedAt", LocalDateTime.now());
+            result.put("elapsedMs", System.currentTimeMillis() - start);
+            result.put("mode", mode);
+            result.put("daysCompacted", totals.daysCompacted);
+            result.put("barsRemoved", totals.barsRemoved);
+            result.put("rollupsWritten", totals.rollupsWritten);
+            result.put("signalsRemoved", totals.signalsRemoved);
+            result.put("chunks", totals.chunks);
+            lastRun = result;
+            if (totals.barsRemoved > 0 || totals.signalsRemoved > 0) {
+                System.out.println("Retention: " + result);
+            }
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Settings and the outcome of the last pass
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("running", running.get());
+        status.put("mode", mode);
+        status.put("barMaxAgeDays", barMaxAgeDays);
+        status.put("signalMaxAgeDays", signalMaxAgeDays);
+        status.put("chunkSize", chunkSize);
+        status.put("lastRun", lastRun);
+        return status;
+    }
+
+    /**
+     * Fold every day before the cutoff that has more than one bar into a single daily bar
+     */
+    private void compactBars(String symbol, LocalDateTime cutoff, Totals totals) {
+        LocalDateTime from = compactedUntil.getOrDefault(symbol, KeysetCursor.MIN_TIMESTAMP);
+        while (from.isBefore(cutoff)) {
+            List<StockDataEntity> chunk = stockDataRepository.findChunkBySymbol(symbol, from, cutoff,
+                PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) {
+                from = cutoff;
+                break;
+            }
+            boolean exhausted = chunk.size() < chunkSize;
+
+            TreeMap<LocalDate, List<StockDataEntity>> days = chunk.stream()
+                .collect(Collectors.groupingBy(bar -> bar.getTimestamp().toLocalDate(), TreeMap::new, Collectors.toList()));
+            if (!exhausted) {
+                LocalDate lastDay = days.lastKey();
+                if (days.size() == 1) {
+                    // A single day holds more bars than a chunk: take that whole day
+                    days.put(lastDay, stockDataRepository.findChunkBySymbol(symbol, lastDay.atStartOfDay(),
+                        lastDay.plusDays(1).atStartOfDay(), Pageable.unpaged()));
+                } else {
+                    // The chunk may end part-way through its last day; the next chunk starts there
+                    days.remove(lastDay);
+                }
+            }
+
+            long compacted = transaction.execute(status -> {
+                long rollups = 0;
+                for (Map.Entry<LocalDate, List<StockDataEntity>> day : days.entrySet()) {
+                    List<StockDataEntity> bars = day.getValue();
+                    if (bars.size() < 2) continue;
+                    stockDataRepository.deleteAllByIdIn(bars.stream().map(StockDataEntity::getId).collect(Collectors.toList()));
+                    stockDataRepository.save(rollup(symbol, day.getKey(), bars));
+                    totals.barsRemoved += bars.size();
+                    rollups++;
+                }
+                return rollups;
+            });
+            totals.daysCompacted += compacted;
+            totals.rollupsWritten += compacted;
+            totals.chunks++;
+
+            from = days.lastKey().plusDays(1).atStartOfDay();
+            compactedUntil.put(symbol, from);
+            if (compacted > 0) {
+                eventPublisher.publishEvent(new StockDataDeletedEvent(symbol, from));
+            }
+            if (exhausted || !pause()) break;
+        }
+    }
+
+    private long deleteOldBars(String symbol, LocalDateTime cutoff, Totals totals) {
+        long removed = 0;
+        while (true) {
+            List<Long> ids = stockDataRepository.findIdsBySymbolOlderThan(symbol, cutoff, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) break;
+            transaction.executeWithoutResult(status -> stockDataRepository.deleteAllByIdIn(ids));
+            eventPublisher.publishEvent(new StockDataDeletedEvent(symbol, cutoff));
+            removed += ids.size();
+            totals.chunks++;
+            if (ids.size() < chunkSize || !pause()) break;
+        }
+        return removed;
+    }
+
+    private long deleteOldSignals(String symbol, LocalDateTime cutoff, Totals totals) {
+        long removed = 0;
+        while (true) {
+            List<Long> ids = predictionSignalRepository.findIdsBySymbolOlderThan(symbol, cutoff, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) break;
+            transaction.executeWithoutResult(status -> predictionSignalRepository.deleteAllByIdIn(ids));
+            removed += ids.size();
+            totals.chunks++;
+            if (ids.size() < chunkSize || !pause()) break;
+        }
+        return removed;
+    }
+
+    /**
+     * Daily OHLCV bar of one day's bars (ascending), stamped at the start of the day
+     */
+    private StockDataEntity rollup(String symbol, LocalDate day, List<StockDataEntity> bars) {
+        double high = Double.NEGATIVE_INFINITY;
+        double low = Double.POSITIVE_INFINITY;
+        long volume = 0;
+        for (StockDataEntity bar : bars) {
+            high = Math.max(high, bar.getHigh());
+            low = Math.min(low, bar.getLow());
+            volume += bar.getVolume();
+        }
+        return new StockDataEntity(symbol, day.atStartOfDay(), bars.get(0).getOpen(), high, low,
+            bars.get(bars.size() - 1).getClose(), volume);
+    }
+
+    // Give ingestion a turn between chunks; false when the thread was interrupted
+    private boolean pause() {
+        if (pauseMillis <= 0) return true;
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class Totals {
+        long daysCompacted;
+        long barsRemoved;
+        long rollupsWritten;
+        long signalsRemoved;
+        long chunks;
+    }
+}
@@ -0,0 +1,291 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import stockprediction.engine.MonteCarloRiskEngine;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.model.CorrelationMatrix;
+import stockprediction.model.DerivativePosition;
+import stockprediction.model.RiskRequest;
+import stockprediction.repository.StockDataRepository;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Service for Monte Carlo VaR/CVaR and VN30F futures margin requirements.
+ * Daily volatility is estimated from historical log returns in the repository, falling back
+ * to MarketAnalysisService's price-dispersion volatility when the history is too short.
+ */
+@Service
+public class RiskService {
+
+    private static final String VN30F_PREFIX = "VN30F";
+    private static final double DEFAULT_DAILY_VOLATILITY = 0.02;
+    private static final double MARGIN_CONFIDENCE = 0.99;
+
+    @Autowired
+    private StockDataRepository stockDataRepository;
+
+    @Autowired
+    private CorrelationService correlationService;
+
+    @Value("${risk.vn30f.multiplier:100000}")
+    private double vn30fMultiplier;
+
+    @Value("${risk.vn30f.initial-margin-rate:0.17}")
+    private double initialMarginRate;
+
+    @Value("${risk.vn30f.maintenance-ratio:0.8}")
+    private double maintenanceRatio;
+
+    @Value("${risk.monte-carlo.default-paths:1000000}")
+    private int defaultPaths;
+
+    @Value("${risk.monte-carlo.max-paths:20000000}")
+    private int maxPaths;
+
+    @Value("${risk.volatility-window:60}")
+    private int volatilityWindow;
+
+    private final MonteCarloRiskEngine engine = new MonteCarloRiskEngine();
+
+    /**
+     * Simulate portfolio P&L and report VaR/CVaR at the requested confidence levels
+     */
+    public Map<String, Object> calculateValueAtRisk(RiskRequest request) {
+        PreparedPortfolio portfolio = prepare(request.getPositions());
+        List<Double> levels = request.getConfidenceLevels() == null || request.getConfidenceLevels().isEmpty()
+            ? Arrays.asList(0.95, 0.99)
+            : request.getConfidenceLevels();
+        for (double level : levels) {
+            if (level <= 0.0 || level >= 1.0) {
+                throw new IllegalArgumentException("Confidence levels must be in (0, 1): " + level);
+            }
+        }
+
+        MonteCarloRiskEngine.Result result = simulate(portfolio, request, levels.stream().mapToDouble(Double::doubleValue).toArray());
+
+        List<Map<String, Object>> measures = new ArrayList<>();
+        for (int i = 0; i < result.getConfidenceLevels().length; i++) {
+            Map<String, Object> measure = new LinkedHashMap<>();
+            measure.put("confidence", result.getConfidenceLevels()[i]);
+            measure.put("valueAtRisk", result.getValueAtRisk()[i]);
+            measure.put("conditionalValueAtRisk", result.getConditionalValueAtRisk()[i]);
+            measures.add(measure);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("horizonDays", request.getHorizonDays());
+        response.put("positions", portfolio.describe());
+        response.put("grossNotional", portfolio.grossNotional());
+        response.put("measures", measures);
+        response.put("expectedPnl", result.getExpectedPnl());
+        response.put("pnlStdDev", result.getPnlStdDev());
+        response.put("simulation", simulationStats(result));
+        return response;
+    }
+
+    /**
+     * Initial and maintenance margin for a futures portfolio: the larger of the exchange rate-based
+     * requirement (IM rate x gross notional) and the 1-day 99% Monte Carlo VaR; maintenance margin
+     * is a fixed fraction of the initial requirement.
+     */
+    public Map<String, Object> calculateMargin(RiskRequest request) {
+        PreparedPortfolio portfolio = prepare(request.getPositions());
+        RiskRequest oneDay = new RiskRequest();
+        oneDay.setPositions(request.getPositions());
+        oneDay.setHorizonDays(1);
+        oneDay.setPaths(request.getPaths());
+        oneDay.setSeed(request.getSeed());
+        oneDay.setCorrelated(request.isCorrelated());
+
+        MonteCarloRiskEngine.Result result = simulate(portfolio, oneDay, new double[]{MARGIN_CONFIDENCE});
+        double rateBased = initialMarginRate * portfolio.grossNotional();
+        double varBased = result.valueAtRisk(MARGIN_CONFIDENCE);
+        double initialMargin = Math.max(rateBased, varBased);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("positions", portfolio.describe());
+        response.put("grossNotional", portfolio.grossNotional());
+        response.put("initialMarginRate", initialMarginRate);
+        response.put("rateBasedMargin", rateBased);
+        response.put("valueAtRisk99OneDay", varBased);
+        response.put("conditionalValueAtRisk99OneDay", result.getConditionalValueAtRisk()[0]);
+        response.put("initialMargin", initialMargin);
+        response.put("maintenanceMargin", initialMargin * maintenanceRatio);
+        response.put("bindingConstraint", varBased > rateBased ? "MONTE_CARLO_VAR" : "EXCHANGE_RATE");
+        response.put("simulation", simulationStats(result));
+        return response;
+    }
+
+    /**
+     * Daily volatility of log returns over the configured window
+     */
+    public double estimateDailyVolatility(String symbol) {
+        List<StockDataEntity> latest = stockDataRepository.findLatestBySymbol(symbol, PageRequest.of(0, volatilityWindow + 1));
+        double[] closes = new double[latest.size()];
+        for (int i = 0; i < closes.length; i++) {
+            closes[i] = latest.get(closes.length - 1 - i).getClose();
+        }
+
+        if (closes.length >= 3) {
+            double[] returns = new double[closes.length - 1];
+            double mean = 0.0;
+            for (int i = 1; i < closes.length; i++) {
+                returns[i - 1] = Math.log(closes[i] / closes[i - 1]);
+                mean += returns[i - 1];
+            }
+            mean /= returns.length;
+            double variance = 0.0;
+            for (double r : returns) {
+                variance += (r - mean) * (r - mean);
+            }
+            return Math.sqrt(variance / (returns.length - 1));
+        }
+        if (closes.length == 2) {
+            return MarketAnalysisService.calculateVolatility(closes);
+        }
+        return DEFAULT_DAILY_VOLATILITY;
+    }
+
+    private MonteCarloRiskEngine.Result simulate(PreparedPortfolio portfolio, RiskRequest request, double[] levels) {
+        if (request.getHorizonDays() < 1) {
+            throw new IllegalArgumentException("horizonDays must be at least 1");
+        }
+        int paths = request.getPaths() == null ? defaultPaths : request.getPaths();
+        if (paths < 100 || paths > maxPaths) {
+            throw new IllegalArgumentException("paths must be between 100 and " + maxPaths);
+        }
+        double[] correlation = request.isCorrelated() ? correlationFor(portfolio.symbols) : null;
+        MonteCarloRiskEngine.Scenario scenario = new MonteCarloRiskEngine.Scenario(
+            portfolio.spot, portfolio.exposure, portfolio.volatility, new double[portfolio.size()],
+            correlation, request.getHorizonDays(), 1);
+        long seed = request.getSeed() == null ? System.nanoTime() : request.getSeed();
+        return engine.simulate(scenario, paths, levels, seed);
+    }
+
+    private double[] correlationFor(List<String> symbols) {
+        int n = symbols.size();
+        if (n < 2) {
+            return null;
+        }
+        CorrelationMatrix matrix = correlationService.getMatrix(symbols, volatilityWindow);
+        double[] flat = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            int mi = matrix.getSymbols().indexOf(symbols.get(i));
+            for (int j = 0; j < n; j++) {
+                int mj = matrix.getSymbols().indexOf(symbols.get(j));
+                flat[i * n + j] = i == j ? 1.0 : (mi >= 0 && mj >= 0 ? matrix.getCorrelation(mi, mj) : 0.0);
+            }
+        }
+        return flat;
+    }
+
+    private PreparedPortfolio prepare(List<DerivativePosition> positions) {
+        if (positions == null || positions.isEmpty()) {
+            throw new IllegalArgumentException("At least one position is required");
+        }
+
+        // Net positions per symbol so each instrument is simulated once
+        Map<String, DerivativePosition> netted = new LinkedHashMap<>();
+        for (DerivativePosition position : positions) {
+            if (position.getSymbol() == null || position.getSymbol().isEmpty()) {
+                throw new IllegalArgumentException("Position symbol is required");
+            }
+            DerivativePosition net = netted.computeIfAbsent(position.getSymbol(), s -> {
+                DerivativePosition copy = new DerivativePosition(s, 0, position.getPrice());
+                copy.setMultiplier(position.getMultiplier());
+                copy.setVolatility(position.getVolatility());
+                return copy;
+            });
+            net.setQuantity(net.getQuantity() + position.getQuantity());
+        }
+
+        PreparedPortfolio portfolio = new PreparedPortfolio(netted.size());
+        for (DerivativePosition position : netted.values()) {
+            String symbol = position.getSymbol();
+            double price = position.getPrice() != null ? position.getPrice() : latestClose(symbol);
+            double multiplier = position.getMultiplier() != null ? position.getMultiplier()
+                : symbol.toUpperCase().startsWith(VN30F_PREFIX) ? vn30fMultiplier : 1.0;
+            double volatility = position.getVolatility() != null ? position.getVolatility() : estimateDailyVolatility(symbol);
+            portfolio.add(symbol, position.getQuantity(), price, multiplier, volatility);
+        }
+        return portfolio;
+    }
+
+    private double latestClose(String symbol) {
+        List<StockDataEntity> latest = stockDataRepository.findLatestBySymbol(symbol);
+        if (latest.isEmpty()) {
+            throw new IllegalArgumentException("No price available for " + symbol + "; pass price explicitly");
+        }
+        return latest.get(0).getClose();
+    }
+
+    private static Map<String, Object> simulationStats(MonteCarloRiskEngine.Result result) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("paths", result.getPaths());
+        stats.put("elapsedMillis", result.getElapsedNanos() / 1_000_000.0);
+        stats.put("pathsPerSecond", result.getPathsPerSecond());
+        return stats;
+    }
+
+    /**
+     * Netted positions laid out as primitive arrays for the engine
+     */
+    private static final class PreparedPortfolio {
+        private final List<String> symbols = new ArrayList<>();
+        private final long[] quantity;
+        private final double[] spot;
+        private final double[] multiplier;
+        private final double[] exposure;
+        private final double[] volatility;
+        private int size;
+
+        PreparedPortfolio(int capacity) {
+            quantity = new long[capacity];
+            spot = new double[capacity];
+            multiplier = new double[capacity];
+            exposure = new double[capacity];
+            volatility = new double[capacity];
+        }
+
+        void add(String symbol, long qty, double price, double mult, double vol) {
+            symbols.add(symbol);
+            quantity[size] = qty;
+            spot[size] = price;
+            multiplier[size] = mult;
+            exposure[size] = qty * mult;
+            volatility[size] = vol;
+            size++;
+        }
+
+        int size() { return size; }
+
+        double grossNotional() {
+            double total = 0.0;
+            for (int i = 0; i < size; i++) {
+                total += Math.abs(exposure[i]) * spot[i];
+            }
+            return total;
+        }
+
+        List<Map<String, Object>> describe() {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("symbol", symbols.get(i));
+                row.put("quantity", quantity[i]);
+                row.put("price", spot[i]);
+                row.put("multiplier", multiplier[i]);
+                row.put("dailyVolatility", volatility[i]);
+                rows.add(row);
+            }
+            return rows;
+        }
+    }
+}
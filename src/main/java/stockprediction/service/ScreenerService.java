@@ -0,0 +1,452 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.event.StockDataDeletedEvent;
+import stockprediction.event.StockDataSavedEvent;
+import stockprediction.indicators.IndicatorSnapshot;
+import stockprediction.model.StockData;
+import stockprediction.repository.StockDataRepository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Market-wide screener backed by an in-memory index of the latest indicator snapshot per symbol.
+ * Each numeric field is kept in a sorted set so range predicates are answered with a sub-set view,
+ * and crossovers on the latest bar are kept in small buckets. Queries never touch the database.
+ * A symbol's snapshot is only replaced on its lane (SymbolLanes), so updates take no lock. Published
+ * snapshots are never modified: an update folds bars into a copy, indexes it and swaps it in, so
+ * readers only ever see complete snapshots and the symbol stays in the index throughout.
+ */
+@Service
+public class ScreenerService {
+
+    /**
+     * Indexed numeric fields
+     */
+    public enum Field {
+        CLOSE("close", IndicatorSnapshot::getClose),
+        CHANGE_PERCENT("changePercent", IndicatorSnapshot::getChangePercent),
+        VOLUME("volume", s -> (double) s.getVolume()),
+        VOLUME_RATIO("volumeRatio", IndicatorSnapshot::getVolumeRatio),
+        RSI14("rsi14", IndicatorSnapshot::getRsi14),
+        EMA20("ema20", IndicatorSnapshot::getEma20),
+        EMA50("ema50", IndicatorSnapshot::getEma50),
+        MACD("macd", IndicatorSnapshot::getMacd),
+        MACD_SIGNAL("macdSignal", IndicatorSnapshot::getMacdSignal),
+        MACD_HISTOGRAM("macdHistogram", IndicatorSnapshot::getMacdHistogram);
+
+        private final String key;
+        private final ToDoubleFunction<IndicatorSnapshot> extractor;
+
+        Field(String key, ToDoubleFunction<IndicatorSnapshot> extractor) {
+            this.key = key;
+            this.extractor = extractor;
+        }
+
+        public String getKey() { return key; }
+
+        public double valueOf(IndicatorSnapshot snapshot) { return extractor.applyAsDouble(snapshot); }
+
+        public static Field fromKey(String key) {
+            for (Field field : values()) {
+                if (field.key.equalsIgnoreCase(key) || field.name().equalsIgnoreCase(key)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown screener field: " + key);
+        }
+    }
+
+    /**
+     * Crossovers detected on the latest bar
+     */
+    public enum Crossover {
+        EMA_BULLISH, EMA_BEARISH, MACD_BULLISH, MACD_BEARISH
+    }
+
+    /**
+     * Inclusive/exclusive range predicate on one field; null bounds are open
+     */
+    public static class RangePredicate {
+        private final Field field;
+        private final Double min;
+        private final boolean minInclusive;
+        private final Double max;
+        private final boolean maxInclusive;
+
+        public RangePredicate(Field field, Double min, boolean minInclusive, Double max, boolean maxInclusive) {
+            this.field = field;
+            this.min = min;
+            this.minInclusive = minInclusive;
+            this.max = max;
+            this.maxInclusive = maxInclusive;
+        }
+
+        public Field getField() { return field; }
+
+        boolean test(IndicatorSnapshot snapshot) {
+            double v = field.valueOf(snapshot);
+            if (Double.isNaN(v)) return false;
+            if (min != null && (minInclusive ? v < min : v <= min)) return false;
+            if (max != null && (maxInclusive ? v > max : v >= max)) return false;
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s in %s%s, %s%s", field.getKey(),
+                    minInclusive ? "[" : "(", min == null ? "-inf" : min,
+                    max == null ? "+inf" : max, maxInclusive ? "]" : ")");
+        }
+    }
+
+    @Autowired
+    private StockDataRepository stockDataRepository;
+
+    @Autowired
+    private SymbolLanes symbolLanes;
+
+    private final Map<String, IndicatorSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final Map<Field, ConcurrentSkipListSet<IndexKey>> fieldIndex = new EnumMap<>(Field.class);
+
+    private final Map<Crossover, Set<String>> crossoverBuckets = new EnumMap<>(Crossover.class);
+
+    // Symbols an update of which a full lane rejected; their next update rebuilds them
+    private final Set<String> missedUpdates = ConcurrentHashMap.newKeySet();
+
+    public ScreenerService() {
+        for (Field field : Field.values()) {
+            fieldIndex.put(field, new ConcurrentSkipListSet<>());
+        }
+        for (Crossover crossover : Crossover.values()) {
+            crossoverBuckets.put(crossover, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Index every symbol already in the repository that has not been seen through save events
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexExistingSymbols() {
+        long start = System.currentTimeMillis();
+        List<String> missing = stockDataRepository.findAllSymbols().stream()
+            .filter(symbol -> !snapshots.containsKey(symbol))
+            .collect(Collectors.toList());
+        rebuildOnLanes(missing);
+        System.out.println("Screener index ready: " + snapshots.size() + " symbols in "
+            + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Apply newly committed bars to the symbol's snapshot
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockDataSaved(StockDataSavedEvent event) {
+        onLane(event.getSymbol(), () -> {
+            try {
+                applyBars(event.getSymbol(), event.getBars());
+            } catch (Exception e) {
+                System.err.println("Error updating screener index for " + event.getSymbol() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void onLane(String symbol, Runnable update) {
+        try {
+            symbolLanes.execute(symbol, update);
+        } catch (RejectedExecutionException e) {
+            missedUpdates.add(symbol);
+            System.err.println("Screener update for " + symbol + " dropped, rebuilding it with the next one: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fold bars into the index, on the symbol's lane. Bars newer than the snapshot are applied
+     * incrementally; anything older (a backfill) forces a rebuild from the repository.
+     */
+    private void applyBars(String symbol, List<StockDataEntity> bars) {
+        IndicatorSnapshot current = snapshots.get(symbol);
+        if (current == null || missedUpdates.remove(symbol)) {
+            rebuildSymbol(symbol);
+            return;
+        }
+
+        List<StockDataEntity> ordered = bars.stream()
+            .sorted(Comparator.comparing(StockDataEntity::getTimestamp))
+            .collect(Collectors.toList());
+
+        boolean outOfOrder = current.getTimestamp() != null && !ordered.isEmpty()
+            && !ordered.get(0).getTimestamp().isAfter(current.getTimestamp());
+        if (outOfOrder) {
+            rebuildSymbol(symbol);
+            return;
+        }
+
+        IndicatorSnapshot next = current.copy();
+        for (StockDataEntity bar : ordered) {
+            next.update(toStockData(bar));
+        }
+        replace(current, next);
+    }
+
+    /**
+     * Recompute a symbol's snapshot from its full stored history, on the symbol's lane
+     */
+    private void rebuildSymbol(String symbol) {
+        List<StockData> history = stockDataRepository.findBySymbolOrderByTimestampAsc(symbol).stream()
+            .map(this::toStockData)
+            .collect(Collectors.toList());
+
+        IndicatorSnapshot previous = snapshots.get(symbol);
+        if (history.isEmpty()) {
+            if (previous != null) {
+                snapshots.remove(symbol);
+                unindex(previous);
+            }
+            return;
+        }
+        replace(previous, IndicatorSnapshot.fromHistory(symbol, history));
+    }
+
+    /**
+     * Publish 'next' in place of 'previous' (null for a new symbol): its index entries go in first,
+     * then the snapshot, then the entries only 'previous' had
+     */
+    private void replace(IndicatorSnapshot previous, IndicatorSnapshot next) {
+        String symbol = next.getSymbol();
+        index(next);
+        snapshots.put(symbol, next);
+        if (previous == null) {
+            return;
+        }
+        for (Field field : Field.values()) {
+            double stale = field.valueOf(previous);
+            if (!Double.isNaN(stale) && Double.compare(stale, field.valueOf(next)) != 0) {
+                fieldIndex.get(field).remove(new IndexKey(stale, symbol));
+            }
+        }
+        List<Crossover> current = crossoversOf(next);
+        crossoverBuckets.forEach((crossover, bucket) -> {
+            if (!current.contains(crossover)) {
+                bucket.remove(symbol);
+            }
+        });
+    }
+
+    /**
+     * Drop a symbol whose bars were all deleted; rebuild one that lost only its older bars
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockDataDeleted(StockDataDeletedEvent event) {
+        if (event.isAllBars()) {
+            removeSymbol(event.getSymbol());
+            return;
+        }
+        onLane(event.getSymbol(), () -> {
+            try {
+                rebuildSymbol(event.getSymbol());
+            } catch (Exception e) {
+                System.err.println("Error rebuilding screener index for " + event.getSymbol() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Drop a symbol from the index (e.g. after its data was deleted)
+     */
+    public void removeSymbol(String symbol) {
+        removeOnLane(symbol);
+    }
+
+    private CompletableFuture<Void> removeOnLane(String symbol) {
+        return symbolLanes.submit(symbol, () -> {
+            IndicatorSnapshot previous = snapshots.remove(symbol);
+            if (previous != null) {
+                unindex(previous);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Rebuild the whole index from the repository
+     */
+    public int rebuildAll() {
+        List<String> symbols = stockDataRepository.findAllSymbols();
+        Set<String> stored = new HashSet<>(symbols);
+        List<CompletableFuture<Void>> removals = snapshots.keySet().stream()
+            .filter(symbol -> !stored.contains(symbol))
+            .map(this::removeOnLane)
+            .collect(Collectors.toList());
+        rebuildOnLanes(symbols);
+        removals.forEach(CompletableFuture::join);
+        return snapshots.size();
+    }
+
+    /**
+     * Rebuild symbols on their lanes, in parallel across lanes, and wait for all of them
+     */
+    private void rebuildOnLanes(List<String> symbols) {
+        List<CompletableFuture<Void>> rebuilds = symbols.stream()
+            .map(symbol -> symbolLanes.<Void>submit(symbol, () -> {
+                rebuildSymbol(symbol);
+                return null;
+            }))
+            .collect(Collectors.toList());
+        CompletableFuture.allOf(rebuilds.toArray(CompletableFuture<?>[]::new)).join();
+    }
+
+    /**
+     * Run a screen: all range predicates and crossovers must hold. The most selective
+     * structure (a crossover bucket, else the first range predicate's index slice) drives the scan.
+     */
+    public List<IndicatorSnapshot> screen(List<RangePredicate> predicates, Set<Crossover> crossovers, int limit) {
+        Iterable<String> candidates;
+        if (!crossovers.isEmpty()) {
+            candidates = crossovers.stream()
+                .map(crossoverBuckets::get)
+                .min(Comparator.comparingInt(Set::size))
+                .orElse(Collections.emptySet());
+        } else if (!predicates.isEmpty()) {
+            candidates = slice(predicates.get(0));
+        } else {
+            candidates = snapshots.keySet();
+        }
+
+        List<IndicatorSnapshot> results = new ArrayList<>();
+        // While a snapshot is being replaced an index slice can hold both its old and new key
+        Set<String> seen = new HashSet<>();
+        for (String symbol : candidates) {
+            IndicatorSnapshot snapshot = snapshots.get(symbol);
+            if (snapshot == null || !seen.add(symbol) || !matches(snapshot, predicates, crossovers)) {
+                continue;
+            }
+            results.add(snapshot);
+            if (results.size() >= limit) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    public IndicatorSnapshot getSnapshot(String symbol) {
+        return snapshots.get(symbol);
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    private Iterable<String> slice(RangePredicate predicate) {
+        ConcurrentSkipListSet<IndexKey> index = fieldIndex.get(predicate.field);
+        NavigableSet<IndexKey> view = index;
+        if (predicate.min != null) {
+            view = view.tailSet(IndexKey.lowerBound(predicate.min), true);
+        }
+        if (predicate.max != null) {
+            view = view.headSet(IndexKey.upperBound(predicate.max), true);
+        }
+        NavigableSet<IndexKey> range = view;
+        return () -> range.stream().map(key -> key.symbol).iterator();
+    }
+
+    private boolean matches(IndicatorSnapshot snapshot, List<RangePredicate> predicates, Set<Crossover> crossovers) {
+        for (RangePredicate predicate : predicates) {
+            if (!predicate.test(snapshot)) return false;
+        }
+        for (Crossover crossover : crossovers) {
+            if (!crossoverBuckets.get(crossover).contains(snapshot.getSymbol())) return false;
+        }
+        return true;
+    }
+
+    private void index(IndicatorSnapshot snapshot) {
+        for (Field field : Field.values()) {
+            double value = field.valueOf(snapshot);
+            if (!Double.isNaN(value)) {
+                fieldIndex.get(field).add(new IndexKey(value, snapshot.getSymbol()));
+            }
+        }
+        for (Crossover crossover : crossoversOf(snapshot)) {
+            crossoverBuckets.get(crossover).add(snapshot.getSymbol());
+        }
+    }
+
+    private void unindex(IndicatorSnapshot snapshot) {
+        for (Field field : Field.values()) {
+            double value = field.valueOf(snapshot);
+            if (!Double.isNaN(value)) {
+                fieldIndex.get(field).remove(new IndexKey(value, snapshot.getSymbol()));
+            }
+        }
+        for (Set<String> bucket : crossoverBuckets.values()) {
+            bucket.remove(snapshot.getSymbol());
+        }
+    }
+
+    private static List<Crossover> crossoversOf(IndicatorSnapshot snapshot) {
+        List<Crossover> result = new ArrayList<>(2);
+        int ema = snapshot.getEmaCrossover();
+        if (ema > 0) result.add(Crossover.EMA_BULLISH);
+        if (ema < 0) result.add(Crossover.EMA_BEARISH);
+        int macd = snapshot.getMacdCrossover();
+        if (macd > 0) result.add(Crossover.MACD_BULLISH);
+        if (macd < 0) result.add(Crossover.MACD_BEARISH);
+        return result;
+    }
+
+    private StockData toStockData(StockDataEntity entity) {
+        return new StockData(entity.getTimestamp(), entity.getOpen(), entity.getHigh(),
+                entity.getLow(), entity.getClose(), entity.getVolume());
+    }
+
+    /**
+     * Sort key of the per-field index: value first, symbol as tie-breaker
+     */
+    private static final class IndexKey implements Comparable<IndexKey> {
+        private static final String MIN_SYMBOL = "";
+        private static final String MAX_SYMBOL = "\uFFFF";
+
+        private final double value;
+        private final String symbol;
+
+        IndexKey(double value, String symbol) {
+            this.value = value;
+            this.symbol = symbol;
+        }
+
+        static IndexKey lowerBound(double value) { return new IndexKey(value, MIN_SYMBOL); }
+
+        static IndexKey upperBound(double value) { return new IndexKey(value, MAX_SYMBOL); }
+
+        @Override
+        public int compareTo(IndexKey other) {
+            int byValue = Double.compare(value, other.value);
+            return byValue != 0 ? byValue : symbol.compareTo(other.symbol);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof IndexKey)) return false;
+            IndexKey other = (IndexKey) o;
+            return Double.compare(value, other.value) == 0 && symbol.equals(other.symbol);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(value, symbol);
+        }
+    }
+}
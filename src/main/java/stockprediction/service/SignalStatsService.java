@@ -0,0 +1,164 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import stockprediction.entity.PredictionSignalEntity;
+import stockprediction.event.PredictionSignalDeletedEvent;
+import stockprediction.event.PredictionSignalSavedEvent;
+import stockprediction.model.SignalGroupStats;
+import stockprediction.model.SignalStats;
+import stockprediction.repository.PredictionSignalRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+/**
+ * Service for prediction signal statistics. Per-symbol stats come from one GROUP BY query.
+ * The market-wide view is aggregated once, then kept current from save / delete events
+ * instead of being recomputed on every request. Ids are not committed in the order they are
+ * allocated, so the ids below the aggregate's highest one that it did not see are tracked and
+ * still counted when their events arrive.
+ */
+@Service
+public class SignalStatsService {
+
+    // Ids below the aggregate's highest one that are tracked individually; an event for an older id
+    // not yet counted would mean a transaction stayed open across this many inserts
+    private static final long TRACKED_IDS = 10_000;
+
+    @Autowired
+    private PredictionSignalRepository predictionSignalRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Object lock = new Object();
+
+    // The aggregate and the ids it saw are read from one snapshot
+    private TransactionTemplate snapshotTransaction;
+
+    // Per-symbol stats behind /signals/stats; null until first requested
+    private Map<String, SignalStats> market;
+
+    // Highest signal id included by the initial aggregate; events at or below it are already counted,
+    // except for the ids in 'uncounted' and anything at or below 'trackedFrom', which force a reload
+    private long loadedMaxId;
+    private long trackedFrom;
+    private Set<Long> uncounted;
+
+    @PostConstruct
+    void init() {
+        snapshotTransaction = new TransactionTemplate(transactionManager);
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Counts, average confidence, last signal time and per-type breakdown of one symbol
+     */
+    public Map<String, Object> getStats(String symbol) {
+        SignalStats stats = new SignalStats();
+        for (SignalGroupStats row : predictionSignalRepository.findStatsBySymbol(symbol)) {
+            stats.add(row);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("symbol", symbol);
+        response.putAll(stats.toMap());
+        return response;
+    }
+
+    /**
+     * The same statistics across all symbols, plus per-symbol totals
+     */
+    public Map<String, Object> getMarketStats() {
+        SignalStats total = new SignalStats();
+        Map<String, SignalStats> bySymbol = new TreeMap<>();
+        synchronized (lock) {
+            ensureLoaded();
+            for (Map.Entry<String, SignalStats> entry : market.entrySet()) {
+                total.add(entry.getValue());
+                bySymbol.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+
+        Map<String, Object> symbols = new LinkedHashMap<>();
+        for (Map.Entry<String, SignalStats> entry : bySymbol.entrySet()) {
+            Map<String, Object> summary = entry.getValue().toMap();
+            summary.remove("byType");
+            symbols.put(entry.getKey(), summary);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("symbols", bySymbol.size());
+        response.putAll(total.toMap());
+        response.put("bySymbol", symbols);
+        return response;
+    }
+
+    /**
+     * Fold newly saved signals into the market-wide stats
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPredictionSignalSaved(PredictionSignalSavedEvent event) {
+        synchronized (lock) {
+            if (market == null) return; // the first aggregate will include them
+            for (PredictionSignalEntity signal : event.getSignals()) {
+                Long id = signal.getId();
+                if (id != null && id <= loadedMaxId) {
+                    if (id <= trackedFrom) {
+                        market = null; // cannot tell whether it was counted; the next request reloads
+                        return;
+                    }
+                    if (!uncounted.remove(id)) continue;
+                }
+                market.computeIfAbsent(signal.getSymbol(), symbol -> new SignalStats()).add(signal);
+            }
+        }
+    }
+
+    /**
+     * Re-aggregate a symbol some or all of whose signals were deleted
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPredictionSignalDeleted(PredictionSignalDeletedEvent event) {
+        synchronized (lock) {
+            if (market == null) return;
+            SignalStats stats = new SignalStats();
+            for (SignalGroupStats row : predictionSignalRepository.findStatsBySymbol(event.getSymbol())) {
+                stats.add(row);
+            }
+            if (stats.getTotal() == 0) {
+                market.remove(event.getSymbol());
+            } else {
+                market.put(event.getSymbol(), stats);
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (market != null) return;
+        snapshotTransaction.executeWithoutResult(status -> {
+            Map<String, SignalStats> loaded = new HashMap<>();
+            long maxId = 0;
+            for (SignalGroupStats row : predictionSignalRepository.findStatsBySymbolAndType()) {
+                loaded.computeIfAbsent(row.getSymbol(), symbol -> new SignalStats()).add(row);
+                maxId = Math.max(maxId, row.getMaxId());
+            }
+            // The gaps below maxId: ids of transactions still open (or rolled back) when it was read
+            long from = Math.max(0, maxId - TRACKED_IDS);
+            Set<Long> gaps = new HashSet<>();
+            long expected = from + 1;
+            for (long id : predictionSignalRepository.findIdsAfter(from)) {
+                while (expected < id) gaps.add(expected++);
+                expected = id + 1;
+            }
+            market = loaded;
+            loadedMaxId = maxId;
+            trackedFrom = from;
+            uncounted = gaps;
+        });
+    }
+}
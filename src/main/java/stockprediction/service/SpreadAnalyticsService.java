@@ -0,0 +1,354 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import stockprediction.engine.SpreadEngine;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.event.StockDataSavedEvent;
+import stockprediction.model.KeysetCursor;
+import stockprediction.model.SpreadDefinition;
+import stockprediction.model.StockData;
+import stockprediction.repository.StockDataRepository;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service for futures basis and calendar spreads exposed as virtual symbols (SPREAD:A:B, BASIS:F:I).
+ * Historical series are built on demand by a streaming merge of the leg histories, read through
+ * database cursors. Open spreads are followed live from save events with a bounded aligner and a
+ * fixed-size rolling z-score, so each open spread costs constant memory; they are seeded from the
+ * last z-score window of aligned buckets only.
+ */
+@Service
+public class SpreadAnalyticsService {
+
+    // Leg timestamps read per query while looking for where a seed starts
+    private static final int SEED_PAGE = 1000;
+
+    @Autowired
+    private StockDataRepository stockDataRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spreads.zscore-window:20}")
+    private int zScoreWindow;
+
+    @Value("${spreads.align-unit:MINUTES}")
+    private ChronoUnit defaultAlignUnit;
+
+    @Value("${spreads.max-open:64}")
+    private int maxOpen;
+
+    @Value("${spreads.max-pending-per-leg:256}")
+    private int maxPendingPerLeg;
+
+    private final Map<String, OpenSpread> openSpreads = new ConcurrentHashMap<>();
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * True for symbols handled by this service instead of the repository
+     */
+    public boolean isVirtual(String symbol) {
+        return SpreadDefinition.isVirtual(symbol);
+    }
+
+    /**
+     * Build the full historical series of a spread, with rolling z-scores
+     */
+    public SpreadEngine.SpreadSeries getSeries(String symbol) {
+        SpreadDefinition definition = SpreadDefinition.parse(symbol);
+        return withLegs(definition, KeysetCursor.MIN_TIMESTAMP,
+            legs -> SpreadEngine.build(definition, legs, alignUnit(definition), zScoreWindow));
+    }
+
+    /**
+     * Spread bars in ascending order, ready for PredictionEngine / TechnicalIndicators
+     */
+    public List<StockData> getBars(String symbol) {
+        return getSeries(symbol).toStockData();
+    }
+
+    /**
+     * Spread bars as transient (unsaved) entities so repository-shaped callers can serve them
+     */
+    public List<StockDataEntity> getEntities(String symbol) {
+        List<SpreadEngine.SpreadBar> bars = getSeries(symbol).getBars();
+        List<StockDataEntity> entities = new ArrayList<>(bars.size());
+        for (SpreadEngine.SpreadBar bar : bars) {
+            entities.add(new StockDataEntity(symbol, bar.getTimestamp(), bar.getOpen(), bar.getHigh(),
+                bar.getLow(), bar.getClose(), bar.getVolume()));
+        }
+        return entities;
+    }
+
+    /**
+     * Start following a spread live; it is seeded from history first
+     */
+    public Map<String, Object> open(String symbol) {
+        return toSnapshot(openSpread(symbol));
+    }
+
+    /**
+     * Stop following a spread
+     */
+    public boolean close(String symbol) {
+        return openSpreads.remove(symbol) != null;
+    }
+
+    /**
+     * Latest value, rolling statistics and z-score of a spread (opens it if needed)
+     */
+    public Map<String, Object> getSnapshot(String symbol) {
+        return toSnapshot(openSpread(symbol));
+    }
+
+    /**
+     * Snapshots of every open spread
+     */
+    public List<Map<String, Object>> getOpenSnapshots() {
+        return openSpreads.values().stream()
+            .sorted(Comparator.comparing(spread -> spread.definition.getSymbol()))
+            .map(this::toSnapshot)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Feed newly saved leg bars into every open spread that uses the symbol
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockDataSaved(StockDataSavedEvent event) {
+        String symbol = event.getSymbol();
+        List<StockData> bars = null;
+        for (OpenSpread spread : openSpreads.values()) {
+            int leg = spread.definition.getLegs().indexOf(symbol);
+            if (leg < 0) continue;
+            if (bars == null) {
+                bars = event.getBars().stream()
+                    .sorted(Comparator.comparing(StockDataEntity::getTimestamp))
+                    .map(this::toStockData)
+                    .collect(Collectors.toList());
+            }
+            synchronized (spread) {
+                for (StockData bar : bars) {
+                    spread.offer(leg, bar);
+                }
+            }
+        }
+    }
+
+    private OpenSpread openSpread(String symbol) {
+        SpreadDefinition definition = SpreadDefinition.parse(symbol);
+        OpenSpread spread = openSpreads.get(symbol);
+        if (spread == null) {
+            evictIfFull();
+            OpenSpread created = new OpenSpread(definition, alignUnit(definition), zScoreWindow, maxPendingPerLeg);
+            // Registered, then seeded, under its monitor: bars saved after the registration wait for
+            // the seed and come after it, and the per-leg high-water mark drops the ones it included
+            synchronized (created) {
+                spread = openSpreads.putIfAbsent(symbol, created);
+                if (spread == null) {
+                    spread = created;
+                    try {
+                        LocalDateTime since = seedStart(definition, alignUnit(definition), created.zScore.getWindow());
+                        withLegs(definition, since, legs -> {
+                            SpreadEngine.merge(legs, created::offer);
+                            return null;
+                        });
+                    } catch (RuntimeException e) {
+                        openSpreads.remove(symbol, created);
+                        throw e;
+                    }
+                }
+            }
+        }
+        spread.lastAccess = System.currentTimeMillis();
+        return spread;
+    }
+
+    private void evictIfFull() {
+        while (openSpreads.size() >= maxOpen) {
+            openSpreads.values().stream()
+                .min(Comparator.comparingLong(spread -> spread.lastAccess))
+                .ifPresent(oldest -> openSpreads.remove(oldest.definition.getSymbol()));
+        }
+    }
+
+    /**
+     * Run 'work' over ascending cursors of the legs' bars after 'since', in a read-only transaction
+     */
+    private <T> T withLegs(SpreadDefinition definition, LocalDateTime since, Function<List<Iterator<StockData>>, T> work) {
+        return readOnlyTransaction.execute(status -> {
+            List<Stream<StockDataEntity>> cursors = new ArrayList<>(definition.size());
+            try {
+                List<Iterator<StockData>> legs = new ArrayList<>(definition.size());
+                for (String leg : definition.getLegs()) {
+                    Stream<StockDataEntity> rows = stockDataRepository.streamBySymbol(leg, 0L, since);
+                    cursors.add(rows);
+                    legs.add(rows.map(row -> {
+                        StockData bar = toStockData(row);
+                        // Read rows would otherwise stay referenced by the session
+                        entityManager.detach(row);
+                        return bar;
+                    }).iterator());
+                }
+                return work.apply(legs);
+            } finally {
+                cursors.forEach(Stream::close);
+            }
+        });
+    }
+
+    /**
+     * Where a seed of the last 'buckets' aligned buckets (those every leg has a bar in) starts,
+     * found by paging the legs' timestamps backwards: the start of the aligned bucket before them.
+     * That bucket is only partly read, which leaves the rolling z-score over the last 'buckets'
+     * values exact. With fewer aligned buckets, the seed starts before the first bucket of the leg
+     * whose history starts latest, since nothing older can align.
+     */
+    private LocalDateTime seedStart(SpreadDefinition definition, ChronoUnit unit, int buckets) {
+        List<String> legs = definition.getLegs();
+        List<Set<LocalDateTime>> keys = new ArrayList<>(legs.size());
+        LocalDateTime[] before = new LocalDateTime[legs.size()];
+        boolean[] exhausted = new boolean[legs.size()];
+        for (int i = 0; i < legs.size(); i++) {
+            keys.add(new HashSet<>());
+            before[i] = KeysetCursor.MAX_TIMESTAMP;
+        }
+        LocalDateTime floor = null;
+        while (true) {
+            for (int i = 0; i < legs.size(); i++) {
+                if (exhausted[i] || (floor != null && before[i].isBefore(floor))) continue;
+                List<LocalDateTime> page = stockDataRepository.findTimestampsBefore(legs.get(i), before[i],
+                    PageRequest.of(0, SEED_PAGE));
+                for (LocalDateTime timestamp : page) {
+                    keys.get(i).add(timestamp.truncatedTo(unit));
+                }
+                if (!page.isEmpty()) {
+                    before[i] = page.get(page.size() - 1);
+                }
+                if (page.size() < SEED_PAGE) {
+                    exhausted[i] = true;
+                    LocalDateTime first = page.isEmpty() && before[i].equals(KeysetCursor.MAX_TIMESTAMP)
+                        ? KeysetCursor.MAX_TIMESTAMP : before[i].truncatedTo(unit);
+                    floor = floor == null || first.isAfter(floor) ? first : floor;
+                }
+            }
+            // Every leg's keys are complete back to its oldest page, so the common ones are exact
+            TreeSet<LocalDateTime> common = new TreeSet<>(keys.get(0));
+            for (int i = 1; i < keys.size(); i++) {
+                common.retainAll(keys.get(i));
+            }
+            if (common.size() > buckets) {
+                return common.descendingSet().stream().skip(buckets).findFirst().get();
+            }
+            if (floor != null) {
+                boolean done = true;
+                for (int i = 0; i < legs.size(); i++) {
+                    done &= exhausted[i] || before[i].isBefore(floor);
+                }
+                if (done) {
+                    return floor.equals(KeysetCursor.MAX_TIMESTAMP) ? floor : floor.minus(1, unit);
+                }
+            }
+        }
+    }
+
+    private ChronoUnit alignUnit(SpreadDefinition definition) {
+        return definition.getAlignUnit() != null ? definition.getAlignUnit() : defaultAlignUnit;
+    }
+
+    private Map<String, Object> toSnapshot(OpenSpread spread) {
+        synchronized (spread) {
+            SpreadDefinition definition = spread.definition;
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("symbol", definition.getSymbol());
+            snapshot.put("kind", definition.getKind());
+            snapshot.put("legs", definition.getLegs());
+            snapshot.put("weights", definition.getWeights());
+            snapshot.put("alignUnit", alignUnit(definition));
+            snapshot.put("window", spread.zScore.getWindow());
+            snapshot.put("bars", spread.bars);
+            snapshot.put("dropped", spread.aligner.getDropped());
+            SpreadEngine.SpreadBar last = spread.last;
+            if (last != null) {
+                double[] legCloses = last.getLegCloses();
+                snapshot.put("timestamp", last.getTimestamp());
+                snapshot.put("value", last.getClose());
+                snapshot.put("legCloses", legCloses);
+                snapshot.put("mean", spread.zScore.getMean());
+                snapshot.put("stdDev", spread.zScore.getStdDev());
+                snapshot.put("zScore", spread.lastZScore);
+                if (definition.getKind() == SpreadDefinition.Kind.BASIS && legCloses[1] != 0.0) {
+                    snapshot.put("basisPercent", last.getClose() / legCloses[1] * 100.0);
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    private StockData toStockData(StockDataEntity entity) {
+        return new StockData(entity.getTimestamp(), entity.getOpen(), entity.getHigh(),
+            entity.getLow(), entity.getClose(), entity.getVolume());
+    }
+
+    /**
+     * Live state of one followed spread; guarded by its own monitor
+     */
+    private static final class OpenSpread implements SpreadEngine.Listener {
+        private final SpreadDefinition definition;
+        private final SpreadEngine.Aligner aligner;
+        private final SpreadEngine.RollingZScore zScore;
+        private final LocalDateTime[] lastSeen;
+        private SpreadEngine.SpreadBar last;
+        private double lastZScore;
+        private long bars;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        OpenSpread(SpreadDefinition definition, ChronoUnit unit, int window, int maxPending) {
+            this.definition = definition;
+            this.aligner = new SpreadEngine.Aligner(definition.getWeights(), unit, maxPending);
+            this.zScore = new SpreadEngine.RollingZScore(window);
+            this.lastSeen = new LocalDateTime[definition.size()];
+        }
+
+        void offer(int leg, StockData bar) {
+            if (lastSeen[leg] != null && !bar.getTimestamp().isAfter(lastSeen[leg])) {
+                return;
+            }
+            lastSeen[leg] = bar.getTimestamp();
+            aligner.offer(leg, bar, this);
+        }
+
+        @Override
+        public void onBar(SpreadEngine.SpreadBar bar, boolean revision) {
+            lastZScore = revision ? zScore.replaceLast(bar.getClose()) : zScore.push(bar.getClose());
+            last = bar;
+            if (!revision) bars++;
+        }
+    }
+}
@@ -1,14 +1,35 @@
 package stockprediction.service;
 
 import stockprediction.entity.StockDataEntity;
+import stockprediction.event.StockDataDeletedEvent;
+import stockprediction.event.StockDataSavedEvent;
+import stockprediction.model.KeysetCursor;
+import stockprediction.model.KeysetPage;
+import stockprediction.model.SeriesVersion;
 import stockprediction.model.StockData;
 import stockprediction.repository.StockDataRepository;
+import stockprediction.repository.StockRollupRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 
 /**
@@ -18,21 +39,110 @@ import java.util.stream.Collectors;
 @Transactional
 public class StockDataService {
     
+    private static final String INSERT_BAR_SQL =
+        "INSERT INTO stock_data (symbol, timestamp, open_price, high_price, low_price, close_price, volume, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
     @Autowired
     private StockDataRepository stockDataRepository;
     
+    @Autowired
+    private StockRollupRepository stockRollupRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private SpreadAnalyticsService spreadAnalyticsService;
+    
+    @Value("${pagination.default-limit:500}")
+    private int defaultPageLimit;
+    
+    @Value("${pagination.max-limit:5000}")
+    private int maxPageLimit;
+    
+    @Value("${storage.batch-size:1000}")
+    private int batchSize;
+    
     /**
      * Save a single stock data entity
      */
     public StockDataEntity save(StockDataEntity stockData) {
-        return stockDataRepository.save(stockData);
+        StockDataEntity saved = stockDataRepository.save(stockData);
+        publishSaved(Collections.singletonList(saved));
+        return saved;
     }
     
     /**
      * Save multiple stock data entities
      */
     public List<StockDataEntity> saveAll(List<StockDataEntity> stockDataList) {
-        return stockDataRepository.saveAll(stockDataList);
+        List<StockDataEntity> saved = stockDataRepository.saveAll(stockDataList);
+        publishSaved(saved);
+        return saved;
+    }
+    
+    /**
+     * Bulk insert in JDBC batches instead of one persist per row; ids are read back from the
+     * generated keys and the same events as saveAll are published
+     */
+    public List<StockDataEntity> insertAll(List<StockDataEntity> bars) {
+        writeAll(bars);
+        publishSaved(bars);
+        return bars;
+    }
+    
+    /**
+     * Bulk insert like insertAll without notifying listeners; the ingestion pipeline publishes
+     * from a later stage (see publishSaved)
+     */
+    public void writeAll(List<StockDataEntity> bars) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_BAR_SQL, new String[] {"id"})) {
+                for (int from = 0; from < bars.size(); from += batchSize) {
+                    List<StockDataEntity> batch = bars.subList(from, Math.min(bars.size(), from + batchSize));
+                    for (StockDataEntity bar : batch) {
+                        insert.setString(1, bar.getSymbol());
+                        insert.setObject(2, bar.getTimestamp());
+                        insert.setDouble(3, bar.getOpen());
+                        insert.setDouble(4, bar.getHigh());
+                        insert.setDouble(5, bar.getLow());
+                        insert.setDouble(6, bar.getClose());
+                        insert.setLong(7, bar.getVolume());
+                        insert.setObject(8, bar.getCreatedAt());
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                    try (ResultSet keys = insert.getGeneratedKeys()) {
+                        for (StockDataEntity bar : batch) {
+                            if (!keys.next()) break;
+                            bar.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Notify listeners (screener index, caches) about newly written bars, one event per symbol
+     */
+    public void publishSaved(List<StockDataEntity> saved) {
+        publishSaved(saved, null);
+    }
+    
+    /**
+     * The same, for bars whose signals the caller evaluates and stores itself ('signalsStored'
+     * completes when they are stored; see StockDataSavedEvent)
+     */
+    public void publishSaved(List<StockDataEntity> saved, CompletionStage<?> signalsStored) {
+        Map<String, List<StockDataEntity>> bySymbol = saved.stream()
+            .collect(Collectors.groupingBy(StockDataEntity::getSymbol, LinkedHashMap::new, Collectors.toList()));
+        bySymbol.forEach((symbol, bars) -> eventPublisher.publishEvent(new StockDataSavedEvent(symbol, bars, signalsStored)));
     }
     
     /**
@@ -55,7 +165,21 @@ public class StockDataService {
      * Convert and save multiple StockData objects
      */
     public List<StockDataEntity> saveFromStockDataList(List<StockData> stockDataList, String symbol) {
-        List<StockDataEntity> entities = stockDataList.stream()
+        return saveAll(toEntities(stockDataList, symbol));
+    }
+    
+    /**
+     * Convert and bulk insert multiple StockData objects (see insertAll)
+     */
+    public List<StockDataEntity> insertFromStockDataList(List<StockData> stockDataList, String symbol) {
+        return insertAll(toEntities(stockDataList, symbol));
+    }
+    
+    /**
+     * Convert StockData objects to (unsaved) entities of a symbol
+     */
+    public List<StockDataEntity> toEntities(List<StockData> stockDataList, String symbol) {
+        return stockDataList.stream()
             .map(data -> new StockDataEntity(
                 symbol,
                 data.getTimestamp(),
@@ -66,7 +190,6 @@ public class StockDataService {
                 data.getVolume()
             ))
             .collect(Collectors.toList());
-        return saveAll(entities);
     }
     
     /**
@@ -74,9 +197,85 @@ public class StockDataService {
      */
     @Transactional(readOnly = true)
     public List<StockDataEntity> getBySymbol(String symbol) {
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            return spreadAnalyticsService.getEntities(symbol);
+        }
         return stockDataRepository.findBySymbolOrderByTimestampAsc(symbol);
     }
     
+    /**
+     * Get bars of a symbol newer than 'since' and/or stored after 'afterId' (either may be null)
+     */
+    @Transactional(readOnly = true)
+    public List<StockDataEntity> getBySymbolSince(String symbol, LocalDateTime since, Long afterId) {
+        if (since == null && afterId == null) {
+            return getBySymbol(symbol);
+        }
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            // Computed bars have no ids, only the timestamp cursor applies
+            return getBySymbol(symbol).stream()
+                .filter(entity -> since == null || entity.getTimestamp().isAfter(since))
+                .collect(Collectors.toList());
+        }
+        if (afterId == null) {
+            return stockDataRepository.findBySymbolAndTimestampAfter(symbol, since);
+        }
+        List<StockDataEntity> bars = stockDataRepository.findBySymbolAndIdAfter(symbol, afterId);
+        if (since != null) {
+            bars = bars.stream()
+                .filter(entity -> entity.getTimestamp().isAfter(since))
+                .collect(Collectors.toList());
+        }
+        return bars;
+    }
+    
+    /**
+     * One keyset page of a symbol's bars in (timestamp, id) order, optionally restricted to
+     * bars newer than 'since' and/or stored after 'afterId'
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<StockDataEntity> getPageBySymbol(String symbol, LocalDateTime since, Long afterId,
+                                                       String cursor, Integer limit) {
+        int size = pageSize(limit);
+        KeysetCursor seek = cursor != null ? KeysetCursor.decode(cursor)
+            : since != null ? new KeysetCursor(since, Long.MAX_VALUE) : KeysetCursor.first();
+
+        List<StockDataEntity> rows;
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            // Computed bars have unique timestamps and no ids, so the timestamp alone is the key
+            rows = getBySymbol(symbol).stream()
+                .filter(entity -> entity.getTimestamp().isAfter(seek.getTimestamp()))
+                .limit(size + 1L)
+                .collect(Collectors.toList());
+        } else {
+            rows = stockDataRepository.findPageBySymbol(symbol, afterId == null ? 0L : afterId,
+                seek.getTimestamp(), seek.getId(), PageRequest.of(0, size + 1));
+        }
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<StockDataEntity> items = rows.subList(0, size);
+        StockDataEntity last = items.get(size - 1);
+        long lastId = last.getId() == null ? 0L : last.getId();
+        return new KeysetPage<>(items, new KeysetCursor(last.getTimestamp(), lastId).encode());
+    }
+    
+    private int pageSize(Integer limit) {
+        int size = limit == null ? defaultPageLimit : limit;
+        return Math.max(1, Math.min(size, maxPageLimit));
+    }
+    
+    /**
+     * Fingerprint of a symbol's stored bars for ETags; null for computed spread symbols
+     */
+    @Transactional(readOnly = true)
+    public SeriesVersion getVersion(String symbol) {
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            return null;
+        }
+        return stockDataRepository.findVersionBySymbol(symbol);
+    }
+    
     /**
      * Get stock data for a symbol within date range
      */
@@ -84,18 +283,46 @@ public class StockDataService {
     public List<StockDataEntity> getBySymbolAndDateRange(String symbol, 
                                                         LocalDateTime startDate, 
                                                         LocalDateTime endDate) {
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            return spreadAnalyticsService.getEntities(symbol).stream()
+                .filter(entity -> !entity.getTimestamp().isBefore(startDate) && !entity.getTimestamp().isAfter(endDate))
+                .collect(Collectors.toList());
+        }
         return stockDataRepository.findBySymbolAndTimestampBetween(symbol, startDate, endDate);
     }
     
+    /**
+     * Timestamps already stored for a symbol within a range (both ends inclusive)
+     */
+    @Transactional(readOnly = true)
+    public Set<LocalDateTime> getStoredTimestamps(String symbol, LocalDateTime startDate, LocalDateTime endDate) {
+        return new HashSet<>(stockDataRepository.findTimestampsBetween(symbol, startDate, endDate));
+    }
+    
     /**
      * Get latest stock data for a symbol
      */
     @Transactional(readOnly = true)
     public StockDataEntity getLatestBySymbol(String symbol) {
-        List<StockDataEntity> latest = stockDataRepository.findLatestBySymbol(symbol);
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            List<StockDataEntity> bars = spreadAnalyticsService.getEntities(symbol);
+            return bars.isEmpty() ? null : bars.get(bars.size() - 1);
+        }
+        List<StockDataEntity> latest = stockDataRepository.findLatestBySymbol(symbol, PageRequest.of(0, 1));
         return latest.isEmpty() ? null : latest.get(0);
     }
     
+    /**
+     * The newest 'count' bars of a symbol up to 'until', oldest first
+     */
+    @Transactional(readOnly = true)
+    public List<StockDataEntity> getLatestBars(String symbol, LocalDateTime until, int count) {
+        List<StockDataEntity> bars = new ArrayList<>(
+            stockDataRepository.findLatestBySymbolUntil(symbol, until, PageRequest.of(0, count)));
+        Collections.reverse(bars);
+        return bars;
+    }
+    
     /**
      * Get all available symbols
      */
@@ -104,6 +331,18 @@ public class StockDataService {
         return stockDataRepository.findAllSymbols();
     }
     
+    /**
+     * Latest stored bar timestamp of every symbol (one grouped query)
+     */
+    @Transactional(readOnly = true)
+    public Map<String, LocalDateTime> getLatestTimestamps() {
+        Map<String, LocalDateTime> latest = new HashMap<>();
+        for (Object[] row : stockDataRepository.findLatestTimestamps()) {
+            latest.put((String) row[0], (LocalDateTime) row[1]);
+        }
+        return latest;
+    }
+    
     /**
      * Get stock data for multiple symbols
      */
@@ -117,6 +356,9 @@ public class StockDataService {
      */
     @Transactional(readOnly = true)
     public long countBySymbol(String symbol) {
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            return spreadAnalyticsService.getEntities(symbol).size();
+        }
         return stockDataRepository.countBySymbol(symbol);
     }
     
@@ -147,8 +389,12 @@ public class StockDataService {
      * Delete all data for a symbol
      */
     public void deleteBySymbol(String symbol) {
-        List<StockDataEntity> entities = getBySymbol(symbol);
-        stockDataRepository.deleteAll(entities);
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            throw new IllegalArgumentException("Spread symbols are computed and cannot be deleted: " + symbol);
+        }
+        stockDataRepository.deleteAllBySymbol(symbol);
+        stockRollupRepository.deleteAllBySymbol(symbol);
+        eventPublisher.publishEvent(new StockDataDeletedEvent(symbol));
     }
     
     /**
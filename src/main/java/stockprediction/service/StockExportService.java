@@ -0,0 +1,248 @@
+package stockprediction.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.model.KeysetCursor;
+import stockprediction.repository.StockDataRepository;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Service that streams full bar histories straight from a database cursor to the response.
+ * Rows are read with a driver fetch size, written as soon as they arrive and detached from the
+ * persistence context, so an export uses constant memory whatever its size and the first bytes
+ * leave before the query has finished.
+ */
+@Service
+public class StockExportService {
+
+    /**
+     * Output formats of an export
+     */
+    public enum Format {
+        JSON("application/json"),       // one JSON array, same objects as /stocks/{symbol}
+        NDJSON("application/x-ndjson"), // one JSON object per line
+        CSV("text/csv");                // header line then one row per bar
+
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public String getMediaType() { return mediaType; }
+        public String getExtension() { return name().toLowerCase(Locale.ROOT); }
+
+        /**
+         * Parse a ?format= value; throws IllegalArgumentException for unknown formats
+         */
+        public static Format parse(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Unknown export format: " + value);
+            }
+        }
+    }
+
+    private static final String CSV_HEADER = "id,symbol,timestamp,open,high,low,close,volume\n";
+    private static final int FLUSH_EVERY = 1000;
+    // Same text as Jackson's LocalDateTime serializer (toString() drops zero seconds)
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    @Autowired
+    private StockDataRepository stockDataRepository;
+
+    @Autowired
+    private SpreadAnalyticsService spreadAnalyticsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Body that writes the bars of the given symbols (ordered by symbol, then time), optionally
+     * restricted to bars newer than 'since' and/or stored after 'afterId'
+     */
+    public StreamingResponseBody export(Collection<String> symbols, Format format,
+                                        LocalDateTime since, Long afterId) {
+        TreeSet<String> ordered = new TreeSet<>(symbols);
+        return out -> {
+            RowWriter writer = format == Format.CSV ? new CsvWriter(out) : new JsonWriter(out, format);
+            writer.begin();
+            try {
+                // The body runs on an async thread after the request thread returned, so the
+                // cursor needs its own transaction to stay open while rows are written
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    for (String symbol : ordered) {
+                        writeSymbol(symbol, since, afterId, writer);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.end();
+        };
+    }
+
+    private void writeSymbol(String symbol, LocalDateTime since, Long afterId, RowWriter writer) {
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            // Computed bars are not in the table and have no ids
+            for (StockDataEntity bar : spreadAnalyticsService.getEntities(symbol)) {
+                if (since == null || bar.getTimestamp().isAfter(since)) {
+                    write(writer, bar);
+                }
+            }
+            return;
+        }
+        try (Stream<StockDataEntity> rows = stockDataRepository.streamBySymbol(symbol,
+                afterId == null ? 0L : afterId, since == null ? KeysetCursor.MIN_TIMESTAMP : since)) {
+            Iterator<StockDataEntity> it = rows.iterator();
+            while (it.hasNext()) {
+                StockDataEntity row = it.next();
+                write(writer, row);
+                // Without this every exported row would stay referenced by the session
+                entityManager.detach(row);
+            }
+        }
+    }
+
+    private void write(RowWriter writer, StockDataEntity bar) {
+        try {
+            writer.write(bar);
+        } catch (IOException e) {
+            // Client went away: abort the cursor instead of reading the rest of the table
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+        void write(StockDataEntity bar) throws IOException;
+        void end() throws IOException;
+    }
+
+    private final class JsonWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final boolean lines;
+        private long rows;
+
+        JsonWriter(OutputStream out, Format format) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.lines = format == Format.NDJSON;
+            if (lines) generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            if (!lines) generator.writeStartArray();
+        }
+
+        @Override
+        public void write(StockDataEntity bar) throws IOException {
+            // Field by field: going through the ObjectMapper costs a serializer context per row
+            generator.writeStartObject();
+            if (bar.getId() == null) generator.writeNullField("id"); else generator.writeNumberField("id", bar.getId());
+            generator.writeStringField("symbol", bar.getSymbol());
+            writeTime("timestamp", bar.getTimestamp());
+            writeNumber("open", bar.getOpen());
+            writeNumber("high", bar.getHigh());
+            writeNumber("low", bar.getLow());
+            writeNumber("close", bar.getClose());
+            if (bar.getVolume() == null) generator.writeNullField("volume"); else generator.writeNumberField("volume", bar.getVolume());
+            writeTime("createdAt", bar.getCreatedAt());
+            generator.writeEndObject();
+            if (lines) generator.writeRaw('\n');
+            if (++rows % FLUSH_EVERY == 0) generator.flush();
+        }
+
+        @Override
+        public void end() throws IOException {
+            if (!lines) generator.writeEndArray();
+            generator.flush();
+        }
+
+        private void writeNumber(String field, Double value) throws IOException {
+            if (value == null) generator.writeNullField(field); else generator.writeNumberField(field, value);
+        }
+
+        private void writeTime(String field, LocalDateTime value) throws IOException {
+            if (value == null) generator.writeNullField(field); else generator.writeStringField(field, ISO.format(value));
+        }
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private final Writer out;
+        private long rows;
+
+        CsvWriter(OutputStream out) {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            out.write(CSV_HEADER);
+        }
+
+        @Override
+        public void write(StockDataEntity bar) throws IOException {
+            out.write(bar.getId() == null ? "" : bar.getId().toString());
+            out.write(',');
+            out.write(bar.getSymbol());
+            out.write(',');
+            out.write(ISO.format(bar.getTimestamp()));
+            out.write(',');
+            out.write(String.valueOf(bar.getOpen()));
+            out.write(',');
+            out.write(String.valueOf(bar.getHigh()));
+            out.write(',');
+            out.write(String.valueOf(bar.getLow()));
+            out.write(',');
+            out.write(String.valueOf(bar.getClose()));
+            out.write(',');
+            out.write(String.valueOf(bar.getVolume()));
+            out.write('\n');
+            if (++rows % FLUSH_EVERY == 0) out.flush();
+        }
+
+        @Override
+        public void end() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.entity.StockRollupEntity;
+import stockprediction.event.StockDataSavedEvent;
+import stockprediction.model.BarResolution;
+import stockprediction.model.KeysetCursor;
+import stockprediction.repository.StockDataRepository;
+import stockprediction.repository.StockRollupRepository;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service for the daily / weekly / monthly rollups behind long-range charts. Rollups are updated
+ * incrementally from each batch of saved bars, so a 5-year chart reads a few hundred rollup rows
+ * instead of aggregating every stored bar at query time.
+ *
+ * Folds run on the symbol's lane (SymbolLanes) after the bars have committed. The saving thread
+ * never waits for a second pooled connection while holding its own, and batches of one symbol are
+ * folded one at a time, in commit order. A batch whose fold a full lane rejects turns the next
+ * fold of its symbol into a full recompute.
+ */
+@Service
+public class StockRollupService {
+
+    private static final String INSERT_ROLLUP_SQL =
+        "INSERT INTO stock_rollups (symbol, resolution, period_start, open_price, high_price, low_price, close_price, " +
+        "volume, bar_count, first_bar_at, last_bar_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private StockRollupRepository stockRollupRepository;
+
+    @Autowired
+    private StockDataRepository stockDataRepository;
+
+    @Autowired
+    private SpreadAnalyticsService spreadAnalyticsService;
+
+    @Autowired
+    private SymbolLanes symbolLanes;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${rollups.max-bars:2000}")
+    private int defaultMaxBars;
+
+    @Value("${storage.batch-size:1000}")
+    private int batchSize;
+
+    private TransactionTemplate writeTransaction;
+
+    // Symbols with a batch not folded in; their next fold recomputes them from the stored bars
+    private final Set<String> missedFolds = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        // Runs after the bars' transaction has committed, so the rollup write needs a fresh one
+        writeTransaction = new TransactionTemplate(transactionManager);
+        writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Fold newly saved bars into every rollup level
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockDataSaved(StockDataSavedEvent event) {
+        // One lane per symbol: two batches of it must not both create the same period row
+        String symbol = event.getSymbol();
+        try {
+            symbolLanes.execute(symbol, () -> {
+                try {
+                    if (missedFolds.remove(symbol)) {
+                        recompute(symbol);
+                    } else {
+                        writeTransaction.executeWithoutResult(status -> fold(symbol, event.getBars()));
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Rollup update failed for " + symbol + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            missedFolds.add(symbol);
+            System.err.println("Rollup update for " + symbol + " dropped, recomputing it with the next one: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recompute all rollups of a symbol from its stored bars; returns the number of rollups written
+     */
+    public int rebuild(String symbol) {
+        // On the symbol's lane, after any folds still queued for it
+        return symbolLanes.call(symbol, () -> {
+            missedFolds.remove(symbol);
+            return recompute(symbol);
+        });
+    }
+
+    private int recompute(String symbol) {
+        Integer written = writeTransaction.execute(status -> {
+            stockRollupRepository.deleteAllBySymbol(symbol);
+            Map<BarResolution, Map<LocalDateTime, StockRollupEntity>> levels = new EnumMap<>(BarResolution.class);
+            try (Stream<StockDataEntity> rows = stockDataRepository.streamBySymbol(symbol, 0L, KeysetCursor.MIN_TIMESTAMP)) {
+                Iterator<StockDataEntity> it = rows.iterator();
+                while (it.hasNext()) {
+                    StockDataEntity bar = it.next();
+                    for (BarResolution level : BarResolution.ROLLUPS) {
+                        levels.computeIfAbsent(level, l -> new HashMap<>())
+                            .computeIfAbsent(level.periodStart(bar.getTimestamp()), start -> new StockRollupEntity(symbol, level, start))
+                            .add(bar);
+                    }
+                    entityManager.detach(bar);
+                }
+            }
+            List<StockRollupEntity> rollups = new ArrayList<>();
+            levels.values().forEach(level -> rollups.addAll(level.values()));
+            insertAll(rollups);
+            return rollups.size();
+        });
+        return written == null ? 0 : written;
+    }
+
+    /**
+     * Coarsest level that is no finer than 'finest' and still returns at most 'maxBars' bars over
+     * the range (the finest level that fits, MONTH if none does)
+     */
+    @Transactional(readOnly = true)
+    public BarResolution chooseResolution(String symbol, LocalDateTime from, LocalDateTime to,
+                                          BarResolution finest, Integer maxBars) {
+        int limit = maxBars == null ? defaultMaxBars : Math.max(1, maxBars);
+        for (BarResolution level : BarResolution.values()) {
+            if (level.compareTo(finest) < 0) continue;
+            if (level == BarResolution.MONTH || count(symbol, level, from, to) <= limit) {
+                return level;
+            }
+        }
+        return BarResolution.MONTH;
+    }
+
+    /**
+     * Bars of one level over a range, oldest first; rollups are stamped at the start of their
+     * period and include the periods the range starts and ends in
+     */
+    @Transactional(readOnly = true)
+    public List<StockDataEntity> getBars(String symbol, BarResolution level, LocalDateTime from, LocalDateTime to) {
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            // Computed symbols have no stored rollups: aggregate their bars on the fly
+            List<StockDataEntity> bars = spreadAnalyticsService.getEntities(symbol).stream()
+                .filter(bar -> !bar.getTimestamp().isBefore(from) && !bar.getTimestamp().isAfter(to))
+                .collect(Collectors.toList());
+            return level.isRollup() ? aggregate(symbol, level, bars) : bars;
+        }
+        if (!level.isRollup()) {
+            return stockDataRepository.findBySymbolAndTimestampBetween(symbol, from, to);
+        }
+        return stockRollupRepository.findRange(symbol, level, level.periodStart(from), to).stream()
+            .map(StockRollupEntity::toBar)
+            .collect(Collectors.toList());
+    }
+
+    private long count(String symbol, BarResolution level, LocalDateTime from, LocalDateTime to) {
+        if (spreadAnalyticsService.isVirtual(symbol)) {
+            return getBars(symbol, level, from, to).size();
+        }
+        if (!level.isRollup()) {
+            return stockDataRepository.countBySymbolAndTimestampBetween(symbol, from, to);
+        }
+        return stockRollupRepository.countRange(symbol, level, level.periodStart(from), to);
+    }
+
+    private void fold(String symbol, List<StockDataEntity> bars) {
+        for (BarResolution level : BarResolution.ROLLUPS) {
+            Map<LocalDateTime, List<StockDataEntity>> periods = bars.stream()
+                .collect(Collectors.groupingBy(bar -> level.periodStart(bar.getTimestamp())));
+            Map<LocalDateTime, StockRollupEntity> rollups = new HashMap<>();
+            for (StockRollupEntity rollup : stockRollupRepository.findByPeriodStarts(symbol, level, periods.keySet())) {
+                rollups.put(rollup.getPeriodStart(), rollup);
+            }
+            List<StockRollupEntity> created = new ArrayList<>();
+            periods.forEach((start, members) -> {
+                StockRollupEntity rollup = rollups.get(start);
+                if (rollup == null) {
+                    rollup = new StockRollupEntity(symbol, level, start);
+                    created.add(rollup);
+                }
+                members.forEach(rollup::add);
+            });
+            // Loaded rollups are managed and flushed on commit; new periods go in as one batch
+            insertAll(created);
+        }
+    }
+
+    private void insertAll(List<StockRollupEntity> rollups) {
+        jdbcTemplate.batchUpdate(INSERT_ROLLUP_SQL, rollups, batchSize, (insert, rollup) -> {
+            insert.setString(1, rollup.getSymbol());
+            insert.setString(2, rollup.getResolution().name());
+            insert.setObject(3, rollup.getPeriodStart());
+            insert.setDouble(4, rollup.getOpen());
+            insert.setDouble(5, rollup.getHigh());
+            insert.setDouble(6, rollup.getLow());
+            insert.setDouble(7, rollup.getClose());
+            insert.setLong(8, rollup.getVolume());
+            insert.setInt(9, rollup.getBarCount());
+            insert.setObject(10, rollup.getFirstBarAt());
+            insert.setObject(11, rollup.getLastBarAt());
+            insert.setObject(12, rollup.getUpdatedAt());
+        });
+    }
+
+    private List<StockDataEntity> aggregate(String symbol, BarResolution level, List<StockDataEntity> bars) {
+        Map<LocalDateTime, StockRollupEntity> rollups = new TreeMap<>();
+        for (StockDataEntity bar : bars) {
+            rollups.computeIfAbsent(level.periodStart(bar.getTimestamp()), start -> new StockRollupEntity(symbol, level, start))
+                .add(bar);
+        }
+        return rollups.values().stream().map(StockRollupEntity::toBar).collect(Collectors.toList());
+    }
+}
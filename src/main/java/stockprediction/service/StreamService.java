@@ -0,0 +1,369 @@
+package stockprediction.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import stockprediction.entity.PredictionSignalEntity;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.event.PredictionSignalSavedEvent;
+import stockprediction.event.StockDataSavedEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service that pushes new bars and prediction signals to Server-Sent Events subscribers.
+ * Each event is serialized once and the same payload is queued to every interested client.
+ * Clients own a bounded queue; a small shared dispatcher pool drains queues that have work,
+ * so a slow consumer only loses (or coalesces) its own messages and never blocks ingestion.
+ */
+@Service
+public class StreamService {
+
+    public static final String ALL_SYMBOLS = "*";
+
+    /**
+     * What to do when a client's queue is full
+     */
+    public enum OverflowPolicy {
+        COALESCE,     // replace a queued bar of the same symbol with the newer one, then drop the oldest
+        DROP_OLDEST   // drop the oldest queued message
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${stream.client-buffer:256}")
+    private int clientBuffer;
+
+    @Value("${stream.overflow-policy:COALESCE}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${stream.dispatcher-threads:8}")
+    private int dispatcherThreads;
+
+    @Value("${stream.max-batch:64}")
+    private int maxBatch;
+
+    @Value("${stream.max-clients:10000}")
+    private int maxClients;
+
+    @Value("${stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${stream.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    private final Map<String, Set<Client>> subscriptions = new ConcurrentHashMap<>();
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private ExecutorService dispatcher;
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadId = new AtomicInteger();
+        dispatcher = Executors.newFixedThreadPool(Math.max(1, dispatcherThreads), runnable -> {
+            Thread thread = new Thread(runnable, "sse-dispatch-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        for (Client client : clients) {
+            client.emitter.complete();
+        }
+    }
+
+    /**
+     * Register a subscriber for the given symbols ("*" for every symbol).
+     * Returns null when the node is at its subscriber limit.
+     */
+    public SseEmitter subscribe(Collection<String> symbols) {
+        if (clients.size() >= maxClients) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Client client = new Client(emitter, new LinkedHashSet<>(symbols), Math.max(1, clientBuffer));
+        emitter.onCompletion(() -> unregister(client));
+        emitter.onTimeout(() -> unregister(client));
+        emitter.onError(error -> unregister(client));
+
+        clients.add(client);
+        for (String symbol : client.symbols) {
+            subscriptions.computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet()).add(client);
+        }
+
+        Map<String, Object> hello = new LinkedHashMap<>();
+        hello.put("symbols", client.symbols);
+        hello.put("buffer", client.capacity);
+        hello.put("policy", overflowPolicy);
+        enqueue(client, new Message(sequence.incrementAndGet(), "subscribed", null, toJson(hello)));
+        return emitter;
+    }
+
+    /**
+     * Push newly saved bars to subscribers of the symbol
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockDataSaved(StockDataSavedEvent event) {
+        if (clients.isEmpty()) return;
+        List<StockDataEntity> bars = new ArrayList<>(event.getBars());
+        bars.sort(Comparator.comparing(StockDataEntity::getTimestamp));
+        for (StockDataEntity bar : bars) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("symbol", bar.getSymbol());
+            payload.put("id", bar.getId());
+            payload.put("timestamp", bar.getTimestamp());
+            payload.put("open", bar.getOpen());
+            payload.put("high", bar.getHigh());
+            payload.put("low", bar.getLow());
+            payload.put("close", bar.getClose());
+            payload.put("volume", bar.getVolume());
+            // Bars of one symbol coalesce: a lagging chart only needs the newest one
+            fanOut(event.getSymbol(), new Message(sequence.incrementAndGet(), "bar", event.getSymbol(), toJson(payload)));
+        }
+    }
+
+    /**
+     * Push newly saved prediction signals to subscribers of the symbol
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPredictionSignalSaved(PredictionSignalSavedEvent event) {
+        if (clients.isEmpty()) return;
+        for (PredictionSignalEntity signal : event.getSignals()) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("symbol", signal.getSymbol());
+            payload.put("id", signal.getId());
+            payload.put("timestamp", signal.getTimestamp());
+            payload.put("signalType", signal.getSignalType());
+            payload.put("confidence", signal.getConfidence());
+            payload.put("reason", signal.getReason());
+            payload.put("price", signal.getPrice());
+            fanOut(event.getSymbol(), new Message(sequence.incrementAndGet(), "signal", null, toJson(payload)));
+        }
+    }
+
+    /**
+     * Subscriber and delivery counters
+     */
+    public Map<String, Object> getStats() {
+        long queued = 0;
+        long lagging = 0;
+        for (Client client : clients) {
+            synchronized (client) {
+                queued += client.queue.size();
+                if (client.queue.size() >= client.capacity) lagging++;
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("clients", clients.size());
+        stats.put("maxClients", maxClients);
+        stats.put("symbols", subscriptions.size());
+        stats.put("policy", overflowPolicy);
+        stats.put("clientBuffer", clientBuffer);
+        stats.put("dispatcherThreads", dispatcherThreads);
+        stats.put("published", published.get());
+        stats.put("delivered", delivered.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("dropped", dropped.get());
+        stats.put("queued", queued);
+        stats.put("laggingClients", lagging);
+        return stats;
+    }
+
+    private void fanOut(String symbol, Message message) {
+        published.incrementAndGet();
+        Set<Client> direct = subscriptions.get(symbol);
+        if (direct != null) {
+            for (Client client : direct) {
+                enqueue(client, message);
+            }
+        }
+        Set<Client> wildcard = subscriptions.get(ALL_SYMBOLS);
+        if (wildcard != null) {
+            for (Client client : wildcard) {
+                if (direct == null || !direct.contains(client)) {
+                    enqueue(client, message);
+                }
+            }
+        }
+    }
+
+    private void enqueue(Client client, Message message) {
+        synchronized (client) {
+            if (client.closed) return;
+            if (client.queue.size() >= client.capacity) {
+                if (overflowPolicy == OverflowPolicy.COALESCE && message.coalesceKey != null
+                        && removeQueued(client, message.coalesceKey)) {
+                    coalesced.incrementAndGet();
+                } else {
+                    client.queue.pollFirst();
+                    client.unreportedDrops++;
+                    dropped.incrementAndGet();
+                }
+            }
+            client.queue.addLast(message);
+        }
+        schedule(client);
+    }
+
+    private boolean removeQueued(Client client, String coalesceKey) {
+        Iterator<Message> it = client.queue.iterator();
+        while (it.hasNext()) {
+            if (coalesceKey.equals(it.next().coalesceKey)) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void schedule(Client client) {
+        if (client.scheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(client));
+            } catch (RejectedExecutionException e) {
+                client.scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Send up to maxBatch queued messages, then yield the thread so other clients get a turn
+     */
+    private void drain(Client client) {
+        try {
+            for (int i = 0; i < maxBatch; i++) {
+                Message message;
+                long drops;
+                synchronized (client) {
+                    message = client.queue.pollFirst();
+                    drops = client.unreportedDrops;
+                    client.unreportedDrops = 0;
+                }
+                if (drops > 0) {
+                    // Tell the client it missed messages so it can resync through the REST endpoints
+                    client.emitter.send(SseEmitter.event().name("dropped").data("{\"count\":" + drops + "}"));
+                }
+                if (message == null) break;
+                SseEmitter.SseEventBuilder event = message.event == null
+                    ? SseEmitter.event().comment(message.data)
+                    : SseEmitter.event().id(Long.toString(message.id)).name(message.event).data(message.data);
+                client.emitter.send(event);
+                delivered.incrementAndGet();
+            }
+        } catch (IOException | IllegalStateException e) {
+            unregister(client);
+            client.emitter.completeWithError(e);
+            return;
+        } finally {
+            client.scheduled.set(false);
+        }
+        boolean more;
+        synchronized (client) {
+            more = !client.queue.isEmpty() && !client.closed;
+        }
+        if (more) {
+            schedule(client);
+        }
+    }
+
+    private void sendHeartbeats() {
+        Message ping = new Message(0, null, null, "heartbeat");
+        for (Client client : clients) {
+            boolean idle;
+            synchronized (client) {
+                idle = client.queue.isEmpty();
+            }
+            // Heartbeats keep proxies from closing idle streams and surface dead connections
+            if (idle) {
+                enqueue(client, ping);
+            }
+        }
+    }
+
+    private void unregister(Client client) {
+        synchronized (client) {
+            client.closed = true;
+            client.queue.clear();
+        }
+        clients.remove(client);
+        for (String symbol : client.symbols) {
+            subscriptions.computeIfPresent(symbol, (key, set) -> {
+                set.remove(client);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize stream payload", e);
+        }
+    }
+
+    /**
+     * Serialized event shared by every client it is queued to
+     */
+    private static final class Message {
+        private final long id;
+        private final String event;
+        private final String coalesceKey;
+        private final String data;
+
+        Message(long id, String event, String coalesceKey, String data) {
+            this.id = id;
+            this.event = event;
+            this.coalesceKey = coalesceKey;
+            this.data = data;
+        }
+    }
+
+    /**
+     * One subscriber; queue and counters are guarded by the client's monitor
+     */
+    private static final class Client {
+        private final SseEmitter emitter;
+        private final Set<String> symbols;
+        private final int capacity;
+        private final ArrayDeque<Message> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private long unreportedDrops;
+        private boolean closed;
+
+        Client(SseEmitter emitter, Set<String> symbols, int capacity) {
+            this.emitter = emitter;
+            this.symbols = symbols;
+            this.capacity = capacity;
+            this.queue = new ArrayDeque<>(Math.min(capacity, 16));
+        }
+    }
+}
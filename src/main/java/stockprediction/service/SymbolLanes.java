@@ -0,0 +1,327 @@
+package stockprediction.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Per-symbol work runs here: every symbol belongs to one lane, a single thread, so tasks of a
+ * symbol run one at a time in submission order and the state they touch needs no lock. Symbols
+ * start on the lane picked by their hash; lanes default to one per CPU.
+ *
+ * Every lanes.rebalance-interval-ms the busy time of each symbol is compared: a symbol taking at
+ * least lanes.hot-share of all lane time is reported as hot, and while the busiest lane does more
+ * than lanes.imbalance times the average, its symbols are moved to the idlest lane. Only a symbol
+ * with nothing queued is moved, so its order is kept.
+ *
+ * A lane holds at most lanes.queue-capacity waiting tasks. Like a producer of the ingestion
+ * pipeline, a caller that finds its lane full waits up to lanes.offer-timeout-ms for room and then
+ * gets a RejectedExecutionException (thrown by execute() and call(), failing the future of
+ * submit()). Lane threads never wait for room, since the lane they would wait on may be their own.
+ *
+ * call() blocks until the task is done and must not be used from a lane thread.
+ */
+@Service
+public class SymbolLanes {
+
+    @Value("${lanes.count:0}")
+    private int count;
+
+    @Value("${lanes.rebalance-interval-ms:5000}")
+    private long rebalanceIntervalMillis;
+
+    @Value("${lanes.imbalance:1.5}")
+    private double imbalance;
+
+    @Value("${lanes.hot-share:0.25}")
+    private double hotShare;
+
+    @Value("${lanes.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${lanes.offer-timeout-ms:1000}")
+    private long offerTimeoutMillis;
+
+    private final ConcurrentMap<String, Owner> owners = new ConcurrentHashMap<>();
+    private final AtomicLong moves = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile List<String> hotSymbols = Collections.emptyList();
+
+    private Lane[] lanes;
+    private ScheduledExecutorService rebalancer;
+
+    @PostConstruct
+    void start() {
+        lanes = new Lane[count > 0 ? count : Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane("symbol-lane-" + i, Math.max(1, queueCapacity));
+        }
+        if (lanes.length > 1 && rebalanceIntervalMillis > 0) {
+            rebalancer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "symbol-lane-rebalancer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            rebalancer.scheduleWithFixedDelay(this::rebalance, rebalanceIntervalMillis, rebalanceIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (rebalancer != null) {
+            rebalancer.shutdownNow();
+        }
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+    }
+
+    /**
+     * Run 'task' on the symbol's lane; failures are logged. Throws RejectedExecutionException when
+     * the lane stays full.
+     */
+    public void execute(String symbol, Runnable task) {
+        dispatch(symbol, () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Lane task for " + symbol + " failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Run 'task' on the symbol's lane; the future completes with its result, or fails with
+     * RejectedExecutionException when the lane stays full
+     */
+    public <T> CompletableFuture<T> submit(String symbol, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            dispatch(symbol, () -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Run 'task' on the symbol's lane and wait for it
+     */
+    public <T> T call(String symbol, Callable<T> task) {
+        if (Thread.currentThread() instanceof LaneThread) {
+            throw new IllegalStateException("Blocking lane call for " + symbol + " from lane " + Thread.currentThread().getName());
+        }
+        try {
+            return submit(symbol, task).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException
+                ? (RuntimeException) e.getCause()
+                : new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Lanes with their symbols, queue depth and load over the last interval, hot symbols and moves
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, List<String>> symbolsByLane = owners.entrySet().stream()
+            .collect(Collectors.groupingBy(entry -> entry.getValue().lane.name, TreeMap::new,
+                Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+        List<Map<String, Object>> laneStatus = new ArrayList<>();
+        for (Lane lane : lanes) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", lane.name);
+            entry.put("symbols", symbolsByLane.getOrDefault(lane.name, Collections.emptyList()).size());
+            entry.put("queued", lane.executor.getQueue().size());
+            entry.put("completed", lane.executor.getCompletedTaskCount());
+            entry.put("busyPercent", rebalanceIntervalMillis > 0
+                ? Math.round(lane.lastLoadNanos * 100.0 / TimeUnit.MILLISECONDS.toNanos(rebalanceIntervalMillis)) : 0);
+            laneStatus.add(entry);
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("lanes", lanes.length);
+        status.put("symbols", owners.size());
+        status.put("queueCapacity", queueCapacity);
+        status.put("offerTimeoutMs", offerTimeoutMillis);
+        status.put("rejected", rejected.get());
+        status.put("rebalanceIntervalMs", rebalanceIntervalMillis);
+        status.put("hotSymbols", hotSymbols);
+        status.put("moves", moves.get());
+        status.put("perLane", laneStatus);
+        return status;
+    }
+
+    private void dispatch(String symbol, Runnable task) {
+        Owner owner = owners.computeIfAbsent(symbol, key -> new Owner(lanes[Math.floorMod(key.hashCode(), lanes.length)]));
+        long timeoutNanos = Thread.currentThread() instanceof LaneThread ? 0 : TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (true) {
+            // Room is waited for outside the owner's lock, which the lane's tasks take when they finish
+            Lane lane = owner.lane;
+            boolean room;
+            try {
+                room = lane.room.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                room = false;
+            }
+            if (!room) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException(lane.name + " is full (" + queueCapacity + " tasks queued), rejected a task for " + symbol);
+            }
+            // The lane is read and the task queued under the owner's lock, so a move never splits them
+            synchronized (owner) {
+                if (owner.lane == lane) {
+                    owner.queued++;
+                    try {
+                        lane.executor.execute(() -> {
+                            lane.room.release();
+                            run(owner, task);
+                        });
+                    } catch (RejectedExecutionException e) {
+                        owner.queued--;
+                        lane.room.release();
+                        throw e;
+                    }
+                    return;
+                }
+            }
+            // Moved while waiting for room: queue on its new lane instead
+            lane.room.release();
+        }
+    }
+
+    private static void run(Owner owner, Runnable task) {
+        long startedAt = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            owner.busyNanos += System.nanoTime() - startedAt;
+            synchronized (owner) {
+                owner.queued--;
+            }
+        }
+    }
+
+    /**
+     * Measure each symbol's share of the last interval, report the hot ones, then move idle
+     * symbols from the busiest lane to the idlest one while that narrows the gap
+     */
+    void rebalance() {
+        Map<Owner, Long> load = new HashMap<>();
+        Map<Lane, Long> laneLoad = new HashMap<>();
+        long total = 0;
+        for (Owner owner : owners.values()) {
+            long busy = owner.busyNanos;
+            long delta = busy - owner.measuredNanos;
+            owner.measuredNanos = busy;
+            load.put(owner, delta);
+            laneLoad.merge(owner.lane, delta, Long::sum);
+            total += delta;
+        }
+        for (Lane lane : lanes) {
+            lane.lastLoadNanos = laneLoad.getOrDefault(lane, 0L);
+        }
+        if (total == 0) {
+            hotSymbols = Collections.emptyList();
+            return;
+        }
+        long threshold = (long) (hotShare * total);
+        hotSymbols = owners.entrySet().stream()
+            .filter(entry -> load.getOrDefault(entry.getValue(), 0L) >= threshold)
+            .sorted(Comparator.comparingLong((Map.Entry<String, Owner> entry) -> load.get(entry.getValue())).reversed())
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+
+        double average = (double) total / lanes.length;
+        for (int round = 0; round < lanes.length; round++) {
+            Lane busiest = Arrays.stream(lanes).max(Comparator.comparingLong(lane -> laneLoad.getOrDefault(lane, 0L))).get();
+            Lane idlest = Arrays.stream(lanes).min(Comparator.comparingLong(lane -> laneLoad.getOrDefault(lane, 0L))).get();
+            long gap = laneLoad.getOrDefault(busiest, 0L) - laneLoad.getOrDefault(idlest, 0L);
+            if (laneLoad.getOrDefault(busiest, 0L) <= imbalance * average || gap <= 0) {
+                return;
+            }
+            // Moving a symbol with load x turns the gap into |gap - 2x|: best when x is nearest gap / 2
+            Owner candidate = null;
+            for (Map.Entry<Owner, Long> entry : load.entrySet()) {
+                Owner owner = entry.getKey();
+                long x = entry.getValue();
+                if (owner.lane == busiest && x > 0 && x < gap
+                        && (candidate == null || Math.abs(gap - 2 * x) < Math.abs(gap - 2 * load.get(candidate)))) {
+                    candidate = owner;
+                }
+            }
+            if (candidate == null || !moveIfIdle(candidate, idlest)) {
+                return;
+            }
+            laneLoad.merge(busiest, -load.get(candidate), Long::sum);
+            laneLoad.merge(idlest, load.get(candidate), Long::sum);
+        }
+    }
+
+    private boolean moveIfIdle(Owner owner, Lane target) {
+        synchronized (owner) {
+            if (owner.queued > 0) {
+                return false;
+            }
+            owner.lane = target;
+        }
+        moves.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * One single-thread executor; 'room' holds a permit for every task it can still queue
+     */
+    private static final class Lane {
+
+        final String name;
+        final ThreadPoolExecutor executor;
+        final Semaphore room;
+        volatile long lastLoadNanos;
+
+        Lane(String name, int capacity) {
+            this.name = name;
+            this.room = new Semaphore(capacity);
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new LaneThread(runnable, name));
+        }
+    }
+
+    private static final class LaneThread extends Thread {
+
+        LaneThread(Runnable runnable, String name) {
+            super(runnable, name);
+            setDaemon(true);
+        }
+    }
+
+    /**
+     * A symbol's lane and counters. busyNanos is only written by the symbol's tasks, which never
+     * run at the same time; measuredNanos only by the rebalancer.
+     */
+    private static final class Owner {
+
+        volatile Lane lane;
+        int queued;
+        volatile long busyNanos;
+        long measuredNanos;
+
+        Owner(Lane lane) {
+            this.lane = lane;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+-- Baseline schema for the persistent profile (matches the JPA entities; Hibernate only validates it)
+
+CREATE TABLE stock_data (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    symbol      VARCHAR(255) NOT NULL,
+    timestamp   TIMESTAMP    NOT NULL,
+    open_price  DOUBLE       NOT NULL,
+    high_price  DOUBLE       NOT NULL,
+    low_price   DOUBLE       NOT NULL,
+    close_price DOUBLE       NOT NULL,
+    volume      BIGINT       NOT NULL,
+    created_at  TIMESTAMP
+);
+CREATE INDEX idx_stock_data_symbol_timestamp ON stock_data (symbol, timestamp, id);
+CREATE INDEX idx_stock_data_symbol_id ON stock_data (symbol, id);
+
+CREATE TABLE prediction_signals (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    symbol      VARCHAR(255) NOT NULL,
+    timestamp   TIMESTAMP    NOT NULL,
+    signal_type VARCHAR(255) NOT NULL,
+    confidence  DOUBLE       NOT NULL,
+    reason      TEXT,
+    price       DOUBLE       NOT NULL,
+    created_at  TIMESTAMP
+);
+CREATE INDEX idx_signals_symbol_timestamp ON prediction_signals (symbol, timestamp);
+CREATE INDEX idx_signals_symbol_id ON prediction_signals (symbol, id);
+CREATE INDEX idx_signals_timestamp_id ON prediction_signals (timestamp, id);
+CREATE INDEX idx_signals_type_timestamp_id ON prediction_signals (signal_type, timestamp, id);
+
+CREATE TABLE stock_rollups (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    symbol       VARCHAR(255) NOT NULL,
+    resolution   VARCHAR(8)   NOT NULL,
+    period_start TIMESTAMP    NOT NULL,
+    open_price   DOUBLE       NOT NULL,
+    high_price   DOUBLE       NOT NULL,
+    low_price    DOUBLE       NOT NULL,
+    close_price  DOUBLE       NOT NULL,
+    volume       BIGINT       NOT NULL,
+    bar_count    INTEGER      NOT NULL,
+    first_bar_at TIMESTAMP    NOT NULL,
+    last_bar_at  TIMESTAMP    NOT NULL,
+    updated_at   TIMESTAMP,
+    CONSTRAINT uk_stock_rollups_symbol_resolution_period UNIQUE (symbol, resolution, period_start)
+);
@@ -0,0 +1,220 @@
+package stockprediction.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import stockprediction.model.StockData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    private static final String SYMBOL = "VCB";
+    private static final int BARS_PER_BATCH = 2;
+    // 8 byte header + lsn, symbol, bar count and two bars: 129 bytes, so three records fit in a segment
+    private static final int RECORD_BYTES = 8 + 8 + 2 + SYMBOL.length() + 4 + BARS_PER_BATCH * 52;
+    private static final int SEGMENT_BYTES = 3 * RECORD_BYTES + 13;
+
+    @TempDir
+    Path directory;
+
+    private static List<StockData> batch(int index) {
+        List<StockData> bars = new ArrayList<>();
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 0, 0, 123_456_789).plusMinutes(5L * BARS_PER_BATCH * index);
+        for (int i = 0; i < BARS_PER_BATCH; i++) {
+            double open = 100.0 + index + i * 0.25;
+            bars.add(new StockData(time.plusMinutes(5L * i), open, open + 1.5, open - 0.75, open + 0.5, 1000L * index + i));
+        }
+        return bars;
+    }
+
+    /**
+     * Append batches from..from+count-1 and sync
+     */
+    private static void appendBatches(WriteAheadLog wal, int from, int count) throws IOException {
+        for (int i = from; i < from + count; i++) {
+            wal.append(SYMBOL, batch(i));
+        }
+        wal.sync();
+    }
+
+    @Test
+    void replaysEverythingAfterTheCheckpointAcrossSegments() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertTrue(wal.getRecovered().isEmpty());
+            appendBatches(wal, 1, 10);
+            assertEquals(4, segments().size(), "three full segments and the one started at LSN 10");
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertEntries(wal.getRecovered(), 1, 10);
+            wal.checkpoint(4);
+            // Segments 1-3 are covered; 4-6 still holds 5 and 6
+            assertFalse(segments().contains(segmentName(1)));
+            assertTrue(segments().contains(segmentName(4)));
+            assertEquals(11, wal.append(SYMBOL, batch(11)));
+            wal.sync();
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertEntries(wal.getRecovered(), 5, 11);
+        }
+    }
+
+    @Test
+    void tornTailIsZeroedAndNotReplayed() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            appendBatches(wal, 1, 3);
+        }
+        // The last record's header made it to disk, the end of its body did not
+        Path segment = directory.resolve(segmentName(1));
+        int tornAt = 2 * RECORD_BYTES;
+        overwrite(segment, 3 * RECORD_BYTES - 10, new byte[10]);
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertEntries(wal.getRecovered(), 1, 2);
+            byte[] bytes = Files.readAllBytes(segment);
+            for (int i = tornAt; i < bytes.length; i++) {
+                assertEquals(0, bytes[i], "byte " + i + " of the torn segment");
+            }
+            assertEquals(3, wal.append(SYMBOL, batch(3)), "the torn record's LSN is reused");
+            wal.sync();
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertEntries(wal.getRecovered(), 1, 3);
+        }
+    }
+
+    @Test
+    void crcMismatchMidSegmentSetsTheLaterSegmentsAside() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            appendBatches(wal, 1, 9);
+        }
+        // Flip a byte in the body of LSN 5, the middle record of segment 4-6; the length still fits
+        Path segment = directory.resolve(segmentName(4));
+        int position = RECORD_BYTES + 8 + 20;
+        byte[] bytes = Files.readAllBytes(segment);
+        overwrite(segment, position, new byte[] {(byte) ~bytes[position]});
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertEntries(wal.getRecovered(), 1, 4);
+            List<String> files = files();
+            assertTrue(files.contains(segmentName(7) + ".corrupt"), files.toString());
+            assertFalse(files.contains(segmentName(7)), files.toString());
+            assertTrue(files.contains(segmentName(4)), files.toString());
+            bytes = Files.readAllBytes(segment);
+            for (int i = RECORD_BYTES; i < bytes.length; i++) {
+                assertEquals(0, bytes[i], "byte " + i + " of the corrupt segment");
+            }
+            assertEquals(5, wal.append(SYMBOL, batch(5)));
+            wal.sync();
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertEntries(wal.getRecovered(), 1, 5);
+            assertTrue(files().contains(segmentName(7) + ".corrupt"), "set-aside segments are kept for inspection");
+        }
+    }
+
+    @Test
+    void checkpointIsWrittenThroughATemporaryFile() throws IOException {
+        Path checkpoint = directory.resolve("checkpoint");
+        Path temporary = directory.resolve("checkpoint.tmp");
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            appendBatches(wal, 1, 6);
+            wal.checkpoint(3);
+            assertEquals(3L, ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong());
+            assertFalse(Files.exists(temporary));
+
+            wal.checkpoint(2);
+            assertEquals(3L, ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong(), "checkpoints never move back");
+            assertEquals(3L, wal.getStatus().get("checkpointLsn"));
+        }
+        // A crash between writing the temporary file and the move leaves the old checkpoint in force
+        Files.write(temporary, ByteBuffer.allocate(8).putLong(0, 6).array());
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertEntries(wal.getRecovered(), 4, 6);
+            wal.checkpoint(5);
+            assertFalse(Files.exists(temporary));
+            assertEquals(5L, ByteBuffer.wrap(Files.readAllBytes(checkpoint)).getLong());
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertEntries(wal.getRecovered(), 6, 6);
+        }
+    }
+
+    @Test
+    void batchesAfterAFailedPersistAreReplayed() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            appendBatches(wal, 1, 5);
+            // LSN 3 failed to persist while 4 and 5 were stored: the pipeline holds the checkpoint below 3
+            wal.checkpoint(2);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertEntries(wal.getRecovered(), 3, 5);
+            // The retry stored 3; nothing is left to replay
+            wal.checkpoint(5);
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, SEGMENT_BYTES)) {
+            assertTrue(wal.getRecovered().isEmpty());
+            assertTrue(wal.append(SYMBOL, batch(6)) > 5, "LSNs keep increasing past the checkpoint");
+        }
+    }
+
+    private static void assertEntries(List<WriteAheadLog.Entry> entries, int first, int last) {
+        assertEquals(last - first + 1, entries.size(), "recovered entries");
+        for (int i = 0; i < entries.size(); i++) {
+            WriteAheadLog.Entry entry = entries.get(i);
+            int index = first + i;
+            assertEquals(index, entry.getLsn());
+            assertEquals(SYMBOL, entry.getSymbol());
+            List<StockData> expected = batch(index);
+            assertEquals(expected.size(), entry.getBars().size());
+            for (int b = 0; b < expected.size(); b++) {
+                StockData e = expected.get(b);
+                StockData a = entry.getBars().get(b);
+                String what = "LSN " + index + " bar " + b;
+                assertEquals(e.getTimestamp(), a.getTimestamp(), what);
+                assertEquals(e.getOpen(), a.getOpen(), what);
+                assertEquals(e.getHigh(), a.getHigh(), what);
+                assertEquals(e.getLow(), a.getLow(), what);
+                assertEquals(e.getClose(), a.getClose(), what);
+                assertEquals(e.getVolume(), a.getVolume(), what);
+            }
+        }
+    }
+
+    private static String segmentName(long firstLsn) {
+        return String.format("wal-%020d.log", firstLsn);
+    }
+
+    private List<String> segments() throws IOException {
+        return files().stream().filter(name -> name.endsWith(".log")).collect(Collectors.toList());
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void overwrite(Path file, int position, byte[] bytes) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        System.arraycopy(bytes, 0, content, position, bytes.length);
+        Files.write(file, content);
+    }
+}
@@ -0,0 +1,147 @@
+package stockprediction.engine;
+
+import org.junit.jupiter.api.Test;
+import stockprediction.engine.ContinuousContractBuilder.Adjustment;
+import stockprediction.engine.ContinuousContractBuilder.ContinuousSeries;
+import stockprediction.engine.ContinuousContractBuilder.LiveSeries;
+import stockprediction.engine.ContinuousContractBuilder.RollRule;
+import stockprediction.model.StockData;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContinuousContractBuilderTest {
+
+    private static final int BARS_PER_SESSION = 48;
+    private static final int BARS_PER_UPDATE = 8;
+
+    /**
+     * Monthly contracts trading from two months before expiry; volume moves to the next contract in
+     * its last month, with enough noise that crossovers appear and disappear within a day
+     */
+    private static Map<String, List<StockData>> contracts(int months) {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, List<StockData>> contracts = new TreeMap<>();
+        double level = 1000.0;
+        for (int m = 0; m < months; m++) {
+            LocalDate month = LocalDate.of(2024, 1, 1).plusMonths(m);
+            String symbol = String.format("VN30F%02d%02d", month.getYear() % 100, month.getMonthValue());
+            LocalDate expiry = ContinuousContractBuilder.vn30fExpiry(symbol);
+            List<StockData> bars = new ArrayList<>();
+            double price = level * (1.0 + (random.nextDouble() - 0.5) * 0.01);
+            for (LocalDate day = expiry.minusMonths(2); !day.isAfter(expiry); day = day.plusDays(1)) {
+                if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) continue;
+                long baseVolume = day.isAfter(expiry.minusMonths(1)) ? 800 : 60;
+                LocalDateTime time = LocalDateTime.of(day, LocalTime.of(9, 0));
+                for (int i = 0; i < BARS_PER_SESSION; i++) {
+                    double open = price;
+                    price *= 1.0 + (random.nextDouble() - 0.5) * 0.002;
+                    bars.add(new StockData(time, open, Math.max(open, price), Math.min(open, price), price,
+                        baseVolume + random.nextInt(900)));
+                    time = time.plusMinutes(5);
+                }
+            }
+            contracts.put(symbol, bars);
+            level = price;
+        }
+        return contracts;
+    }
+
+    @Test
+    void liveSeriesMatchesAFullBuildAfterEveryUpdate() {
+        Map<String, List<StockData>> contracts = contracts(5);
+        // Every contract's bars in updates of a few bars, in time order across contracts
+        List<Map.Entry<String, List<StockData>>> updates = new ArrayList<>();
+        contracts.forEach((contract, bars) -> {
+            for (int i = 0; i < bars.size(); i += BARS_PER_UPDATE) {
+                updates.add(Map.entry(contract, bars.subList(i, Math.min(bars.size(), i + BARS_PER_UPDATE))));
+            }
+        });
+        updates.sort(Comparator.comparing((Map.Entry<String, List<StockData>> update) -> update.getValue().get(0).getTimestamp())
+            .thenComparing(Map.Entry::getKey));
+
+        for (RollRule rule : RollRule.values()) {
+            for (Adjustment adjustment : Adjustment.values()) {
+                ContinuousContractBuilder builder = new ContinuousContractBuilder(rule, 3, adjustment);
+                Map<String, List<StockData>> stored = new TreeMap<>();
+                LiveSeries live = null;
+                int rolls = 0;
+                for (Map.Entry<String, List<StockData>> update : updates) {
+                    stored.computeIfAbsent(update.getKey(), contract -> new ArrayList<>()).addAll(update.getValue());
+                    if (live == null) {
+                        live = new LiveSeries(builder, copy(stored));
+                    } else {
+                        assertTrue(live.add(update.getKey(), update.getValue()), "in-order bars never need a rebuild");
+                    }
+                    ContinuousSeries expected = builder.build(copy(stored));
+                    assertSameSeries(expected, live.view(), rule + "/" + adjustment + " after "
+                        + update.getKey() + " " + update.getValue().get(0).getTimestamp());
+                    rolls = expected.getRolls().size();
+                }
+                assertTrue(rolls >= 3, rule + "/" + adjustment + " rolled " + rolls + " times");
+            }
+        }
+    }
+
+    @Test
+    void viewIsNotChangedByLaterAppends() {
+        Map<String, List<StockData>> contracts = contracts(3);
+        String active = "VN30F2403";
+        List<StockData> activeBars = contracts.get(active);
+        Map<String, List<StockData>> stored = copy(contracts);
+        stored.put(active, new ArrayList<>(activeBars.subList(0, activeBars.size() - BARS_PER_UPDATE)));
+
+        LiveSeries live = new LiveSeries(new ContinuousContractBuilder(RollRule.DAYS_BEFORE_EXPIRY, 3, Adjustment.BACK), stored);
+        ContinuousSeries before = live.view();
+        int size = before.getBars().size();
+        StockData last = before.getBars().get(size - 1);
+
+        assertTrue(live.add(active, activeBars.subList(activeBars.size() - BARS_PER_UPDATE, activeBars.size())));
+        ContinuousSeries after = live.view();
+
+        assertEquals(size, before.getBars().size());
+        assertSame(last, before.getBars().get(size - 1));
+        assertEquals(size + BARS_PER_UPDATE, after.getBars().size());
+        assertThrows(UnsupportedOperationException.class, () -> before.getBars().add(last));
+    }
+
+    @Test
+    void barsBeforeTheConfirmedRollTakeARebuild() {
+        Map<String, List<StockData>> contracts = contracts(4);
+        LiveSeries live = new LiveSeries(new ContinuousContractBuilder(RollRule.VOLUME_CROSSOVER, 3, Adjustment.BACK), copy(contracts));
+        List<StockData> first = contracts.get("VN30F2402");
+        StockData early = first.get(0);
+        StockData late = new StockData(early.getTimestamp().plusMinutes(1), early.getOpen(), early.getHigh(),
+            early.getLow(), early.getClose(), early.getVolume());
+
+        assertFalse(live.add("VN30F2402", List.of(late)));
+    }
+
+    private static Map<String, List<StockData>> copy(Map<String, List<StockData>> contracts) {
+        Map<String, List<StockData>> copy = new TreeMap<>();
+        contracts.forEach((contract, bars) -> copy.put(contract, new ArrayList<>(bars)));
+        return copy;
+    }
+
+    private static void assertSameSeries(ContinuousSeries expected, ContinuousSeries actual, String what) {
+        assertEquals(expected.getActiveContract(), actual.getActiveContract(), what + ": active contract");
+        assertEquals(expected.getRolls().size(), actual.getRolls().size(), what + ": rolls");
+        for (int i = 0; i < expected.getRolls().size(); i++) {
+            assertEquals(expected.getRolls().get(i).getTimestamp(), actual.getRolls().get(i).getTimestamp(), what + ": roll " + i);
+        }
+        assertEquals(expected.getBars().size(), actual.getBars().size(), what + ": bars");
+        assertEquals(expected.getSourceContracts(), actual.getSourceContracts(), what + ": source contracts");
+        for (int i = 0; i < expected.getBars().size(); i++) {
+            StockData e = expected.getBars().get(i);
+            StockData a = actual.getBars().get(i);
+            assertEquals(e.getTimestamp(), a.getTimestamp(), what + ": bar " + i);
+            assertEquals(e.getOpen(), a.getOpen(), 1e-6, what + ": open of bar " + i);
+            assertEquals(e.getClose(), a.getClose(), 1e-6, what + ": close of bar " + i);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package stockprediction.indicators;
+
+import org.junit.jupiter.api.Test;
+import stockprediction.data.SyntheticMarketGenerator;
+import stockprediction.data.SyntheticMarketGenerator.Regime;
+import stockprediction.model.StockData;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndicatorSnapshotTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    private static List<StockData> bars(int symbolIndex, Regime regime, int count) {
+        SyntheticMarketGenerator generator = new SyntheticMarketGenerator(42, Duration.ofDays(1));
+        return SyntheticMarketGenerator.toStockData(
+            generator.generate(symbolIndex, regime, LocalDateTime.of(2024, 1, 1, 0, 0), count, 100.0));
+    }
+
+    @Test
+    void matchesTechnicalIndicatorsOnEveryBar() {
+        for (Regime regime : Regime.values()) {
+            List<StockData> bars = bars(regime.ordinal(), regime, 300);
+            List<Double> ema20 = TechnicalIndicators.calculateEMA(bars, 20);
+            List<Double> ema50 = TechnicalIndicators.calculateEMA(bars, 50);
+            List<Double> rsi = TechnicalIndicators.calculateRSI(bars, 14);
+            TechnicalIndicators.MACDResult macd = TechnicalIndicators.calculateMACD(bars, 12, 26, 9);
+
+            IndicatorSnapshot snapshot = new IndicatorSnapshot("TEST");
+            for (int i = 0; i < bars.size(); i++) {
+                snapshot.update(bars.get(i));
+                String bar = regime + " bar " + i;
+                assertValue(ema20.get(i), snapshot.getEma20(), "EMA 20, " + bar);
+                assertValue(ema50.get(i), snapshot.getEma50(), "EMA 50, " + bar);
+                assertValue(rsi.get(i), snapshot.getRsi14(), "RSI 14, " + bar);
+                assertValue(macd.getMacdLine().get(i), snapshot.getMacd(), "MACD, " + bar);
+                assertValue(macd.getSignalLine().get(i), snapshot.getMacdSignal(), "MACD signal, " + bar);
+                assertValue(macd.getHistogram().get(i), snapshot.getMacdHistogram(), "MACD histogram, " + bar);
+            }
+            assertEquals(bars.size(), snapshot.getBarCount());
+            assertEquals(bars.get(bars.size() - 1).getTimestamp(), snapshot.getTimestamp());
+        }
+    }
+
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        List<StockData> bars = bars(7, Regime.VOLATILE, 120);
+        IndicatorSnapshot original = IndicatorSnapshot.fromHistory("TEST", bars.subList(0, 100));
+        double ema20 = original.getEma20();
+        double rsi = original.getRsi14();
+        double volumeRatio = original.getVolumeRatio();
+
+        IndicatorSnapshot copy = original.copy();
+        bars.subList(100, 120).forEach(copy::update);
+
+        assertEquals(ema20, original.getEma20());
+        assertEquals(rsi, original.getRsi14());
+        assertEquals(volumeRatio, original.getVolumeRatio());
+        assertEquals(100, original.getBarCount());
+
+        IndicatorSnapshot replayed = IndicatorSnapshot.fromHistory("TEST", bars);
+        assertEquals(replayed.getEma20(), copy.getEma20());
+        assertEquals(replayed.getEma50(), copy.getEma50());
+        assertEquals(replayed.getRsi14(), copy.getRsi14());
+        assertEquals(replayed.getMacd(), copy.getMacd());
+        assertEquals(replayed.getMacdSignal(), copy.getMacdSignal());
+        assertEquals(replayed.getVolumeRatio(), copy.getVolumeRatio());
+        assertEquals(replayed.getEmaCrossover(), copy.getEmaCrossover());
+        assertEquals(replayed.getMacdCrossover(), copy.getMacdCrossover());
+    }
+
+    private static void assertValue(Double expected, double actual, String what) {
+        if (expected == null) {
+            assertTrue(Double.isNaN(actual), what + ": expected no value yet, was " + actual);
+        } else {
+            assertEquals(expected, actual, TOLERANCE, what);
+        }
+    }
+}
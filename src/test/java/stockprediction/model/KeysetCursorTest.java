@@ -0,0 +1,45 @@
+package stockprediction.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void decodeReturnsTheEncodedPosition() {
+        List<KeysetCursor> cursors = List.of(
+            new KeysetCursor(LocalDateTime.of(2024, 3, 1, 9, 15), 42L),
+            new KeysetCursor(LocalDateTime.of(2024, 3, 1, 9, 15, 7, 123_456_789), 0L),
+            new KeysetCursor(LocalDateTime.of(2024, 3, 1, 0, 0), -1L),
+            KeysetCursor.first(),
+            KeysetCursor.last());
+        for (KeysetCursor cursor : cursors) {
+            String token = cursor.encode();
+            assertTrue(token.matches("[A-Za-z0-9_-]+"), "URL-safe and unpadded: " + token);
+            KeysetCursor decoded = KeysetCursor.decode(token);
+            assertEquals(cursor.getTimestamp(), decoded.getTimestamp(), token);
+            assertEquals(cursor.getId(), decoded.getId(), token);
+        }
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        List<String> tokens = List.of("", "not a cursor!", encode("2024-03-01T09:15"), encode("2024-03-01T09:15|x"),
+            encode("yesterday|42"), encode("|42"));
+        for (String token : tokens) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token),
+                token);
+            assertEquals("Invalid cursor: " + token, e.getMessage());
+        }
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
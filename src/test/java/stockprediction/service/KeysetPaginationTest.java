@@ -0,0 +1,156 @@
+package stockprediction.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import stockprediction.entity.PredictionSignalEntity;
+import stockprediction.entity.PredictionSignalEntity.SignalType;
+import stockprediction.entity.StockDataEntity;
+import stockprediction.model.KeysetPage;
+import stockprediction.repository.PredictionSignalRepository;
+import stockprediction.repository.StockDataRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Walks keyset pages through runs of rows with equal timestamps, so that page boundaries fall
+ * inside a run and only the id separates the last row of a page from the first of the next
+ */
+@DataJpaTest
+@Import({StockDataService.class, PredictionSignalService.class})
+class KeysetPaginationTest {
+
+    private static final String SYMBOL = "TEST";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0);
+    private static final int TIMESTAMPS = 5;
+    private static final int ROWS_PER_TIMESTAMP = 7;
+
+    @Autowired
+    private StockDataService stockDataService;
+
+    @Autowired
+    private PredictionSignalService predictionSignalService;
+
+    @Autowired
+    private StockDataRepository stockDataRepository;
+
+    @Autowired
+    private PredictionSignalRepository predictionSignalRepository;
+
+    @MockBean
+    private SpreadAnalyticsService spreadAnalyticsService;
+
+    private List<StockDataEntity> bars;
+    private List<PredictionSignalEntity> signals;
+
+    @BeforeEach
+    void store() {
+        // Timestamps in shuffled order, so id order differs from (timestamp, id) order
+        List<LocalDateTime> times = new ArrayList<>();
+        for (int r = 0; r < ROWS_PER_TIMESTAMP; r++) {
+            for (int t = 0; t < TIMESTAMPS; t++) {
+                times.add(START.plusMinutes(5L * t));
+            }
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = times.size() - 1; i > 0; i--) {
+            times.set(i, times.set(random.nextInt(i + 1), times.get(i)));
+        }
+
+        List<StockDataEntity> rows = new ArrayList<>();
+        List<PredictionSignalEntity> signalRows = new ArrayList<>();
+        for (LocalDateTime time : times) {
+            rows.add(new StockDataEntity(SYMBOL, time, 100.0, 101.0, 99.0, 100.5, 1000L));
+            rows.add(new StockDataEntity("OTHER", time, 100.0, 101.0, 99.0, 100.5, 1000L));
+            signalRows.add(new PredictionSignalEntity(SYMBOL, time, SignalType.LONG, 0.8, "test", 100.0));
+            signalRows.add(new PredictionSignalEntity(SYMBOL, time, SignalType.SHORT, 0.8, "test", 100.0));
+        }
+        bars = stockDataRepository.saveAll(rows).stream()
+            .filter(bar -> bar.getSymbol().equals(SYMBOL))
+            .sorted(Comparator.comparing(StockDataEntity::getTimestamp).thenComparing(StockDataEntity::getId))
+            .collect(Collectors.toList());
+        signals = predictionSignalRepository.saveAll(signalRows).stream()
+            .filter(signal -> signal.getSignalType() == SignalType.LONG)
+            .sorted(Comparator.comparing(PredictionSignalEntity::getTimestamp).thenComparing(PredictionSignalEntity::getId)
+                .reversed())
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void barPagesCoverEveryRowOnceInTimestampIdOrder() {
+        for (int limit = 1; limit <= ROWS_PER_TIMESTAMP + 1; limit++) {
+            List<Long> ids = new ArrayList<>();
+            int pages = 0;
+            String cursor = null;
+            do {
+                KeysetPage<StockDataEntity> page = stockDataService.getPageBySymbol(SYMBOL, null, null, cursor, limit);
+                assertFalse(page.getItems().isEmpty(), "limit " + limit + ": a cursor never leads to an empty page");
+                assertTrue(page.getItems().size() <= limit);
+                page.getItems().forEach(bar -> ids.add(bar.getId()));
+                cursor = page.getNextCursor();
+                pages++;
+            } while (cursor != null);
+
+            assertEquals(ids(bars), ids, "limit " + limit);
+            assertEquals((bars.size() + limit - 1) / limit, pages, "limit " + limit + ": pages");
+        }
+    }
+
+    @Test
+    void barPagesRespectSinceAndAfterId() {
+        LocalDateTime since = START.plusMinutes(5);
+        List<StockDataEntity> expected = bars.stream()
+            .filter(bar -> bar.getTimestamp().isAfter(since))
+            .collect(Collectors.toList());
+        assertEquals(ids(expected), walkBars(since, null, 4));
+
+        long afterId = bars.stream().mapToLong(StockDataEntity::getId).sorted().skip(bars.size() / 2).findFirst().getAsLong();
+        expected = bars.stream()
+            .filter(bar -> bar.getId() > afterId)
+            .collect(Collectors.toList());
+        assertEquals(ids(expected), walkBars(null, afterId, 4));
+    }
+
+    @Test
+    void signalPagesCoverEveryRowOnceNewestFirst() {
+        for (int limit = 1; limit <= ROWS_PER_TIMESTAMP + 1; limit++) {
+            List<Long> ids = new ArrayList<>();
+            String cursor = null;
+            do {
+                KeysetPage<PredictionSignalEntity> page =
+                    predictionSignalService.getPageBySignalType(SignalType.LONG, cursor, limit);
+                assertTrue(page.getItems().size() <= limit);
+                page.getItems().forEach(signal -> ids.add(signal.getId()));
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            assertEquals(signals.stream().map(PredictionSignalEntity::getId).collect(Collectors.toList()), ids,
+                "limit " + limit);
+        }
+    }
+
+    private List<Long> walkBars(LocalDateTime since, Long afterId, int limit) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<StockDataEntity> page = stockDataService.getPageBySymbol(SYMBOL, since, afterId, cursor, limit);
+            page.getItems().forEach(bar -> ids.add(bar.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<Long> ids(List<StockDataEntity> rows) {
+        return rows.stream().map(StockDataEntity::getId).collect(Collectors.toList());
+    }
+}